@@ -12,6 +12,7 @@ import org.team100.lib.config.ElevatorUtil.ScoringLevel;
 import org.team100.lib.config.Feedforward100;
 import org.team100.lib.config.Identity;
 import org.team100.lib.config.PIDConstants;
+import org.team100.lib.framework.Warmable;
 import org.team100.lib.geometry.GlobalAccelerationR3;
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.geometry.HolonomicPose2d;
@@ -61,7 +62,7 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
-public class CalgamesMech extends SubsystemBase implements Music, PositionSubsystemR3, SubsystemPRR {
+public class CalgamesMech extends SubsystemBase implements Music, PositionSubsystemR3, SubsystemPRR, Warmable {
     private static final boolean DEBUG = false;
     private boolean DISABLED = false;
     ////////////////////////////////////////////////////////
@@ -626,6 +627,16 @@ public class CalgamesMech extends SubsystemBase implements Music, PositionSubsys
         return m_jacobian;
     }
 
+    /**
+     * Plan the home-to-L4 path and run the kinematics, the slow parts of the
+     * first move. Doesn't touch the motors.
+     */
+    @Override
+    public void warm() {
+        m_transit.plan(HolonomicPose2d.make(m_home, 0.1), HolonomicPose2d.make(L4, 1.5));
+        m_kinematics.warm();
+    }
+
     @Override
     public void periodic() {
         m_shoulder.periodic();
@@ -11,6 +11,7 @@ import org.team100.lib.subsystems.prr.ElevatorArmWristKinematics;
 import org.team100.lib.subsystems.prr.JointAccelerations;
 import org.team100.lib.subsystems.prr.JointVelocities;
 import org.team100.lib.subsystems.r3.commands.GoToPosePosition;
+import org.team100.lib.trajectory.Trajectory100;
 import org.team100.lib.trajectory.TrajectoryPlanner;
 import org.team100.lib.trajectory.timing.ConstantConstraint;
 import org.team100.lib.trajectory.timing.JointConstraint;
@@ -83,4 +84,9 @@ public class MechTrajectories extends Command {
 
     }
 
+    /** The trajectory the commands would follow, without moving anything. */
+    Trajectory100 plan(HolonomicPose2d start, HolonomicPose2d end) {
+        return m_planner.restToRest(List.of(start, end));
+    }
+
 }
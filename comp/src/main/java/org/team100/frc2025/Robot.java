@@ -1,15 +1,18 @@
 package org.team100.frc2025;
 
+import java.util.Set;
+
 import org.team100.frc2025.robot.AllAutons;
 import org.team100.frc2025.robot.Binder;
 import org.team100.frc2025.robot.Machinery;
-import org.team100.frc2025.robot.Prewarmer;
 import org.team100.lib.coherence.Cache;
 import org.team100.lib.coherence.Takt;
 import org.team100.lib.config.Identity;
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.framework.ParallelPeriodic;
 import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.logging.Logging;
 import org.team100.lib.logging.RobotLog;
 import org.team100.lib.util.Banner;
 
@@ -27,6 +30,7 @@ public class Robot extends TimedRobot100 {
     private final Machinery m_machinery;
     private final AllAutons m_allAutons;
     private final Binder m_binder;
+    private final ParallelPeriodic m_periodic;
 
     public Robot() {
         Banner.printBanner();
@@ -54,7 +58,37 @@ public class Robot extends TimedRobot100 {
         m_binder = new Binder(m_machinery);
         m_binder.bind();
 
-        Prewarmer.init(m_machinery);
+        // Everything after the scheduler, maybe in parallel.
+        m_periodic = new ParallelPeriodic(m_robotLogger, 1);
+        m_machinery.registerPeriodic(m_periodic);
+        m_periodic.add("robot log", m_robotLog::periodic, Set.of(), Set.of(m_robotLog));
+        // Start the workers now, if they're wanted, rather than in the match.
+        m_periodic.setParallel(Experiments.instance.enabled(Experiment.ParallelPeriodic));
+
+        // Save the recent TRACE data when things go wrong, if the recorder is on.
+        Logging.instance().recorder().ifPresent(r -> {
+            r.addTrigger("brownout", RobotController::isBrownedOut, 1);
+            r.addTrigger("overrun", this::overran, 5);
+            m_periodic.addActuator("flight recorder", r::periodic);
+        });
+
+        m_machinery.registerWarmups();
+        waitForDutyCycle();
+        System.out.printf("Total Logger Keys: %d\n", Logging.instance().keyCount());
+    }
+
+    /** The duty cycle encoder produces garbage for a few seconds so sleep. */
+    private static void waitForDutyCycle() {
+        try {
+            System.out.println("Waiting for DutyCycle sensors to work ...");
+            Thread.sleep(1000);
+            System.out.println("Waiting for DutyCycle sensors to work ...");
+            Thread.sleep(1000);
+            System.out.println("Waiting for DutyCycle sensors to work ...");
+            Thread.sleep(1000);
+            System.out.println("Done!");
+        } catch (InterruptedException e) {
+        }
     }
 
     @Override
@@ -64,9 +98,19 @@ public class Robot extends TimedRobot100 {
         // Take all the measurements we can, as soon and quickly as possible.
         Cache.refresh();
         // Run one iteration of the command scheduler.
-        CommandScheduler.getInstance().run();
-        m_machinery.periodic();
-        m_robotLog.periodic();
+        try {
+            CommandScheduler.getInstance().run();
+        } catch (RuntimeException e) {
+            // The program is about to end, so wait for the recorder.
+            Logging.instance().recorder().ifPresent(r -> {
+                r.dump("exception");
+                r.awaitDump(1000);
+            });
+            throw e;
+        }
+        // The experiment can be switched from the dashboard at any time.
+        m_periodic.setParallel(Experiments.instance.enabled(Experiment.ParallelPeriodic));
+        m_periodic.run();
         if (Experiments.instance.enabled(Experiment.FlushOften)) {
             // StrUtil.warn("FLUSHING EVERY LOOP, DO NOT USE IN COMP");
             NetworkTableInstance.getDefault().flush();
@@ -94,6 +138,7 @@ public class Robot extends TimedRobot100 {
     @Override
     public void close() {
         super.close();
+        m_periodic.close();
         m_machinery.close();
         m_allAutons.close();
     }
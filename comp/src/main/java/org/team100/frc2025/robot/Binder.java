@@ -239,6 +239,14 @@ public class Binder {
         whileTrue(operator::rightBumper,
                 m_machinery.m_climber.manual(operator::leftY));
 
+        ////////////////////////////////////////////////////////////
+        //
+        // FLIGHT RECORDER
+        //
+        // Save the last few seconds, e.g. right after something weird happens.
+        Logging.instance().recorder().ifPresent(
+                r -> r.addTrigger("button", operator::leftTrigger, 1));
+
         ////////////////////////////////////////////////////////////
         //
         // TEST
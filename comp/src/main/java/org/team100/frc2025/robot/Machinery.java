@@ -1,6 +1,7 @@
 package org.team100.frc2025.robot;
 
 import java.io.IOException;
+import java.util.Set;
 
 import org.team100.frc2025.CalgamesArm.CalgamesMech;
 import org.team100.frc2025.CalgamesArm.CalgamesViz;
@@ -10,6 +11,9 @@ import org.team100.frc2025.Climber.ClimberVisualization;
 import org.team100.frc2025.grip.Manipulator;
 import org.team100.frc2025.indicator.LEDIndicator;
 import org.team100.lib.coherence.Takt;
+import org.team100.lib.framework.ParallelPeriodic;
+import org.team100.lib.framework.Warmup;
+import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.indicator.Beeper;
 import org.team100.lib.localization.AprilTagFieldLayoutWithCorrectOrientation;
 import org.team100.lib.localization.AprilTagRobotLocalizer;
@@ -19,6 +23,9 @@ import org.team100.lib.localization.SimulatedTagDetector;
 import org.team100.lib.localization.SwerveHistory;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.Logging;
+import org.team100.lib.motor.sim.MotorPhysics;
+import org.team100.lib.profile.incremental.CompleteProfile;
+import org.team100.lib.profile.incremental.TrapezoidIncrementalProfile;
 import org.team100.lib.sensor.gyro.Gyro;
 import org.team100.lib.sensor.gyro.GyroFactory;
 import org.team100.lib.subsystems.swerve.SwerveDriveFactory;
@@ -28,6 +35,8 @@ import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
 import org.team100.lib.subsystems.swerve.module.SwerveModuleCollection;
 import org.team100.lib.targeting.SimulatedTargetWriter;
 import org.team100.lib.targeting.Targets;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
 import org.team100.lib.util.CanId;
 import org.team100.lib.visualization.TrajectoryVisualization;
 
@@ -58,6 +67,9 @@ public class Machinery {
     private final Runnable m_simulatedTagDetector;
     private final Runnable m_targetSimulator;
     private final LEDIndicator m_leds;
+    private final SwerveHistory m_history;
+    /** For periodic(), built on first use. */
+    private ParallelPeriodic m_sequential;
 
     final CalgamesMech m_mech;
     final Manipulator m_manipulator;
@@ -71,6 +83,25 @@ public class Machinery {
     final Beeper m_beeper;
 
     public Machinery() {
+        this(SimulatedTagDetector.Latency.defaults());
+    }
+
+    /**
+     * @param simulatedLatency delay distribution for the simulated cameras,
+     *                         ignored by the real robot.
+     */
+    public Machinery(SimulatedTagDetector.Latency simulatedLatency) {
+        this(simulatedLatency, null);
+    }
+
+    /**
+     * @param simulatedLatency delay distribution for the simulated cameras,
+     *                         ignored by the real robot.
+     * @param physics          for the simulated drive motors, or null to make
+     *                         them obey commands instantly. Ignored by the real
+     *                         robot.
+     */
+    public Machinery(SimulatedTagDetector.Latency simulatedLatency, MotorPhysics physics) {
 
         final LoggerFactory driveLog = logger.name("Drive");
 
@@ -101,22 +132,23 @@ public class Machinery {
                 driveLog,
                 DRIVE_SUPPLY_LIMIT,
                 DRIVE_STATOR_LIMIT,
-                m_swerveKinodynamics);
+                m_swerveKinodynamics,
+                physics);
         final Gyro gyro = GyroFactory.get(
                 driveLog,
                 m_swerveKinodynamics,
                 m_modules);
-        final SwerveHistory history = new SwerveHistory(
+        m_history = new SwerveHistory(
                 m_swerveKinodynamics,
                 gyro.getYawNWU(),
                 m_modules.positions(),
                 Pose2d.kZero,
                 Takt.get());
         final OdometryUpdater odometryUpdater = new OdometryUpdater(
-                m_swerveKinodynamics, gyro, history, m_modules::positions);
+                m_swerveKinodynamics, gyro, m_history, m_modules::positions);
         odometryUpdater.reset(Pose2d.kZero);
         final NudgingVisionUpdater visionUpdater = new NudgingVisionUpdater(
-                history, odometryUpdater);
+                m_history, odometryUpdater);
 
         ////////////////////////////////////////////////////////////
         //
@@ -127,16 +159,16 @@ public class Machinery {
         m_localizer = new AprilTagRobotLocalizer(
                 driveLog,
                 layout,
-                history,
+                m_history,
                 visionUpdater);
-        m_targets = new Targets(driveLog, fieldLogger, history);
+        m_targets = new Targets(driveLog, fieldLogger, m_history);
 
         ////////////////////////////////////////////////////////////
         //
         // SIMULATED CAMERAS
         //
-        m_simulatedTagDetector = SimulatedTagDetector.get(layout, history);
-        m_targetSimulator = SimulatedTargetWriter.get(history);
+        m_simulatedTagDetector = SimulatedTagDetector.get(layout, m_history, simulatedLatency);
+        m_targetSimulator = SimulatedTargetWriter.get(m_history);
 
         ////////////////////////////////////////////////////////////
         //
@@ -148,7 +180,7 @@ public class Machinery {
                 m_swerveKinodynamics,
                 m_localizer,
                 odometryUpdater,
-                history,
+                m_history,
                 m_modules);
         m_drive.resetPose(new Pose2d(m_drive.getPose().getTranslation(), new Rotation2d(Math.PI)));
 
@@ -163,22 +195,66 @@ public class Machinery {
         m_beeper = new Beeper(m_mech, m_manipulator, m_drive);
     }
 
+    /**
+     * Run the tasks in registerPeriodic() once, on this thread, e.g. in
+     * HeadlessSimulation. The robot registers them in its own graph instead.
+     */
     public void periodic() {
-        // publish the simulated tag sightings.
-        m_simulatedTagDetector.run();
-        // publish simulated target sightings
-        m_targetSimulator.run();
-        // show the closest target on field2d
-        m_targets.periodic();
-        m_leds.periodic();
-        m_combinedViz.run();
-        m_climberViz.run();
+        if (m_sequential == null) {
+            m_sequential = new ParallelPeriodic(logger, 0);
+            registerPeriodic(m_sequential);
+        }
+        m_sequential.run();
+    }
+
+    /**
+     * The periodic work, as tasks, so it can run in parallel. This is the only
+     * list of it; periodic() runs the same tasks. The pose history is only read
+     * here; the drive writes it in the scheduler, before these run. The
+     * visualizations read lazy caches, so they write their subsystems.
+     */
+    public void registerPeriodic(ParallelPeriodic periodic) {
+        periodic.add("simulated tags", m_simulatedTagDetector, Set.of(m_history), Set.of(m_localizer));
+        periodic.add("simulated targets", m_targetSimulator, Set.of(m_history), Set.of(m_targets));
+        periodic.add("targets", m_targets::periodic, Set.of(m_history), Set.of(m_targets));
+        periodic.add("mech viz", m_combinedViz, Set.of(), Set.of(m_mech));
+        periodic.add("climber viz", m_climberViz, Set.of(), Set.of(m_climber, m_climberIntake));
+        periodic.addActuator("leds", m_leds::periodic);
+    }
+
+    /**
+     * Add the things that are slow the first time to the warmup list. This used
+     * to be Prewarmer.
+     * 
+     * Warmup runs before the match, so these only compute: plans, profiles,
+     * kinematics, and logging into a scratch logger. None of them writes to an
+     * actuator. The manipulator and the climber intake are plain duty-cycle
+     * and torque commands, with nothing to warm up.
+     */
+    public void registerWarmups() {
+        LoggerFactory warmupLog = logger.name("Warmup");
+        Warmup.register("kinematics", m_swerveKinodynamics.getKinematics());
+        Warmup.register("planner", new TrajectoryPlanner(
+                new TimingConstraintFactory(m_swerveKinodynamics).medium(warmupLog)));
+        Warmup.register("drive", () -> m_swerveKinodynamics.toSwerveModuleStates(
+                SwerveKinodynamics.toInstantaneousChassisSpeeds(
+                        new GlobalVelocityR3(1, 0, 1), Rotation2d.kZero)));
+        Warmup.register("steering profile", m_swerveKinodynamics.getSteeringProfile());
+        Warmup.register("mech", m_mech);
+        // same kinds as the mech and climber profiles, with their own loggers.
+        Warmup.register("mech profile", new CompleteProfile(
+                warmupLog.name("mech"), 2, 6, 4, 5, 50, 50, 0.001));
+        Warmup.register("climber profile", new TrapezoidIncrementalProfile(
+                warmupLog.name("climber"), 1, 2, 0.05));
+        Warmup.register("logging", Logging.instance());
     }
 
     public void close() {
         // this keeps the tests from conflicting via the use of simulated HAL ports.
         m_modules.close();
         m_leds.close();
+        if (m_sequential != null)
+            m_sequential.close();
     }
 
     /** Trap the IO exception. */
@@ -0,0 +1,218 @@
+package org.team100.frc2025.robot;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.team100.lib.coherence.Cache;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.config.ElevatorUtil.ScoringLevel;
+import org.team100.lib.controller.r3.ControllerFactoryR3;
+import org.team100.lib.controller.r3.FullStateControllerR3;
+import org.team100.lib.field.FieldConstants.ReefPoint;
+import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.localization.SimulatedTagDetector;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.Logging;
+import org.team100.lib.motor.sim.MotorPhysics;
+import org.team100.lib.profile.HolonomicProfile;
+import org.team100.lib.tuning.Mutable;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Runs the whole robot, minus the GUI and the real-time loop, as fast as the
+ * CPU allows.
+ *
+ * The HAL clock is paused, and stepped by exactly one loop period per cycle, so
+ * Takt, the caches, and the simulated motors all see the same virtual time they
+ * would see in the real-time sim. Each cycle does what Robot.robotPeriodic()
+ * does, except for the RobotLog.
+ *
+ * Use it like this:
+ *
+ * <pre>
+ * try (HeadlessSimulation sim = new HeadlessSimulation()) {
+ *     Result r = sim.run(m -> someAuton(m), 15);
+ * }
+ * </pre>
+ *
+ * Only one of these should exist at a time, since the HAL, the scheduler, and
+ * the caches are all singletons.
+ */
+public class HeadlessSimulation implements AutoCloseable {
+    private static final boolean DEBUG = false;
+    /** Motor physics substep. */
+    private static final double PHYSICS_DT_S = 0.001;
+
+    private final Machinery m_machinery;
+
+    /**
+     * Outcome of one run.
+     *
+     * @param finished   true if the command ended by itself, false if it timed
+     *                   out
+     * @param matchTimeS simulated time from schedule to finish (or timeout)
+     * @param cycles     number of loop cycles executed
+     * @param wallTimeS  real time spent running the cycles
+     * @param meanLoopS  mean real time per cycle
+     * @param p99LoopS   99th percentile real time per cycle
+     * @param maxLoopS   maximum real time per cycle
+     * @param finalPose  robot pose estimate at the end
+     */
+    public record Result(
+            boolean finished,
+            double matchTimeS,
+            int cycles,
+            double wallTimeS,
+            double meanLoopS,
+            double p99LoopS,
+            double maxLoopS,
+            Pose2d finalPose) {
+
+        /** Simulated seconds per real second. */
+        public double speedup() {
+            return matchTimeS / wallTimeS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "finished %b match time (s) %6.3f cycles %d wall (s) %6.3f speedup %6.1f"
+                            + " loop mean (ms) %6.3f p99 (ms) %6.3f max (ms) %6.3f pose %s",
+                    finished, matchTimeS, cycles, wallTimeS, speedup(),
+                    meanLoopS * 1000, p99LoopS * 1000, maxLoopS * 1000, finalPose);
+        }
+    }
+
+    public HeadlessSimulation() {
+        this(SimulatedTagDetector.Latency.defaults());
+    }
+
+    /** @param latency simulated camera delay distribution */
+    public HeadlessSimulation(SimulatedTagDetector.Latency latency) {
+        this(latency, false);
+    }
+
+    /**
+     * @param latency simulated camera delay distribution
+     * @param physics simulate the drive motor dynamics (see MotorPhysics),
+     *                rather than obeying commands instantly.
+     */
+    public HeadlessSimulation(SimulatedTagDetector.Latency latency, boolean physics) {
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        // Remove anything left over from some previous instance.
+        Cache.clear();
+        Mutable.unpublishAll();
+        CommandScheduler.getInstance().cancelAll();
+        CommandScheduler.getInstance().unregisterAllSubsystems();
+        DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+        Takt.update();
+        m_machinery = new Machinery(latency, physics ? new MotorPhysics(PHYSICS_DT_S, Takt.get()) : null);
+    }
+
+    /** Same as the "Coral 1" autons in AllAutons. */
+    public static Command driveAndScore(Machinery machinery, ScoringLevel level, ReefPoint point) {
+        LoggerFactory autoLog = Logging.instance().rootLogger.name("Auton");
+        HolonomicProfile profile = HolonomicProfile.currentLimitedExponential(1, 2, 4,
+                machinery.m_swerveKinodynamics.getMaxAngleSpeedRad_S(),
+                machinery.m_swerveKinodynamics.getMaxAngleAccelRad_S2(),
+                5);
+        FullStateControllerR3 controller = ControllerFactoryR3.auto2025LooseTolerance(autoLog);
+        return new DriveAndScore(autoLog, machinery, profile, controller).get(level, point);
+    }
+
+    public Machinery machinery() {
+        return m_machinery;
+    }
+
+    /** Tell the localizer where the robot is. */
+    public void resetPose(Pose2d pose) {
+        m_machinery.m_drive.resetPose(pose);
+    }
+
+    /**
+     * Enable autonomous mode, schedule the command, and step until it finishes
+     * or the simulated timeout expires.
+     *
+     * @param factory  makes the command from the machinery, e.g. using
+     *                 DriveAndScore
+     * @param timeoutS simulated time limit
+     */
+    public Result run(Function<Machinery, Command> factory, double timeoutS) {
+        Command command = factory.apply(m_machinery);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+        command.schedule();
+        int maxCycles = (int) Math.ceil(timeoutS / TimedRobot100.LOOP_PERIOD_S);
+        double[] loopS = new double[maxCycles];
+        double startS = Takt.get();
+        long startNs = System.nanoTime();
+        int cycles = 0;
+        while (cycles < maxCycles && command.isScheduled()) {
+            long t0 = System.nanoTime();
+            step();
+            loopS[cycles] = (System.nanoTime() - t0) / 1e9;
+            cycles++;
+        }
+        double wallS = (System.nanoTime() - startNs) / 1e9;
+        boolean finished = !command.isScheduled();
+        command.cancel();
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+        Result result = summarize(
+                finished, Takt.get() - startS, Arrays.copyOf(loopS, cycles), wallS);
+        if (DEBUG)
+            System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Step the clock one loop period, and do everything Robot.robotPeriodic()
+     * does (except logging).
+     */
+    public void step() {
+        SimHooks.stepTiming(TimedRobot100.LOOP_PERIOD_S);
+        Takt.update();
+        Cache.refresh();
+        CommandScheduler.getInstance().run();
+        m_machinery.periodic();
+    }
+
+    @Override
+    public void close() {
+        CommandScheduler.getInstance().cancelAll();
+        CommandScheduler.getInstance().unregisterAllSubsystems();
+        m_machinery.close();
+        Cache.clear();
+        SimHooks.resumeTiming();
+        HAL.shutdown();
+    }
+
+    private Result summarize(boolean finished, double matchTimeS, double[] loopS, double wallS) {
+        int n = loopS.length;
+        Pose2d pose = m_machinery.m_drive.getPose();
+        if (n == 0)
+            return new Result(finished, matchTimeS, 0, wallS, 0, 0, 0, pose);
+        double sum = 0;
+        for (double s : loopS)
+            sum += s;
+        Arrays.sort(loopS);
+        int p99 = Math.min(n - 1, (int) Math.ceil(0.99 * n) - 1);
+        return new Result(
+                finished, matchTimeS, n, wallS, sum / n, loopS[p99], loopS[n - 1], pose);
+    }
+}
@@ -0,0 +1,54 @@
+package org.team100.frc2025.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.frc2025.robot.HeadlessSimulation.Result;
+import org.team100.lib.config.ElevatorUtil.ScoringLevel;
+import org.team100.lib.field.FieldConstants;
+import org.team100.lib.field.FieldConstants.ReefPoint;
+import org.team100.lib.localization.SimulatedTagDetector;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+public class HeadlessSimulationTest {
+    private static final boolean DEBUG = false;
+
+    /** Coral 1 mid, from the center of the starting line. */
+    @Test
+    void testDriveAndScore() {
+        try (HeadlessSimulation sim = new HeadlessSimulation()) {
+            sim.resetPose(new Pose2d(7.2, 4.0, Rotation2d.k180deg));
+            Result result = sim.run(
+                    m -> HeadlessSimulation.driveAndScore(m, ScoringLevel.L4, ReefPoint.H), 15);
+            if (DEBUG)
+                System.out.println(result);
+            assertTrue(result.finished());
+            assertTrue(result.matchTimeS() < 15);
+            // should be much faster than real time.
+            assertTrue(result.speedup() > 1, result.toString());
+        }
+    }
+
+    /**
+     * Same, with the drive motor dynamics. The details depend on the current
+     * limits, so this just checks that the robot gets most of the way there.
+     */
+    @Test
+    void testDriveAndScoreWithPhysics() {
+        Pose2d start = new Pose2d(7.2, 4.0, Rotation2d.k180deg);
+        Pose2d goal = FieldConstants.makeGoal(ScoringLevel.L4, ReefPoint.H);
+        try (HeadlessSimulation sim = new HeadlessSimulation(SimulatedTagDetector.Latency.defaults(), true)) {
+            sim.resetPose(start);
+            Result result = sim.run(
+                    m -> HeadlessSimulation.driveAndScore(m, ScoringLevel.L4, ReefPoint.H), 15);
+            if (DEBUG)
+                System.out.println(result);
+            double startErrorM = start.getTranslation().getDistance(goal.getTranslation());
+            double errorM = result.finalPose().getTranslation().getDistance(goal.getTranslation());
+            assertTrue(errorM < startErrorM / 2, result.toString());
+            assertTrue(result.speedup() > 1, result.toString());
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.team100.frc2025.robot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.team100.frc2025.robot.HeadlessSimulation.Result;
+import org.team100.lib.config.ElevatorUtil.ScoringLevel;
+import org.team100.lib.field.FieldConstants;
+import org.team100.lib.field.FieldConstants.ReefPoint;
+import org.team100.lib.localization.SimulatedTagDetector;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Runs many randomized headless simulations of one auton in parallel, and
+ * summarizes the outcomes.
+ *
+ * The HAL, the command scheduler, the caches, and the loggers are all
+ * per-process singletons, so each trial runs in its own JVM (see main() below),
+ * with its own Network Tables ports, so the trials can't see each other. Each
+ * trial has its own seed, which determines the starting pose perturbation and
+ * the camera latency distribution.
+ *
+ * The scenario is "Coral 1 mid" (DriveAndScore to L4 at H) from the center of
+ * the starting line.
+ */
+public class MonteCarlo {
+    private static final boolean DEBUG = false;
+    private static final String PREFIX = "TRIAL";
+    /**
+     * Wall-clock allowance for a child, on top of the simulated time limit, for
+     * JVM and HAL startup. The simulation itself runs faster than real time.
+     */
+    private static final double STARTUP_S = 30;
+    private static final ScoringLevel LEVEL = ScoringLevel.L4;
+    private static final ReefPoint POINT = ReefPoint.H;
+    /** Center of the starting line, facing the reef. */
+    private static final Pose2d NOMINAL_START = new Pose2d(7.2, 4.0, Rotation2d.k180deg);
+
+    /** Inputs for one run. */
+    public record Trial(long seed, Pose2d start, double meanDelayS, double stdevDelayS) {
+        /** Perturb the start by a few cm and a few degrees, and vary the latency. */
+        public static Trial random(long seed) {
+            Random random = new Random(seed);
+            Pose2d start = new Pose2d(
+                    NOMINAL_START.getX() + 0.05 * random.nextGaussian(),
+                    NOMINAL_START.getY() + 0.05 * random.nextGaussian(),
+                    NOMINAL_START.getRotation().plus(new Rotation2d(0.05 * random.nextGaussian())));
+            double meanDelayS = 0.05 + 0.07 * random.nextDouble();
+            double stdevDelayS = 0.005 + 0.025 * random.nextDouble();
+            return new Trial(seed, start, meanDelayS, stdevDelayS);
+        }
+    }
+
+    /**
+     * Result of one run. A child that crashed, i.e. didn't print a result, has
+     * maxLoopS of -1; see crashed().
+     */
+    public record Outcome(Trial trial, boolean finished, double matchTimeS, Pose2d finalPose, double maxLoopS) {
+        /** The child didn't report anything. */
+        public static Outcome crash(Trial trial) {
+            return new Outcome(trial, false, 0, trial.start(), -1);
+        }
+
+        public boolean crashed() {
+            return maxLoopS < 0;
+        }
+
+        /** Distance from the scoring goal. */
+        public double errorM() {
+            return finalPose.getTranslation().getDistance(
+                    FieldConstants.makeGoal(LEVEL, POINT).getTranslation());
+        }
+    }
+
+    /** Summary of all the runs. Crashes are not included in the statistics. */
+    public record Report(
+            int runs,
+            int successes,
+            int crashes,
+            double meanMatchTimeS,
+            double maxMatchTimeS,
+            double meanErrorM,
+            double maxErrorM,
+            double maxLoopS,
+            double wallTimeS) {
+
+        /** Of the runs that didn't crash. */
+        public double successRate() {
+            if (runs == crashes)
+                return 0;
+            return (double) successes / (runs - crashes);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "runs %d crashes %d success %5.1f%% match time mean (s) %6.3f max %6.3f"
+                            + " error mean (m) %6.3f max %6.3f max loop (ms) %6.3f wall (s) %6.1f",
+                    runs, crashes, 100 * successRate(), meanMatchTimeS, maxMatchTimeS,
+                    meanErrorM, maxErrorM, maxLoopS * 1000, wallTimeS);
+        }
+    }
+
+    /**
+     * Run the trials, each in its own JVM, at most parallelism at a time.
+     *
+     * @param trials      what to run
+     * @param parallelism how many JVMs at once, e.g. the number of cores
+     * @param timeoutS    simulated time limit for each trial
+     */
+    public static Report run(List<Trial> trials, int parallelism, double timeoutS)
+            throws InterruptedException, ExecutionException {
+        long startNs = System.nanoTime();
+        List<Outcome> outcomes = outcomes(trials, parallelism, timeoutS);
+        return summarize(outcomes, (System.nanoTime() - startNs) / 1e9);
+    }
+
+    /** Run the trials, and return the outcomes in the same order. */
+    static List<Outcome> outcomes(List<Trial> trials, int parallelism, double timeoutS)
+            throws InterruptedException, ExecutionException {
+        // each concurrent trial needs its own Network Tables ports.
+        BlockingQueue<Integer> offsets = new ArrayBlockingQueue<>(parallelism);
+        for (int i = 1; i <= parallelism; ++i) {
+            offsets.add(i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (Trial trial : trials) {
+                futures.add(pool.submit(() -> {
+                    int offset = offsets.take();
+                    try {
+                        return launch(trial, offset, timeoutS);
+                    } finally {
+                        offsets.put(offset);
+                    }
+                }));
+            }
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> f : futures) {
+                outcomes.add(f.get());
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static Report summarize(List<Outcome> outcomes, double wallTimeS) {
+        int successes = 0;
+        int crashes = 0;
+        double sumTime = 0;
+        double maxTime = 0;
+        double sumError = 0;
+        double maxError = 0;
+        double maxLoop = 0;
+        for (Outcome o : outcomes) {
+            if (DEBUG)
+                System.out.println(o);
+            if (o.crashed()) {
+                crashes++;
+                continue;
+            }
+            if (o.finished()) {
+                successes++;
+            }
+            sumTime += o.matchTimeS();
+            maxTime = Math.max(maxTime, o.matchTimeS());
+            sumError += o.errorM();
+            maxError = Math.max(maxError, o.errorM());
+            maxLoop = Math.max(maxLoop, o.maxLoopS());
+        }
+        int runs = outcomes.size();
+        int n = runs - crashes;
+        if (n == 0)
+            return new Report(runs, 0, crashes, 0, 0, 0, 0, 0, wallTimeS);
+        return new Report(runs, successes, crashes, sumTime / n, maxTime, sumError / n, maxError, maxLoop,
+                wallTimeS);
+    }
+
+    /**
+     * Run one trial in a child JVM with the same classpath as this one. A child
+     * that fails, or hangs past the wall-clock limit, is a crash.
+     */
+    private static Outcome launch(Trial trial, int offset, double timeoutS)
+            throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(
+                java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                "-Dteam100.nt.offset=" + offset,
+                MonteCarlo.class.getName(),
+                Long.toString(trial.seed()),
+                Double.toString(timeoutS));
+        // a file, not a pipe, so a hung child can't block the read.
+        Path out = Files.createTempFile("montecarlo", ".txt");
+        try {
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(out.toFile());
+            Process process = builder.start();
+            if (!process.waitFor((long) (STARTUP_S + timeoutS), TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                process.waitFor();
+                return Outcome.crash(trial);
+            }
+            if (process.exitValue() != 0) {
+                // count it separately, not as a failure.
+                return Outcome.crash(trial);
+            }
+            String line = null;
+            for (String l : Files.readAllLines(out)) {
+                if (l.startsWith(PREFIX))
+                    line = l;
+            }
+            if (line == null)
+                return Outcome.crash(trial);
+            return parse(trial, line);
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    private static Outcome parse(Trial trial, String line) {
+        String[] f = line.split(" ");
+        return new Outcome(
+                trial,
+                Boolean.parseBoolean(f[1]),
+                Double.parseDouble(f[2]),
+                new Pose2d(Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+                        new Rotation2d(Double.parseDouble(f[5]))),
+                Double.parseDouble(f[6]));
+    }
+
+    /**
+     * Child process entry point: run one trial and print the outcome. Exits
+     * nonzero if the trial throws.
+     *
+     * args: seed, timeout (s)
+     */
+    public static void main(String[] args) {
+        int status = 1;
+        try {
+            runChild(args);
+            status = 0;
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            // the NT and logging threads would otherwise keep the JVM alive.
+            System.exit(status);
+        }
+    }
+
+    private static void runChild(String[] args) {
+        Trial trial = Trial.random(Long.parseLong(args[0]));
+        double timeoutS = Double.parseDouble(args[1]);
+        SimulatedTagDetector.Latency latency = new SimulatedTagDetector.Latency(
+                new Random(trial.seed()), trial.meanDelayS(), trial.stdevDelayS());
+        Result result;
+        try (HeadlessSimulation sim = new HeadlessSimulation(latency)) {
+            sim.resetPose(trial.start());
+            result = sim.run(m -> HeadlessSimulation.driveAndScore(m, LEVEL, POINT), timeoutS);
+        }
+        Pose2d pose = result.finalPose();
+        // not printf, to avoid locale-specific formatting.
+        System.out.println(String.join(" ",
+                PREFIX,
+                Boolean.toString(result.finished()),
+                Double.toString(result.matchTimeS()),
+                Double.toString(pose.getX()),
+                Double.toString(pose.getY()),
+                Double.toString(pose.getRotation().getRadians()),
+                Double.toString(result.maxLoopS())));
+    }
+}
@@ -0,0 +1,79 @@
+package org.team100.frc2025.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.frc2025.robot.MonteCarlo.Outcome;
+import org.team100.frc2025.robot.MonteCarlo.Report;
+import org.team100.frc2025.robot.MonteCarlo.Trial;
+import org.team100.lib.config.ElevatorUtil.ScoringLevel;
+import org.team100.lib.field.FieldConstants;
+import org.team100.lib.field.FieldConstants.ReefPoint;
+
+public class MonteCarloTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+    private static final double TIMEOUT_S = 15;
+
+    @Test
+    void testTrialsAreRepeatable() {
+        assertEquals(Trial.random(1), Trial.random(1));
+        assertNotEquals(Trial.random(1), Trial.random(2));
+    }
+
+    @Test
+    void testSummarize() {
+        List<Outcome> outcomes = List.of(
+                new Outcome(Trial.random(0), true, 4, FieldConstants.makeGoal(ScoringLevel.L4, ReefPoint.H), 0.002),
+                new Outcome(Trial.random(1), false, 15, Trial.random(1).start(), 0.005));
+        Report report = MonteCarlo.summarize(outcomes, 1);
+        assertEquals(2, report.runs());
+        assertEquals(0, report.crashes());
+        assertEquals(0.5, report.successRate(), DELTA);
+        assertEquals(9.5, report.meanMatchTimeS(), DELTA);
+        assertEquals(15, report.maxMatchTimeS(), DELTA);
+        assertEquals(0.005, report.maxLoopS(), DELTA);
+    }
+
+    /** Crashes are counted, but not included in the statistics. */
+    @Test
+    void testSummarizeCrash() {
+        List<Outcome> outcomes = List.of(
+                new Outcome(Trial.random(0), true, 4, FieldConstants.makeGoal(ScoringLevel.L4, ReefPoint.H), 0.002),
+                Outcome.crash(Trial.random(1)));
+        assertTrue(outcomes.get(1).crashed());
+        Report report = MonteCarlo.summarize(outcomes, 1);
+        assertEquals(2, report.runs());
+        assertEquals(1, report.crashes());
+        assertEquals(1, report.successRate(), DELTA);
+        assertEquals(4, report.meanMatchTimeS(), DELTA);
+        assertEquals(0.002, report.maxLoopS(), DELTA);
+    }
+
+    /** A small batch, to make sure the child processes work. */
+    @Test
+    void testRun() throws Exception {
+        List<Trial> trials = new ArrayList<>();
+        for (long seed = 0; seed < 2; ++seed) {
+            trials.add(Trial.random(seed));
+        }
+        List<Outcome> outcomes = MonteCarlo.outcomes(trials, 2, TIMEOUT_S);
+        Report report = MonteCarlo.summarize(outcomes, 0);
+        if (DEBUG)
+            System.out.println(report);
+        assertEquals(2, report.runs());
+        assertEquals(0, report.crashes());
+        // the perturbations are small, so every run should score, in time,
+        // within the controller's loose tolerance (3.5 cm per axis).
+        assertEquals(1, report.successRate(), DELTA);
+        assertTrue(report.maxMatchTimeS() < TIMEOUT_S, report.toString());
+        assertTrue(report.maxErrorM() < 0.1, report.toString());
+        // the child actually ran the loop, and reported it.
+        assertTrue(report.maxLoopS() > 0);
+    }
+}
@@ -0,0 +1,46 @@
+package org.team100.lib.kinematics.urdf;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.numbers.N5;
+
+/** Numerical inverse kinematics for the five-axis arm. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URDFBenchmark {
+    private URDFAL5D m_robot;
+    private Vector<N5> m_q0;
+    private Pose3d m_goal;
+
+    @Setup
+    public void setup() {
+        m_robot = URDFAL5D.make();
+        m_q0 = VecBuilder.fill(0.1, 0.1, 0.1, 0.1, 0.1);
+        m_goal = new Pose3d(0.2, 0, 0.1, new Rotation3d());
+    }
+
+    @Benchmark
+    public Map<String, Double> inverse() {
+        return m_robot.inverse(m_q0, 2, "center_point", m_goal);
+    }
+}
@@ -0,0 +1,96 @@
+package org.team100.lib.localization;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.sensor.gyro.MockGyro;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Vision updates, which replay the odometry since the sight. See
+ * SwerveDrivePoseEstimator100PerformanceTest for the budget discussion.
+ *
+ * The buffer is full and trimmed, as in steady state: odometry runs for twice
+ * the buffer duration first. A recent sight replays a few entries; an old one,
+ * just inside the window, replays them all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OdometryReplayBenchmark {
+    private static final double[] STATE_SIGMA = new double[] { 0.1, 0.1, 0.1 };
+    private static final double[] VISION_SIGMA = new double[] { 0.5, 0.5, Double.MAX_VALUE };
+    private static final double DT = 0.02;
+
+    private final Pose2d m_visionPose = new Pose2d(1, 0, Rotation2d.kZero);
+    private SwerveModulePositions m_positions;
+    private NudgingVisionUpdater m_visionUpdater;
+    private double m_recent;
+    private double m_old;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(log);
+        SwerveHistory history = new SwerveHistory(
+                kinodynamics,
+                Rotation2d.kZero,
+                SwerveModulePositions.kZero(),
+                Pose2d.kZero,
+                0);
+        m_positions = p(0);
+        OdometryUpdater odometryUpdater = new OdometryUpdater(
+                kinodynamics, new MockGyro(), history, () -> m_positions);
+        odometryUpdater.reset(Pose2d.kZero, 0);
+        m_visionUpdater = new NudgingVisionUpdater(history, odometryUpdater);
+        int steps = (int) Math.round(2 * SwerveHistory.BUFFER_DURATION / DT);
+        for (int i = 1; i <= steps; ++i) {
+            double t = i * DT;
+            m_positions = p(t);
+            odometryUpdater.update(t);
+        }
+        int capacity = (int) Math.round(SwerveHistory.BUFFER_DURATION / DT);
+        if (history.size() != capacity)
+            throw new IllegalStateException("buffer size " + history.size() + " != " + capacity);
+        double last = history.lastKey();
+        m_recent = last - 0.1;
+        m_old = last - SwerveHistory.BUFFER_DURATION + DT / 2;
+    }
+
+    @Benchmark
+    public void recent() {
+        m_visionUpdater.put(m_recent, m_visionPose, STATE_SIGMA, VISION_SIGMA);
+    }
+
+    @Benchmark
+    public void old() {
+        m_visionUpdater.put(m_old, m_visionPose, STATE_SIGMA, VISION_SIGMA);
+    }
+
+    private static SwerveModulePositions p(double x) {
+        SwerveModulePosition100 m = new SwerveModulePosition100(x, Optional.of(Rotation2d.kZero));
+        return new SwerveModulePositions(m, m, m, m);
+    }
+}
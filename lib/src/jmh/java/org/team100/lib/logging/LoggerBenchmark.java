@@ -0,0 +1,64 @@
+package org.team100.lib.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.primitive.NTPrimitiveLogger;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+/**
+ * Typed loggers, with the test backend, i.e. the cost of the logging layer
+ * itself, and with the NetworkTables backend, which is what the robot uses.
+ *
+ * The NT backend needs the desktop natives; see the jmh task in build.gradle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+    @Param({ "test", "nt" })
+    public String backend;
+
+    private DoubleLogger m_double;
+    private DoubleArrayLogger m_doubleArray;
+    private double m_value;
+    private double[] m_array;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = switch (backend) {
+            case "nt" -> new LoggerFactory(() -> Level.TRACE, "bench", new NTPrimitiveLogger());
+            default -> new TestLoggerFactory(new TestPrimitiveLogger());
+        };
+        m_double = log.doubleLogger(Level.TRACE, "double");
+        m_doubleArray = log.doubleArrayLogger(Level.TRACE, "doubleArray");
+        m_array = new double[8];
+    }
+
+    @Benchmark
+    public void logDouble() {
+        m_value += 1;
+        m_double.log(() -> m_value);
+    }
+
+    @Benchmark
+    public void logDoubleArray() {
+        m_array[0] += 1;
+        m_doubleArray.log(() -> m_array);
+    }
+}
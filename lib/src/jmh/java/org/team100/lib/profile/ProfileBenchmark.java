@@ -0,0 +1,66 @@
+package org.team100.lib.profile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.profile.incremental.TrapezoidIncrementalProfile;
+import org.team100.lib.state.Control100;
+import org.team100.lib.state.ControlR3;
+import org.team100.lib.state.Model100;
+import org.team100.lib.state.ModelR3;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * One step of the profiles used by the drive and the mechanisms, from the
+ * middle of a move, i.e. not the trivial at-goal case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileBenchmark {
+    private HolonomicProfile m_holonomic;
+    private ModelR3 m_initial;
+    private ModelR3 m_goal;
+    private TrapezoidIncrementalProfile m_trapezoid;
+    private Control100 m_control;
+    private Model100 m_model;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        m_holonomic = HolonomicProfile.trapezoidal(log, 4, 8, 0.01, 6, 12, 0.01);
+        m_initial = new ModelR3(new Model100(0, 1), new Model100(0, 0.5), new Model100(0, 0));
+        m_goal = new ModelR3(new Pose2d(3, 2, Rotation2d.kCCW_Pi_2));
+        m_holonomic.solve(m_initial, m_goal);
+        m_trapezoid = new TrapezoidIncrementalProfile(log, 4, 8, 0.01);
+        m_control = new Control100(0, 1);
+        m_model = new Model100(3, 0);
+    }
+
+    @Benchmark
+    public ControlR3 holonomic() {
+        return m_holonomic.calculate(m_initial, m_goal);
+    }
+
+    @Benchmark
+    public Control100 trapezoid() {
+        return m_trapezoid.calculate(0.02, m_control, m_model);
+    }
+}
@@ -0,0 +1,71 @@
+package org.team100.lib.subsystems.swerve.kinodynamics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleStates;
+
+import edu.wpi.first.math.geometry.Twist2d;
+
+/**
+ * Swerve inverse and forward kinematics, which run every cycle: the allocating
+ * versions and the ones that write into an array.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KinematicsBenchmark {
+    private SwerveDriveKinematics100 m_kinematics;
+    private DiscreteSpeed m_speed;
+    private SwerveModuleDeltas m_deltas;
+    private double[] m_velocities;
+    private double[] m_twist;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        m_kinematics = SwerveKinodynamicsFactory.forRealisticTest(log).getKinematics();
+        m_speed = new DiscreteSpeed(new Twist2d(0.02, 0.01, 0.03), 0.02);
+        m_deltas = m_kinematics.toSwerveModuleDelta(new Twist2d(0.02, 0.01, 0.03));
+        m_velocities = new double[8];
+        m_twist = new double[3];
+    }
+
+    @Benchmark
+    public SwerveModuleStates toSwerveModuleStates() {
+        return m_kinematics.toSwerveModuleStates(m_speed);
+    }
+
+    @Benchmark
+    public double[] toModuleVelocities() {
+        m_kinematics.toModuleVelocities(m_speed, m_velocities);
+        return m_velocities;
+    }
+
+    @Benchmark
+    public Twist2d toTwist2d() {
+        return m_kinematics.toTwist2d(m_deltas);
+    }
+
+    @Benchmark
+    public double[] toTwist() {
+        m_kinematics.toTwist(m_deltas, m_twist);
+        return m_twist;
+    }
+}
@@ -0,0 +1,47 @@
+package org.team100.lib.subsystems.swerve.kinodynamics.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+
+/**
+ * The setpoint limiter, from rest toward a fast diagonal, so every limit is
+ * active.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveLimiterBenchmark {
+    private SwerveLimiter m_limiter;
+    private GlobalVelocityR3 m_target;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        m_limiter = new SwerveLimiter(log, SwerveKinodynamicsFactory.limiting(log), () -> 12);
+        m_target = new GlobalVelocityR3(4, 4, 2);
+    }
+
+    @Benchmark
+    public GlobalVelocityR3 apply() {
+        m_limiter.updateSetpoint(GlobalVelocityR3.ZERO);
+        return m_limiter.apply(m_target);
+    }
+}
@@ -0,0 +1,44 @@
+package org.team100.lib.targeting;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of the flight lookups, which integrate the flight for every
+ * elevation; this is startup cost, not per-cycle. Solving, which uses the
+ * lookups, is in ShootingSolverBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RangeBenchmark {
+    private Drag m_drag;
+
+    @Setup
+    public void setup() {
+        m_drag = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+    }
+
+    @Benchmark
+    public Range range() {
+        return new Range(m_drag, 8, 50);
+    }
+
+    @Benchmark
+    public FlightTable flightTable() {
+        return new FlightTable(m_drag, 8, 50, 1, 100);
+    }
+}
@@ -0,0 +1,52 @@
+package org.team100.lib.targeting;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+/**
+ * One solve per cycle, as the robot circles the target, so each solve is
+ * warm-started from the previous one, as it would be on the robot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShootingSolverBenchmark {
+    private static final double DT = 0.02;
+    private ShootingSolver m_solver;
+    private int m_step;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        FlightTable table = new FlightTable(new Drag(0.5, 0.025, 0.01, 0.2, 0.1), 12, 50, 1.5, 200);
+        m_solver = new ShootingSolver(log, table, 0.05);
+        m_step = 0;
+    }
+
+    @Benchmark
+    public Optional<ShootingSolver.Solution> solve() {
+        double theta = 0.05 * m_step++ * DT;
+        double rx = 8 * Math.cos(theta);
+        double ry = 8 * Math.sin(theta);
+        double rvx = -0.4 * Math.sin(theta);
+        double rvy = 0.4 * Math.cos(theta);
+        return m_solver.solve(rx, ry, rvx, rvy, 0, 0, 0, 0);
+    }
+}
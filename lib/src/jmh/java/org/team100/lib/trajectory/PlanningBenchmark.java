@@ -0,0 +1,74 @@
+package org.team100.lib.trajectory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.trajectory.path.Path100;
+import org.team100.lib.trajectory.path.PathFactory;
+import org.team100.lib.trajectory.timing.ScheduleGenerator;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Trajectory planning, which happens at the start of a command, so it's a
+ * one-cycle latency, not a per-cycle cost. With the realistic constraints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanningBenchmark {
+    private TrajectoryPlanner m_planner;
+    private ScheduleGenerator m_scheduleGenerator;
+    private Path100 m_path;
+    private Pose2d m_goal;
+
+    @Setup
+    public void setup() {
+        LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest(log);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(limits).allGood(log);
+        m_planner = new TrajectoryPlanner(constraints);
+        m_scheduleGenerator = new ScheduleGenerator(constraints);
+        m_path = PathFactory.pathFromWaypoints(
+                List.of(
+                        new HolonomicPose2d(new Translation2d(), Rotation2d.kZero, Rotation2d.kZero),
+                        new HolonomicPose2d(new Translation2d(1, 1), Rotation2d.kZero, Rotation2d.kCCW_Pi_2)),
+                0.05, 0.05, 0.2);
+        m_goal = new Pose2d(4, 2, Rotation2d.kCCW_Pi_2);
+    }
+
+    /** Path and schedule. */
+    @Benchmark
+    public Trajectory100 restToRest() {
+        return m_planner.restToRest(Pose2d.kZero, m_goal);
+    }
+
+    /** Schedule only. */
+    @Benchmark
+    public Trajectory100 schedule() {
+        return m_scheduleGenerator.timeParameterizeTrajectory(m_path, 0.1, 0, 0);
+    }
+}
@@ -0,0 +1,69 @@
+package org.team100.lib.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.interpolation.Interpolatable;
+
+/**
+ * The history buffer behind pose estimation, full, as it is in steady state:
+ * 0.2 s at 50 Hz.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeInterpolatableBuffer100Benchmark {
+    static class Item implements Interpolatable<Item> {
+        public final double value;
+
+        public Item(double v) {
+            value = v;
+        }
+
+        @Override
+        public Item interpolate(Item endValue, double t) {
+            return new Item(MathUtil.interpolate(value, endValue.value, t));
+        }
+    }
+
+    private TimeInterpolatableBuffer100<Item> m_buffer;
+    private Item m_item;
+    private double m_time;
+
+    @Setup
+    public void setup() {
+        m_buffer = new TimeInterpolatableBuffer100<>(0.2, 0, new Item(0));
+        for (m_time = 0.02; m_time < 0.2; m_time += 0.02) {
+            m_buffer.put(m_time, new Item(m_time));
+        }
+        m_item = new Item(1);
+    }
+
+    /** Between two entries. */
+    @Benchmark
+    public Item get() {
+        return m_buffer.get(m_time - 0.05);
+    }
+
+    /** Always newest, so the oldest is evicted. */
+    @Benchmark
+    public TimeInterpolatableBuffer100<Item> put() {
+        m_time += 0.02;
+        m_buffer.put(m_time, m_item);
+        return m_buffer;
+    }
+}
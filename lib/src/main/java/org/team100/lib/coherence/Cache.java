@@ -2,63 +2,123 @@ package org.team100.lib.coherence;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.Logging;
 
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusCode;
 
 /**
- * List of caches to be managed coherently.
+ * Caches managed coherently: each cached value is computed at most once per
+ * Takt epoch, i.e. once per cycle, so all the readers in a cycle see the same
+ * value.
  * 
- * The reset() method should be called in Robot.robotPeriodic(), right
- * after Takt.update() in Robot.robotPeriodic().
+ * Caches are lazy: a value is computed the first time it's read in each cycle,
+ * and caches nobody reads cost nothing. Reads are not locked, and they're
+ * safe from any thread, e.g. ParallelPeriodic workers: the value is published
+ * by its epoch stamp, so a reader sees either this cycle's value or computes
+ * it. Two threads reading a stale cache at once may both ask the delegate, so
+ * delegates shouldn't mind being asked twice. Registration and refresh() are
+ * main thread only.
+ * 
+ * The true hardware reads, the ones that should represent the instant of the
+ * hardware interrupt, and the simulations that need to step every cycle,
+ * should be prefetched: refresh() computes them eagerly, at the start of the
+ * cycle.
+ * 
+ * The refresh() method should be called in Robot.robotPeriodic(), right
+ * after Takt.update().
  * 
  * Note that there's little need for multiple layers of caching, if the only
  * thing in the middle of the sandwich is simple arithmetic. So if a "motor"
  * implements caching of its sensors, then the "sensor" that uses the "motor"
  * doesn't need to apply its own cache layer. Accordingly, most of the
  * observations we actually cache seem to be from motors. On the other hand,
- * it doesn't hurt anything to cache at multiple levels -- the updater makes
+ * it doesn't hurt anything to cache at multiple levels -- the epoch makes
  * everything consistent.
  */
 public class Cache {
     private static final boolean DEBUG = false;
+    /** Epoch of a value that was never computed; Takt skips it. */
+    static final int NEVER = Integer.MIN_VALUE;
     /** How long it takes to update the cache. */
     private static final DoubleLogger m_log_update = Logging.instance().rootLogger.name("Cache")
             .doubleLogger(Level.COMP, "update time (s)");
+    /** How many dashboard settings changed; these are the only NT reads. */
+    private static final IntLogger m_log_settings = Logging.instance().rootLogger.name("Cache")
+            .intLogger(Level.DEBUG, "settings changed");
+    private static final IntLogger m_log_hits = Logging.instance().rootLogger.name("Cache")
+            .intLogger(Level.DEBUG, "hits");
+    private static final IntLogger m_log_misses = Logging.instance().rootLogger.name("Cache")
+            .intLogger(Level.DEBUG, "misses");
+    private static final IntLogger m_log_prefetches = Logging.instance().rootLogger.name("Cache")
+            .intLogger(Level.DEBUG, "prefetches");
     private static final List<ObjectCache<?>> caches = new ArrayList<>();
     private static final List<DoubleCache> doubles = new ArrayList<>();
     private static final List<SideEffect> sideEffects = new ArrayList<>();
     private static final List<BaseStatusSignal> signals = new ArrayList<>();
 
+    // Counters for the current cycle, updated by the caches, from any thread.
+    /** Reads that found a value from this epoch. */
+    static final LongAdder hits = new LongAdder();
+    /** Reads that asked the delegate. */
+    static final LongAdder misses = new LongAdder();
+    /** Prefetches that asked the delegate. */
+    static final LongAdder prefetches = new LongAdder();
+
+    // Counters for the previous cycle.
+    private static int lastHits;
+    private static int lastMisses;
+    private static int lastPrefetches;
+
     /**
-     * Adds the delegate to the set that is reset and updated synchronously by
-     * Robot.robotPeriodic(), so the time represented by the value is as close to
-     * the hardware interrupt time as possible, all values of cached quantities are
-     * consistent and constant through the whole cycle.
+     * A lazy cache, computed the first time it's read in each cycle.
      */
     public static <T> ObjectCache<T> of(Supplier<T> delegate) {
+        return new ObjectCache<>(delegate);
+    }
+
+    /**
+     * A cache computed eagerly in refresh(), so the time represented by the value
+     * is as close to the hardware interrupt time as possible. Use this for
+     * hardware reads, and for simulations that should step every cycle.
+     */
+    public static <T> ObjectCache<T> ofPrefetched(Supplier<T> delegate) {
         ObjectCache<T> cache = new ObjectCache<>(delegate);
         caches.add(cache);
         return cache;
     }
 
+    /** Stop prefetching. */
     public static void removeObjectCache(ObjectCache<?> obj) {
         caches.remove(obj);
     }
 
+    /** A lazy cache, computed the first time it's read in each cycle. */
     public static DoubleCache ofDouble(DoubleSupplier delegate) {
+        return new DoubleCache(delegate);
+    }
+
+    /** A cache computed eagerly in refresh(); see ofPrefetched(). */
+    public static DoubleCache ofDoublePrefetched(DoubleSupplier delegate) {
         DoubleCache cache = new DoubleCache(delegate);
         doubles.add(cache);
         return cache;
     }
 
+    /** A lazy action, run the first time it's invoked in each cycle. */
     public static SideEffect ofSideEffect(Runnable delegate) {
+        return new SideEffect(delegate);
+    }
+
+    /** An action run eagerly in refresh(); see ofPrefetched(). */
+    public static SideEffect ofSideEffectPrefetched(Runnable delegate) {
         SideEffect sideEffect = new SideEffect(delegate);
         sideEffects.add(sideEffect);
         return sideEffect;
@@ -73,9 +133,11 @@ public class Cache {
     }
 
     /**
-     * Reset all caches and update them with fresh values. All the resets are done
-     * before any of the updates to ensure that the updates don't include any stale
-     * data.
+     * Start a new epoch, so every cached value is stale, and compute the
+     * prefetched ones.
+     * 
+     * Takt.update() also starts a new epoch; this one makes sure that nothing
+     * read before the settings update is carried over.
      * 
      * Should be run in Robot.robotPeriodic().
      */
@@ -83,9 +145,33 @@ public class Cache {
         if (DEBUG)
             System.out.println("Cache refresh");
         double startUpdateS = Takt.actual();
-        reset();
-        update();
+        // Dashboard changes take effect here, all at once.
+        Settings.update();
+        Takt.newEpoch();
+        lastHits = (int) hits.sumThenReset();
+        lastMisses = (int) misses.sumThenReset();
+        lastPrefetches = (int) prefetches.sumThenReset();
+        prefetch();
         m_log_update.log(() -> (Takt.actual() - startUpdateS));
+        m_log_settings.log(Settings::applied);
+        m_log_hits.log(() -> lastHits);
+        m_log_misses.log(() -> lastMisses);
+        m_log_prefetches.log(() -> lastPrefetches);
+    }
+
+    /** Reads that found a current value, in the previous cycle. */
+    public static int hits() {
+        return lastHits;
+    }
+
+    /** Reads that asked the delegate, in the previous cycle. */
+    public static int misses() {
+        return lastMisses;
+    }
+
+    /** Prefetches that asked the delegate, in the previous cycle. */
+    public static int prefetches() {
+        return lastPrefetches;
     }
 
     /** For testing only */
@@ -97,25 +183,10 @@ public class Cache {
 
     /////////////////////////////////////////////////
 
-    /**
-     * Forgets all the stored values.
-     */
-    private static void reset() {
-        for (ObjectCache<?> r : caches) {
-            r.reset();
-        }
-        for (DoubleCache r : doubles) {
-            r.reset();
-        }
-        for (SideEffect r : sideEffects) {
-            r.reset();
-        }
-    }
-
-    /** Fetches fresh values for every stale cache. Should be called after reset. */
-    private static void update() {
+    /** Fetches fresh values for the prefetched caches. */
+    private static void prefetch() {
         if (DEBUG) {
-            System.out.printf("Cache update %d\n", caches.size());
+            System.out.printf("Cache prefetch %d\n", caches.size());
         }
         if (!signals.isEmpty()) {
             StatusCode result = BaseStatusSignal.refreshAll(signals.toArray(new BaseStatusSignal[0]));
@@ -125,18 +196,13 @@ public class Cache {
             }
         }
         for (ObjectCache<?> r : caches) {
-            if (DEBUG) {
-                System.out.printf("update %s\n", r.get().getClass().getSimpleName());
-            }
-            r.get();
+            r.prefetch();
         }
         for (DoubleCache r : doubles) {
-            if (DEBUG)
-                System.out.println("double update");
-            r.getAsDouble();
+            r.prefetch();
         }
         for (SideEffect r : sideEffects) {
-            r.run();
+            r.prefetch();
         }
     }
 
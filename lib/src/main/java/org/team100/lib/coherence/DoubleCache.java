@@ -2,33 +2,53 @@ package org.team100.lib.coherence;
 
 import java.util.function.DoubleSupplier;
 
+/** Cache a double supplier, without boxing. See ObjectCache. */
 public class DoubleCache implements DoubleSupplier {
     private final DoubleSupplier m_delegate;
-    private double m_value;
-    private boolean m_valid;
+    /** Volatile because doubles may tear on the RoboRIO. */
+    private volatile double m_value;
+    /** Written after the value. */
+    private volatile int m_epoch;
 
     /** Do not call this directly, use Cache.ofDouble() */
     DoubleCache(DoubleSupplier delegate) {
         m_delegate = delegate;
-        m_valid = false;
+        m_epoch = Cache.NEVER;
     }
 
     /**
-     * Use the cached value if it exists, otherwise ask the delegate, cache, and
-     * return the value.
+     * Use the cached value if it's from this epoch, otherwise ask the delegate,
+     * cache, and return the value.
      */
     @Override
-    public synchronized double getAsDouble() {
-        // synchronized adds ~20ns.
-        if (m_valid)
+    public double getAsDouble() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch) {
+            Cache.hits.increment();
             return m_value;
-        m_value = m_delegate.getAsDouble();
-        m_valid = true;
-        return m_value;
+        }
+        Cache.misses.increment();
+        return load(epoch);
     }
 
     /** Erase the cache so the next get() will ask the delegate. */
-    public synchronized void reset() {
-        m_valid = false;
+    public void reset() {
+        m_epoch = Cache.NEVER;
     }
-}
\ No newline at end of file
+
+    /** Compute the value now, if it's stale, for Cache.refresh(). */
+    void prefetch() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch)
+            return;
+        Cache.prefetches.increment();
+        load(epoch);
+    }
+
+    private double load(int epoch) {
+        double value = m_delegate.getAsDouble();
+        m_value = value;
+        m_epoch = epoch;
+        return value;
+    }
+}
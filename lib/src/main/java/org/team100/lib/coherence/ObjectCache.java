@@ -2,53 +2,80 @@ package org.team100.lib.coherence;
 
 import java.util.function.Supplier;
 
-/** Cache an object supplier */
+/**
+ * Cache an object supplier.
+ * 
+ * The value is stamped with the Takt epoch it was computed in; a read in a
+ * later epoch asks the delegate again. There's no lock: a read from any thread,
+ * e.g. a ParallelPeriodic worker, is safe, but two threads reading a stale
+ * cache at once may both ask the delegate.
+ */
 public class ObjectCache<T> implements Supplier<T> {
     private final Supplier<T> m_delegate;
     private T m_value;
+    /** Written after the value. */
+    private volatile int m_epoch;
 
     /** Do not call this directly, use Cache.of(). */
     ObjectCache(Supplier<T> delegate) {
         m_delegate = delegate;
         m_value = null;
+        m_epoch = Cache.NEVER;
     }
 
     /**
-     * Use the cached value if it exists, otherwise ask the delegate, cache, and
-     * return the value.
+     * Use the cached value if it's from this epoch, otherwise ask the delegate,
+     * cache, and return the value.
      */
     @Override
-    public synchronized T get() {
-        // synchronized adds ~20ns.
-        if (m_value == null)
-            m_value = m_delegate.get();
-
-        return m_value;
+    public T get() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch) {
+            Cache.hits.increment();
+            return m_value;
+        }
+        Cache.misses.increment();
+        return load(epoch);
     }
 
     /**
      * Erase the cache so the next get() will ask the delegate. You should generally
-     * let robotPeriodic() do this, but it's ok to force it, e.g. in resetPose().
+     * let the epoch do this, but it's ok to force it, e.g. in resetPose().
      */
-    public synchronized void reset() {
-        m_value = null;
+    public void reset() {
+        m_epoch = Cache.NEVER;
     }
 
     /**
      * Force the cache to contain the value, effectively overriding the delegate's
-     * previous output.
+     * previous output, for the rest of this epoch.
      */
-    public synchronized void set(T value) {
+    public void set(T value) {
         m_value = value;
+        m_epoch = Takt.epoch();
     }
 
     /**
-     * Stop updating this cache.
-     *
-     * There's no way to restart the updates, so you
-     * should discard this object once you call end().
+     * Stop prefetching this cache, if it was prefetched. It still works if you
+     * call get().
      */
     public void end() {
         Cache.removeObjectCache(this);
     }
-}
\ No newline at end of file
+
+    /** Compute the value now, if it's stale, for Cache.refresh(). */
+    void prefetch() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch)
+            return;
+        Cache.prefetches.increment();
+        load(epoch);
+    }
+
+    private T load(int epoch) {
+        T value = m_delegate.get();
+        m_value = value;
+        m_epoch = epoch;
+        return value;
+    }
+}
@@ -0,0 +1,258 @@
+package org.team100.lib.coherence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.logging.Level;
+
+/**
+ * The things the dashboard can change: Mutable values, Experiment overrides,
+ * and the log level, globally and for subtrees.
+ *
+ * Readers see an immutable snapshot, which is replaced at most once per cycle,
+ * in Cache.refresh(), so every value is constant for the whole cycle, and
+ * reading one is just a field access.
+ *
+ * Writers are change listeners (the NT listener thread for Mutable, the
+ * choosers for the others), which write pending values; update() makes a new
+ * snapshot if anything is pending, and calls the Mutable change callbacks for
+ * values that actually changed.
+ *
+ * Registration happens during construction, so it takes effect immediately.
+ */
+public class Settings {
+    /** Immutable. */
+    public static final class Snapshot {
+        private final double[] m_doubles;
+        /** Changes when the doubles are cleared, so stale slots can tell. */
+        private final int m_doubleGeneration;
+        private final boolean[] m_experiments;
+        private final Level m_level;
+        /** Level overrides, keyed by log path. */
+        private final Map<String, Level> m_levels;
+
+        private Snapshot(
+                double[] doubles,
+                int doubleGeneration,
+                boolean[] experiments,
+                Level level,
+                Map<String, Level> levels) {
+            m_doubles = doubles;
+            m_doubleGeneration = doubleGeneration;
+            m_experiments = experiments;
+            m_level = level;
+            m_levels = levels;
+        }
+
+        public double getDouble(int slot) {
+            return m_doubles[slot];
+        }
+
+        /** Slots from a previous generation are gone; see clearDoubles(). */
+        public int doubleGeneration() {
+            return m_doubleGeneration;
+        }
+
+        public boolean enabled(Experiment experiment) {
+            return m_experiments[experiment.ordinal()];
+        }
+
+        public Level level() {
+            return m_level;
+        }
+
+        /**
+         * The override for the longest subtree containing the path, or null if
+         * there isn't one. This is slow-ish; cache the result, and check
+         * levelGeneration() to see if it's stale.
+         */
+        public Level level(String path) {
+            if (m_levels.isEmpty())
+                return null;
+            String p = path;
+            while (true) {
+                Level level = m_levels.get(p);
+                if (level != null)
+                    return level;
+                int slash = p.lastIndexOf('/');
+                if (slash < 0)
+                    return null;
+                p = p.substring(0, slash);
+            }
+        }
+    }
+
+    // pending state, guarded by the class lock.
+    private static double[] pendingDoubles = new double[0];
+    private static int doubleGeneration;
+    private static final boolean[] pendingExperiments = new boolean[Experiment.values().length];
+    /** Until Logging sets its default. */
+    private static Level pendingLevel = Level.TRACE;
+    private static final Map<String, Level> pendingLevels = new HashMap<>();
+    private static boolean dirty = false;
+    /** Main thread only. */
+    private static final List<DoubleConsumer> onChange = new ArrayList<>();
+    /** Number of pending changes applied in the most recent update. */
+    private static int applied;
+    /** Incremented when any level changes. */
+    private static int levelGeneration;
+
+    private static volatile Snapshot current = snapshot();
+
+    /** The current snapshot. */
+    public static Snapshot get() {
+        return current;
+    }
+
+    /**
+     * Add a double, effective immediately.
+     *
+     * @return the slot to use for reading and writing
+     */
+    public static synchronized int registerDouble(double value, DoubleConsumer callback) {
+        int slot = pendingDoubles.length;
+        pendingDoubles = Arrays.copyOf(pendingDoubles, slot + 1);
+        pendingDoubles[slot] = value;
+        onChange.add(callback);
+        current = snapshot();
+        return slot;
+    }
+
+    /**
+     * Remove all the doubles and their callbacks, effective immediately, e.g.
+     * between tests. Slots registered before this are stale; check
+     * doubleGeneration() before reading one.
+     */
+    public static synchronized void clearDoubles() {
+        pendingDoubles = new double[0];
+        onChange.clear();
+        doubleGeneration++;
+        current = snapshot();
+    }
+
+    /** Set an experiment, effective immediately. For construction only. */
+    public static synchronized void initExperiment(Experiment experiment, boolean value) {
+        pendingExperiments[experiment.ordinal()] = value;
+        current = snapshot();
+    }
+
+    /** Set the log level, effective immediately. For construction only. */
+    public static synchronized void initLevel(Level level) {
+        pendingLevel = level;
+        current = snapshot();
+        levelGeneration++;
+    }
+
+    /**
+     * Set the log level for a subtree, e.g. "log/Drive", effective immediately.
+     * Null removes the override. For construction only.
+     */
+    public static synchronized void initLevel(String subtree, Level level) {
+        putLevel(subtree, level);
+        current = snapshot();
+        levelGeneration++;
+    }
+
+    /**
+     * Change a double, effective at the next update. Any thread. Ignores slots
+     * removed by clearDoubles(), e.g. from a listener still running.
+     */
+    public static synchronized void setDouble(int slot, double value) {
+        if (slot >= pendingDoubles.length)
+            return;
+        pendingDoubles[slot] = value;
+        dirty = true;
+    }
+
+    /** Change an experiment, effective at the next update. Any thread. */
+    public static synchronized void setExperiment(Experiment experiment, boolean value) {
+        pendingExperiments[experiment.ordinal()] = value;
+        dirty = true;
+    }
+
+    /** Change the log level, effective at the next update. Any thread. */
+    public static synchronized void setLevel(Level level) {
+        pendingLevel = level;
+        dirty = true;
+    }
+
+    /**
+     * Change the log level for a subtree, e.g. "log/Drive" or "log/Drive/*",
+     * effective at the next update. Null removes the override. Any thread.
+     */
+    public static synchronized void setLevel(String subtree, Level level) {
+        putLevel(subtree, level);
+        dirty = true;
+    }
+
+    /**
+     * Changes whenever any level does, so level caches can tell if they're
+     * stale. Main thread only.
+     */
+    public static int levelGeneration() {
+        return levelGeneration;
+    }
+
+    /**
+     * Apply pending changes, if any, and notify the change callbacks. Called by
+     * Cache.refresh(), i.e. once per cycle, on the main thread.
+     */
+    public static void update() {
+        Snapshot prev = current;
+        Snapshot next;
+        synchronized (Settings.class) {
+            if (!dirty) {
+                applied = 0;
+                return;
+            }
+            next = snapshot();
+            current = next;
+            dirty = false;
+        }
+        int count = 0;
+        for (int i = 0; i < next.m_doubles.length; ++i) {
+            if (i >= prev.m_doubles.length
+                    || Double.doubleToLongBits(next.m_doubles[i]) != Double.doubleToLongBits(prev.m_doubles[i])) {
+                onChange.get(i).accept(next.m_doubles[i]);
+                count++;
+            }
+        }
+        if (!Arrays.equals(next.m_experiments, prev.m_experiments))
+            count++;
+        if (next.m_level != prev.m_level || !next.m_levels.equals(prev.m_levels)) {
+            levelGeneration++;
+            count++;
+        }
+        applied = count;
+    }
+
+    /** Number of changed values applied by the most recent update. */
+    public static int applied() {
+        return applied;
+    }
+
+    /** Guarded by the class lock. */
+    private static Snapshot snapshot() {
+        return new Snapshot(
+                pendingDoubles.clone(), doubleGeneration, pendingExperiments.clone(), pendingLevel,
+                Map.copyOf(pendingLevels));
+    }
+
+    /** Guarded by the class lock. */
+    private static void putLevel(String subtree, Level level) {
+        String key = subtree;
+        if (key.endsWith("/*"))
+            key = key.substring(0, key.length() - 2);
+        if (key.endsWith("/"))
+            key = key.substring(0, key.length() - 1);
+        if (level == null)
+            pendingLevels.remove(key);
+        else
+            pendingLevels.put(key, level);
+    }
+}
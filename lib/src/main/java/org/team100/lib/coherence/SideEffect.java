@@ -9,27 +9,45 @@ package org.team100.lib.coherence;
  * to cache, only mutations to the pose history, which can be picked up by
  * querying the history itself. Use this class to represent the action that
  * should be refreshed.
+ * 
+ * The action runs at most once per Takt epoch. See ObjectCache.
  */
 public class SideEffect implements Runnable {
     private final Runnable m_delegate;
-    private boolean m_valid;
+    private volatile int m_epoch;
 
     /** Do not use this, use Cache.ofSideEffect(). */
     SideEffect(Runnable delegate) {
         m_delegate = delegate;
-        m_valid = false;
+        m_epoch = Cache.NEVER;
     }
 
     @Override
-    public synchronized void run() {
-        if (m_valid)
+    public void run() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch) {
+            Cache.hits.increment();
             return;
-        m_delegate.run();
-        m_valid = true;
+        }
+        Cache.misses.increment();
+        load(epoch);
     }
 
-    public synchronized void reset() {
-        m_valid = false;
+    public void reset() {
+        m_epoch = Cache.NEVER;
     }
 
+    /** Run the action now, if it hasn't run this epoch, for Cache.refresh(). */
+    void prefetch() {
+        int epoch = Takt.epoch();
+        if (m_epoch == epoch)
+            return;
+        Cache.prefetches.increment();
+        load(epoch);
+    }
+
+    private void load(int epoch) {
+        m_delegate.run();
+        m_epoch = epoch;
+    }
 }
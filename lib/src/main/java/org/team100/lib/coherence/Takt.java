@@ -4,10 +4,20 @@ package org.team100.lib.coherence;
  * Takt just caches the FPGA timer, so that all the readers get the same value.
  * 
  * It should be updated in robotPeriodic and nowhere else (except maybe tests).
+ * 
+ * Each update also starts a new epoch, which is how the caches know their
+ * values are stale.
  */
 public class Takt {
     /** Current Takt time in seconds. */
     private static double now = actual();
+    /**
+     * Current epoch, written only by the main thread. Volatile so other threads
+     * never see a stale one together with a fresh value.
+     */
+    private static volatile int epoch = 0;
+    /** Number of clock updates, i.e. loop cycles. Main thread only. */
+    private static int cycle = 0;
 
     /**
      * Update the singleton clock.
@@ -19,6 +29,18 @@ public class Takt {
      */
     public static void update() {
         now = actual();
+        cycle++;
+        newEpoch();
+    }
+
+    /**
+     * Set the clock to the given time instead of the FPGA time, e.g. for log
+     * replay. The next update() goes back to the FPGA time.
+     */
+    public static void set(double timeS) {
+        now = timeS;
+        cycle++;
+        newEpoch();
     }
 
     /**
@@ -29,6 +51,22 @@ public class Takt {
         return now;
     }
 
+    /**
+     * The current epoch. Cached values from any other epoch are stale. Wraps
+     * after a year or so, which is fine.
+     */
+    public static int epoch() {
+        return epoch;
+    }
+
+    /**
+     * The number of loop cycles so far, e.g. for doing something every Nth
+     * cycle. Unlike the epoch, this doesn't change in Cache.refresh().
+     */
+    public static int cycle() {
+        return cycle;
+    }
+
     /**
      * Curent actual FPGA time in seconds.
      * 
@@ -37,4 +75,13 @@ public class Takt {
     public static double actual() {
         return edu.wpi.first.wpilibj.Timer.getFPGATimestamp();
     }
+
+    /** Invalidates every cached value. */
+    static void newEpoch() {
+        int next = epoch + 1;
+        // skip the value the caches use for "never"
+        if (next == Cache.NEVER)
+            next++;
+        epoch = next;
+    }
 }
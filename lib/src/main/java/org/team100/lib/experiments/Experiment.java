@@ -15,6 +15,18 @@ public enum Experiment {
      * competition, you'll overwhelm the network and the RIO
      */
     FlushOften,
+    /**
+     * Run the robot periodic work on several cores; see ParallelPeriodic. Watch
+     * the speedup log, it may not help.
+     */
+    ParallelPeriodic,
+    /**
+     * Keep the last few seconds of TRACE data in memory, and write it to a file
+     * on brownout, overrun, exception, etc; see FlightRecorder. This calls all
+     * the TRACE suppliers all the time, so watch the loop time. Takes effect at
+     * startup.
+     */
+    FlightRecorder,
     /**
      * Pay attention to camera input. It's useful to turn this off for testing and
      * calibration.
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.BooleanSupplier;
 
+import org.team100.lib.coherence.Settings;
 import org.team100.lib.config.Identity;
 
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -62,6 +63,8 @@ public class Experiments {
                 override.addOption(on(e), () -> true);
                 override.setDefaultOption(off(e), () -> false);
             }
+            Settings.initExperiment(e, m_experiments.contains(e));
+            override.onChange(x -> Settings.setExperiment(e, x.getAsBoolean()));
             m_overrides.put(e, override);
             SmartDashboard.putData(override);
         }
@@ -80,12 +83,16 @@ public class Experiments {
     /**
      * Remember not to use this in factories, since the experiment twiddlers will
      * have no effect after instantiation!
+     * 
+     * Dashboard changes take effect at the next Cache.refresh().
      */
     public boolean enabled(Experiment experiment) {
-        if (m_testOverrides.containsKey(experiment)) {
-            return m_testOverrides.get(experiment);
+        if (!m_testOverrides.isEmpty()) {
+            Boolean override = m_testOverrides.get(experiment);
+            if (override != null)
+                return override;
         }
-        return m_overrides.get(experiment).getSelected().getAsBoolean();
+        return Settings.get().enabled(experiment);
     }
 
     ////////////////////////////////////////
@@ -1,6 +1,9 @@
 package org.team100.lib.field;
 
+import java.util.List;
+
 import org.team100.lib.config.ElevatorUtil.ScoringLevel;
+import org.team100.lib.navigation.ConvexPolygon;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -23,7 +26,12 @@ public class FieldConstants {
         }
     }
 
+    public static final double FIELD_LENGTH_M = 17.548;
+    public static final double FIELD_WIDTH_M = 8.052;
+
     private static final Translation2d REEF_CENTER = new Translation2d(4.489, 4.026);
+    /** The reef base is a hexagon about 1.66 m across the flats. */
+    private static final double REEF_APOTHEM_M = 0.832;
 
     /**
      * Scoring locations. Single letters are poles for coral, double letters are
@@ -59,6 +67,19 @@ public class FieldConstants {
         }
     }
 
+    /**
+     * Obstacles for navigation: both reefs (the red one is mirrored). The
+     * faces point at the angles in ReefPoint, so the corners are in between.
+     */
+    public static List<ConvexPolygon> obstacles() {
+        double radius = REEF_APOTHEM_M / Math.cos(Math.PI / 6);
+        return List.of(
+                ConvexPolygon.regular(
+                        REEF_CENTER.getX(), REEF_CENTER.getY(), radius, 6, Math.PI / 6),
+                ConvexPolygon.regular(
+                        FIELD_LENGTH_M - REEF_CENTER.getX(), REEF_CENTER.getY(), radius, 6, Math.PI / 6));
+    }
+
     public static double getDistanceToReefCenter(Translation2d translation) {
         Translation2d target = REEF_CENTER.minus(translation);
         return target.getNorm();
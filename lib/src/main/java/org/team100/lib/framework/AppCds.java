@@ -0,0 +1,170 @@
+package org.team100.lib.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AppCDS (class data sharing) archive up to date.
+ *
+ * Startup is mostly class loading, and a CDS archive makes that much faster,
+ * because the JVM maps the already-parsed classes straight from the archive.
+ * The archive has to be made by the same JVM that uses it, so it's made on the
+ * robot, not on the laptop.
+ *
+ * This is enabled by the "appCDS" option in the build, which adds these JVM
+ * args:
+ *
+ * <pre>
+ * -XX:SharedArchiveFile=robot.jsa         use the archive, if it's valid
+ * -Xshare:auto                            otherwise just run without it
+ * -XX:DumpLoadedClassList=robot.classlist list the classes as they load
+ * -Dteam100.appcds=robot.jsa              tells this class where it is
+ * -Dteam100.appcds.classlist=robot.classlist
+ * </pre>
+ *
+ * The archive is never made at startup, when the dump would compete with the
+ * robot for the CPU. Instead, TimedRobot100 calls refreshIfStale() when the
+ * robot is disabled after being enabled, outside of a match, e.g. at the end of
+ * a practice run. By then the class list includes the classes used in the
+ * enabled modes, too. If the archive is missing or older than the jar (i.e.
+ * stale, which the JVM rejects by itself), this starts a low-priority child JVM
+ * that dumps a new archive from the class list. The child doesn't run any robot
+ * code (so it doesn't touch the HAL), and writes to a temporary file which is
+ * then renamed, so an archive in use is never overwritten. If the robot is
+ * enabled again before it's done, stop() kills it, and it starts over at the
+ * next disable. The next launch uses the new archive.
+ */
+public class AppCds {
+    private static final String ARCHIVE_PROPERTY = "team100.appcds";
+    private static final String CLASSLIST_PROPERTY = "team100.appcds.classlist";
+
+    /** The dump in progress, if any. */
+    private static Process s_process;
+    /** A dump was started, and not stopped, so don't start another one. */
+    private static boolean s_started;
+
+    /**
+     * Start regenerating the archive if it's stale. Returns immediately. Does
+     * nothing unless the build enabled it, or if it has already been done in this
+     * run. Call this only while disabled.
+     */
+    public static synchronized void refreshIfStale() {
+        if (s_started)
+            return;
+        String archiveName = System.getProperty(ARCHIVE_PROPERTY);
+        String classlistName = System.getProperty(CLASSLIST_PROPERTY);
+        if (archiveName == null || classlistName == null)
+            return;
+        File jar = jar();
+        if (jar == null) {
+            // CDS only works with jars, e.g. not with the build directory.
+            return;
+        }
+        File archive = new File(archiveName);
+        if (!isStale(archive, jar)) {
+            System.out.println("AppCDS archive is current");
+            return;
+        }
+        System.out.println("AppCDS archive is stale, regenerating in the background");
+        s_started = true;
+        Thread t = new Thread(() -> regenerate(jar, archive, new File(classlistName)), "AppCds");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /**
+     * Kill the dump in progress, if any, e.g. when the robot is enabled. The next
+     * refreshIfStale() starts over.
+     */
+    public static synchronized void stop() {
+        if (!s_started)
+            return;
+        s_started = false;
+        if (s_process != null) {
+            System.out.println("AppCDS dump stopped");
+            s_process.destroy();
+            s_process = null;
+        }
+    }
+
+    /** The archive is stale if it's missing or older than the jar. */
+    static boolean isStale(File archive, File jar) {
+        return !archive.exists() || archive.lastModified() < jar.lastModified();
+    }
+
+    /** The jar we're running from, or null if we're not running from a jar. */
+    private static File jar() {
+        try {
+            File f = new File(AppCds.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (f.isFile() && f.getName().endsWith(".jar"))
+                return f;
+            return null;
+        } catch (URISyntaxException | SecurityException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /** The dump command, for the same JVM that's running now. */
+    static List<String> command(File jar, File archive, File classlist) {
+        List<String> cmd = new ArrayList<>();
+        if (new File("/usr/bin/nice").canExecute()) {
+            cmd.add("/usr/bin/nice");
+            cmd.add("-n");
+            cmd.add("19");
+        }
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-Xshare:dump");
+        cmd.add("-XX:SharedClassListFile=" + classlist.getPath());
+        cmd.add("-XX:SharedArchiveFile=" + archive.getPath());
+        // the classpath has to match the one used at runtime exactly.
+        cmd.add("-cp");
+        cmd.add(jar.getPath());
+        return cmd;
+    }
+
+    private static void regenerate(File jar, File archive, File classlist) {
+        File tmp = new File(archive.getPath() + ".tmp");
+        File log = new File(archive.getPath() + ".log");
+        try {
+            Process p;
+            synchronized (AppCds.class) {
+                if (!s_started) {
+                    // stopped before it started
+                    return;
+                }
+                // never write the archive in place, it might be mapped by this JVM.
+                p = new ProcessBuilder(command(jar, tmp, classlist))
+                        .redirectErrorStream(true)
+                        .redirectOutput(log)
+                        .start();
+                s_process = p;
+            }
+            int exit = p.waitFor();
+            synchronized (AppCds.class) {
+                if (s_process != p) {
+                    // stopped
+                    return;
+                }
+                s_process = null;
+            }
+            if (exit != 0 || !tmp.exists()) {
+                System.out.printf("WARNING: AppCDS dump failed (%d), see %s\n", exit, log);
+                return;
+            }
+            Files.move(tmp.toPath(), archive.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("AppCDS archive updated, it will be used on the next restart");
+        } catch (IOException e) {
+            System.out.printf("WARNING: AppCDS dump failed: %s\n", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
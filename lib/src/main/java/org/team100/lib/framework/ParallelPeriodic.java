@@ -0,0 +1,332 @@
+package org.team100.lib.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+
+/**
+ * Runs the periodic work of the robot as a task graph, optionally on several
+ * cores.
+ *
+ * Each task declares what it reads and what it writes: any objects will do as
+ * keys, e.g. the subsystem, the cache, or the pose history. Two tasks conflict
+ * if either one writes something the other one touches; conflicting tasks run
+ * in registration order, and independent tasks may run at the same time.
+ *
+ * The graph is grouped into levels when tasks are added: each task goes in the
+ * level after the last one containing a conflicting task. In parallel mode,
+ * the main thread and a few worker threads take the tasks of each level from a
+ * shared counter, and wait for each other at the end of the level. Actuator
+ * tasks, i.e. the ones that write to motors, LEDs, etc, run after the last
+ * level, on the main thread, in registration order, so outputs are never
+ * written concurrently, and always see the whole cycle's work.
+ *
+ * In sequential mode, which is the default, everything runs on the main thread,
+ * in registration order, with the actuators last.
+ *
+ * Things to watch out for:
+ *
+ * - Lazy caches are computed by the first reader, so reading one is a write.
+ * Prefetched caches are computed in Cache.refresh(), so reading them is just a
+ * read.
+ *
+ * - The CommandScheduler is not thread-safe; keep it on the main thread, outside
+ * the graph.
+ *
+ * - Handing work to another core costs tens of microseconds on the RoboRIO, so
+ * tiny tasks aren't worth it. Look at the speedup log to see if it helps.
+ *
+ * The speedup is the total of the task durations divided by the wall time, so
+ * it's 1 (or a bit less) in sequential mode.
+ */
+public class ParallelPeriodic implements AutoCloseable {
+    private static final class Task {
+        private final String m_name;
+        private final Runnable m_runnable;
+        private final Set<?> m_reads;
+        private final Set<?> m_writes;
+        private final int m_level;
+        /** Duration of the last run, written by whichever thread ran it. */
+        private long m_nanos;
+
+        private Task(String name, Runnable runnable, Set<?> reads, Set<?> writes, int level) {
+            m_name = name;
+            m_runnable = runnable;
+            m_reads = reads;
+            m_writes = writes;
+            m_level = level;
+        }
+
+        private boolean conflicts(Task other) {
+            return !Collections.disjoint(m_writes, other.m_reads)
+                    || !Collections.disjoint(m_writes, other.m_writes)
+                    || !Collections.disjoint(m_reads, other.m_writes);
+        }
+
+        private void run() {
+            long t0 = System.nanoTime();
+            m_runnable.run();
+            m_nanos = System.nanoTime() - t0;
+        }
+    }
+
+    private static final class Stage {
+        private final Task[] m_tasks;
+        /** Index of the next unclaimed task. */
+        private final AtomicInteger m_next = new AtomicInteger();
+
+        private Stage(Task[] tasks) {
+            m_tasks = tasks;
+        }
+    }
+
+    private final DoubleLogger m_log_wall;
+    private final DoubleLogger m_log_worst;
+    private final DoubleLogger m_log_speedup;
+
+    /** Tasks in registration order. */
+    private final List<Task> m_tasks = new ArrayList<>();
+    private final List<Task> m_actuators = new ArrayList<>();
+    /** Tasks grouped by level, rebuilt when tasks are added. */
+    private Stage[] m_levels = new Stage[0];
+
+    private final int m_workerCount;
+    private Thread[] m_workers;
+    /** The main thread and the workers wait for each other here. */
+    private Phaser m_phaser;
+    private volatile boolean m_closed;
+    /** The first exception thrown by a task in parallel mode, if any. */
+    private volatile RuntimeException m_failure;
+
+    private boolean m_parallel;
+    private double m_wallS;
+    private double m_worstS;
+    private double m_speedup;
+
+    /**
+     * @param parent  log
+     * @param workers number of worker threads, in addition to the main thread,
+     *                used in parallel mode. The RoboRIO has two cores, so one is
+     *                plenty there.
+     */
+    public ParallelPeriodic(LoggerFactory parent, int workers) {
+        if (workers < 0)
+            throw new IllegalArgumentException("workers must be non-negative");
+        LoggerFactory log = parent.type(this);
+        m_log_wall = log.doubleLogger(Level.COMP, "wall (s)");
+        m_log_worst = log.doubleLogger(Level.COMP, "worst (s)");
+        m_log_speedup = log.doubleLogger(Level.TRACE, "speedup");
+        m_workerCount = workers;
+    }
+
+    /**
+     * Add a task that doesn't touch any outputs.
+     *
+     * @param name     for diagnostics
+     * @param runnable the work
+     * @param reads    things this task only reads
+     * @param writes   things this task modifies, including lazy caches it reads
+     */
+    public void add(String name, Runnable runnable, Set<?> reads, Set<?> writes) {
+        int level = 0;
+        Task probe = new Task(name, runnable, reads, writes, 0);
+        for (Task t : m_tasks) {
+            if (t.conflicts(probe))
+                level = Math.max(level, t.m_level + 1);
+        }
+        m_tasks.add(new Task(name, runnable, reads, writes, level));
+        m_levels = group(m_tasks);
+    }
+
+    /**
+     * Add a task that writes outputs, e.g. motors or LEDs. Actuator tasks run on
+     * the main thread, after everything else, so they don't declare anything.
+     */
+    public void addActuator(String name, Runnable runnable) {
+        m_actuators.add(new Task(name, runnable, Set.of(), Set.of(), 0));
+    }
+
+    /**
+     * Use the worker threads, or not. The workers are started the first time
+     * this is enabled, and then stay around, waiting, until close().
+     */
+    public void setParallel(boolean parallel) {
+        if (m_closed)
+            throw new IllegalStateException("closed");
+        if (parallel && m_workers == null)
+            start();
+        m_parallel = parallel;
+    }
+
+    /** Number of levels, i.e. the length of the longest chain of conflicts. */
+    public int levels() {
+        return m_levels.length;
+    }
+
+    /** Run all the tasks once. Call this from robotPeriodic(). */
+    public void run() {
+        long t0 = System.nanoTime();
+        if (m_parallel && m_workers != null) {
+            runParallel();
+        } else {
+            for (Task t : m_tasks) {
+                t.run();
+            }
+        }
+        for (Task t : m_actuators) {
+            t.run();
+        }
+        long wallNs = System.nanoTime() - t0;
+        long totalNs = 0;
+        for (Task t : m_tasks) {
+            totalNs += t.m_nanos;
+        }
+        for (Task t : m_actuators) {
+            totalNs += t.m_nanos;
+        }
+        m_wallS = wallNs / 1e9;
+        m_worstS = Math.max(m_worstS, m_wallS);
+        m_speedup = wallNs > 0 ? (double) totalNs / wallNs : 1;
+        m_log_wall.log(() -> m_wallS);
+        m_log_worst.log(() -> m_worstS);
+        m_log_speedup.log(() -> m_speedup);
+    }
+
+    /** Wall time of the last run, sec. */
+    public double wallS() {
+        return m_wallS;
+    }
+
+    /** Longest wall time so far, sec. */
+    public double worstS() {
+        return m_worstS;
+    }
+
+    /** Total task time divided by wall time, for the last run. */
+    public double speedup() {
+        return m_speedup;
+    }
+
+    /** Forget the worst case, e.g. after warmup. */
+    public void resetWorst() {
+        m_worstS = 0;
+    }
+
+    /** Duration of the named task in the last run, sec, for diagnostics. */
+    public double durationS(String name) {
+        for (Task t : m_tasks) {
+            if (t.m_name.equals(name))
+                return t.m_nanos / 1e9;
+        }
+        for (Task t : m_actuators) {
+            if (t.m_name.equals(name))
+                return t.m_nanos / 1e9;
+        }
+        throw new IllegalArgumentException("no such task: " + name);
+    }
+
+    /** Stop the workers. */
+    @Override
+    public void close() {
+        m_closed = true;
+        m_parallel = false;
+        if (m_workers == null)
+            return;
+        // release the workers from their wait, so they see the flag.
+        m_phaser.arriveAndDeregister();
+        for (Thread w : m_workers) {
+            try {
+                w.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /////////////////////////////////////////
+
+    private void start() {
+        m_phaser = new Phaser(m_workerCount + 1);
+        m_workers = new Thread[m_workerCount];
+        for (int i = 0; i < m_workerCount; ++i) {
+            Thread w = new Thread(this::work, "ParallelPeriodic-" + i);
+            w.setDaemon(true);
+            w.start();
+            m_workers[i] = w;
+        }
+    }
+
+    /**
+     * One barrier to start the cycle, and one at the end of each level; the
+     * workers do the same thing, in work(). Between cycles, the workers wait at
+     * the start barrier, so it's safe to reset the counters.
+     */
+    private void runParallel() {
+        Stage[] levels = m_levels;
+        for (Stage stage : levels) {
+            stage.m_next.set(0);
+        }
+        m_failure = null;
+        m_phaser.arriveAndAwaitAdvance();
+        runLevels(levels);
+        RuntimeException failure = m_failure;
+        if (failure != null)
+            throw failure;
+    }
+
+    /** The worker loop: wait for the cycle to start, help with it, repeat. */
+    private void work() {
+        while (true) {
+            m_phaser.arriveAndAwaitAdvance();
+            if (m_closed)
+                return;
+            runLevels(m_levels);
+        }
+    }
+
+    /**
+     * Take tasks from each level until there are none left, and wait for the
+     * others to finish it too. Exceptions are saved for the main thread, so
+     * everyone always reaches every barrier.
+     */
+    private void runLevels(Stage[] levels) {
+        for (Stage stage : levels) {
+            Task[] tasks = stage.m_tasks;
+            for (int i = stage.m_next.getAndIncrement(); i < tasks.length; i = stage.m_next.getAndIncrement()) {
+                try {
+                    tasks[i].run();
+                } catch (RuntimeException e) {
+                    if (m_failure == null)
+                        m_failure = e;
+                }
+            }
+            m_phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private static Stage[] group(List<Task> tasks) {
+        int count = 0;
+        for (Task t : tasks) {
+            count = Math.max(count, t.m_level + 1);
+        }
+        List<List<Task>> levels = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            levels.add(new ArrayList<>());
+        }
+        for (Task t : tasks) {
+            levels.get(t.m_level).add(t);
+        }
+        Stage[] result = new Stage[count];
+        for (int i = 0; i < count; ++i) {
+            result[i] = new Stage(levels.get(i).toArray(new Task[0]));
+        }
+        return result;
+    }
+}
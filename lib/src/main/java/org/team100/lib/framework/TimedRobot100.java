@@ -1,8 +1,10 @@
 package org.team100.lib.framework;
 
+import java.lang.management.ManagementFactory;
 import java.util.PriorityQueue;
 
 import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.JvmLogger;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
@@ -13,6 +15,7 @@ import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.IterativeRobotBase;
 
 /**
@@ -86,6 +89,12 @@ public class TimedRobot100 extends IterativeRobotBase {
      */
     public static final double LOOP_PERIOD_S = 0.02;
 
+    /**
+     * Each warmup routine runs this many times at startup; enough for the JIT to
+     * compile the hot paths.
+     */
+    private static final int WARMUP_ITERATIONS = 20;
+
     /** An exception to the no-member rule. */
     protected final LoggerFactory m_robotLogger;
 
@@ -98,11 +107,18 @@ public class TimedRobot100 extends IterativeRobotBase {
     private final PriorityQueue<Callback> m_callbacks = new PriorityQueue<>();
 
     private final DoubleLogger m_log_slack;
+    /** GC and allocation, correlated with overruns. */
+    private final JvmLogger m_jvmLogger;
+    /** The previous cycle missed its deadline. */
+    private boolean m_overran;
+    /** For AppCds. */
+    private boolean m_enabled;
 
     protected TimedRobot100() {
         super(LOOP_PERIOD_S);
         m_robotLogger = Logging.instance().rootLogger.type(this);
         m_log_slack = m_robotLogger.doubleLogger(Level.COMP, "slack time (s)");
+        m_jvmLogger = new JvmLogger(m_robotLogger);
         m_startTime = Takt.actual();
         addPeriodic(this::loopFunc, TimedRobot100.LOOP_PERIOD_S, "main loop");
         NotifierJNI.setNotifierName(m_notifier, "TimedRobot");
@@ -113,6 +129,7 @@ public class TimedRobot100 extends IterativeRobotBase {
     public void close() {
         NotifierJNI.stopNotifier(m_notifier);
         NotifierJNI.cleanNotifier(m_notifier);
+        m_jvmLogger.close();
     }
 
     /** Provide an alternate "main loop" via startCompetition(). */
@@ -124,8 +141,18 @@ public class TimedRobot100 extends IterativeRobotBase {
             simulationInit();
         }
 
+        // Get the class loading and JIT out of the way.
+        Warmup.run(WARMUP_ITERATIONS);
+        // Force full garbage collection.
+        // This reduces the allocated heap size, not just the used heap size, which
+        // means more-frequent and smaller subsequent GC's.
+        System.gc();
+
         // Tell the DS that the robot is ready to be enabled
         System.out.println("********** Robot program startup complete **********");
+        // Startup time, mostly class loading; compare with and without AppCDS.
+        System.out.printf("JVM uptime at startup complete: %.3f s\n",
+                ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
         DriverStationJNI.observeUserProgramStarting();
 
         // Loop forever, calling the appropriate mode-dependent function
@@ -168,9 +195,42 @@ public class TimedRobot100 extends IterativeRobotBase {
                 callback.expirationTime += callback.period;
                 m_callbacks.add(callback);
             }
+
+            // The MXBean values are polled in the background, this just logs them.
+            m_jvmLogger.logGarbageCollectors();
+            m_jvmLogger.logMemoryPools();
+            m_jvmLogger.logMemoryUsage();
+            // If the next deadline has already passed, this cycle overran.
+            double endCycleS = Takt.actual();
+            double marginS = m_callbacks.peek().expirationTime - endCycleS;
+            m_jvmLogger.cycle(endWaitingS, endCycleS, marginS);
+            m_overran = marginS < 0;
+
+            updateAppCds();
+        }
+    }
+
+    /**
+     * Make the class data sharing archive, if it's stale, only when it can't
+     * hurt: disabled after being enabled, not in a match.
+     */
+    private void updateAppCds() {
+        boolean enabled = DriverStation.isEnabled();
+        if (enabled == m_enabled)
+            return;
+        m_enabled = enabled;
+        if (enabled) {
+            AppCds.stop();
+        } else if (!DriverStation.isFMSAttached()) {
+            AppCds.refreshIfStale();
         }
     }
 
+    /** True if the previous cycle missed its deadline, e.g. for FlightRecorder. */
+    public boolean overran() {
+        return m_overran;
+    }
+
     /** Ends the main loop in startCompetition(). */
     @Override
     public void endCompetition() {
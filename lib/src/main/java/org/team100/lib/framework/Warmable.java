@@ -0,0 +1,18 @@
+package org.team100.lib.framework;
+
+/**
+ * Something that is slow the first few times it runs, because of class loading
+ * and JIT, and can exercise itself before the match, so the slowness happens
+ * then instead of in the first seconds of auton.
+ * 
+ * Register with {@link Warmup#register(String, Warmable)}.
+ */
+@FunctionalInterface
+public interface Warmable {
+    /**
+     * Exercise the usual code paths. This is run many times in a row, so it
+     * should not have side effects that matter, e.g. it shouldn't move anything
+     * or change any state that the match depends on.
+     */
+    void warm();
+}
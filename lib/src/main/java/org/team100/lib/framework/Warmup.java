@@ -0,0 +1,98 @@
+package org.team100.lib.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registry of things to warm up at startup.
+ * 
+ * Each registered routine is run several times, with timing. The first run is
+ * usually very slow (class loading, interpreter), and the JIT makes the later
+ * ones faster, so if the last run is still much slower than the fastest one,
+ * the routine hasn't settled, and it will probably be slow in the match too.
+ * 
+ * Run this once, after all the subsystems are constructed, and before the
+ * match.
+ */
+public class Warmup {
+    /** If the last run is slower than this multiple of the fastest, it's slow. */
+    private static final double SLOW_RATIO = 2.0;
+
+    private static final List<Entry> entries = new ArrayList<>();
+
+    private record Entry(String name, Warmable warmable) {
+    }
+
+    /**
+     * Timing of all the runs of one routine.
+     * 
+     * @param name  as registered
+     * @param nanos duration of each run
+     */
+    public record Result(String name, long[] nanos) {
+        public long firstNs() {
+            return nanos[0];
+        }
+
+        public long lastNs() {
+            return nanos[nanos.length - 1];
+        }
+
+        public long minNs() {
+            return Arrays.stream(nanos).min().orElse(0);
+        }
+
+        /** True if the last run is close to the fastest one. */
+        public boolean converged() {
+            return lastNs() <= SLOW_RATIO * minNs();
+        }
+    }
+
+    /** Add a routine to the list. */
+    public static void register(String name, Warmable warmable) {
+        entries.add(new Entry(name, warmable));
+    }
+
+    /** Forget all the routines, e.g. between tests. */
+    public static void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Run each registered routine the given number of times, and print a report.
+     * 
+     * A routine that throws is reported and skipped; warming up shouldn't
+     * prevent the robot from starting.
+     */
+    public static List<Result> run(int iterations) {
+        if (iterations < 1)
+            throw new IllegalArgumentException("iterations must be positive");
+        System.out.println("\n*** WARMUP START");
+        long startNs = System.nanoTime();
+        List<Result> results = new ArrayList<>();
+        for (Entry entry : entries) {
+            long[] nanos = new long[iterations];
+            try {
+                for (int i = 0; i < iterations; ++i) {
+                    long t0 = System.nanoTime();
+                    entry.warmable().warm();
+                    nanos[i] = System.nanoTime() - t0;
+                }
+            } catch (RuntimeException e) {
+                System.out.printf("WARNING: warmup %s failed: %s\n", entry.name(), e);
+                continue;
+            }
+            Result result = new Result(entry.name(), nanos);
+            results.add(result);
+            System.out.printf("%-30s first %8.3f ms last %8.3f ms min %8.3f ms %s\n",
+                    result.name(),
+                    result.firstNs() / 1e6,
+                    result.lastNs() / 1e6,
+                    result.minNs() / 1e6,
+                    result.converged() ? "" : "STILL SLOW");
+        }
+        System.out.printf("*** WARMUP END ET: %f\n", (System.nanoTime() - startNs) / 1e9);
+        return results;
+    }
+}
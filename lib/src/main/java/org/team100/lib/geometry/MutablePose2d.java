@@ -0,0 +1,206 @@
+package org.team100.lib.geometry;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A mutable SE(2) pose, for hot paths that would otherwise allocate a handful
+ * of WPILib immutables per operation.
+ *
+ * The math is the same as WPILib's Pose2d, step by step, including the
+ * normalization in the Rotation2d constructor, so the results match to within
+ * rounding. Convert to and from Pose2d at API boundaries.
+ *
+ * Instances are meant to be locals or members that never escape, so the JIT
+ * can keep them in registers.
+ */
+public final class MutablePose2d {
+    private double m_x;
+    private double m_y;
+    private double m_cos;
+    private double m_sin;
+
+    /** The identity. */
+    public MutablePose2d() {
+        m_cos = 1;
+    }
+
+    public MutablePose2d set(Pose2d p) {
+        m_x = p.getX();
+        m_y = p.getY();
+        m_cos = p.getRotation().getCos();
+        m_sin = p.getRotation().getSin();
+        return this;
+    }
+
+    public MutablePose2d set(MutablePose2d p) {
+        m_x = p.m_x;
+        m_y = p.m_y;
+        m_cos = p.m_cos;
+        m_sin = p.m_sin;
+        return this;
+    }
+
+    /** Rotation is normalized, like the Rotation2d(x, y) constructor. */
+    public MutablePose2d set(double x, double y, double cos, double sin) {
+        m_x = x;
+        m_y = y;
+        setRotation(cos, sin);
+        return this;
+    }
+
+    /** Allocates. */
+    public Pose2d toPose2d() {
+        return new Pose2d(m_x, m_y, new Rotation2d(m_cos, m_sin));
+    }
+
+    public double getX() {
+        return m_x;
+    }
+
+    public double getY() {
+        return m_y;
+    }
+
+    public double getCos() {
+        return m_cos;
+    }
+
+    public double getSin() {
+        return m_sin;
+    }
+
+    public double getRadians() {
+        return Math.atan2(m_sin, m_cos);
+    }
+
+    /**
+     * this = this.transformBy(other), where other is given as components.
+     * Same as Pose2d.plus(Transform2d).
+     */
+    public MutablePose2d transformBy(double x, double y, double cos, double sin) {
+        double nx = m_x + (x * m_cos - y * m_sin);
+        double ny = m_y + (x * m_sin + y * m_cos);
+        setRotation(cos * m_cos - sin * m_sin, cos * m_sin + sin * m_cos);
+        m_x = nx;
+        m_y = ny;
+        return this;
+    }
+
+    /** this = this.transformBy(other) */
+    public MutablePose2d transformBy(MutablePose2d other) {
+        return transformBy(other.m_x, other.m_y, other.m_cos, other.m_sin);
+    }
+
+    /** this = this.relativeTo(other) */
+    public MutablePose2d relativeTo(MutablePose2d other) {
+        double dx = m_x - other.m_x;
+        double dy = m_y - other.m_y;
+        // rotate by the inverse of the other rotation
+        double ic = other.m_cos;
+        double is = -other.m_sin;
+        double nx = dx * ic - dy * is;
+        double ny = dx * is + dy * ic;
+        // the inverse is normalized too
+        double n = Math.hypot(ic, is);
+        if (n > 1e-6) {
+            ic /= n;
+            is /= n;
+        } else {
+            ic = 1;
+            is = 0;
+        }
+        setRotation(m_cos * ic - m_sin * is, m_cos * is + m_sin * ic);
+        m_x = nx;
+        m_y = ny;
+        return this;
+    }
+
+    /** this = this.exp(twist). Same as Pose2d.exp(). */
+    public MutablePose2d exp(double dx, double dy, double dtheta) {
+        double sinTheta = Math.sin(dtheta);
+        double cosTheta = Math.cos(dtheta);
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1E-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = sinTheta / dtheta;
+            c = (1 - cosTheta) / dtheta;
+        }
+        double tx = dx * s - dy * c;
+        double ty = dx * c + dy * s;
+        // the Rotation2d constructor normalizes
+        double n = Math.hypot(cosTheta, sinTheta);
+        return transformBy(tx, ty, cosTheta / n, sinTheta / n);
+    }
+
+    /**
+     * The twist from this to end, written to out as [dx, dy, dtheta]. Same as
+     * Pose2d.log().
+     */
+    public void log(MutablePose2d end, MutablePose2d scratch, double[] out) {
+        MutablePose2d transform = scratch.set(end).relativeTo(this);
+        double dtheta = transform.getRadians();
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = transform.m_cos - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1E-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * transform.m_sin) / cosMinusOne;
+        }
+        // rotate by the (normalized) rotation, then scale by its magnitude.
+        double mag = Math.hypot(halfThetaByTanOfHalfDtheta, -halfDtheta);
+        double rc;
+        double rs;
+        if (mag > 1e-6) {
+            rc = halfThetaByTanOfHalfDtheta / mag;
+            rs = -halfDtheta / mag;
+        } else {
+            rc = 1;
+            rs = 0;
+        }
+        double tx = transform.m_x * rc - transform.m_y * rs;
+        double ty = transform.m_x * rs + transform.m_y * rc;
+        double scale = Math.hypot(halfThetaByTanOfHalfDtheta, halfDtheta);
+        out[0] = tx * scale;
+        out[1] = ty * scale;
+        out[2] = dtheta;
+    }
+
+    /**
+     * this = this.interpolate(end, t). Same as Pose2d.interpolate().
+     *
+     * @param scratch  for intermediate results
+     * @param twist    length 3, for intermediate results
+     */
+    public MutablePose2d interpolate(MutablePose2d end, double t, MutablePose2d scratch, double[] twist) {
+        if (t < 0)
+            return this;
+        if (t >= 1)
+            return set(end);
+        log(end, scratch, twist);
+        return exp(twist[0] * t, twist[1] * t, twist[2] * t);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MutablePose2d(%f, %f, %f)", m_x, m_y, getRadians());
+    }
+
+    /////////////////////////////////
+
+    /** Like the Rotation2d(x, y) constructor. */
+    private void setRotation(double x, double y) {
+        double magnitude = Math.hypot(x, y);
+        if (magnitude > 1e-6) {
+            m_cos = x / magnitude;
+            m_sin = y / magnitude;
+        } else {
+            m_cos = 1.0;
+            m_sin = 0.0;
+        }
+    }
+}
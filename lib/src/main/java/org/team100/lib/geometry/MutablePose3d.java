@@ -0,0 +1,190 @@
+package org.team100.lib.geometry;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/**
+ * A mutable SE(3) pose (or transform), translation plus unit quaternion, for
+ * hot paths that would otherwise allocate a dozen WPILib immutables per
+ * operation (each Rotation3d product makes several Quaternions).
+ *
+ * The math follows WPILib's Pose3d, Transform3d, and Quaternion, including
+ * normalization in the Rotation3d constructor, so results match to within
+ * rounding. See MutablePose2d.
+ */
+public final class MutablePose3d {
+    private double m_x;
+    private double m_y;
+    private double m_z;
+    private double m_qw;
+    private double m_qx;
+    private double m_qy;
+    private double m_qz;
+    // Result of rotate(), to avoid returning an array.
+    private double m_rx;
+    private double m_ry;
+    private double m_rz;
+
+    /** The identity. */
+    public MutablePose3d() {
+        m_qw = 1;
+    }
+
+    public MutablePose3d set(Pose3d p) {
+        return set(p.getX(), p.getY(), p.getZ(), p.getRotation().getQuaternion());
+    }
+
+    public MutablePose3d set(Transform3d t) {
+        return set(t.getX(), t.getY(), t.getZ(), t.getRotation().getQuaternion());
+    }
+
+    public MutablePose3d set(MutablePose3d p) {
+        m_x = p.m_x;
+        m_y = p.m_y;
+        m_z = p.m_z;
+        m_qw = p.m_qw;
+        m_qx = p.m_qx;
+        m_qy = p.m_qy;
+        m_qz = p.m_qz;
+        return this;
+    }
+
+    /** Allocates. */
+    public Pose3d toPose3d() {
+        return new Pose3d(new Translation3d(m_x, m_y, m_z), rotation());
+    }
+
+    /** Allocates. */
+    public Transform3d toTransform3d() {
+        return new Transform3d(new Translation3d(m_x, m_y, m_z), rotation());
+    }
+
+    public double getX() {
+        return m_x;
+    }
+
+    public double getY() {
+        return m_y;
+    }
+
+    public double getZ() {
+        return m_z;
+    }
+
+    /**
+     * this = this.transformBy(other). Same as Pose3d.transformBy(), or
+     * Transform3d.plus().
+     */
+    public MutablePose3d transformBy(MutablePose3d other) {
+        // other's translation, rotated by this rotation
+        rotate(m_qw, m_qx, m_qy, m_qz, other.m_x, other.m_y, other.m_z);
+        double nx = m_x + m_rx;
+        double ny = m_y + m_ry;
+        double nz = m_z + m_rz;
+        // this rotation followed by other's (in the body frame)
+        setProduct(m_qw, m_qx, m_qy, m_qz, other.m_qw, other.m_qx, other.m_qy, other.m_qz);
+        m_x = nx;
+        m_y = ny;
+        m_z = nz;
+        return this;
+    }
+
+    /** this = this.inverse(). Same as Transform3d.inverse(). */
+    public MutablePose3d inverse() {
+        // Quaternion.inverse() is the conjugate over the squared norm
+        double n2 = m_qw * m_qw + m_qx * m_qx + m_qy * m_qy + m_qz * m_qz;
+        double iw = m_qw / n2;
+        double ix = -m_qx / n2;
+        double iy = -m_qy / n2;
+        double iz = -m_qz / n2;
+        rotate(iw, ix, iy, iz, -m_x, -m_y, -m_z);
+        m_x = m_rx;
+        m_y = m_ry;
+        m_z = m_rz;
+        setNormalized(iw, ix, iy, iz);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MutablePose3d(%f, %f, %f, q(%f, %f, %f, %f))",
+                m_x, m_y, m_z, m_qw, m_qx, m_qy, m_qz);
+    }
+
+    /////////////////////////////////
+
+    private Rotation3d rotation() {
+        return new Rotation3d(new Quaternion(m_qw, m_qx, m_qy, m_qz));
+    }
+
+    private MutablePose3d set(double x, double y, double z, Quaternion q) {
+        m_x = x;
+        m_y = y;
+        m_z = z;
+        m_qw = q.getW();
+        m_qx = q.getX();
+        m_qy = q.getY();
+        m_qz = q.getZ();
+        return this;
+    }
+
+    /**
+     * Rotate v by q, i.e. q * v * q^-1, into m_rx etc. Same as
+     * Translation3d.rotateBy().
+     */
+    private void rotate(double qw, double qx, double qy, double qz,
+            double vx, double vy, double vz) {
+        // q * (0, v)
+        double dot = qx * vx + qy * vy + qz * vz;
+        double aw = -dot;
+        double ax = qw * vx + (qy * vz - vy * qz);
+        double ay = qw * vy + (vx * qz - qx * vz);
+        double az = qw * vz + (qx * vy - vx * qy);
+        // times q^-1
+        double n2 = qw * qw + qx * qx + qy * qy + qz * qz;
+        double bw = qw / n2;
+        double bx = -qx / n2;
+        double by = -qy / n2;
+        double bz = -qz / n2;
+        double cross_x = ay * bz - by * az;
+        double cross_y = bx * az - ax * bz;
+        double cross_z = ax * by - bx * ay;
+        m_rx = aw * bx + bw * ax + cross_x;
+        m_ry = aw * by + bw * ay + cross_y;
+        m_rz = aw * bz + bw * az + cross_z;
+    }
+
+    /** The normalized product a * b, same as Quaternion.times(). */
+    private void setProduct(
+            double aw, double ax, double ay, double az,
+            double bw, double bx, double by, double bz) {
+        double dot = ax * bx + ay * by + az * bz;
+        double cross_x = ay * bz - by * az;
+        double cross_y = bx * az - ax * bz;
+        double cross_z = ax * by - bx * ay;
+        setNormalized(
+                aw * bw - dot,
+                aw * bx + bw * ax + cross_x,
+                aw * by + bw * ay + cross_y,
+                aw * bz + bw * az + cross_z);
+    }
+
+    /** Like the Rotation3d(Quaternion) constructor. */
+    private void setNormalized(double w, double x, double y, double z) {
+        double norm = Math.sqrt(w * w + x * x + y * y + z * z);
+        if (norm == 0.0) {
+            m_qw = 0;
+            m_qx = 0;
+            m_qy = 0;
+            m_qz = 0;
+            return;
+        }
+        m_qw = w / norm;
+        m_qx = x / norm;
+        m_qy = y / norm;
+        m_qz = z / norm;
+    }
+}
@@ -13,6 +13,10 @@ public class Near2d implements BiPredicate<Translation2d, Translation2d> {
         m_threshold = threshold;
     }
 
+    public double threshold() {
+        return m_threshold;
+    }
+
     @Override
     public boolean test(Translation2d a, Translation2d b) {
         return a.getDistance(b) < m_threshold;
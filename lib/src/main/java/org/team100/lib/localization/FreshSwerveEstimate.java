@@ -23,8 +23,8 @@ public class FreshSwerveEstimate implements DoubleFunction<ModelR3> {
             OdometryUpdater odometry,
             SwerveHistory history) {
         m_history = history;
-        m_vision = Cache.ofSideEffect(vision::update);
-        m_odometry = Cache.ofSideEffect(odometry::update);
+        m_vision = Cache.ofSideEffectPrefetched(vision::update);
+        m_odometry = Cache.ofSideEffectPrefetched(odometry::update);
     }
 
     /**
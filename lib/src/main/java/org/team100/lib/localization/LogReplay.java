@@ -0,0 +1,383 @@
+package org.team100.lib.localization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.config.Camera;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.sensor.gyro.Gyro;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.util.struct.StructBuffer;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Runs the localization pipeline offline, from a robot log.
+ *
+ * The robot log contains the gyro and module position values (if they were
+ * logged at TRACE), and the blips from the cameras (Network Tables are always
+ * logged). This feeds those inputs through the same OdometryUpdater,
+ * NudgingVisionUpdater, and AprilTagRobotLocalizer the robot uses, as fast as
+ * the CPU allows, and writes the resulting pose estimates to a new log. Use it
+ * to try out localizer changes against real match data.
+ *
+ * Takt is driven by the log timestamps, so don't run this in the robot process.
+ *
+ * The log records don't say where the loop cycles begin and end, so a "cycle"
+ * here is a burst of odometry records: a record more than half a loop period
+ * after the start of the current burst starts a new one. Since Network Tables
+ * drops unchanged values, a motionless robot produces no cycles at all, which
+ * is fine, since there's nothing to integrate.
+ */
+public class LogReplay {
+    private static final boolean DEBUG = false;
+    /** Half the 20 ms loop period */
+    private static final long CYCLE_GAP_US = 10000;
+    private static final String[] MODULES = {
+            "front left", "front right", "rear left", "rear right" };
+
+    /**
+     * Names of the logged inputs.
+     *
+     * @param yaw       gyro yaw, radians, NWU
+     * @param yawRate   gyro yaw rate, rad/s, NWU
+     * @param positions SwerveModulePositionsLogger output, a struct, or in older
+     *                  logs, the root of the separate doubles
+     * @param vision    root of the camera blip topics
+     * @param isRed     FMS alliance flag
+     */
+    public record Topics(
+            String yaw,
+            String yawRate,
+            String positions,
+            String vision,
+            String isRed) {
+        /** What the comp robot logs. */
+        public static Topics defaults() {
+            return new Topics(
+                    "NT:/log/Drive/ReduxGyro/Yaw NWU (rad)/rad",
+                    "NT:/log/Drive/ReduxGyro/Yaw Rate NWU (rad_s)",
+                    "NT:/log/Drive/SwerveLocal/positions",
+                    "NT:/vision",
+                    "NT:/FMSInfo/IsRedAlliance");
+        }
+    }
+
+    /**
+     * What happened.
+     *
+     * @param records   all the records in the input, including ones we ignore
+     * @param cycles    odometry updates
+     * @param sightings camera frames given to the localizer
+     * @param wallTimeS real time spent
+     * @param finalPose estimate at the end
+     */
+    public record Stats(
+            long records,
+            int cycles,
+            int sightings,
+            double wallTimeS,
+            Pose2d finalPose) {
+        public double recordsPerS() {
+            return records / wallTimeS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "records %d cycles %d sightings %d wall (s) %6.3f records/s %.0f pose %s",
+                    records, cycles, sightings, wallTimeS, recordsPerS(), finalPose);
+        }
+    }
+
+    /** One camera frame, waiting for the odometry of its cycle. */
+    private record Sighting(double timestampS, Transform3d cameraOffset, Blip24[] blips) {
+    }
+
+    private interface Handler {
+        void accept(DataLogRecord record);
+    }
+
+    /** The gyro is whatever the log says it was. */
+    private static class ReplayGyro implements Gyro {
+        private double m_yawRad;
+        private double m_yawRateRad_S;
+
+        @Override
+        public Rotation2d getYawNWU() {
+            return new Rotation2d(m_yawRad);
+        }
+
+        @Override
+        public double getYawRateNWU() {
+            return m_yawRateRad_S;
+        }
+
+        @Override
+        public Rotation2d getPitchNWU() {
+            return Rotation2d.kZero;
+        }
+
+        @Override
+        public Rotation2d getRollNWU() {
+            return Rotation2d.kZero;
+        }
+
+        @Override
+        public void periodic() {
+            //
+        }
+    }
+
+    private final Topics m_topics;
+    private final ReplayGyro m_gyro;
+    /** Module distances in meters, FL FR RL RR. */
+    private final double[] m_distanceM;
+    /** Module angles in radians, NaN until we see one. */
+    private final double[] m_angleRad;
+    private final SwerveHistory m_history;
+    private final OdometryUpdater m_odometryUpdater;
+    private final AprilTagRobotLocalizer m_localizer;
+    private final StructBuffer<Blip24> m_blipBuffer;
+    private final StructBuffer<SwerveModulePositions> m_positionsBuffer;
+    /** Keyed by log entry id. */
+    private final Map<Integer, Handler> m_handlers;
+    private final List<Sighting> m_sightings;
+
+    private Optional<Alliance> m_alliance;
+    /** Where odometry starts, set by run(). */
+    private Pose2d m_initialPose;
+    /** Output, set by run(). */
+    private StructLogEntry<Pose2d> m_poseEntry;
+    private boolean m_initialized;
+    /** Start of the current burst of odometry records, or -1 if none. */
+    private long m_cycleUs;
+    private int m_cycles;
+    private int m_sightingCount;
+
+    /**
+     * @param parent       logger, use a TestLoggerFactory to avoid NT traffic
+     * @param kinodynamics should match the robot that made the log
+     * @param layout       apriltags
+     * @param topics       names of the logged inputs
+     * @param alliance     used until the log says otherwise
+     */
+    public LogReplay(
+            LoggerFactory parent,
+            SwerveKinodynamics kinodynamics,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            Topics topics,
+            Optional<Alliance> alliance) {
+        m_topics = topics;
+        m_gyro = new ReplayGyro();
+        m_distanceM = new double[MODULES.length];
+        m_angleRad = new double[MODULES.length];
+        for (int i = 0; i < MODULES.length; ++i) {
+            m_angleRad[i] = Double.NaN;
+        }
+        m_history = new SwerveHistory(
+                kinodynamics,
+                Rotation2d.kZero,
+                positions(),
+                Pose2d.kZero,
+                0);
+        m_odometryUpdater = new OdometryUpdater(
+                kinodynamics, m_gyro, m_history, this::positions);
+        NudgingVisionUpdater visionUpdater = new NudgingVisionUpdater(
+                m_history, m_odometryUpdater);
+        m_localizer = new AprilTagRobotLocalizer(
+                parent, layout, m_history, visionUpdater);
+        m_blipBuffer = StructBuffer.create(Blip24.struct);
+        m_positionsBuffer = StructBuffer.create(SwerveModulePositions.struct);
+        m_handlers = new HashMap<>();
+        m_sightings = new ArrayList<>();
+        m_alliance = alliance;
+        m_cycleUs = -1;
+    }
+
+    /**
+     * Replay the whole input log, writing the pose estimate to "replay/pose" in
+     * the output log, once per cycle.
+     *
+     * @param input       robot log
+     * @param output      where the estimates go
+     * @param initialPose the odometry starts here; vision will correct it if it's
+     *                    wrong.
+     */
+    public Stats run(DataLogReader input, DataLog output, Pose2d initialPose) {
+        m_initialPose = initialPose;
+        m_poseEntry = StructLogEntry.create(output, "replay/pose", Pose2d.struct);
+        long startNs = System.nanoTime();
+        long records = 0;
+        for (DataLogRecord record : input) {
+            records++;
+            if (record.isStart()) {
+                start(record.getStartData());
+                continue;
+            }
+            if (record.isFinish()) {
+                m_handlers.remove(record.getFinishEntry());
+                continue;
+            }
+            if (record.isControl())
+                continue;
+            Handler handler = m_handlers.get(record.getEntry());
+            if (handler == null)
+                continue;
+            handler.accept(record);
+        }
+        // the last cycle has no successor to end it.
+        flush();
+        output.flush();
+        double wallTimeS = (System.nanoTime() - startNs) / 1e9;
+        Stats stats = new Stats(
+                records, m_cycles, m_sightingCount, wallTimeS, m_history.apply(Takt.get()).pose());
+        if (DEBUG)
+            System.out.println(stats);
+        return stats;
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Bind the handler for a new entry, if it's one we care about. */
+    private void start(DataLogRecord.StartRecordData data) {
+        String name = data.name;
+        String type = data.type;
+        if (DEBUG)
+            System.out.printf("start %d %s %s\n", data.entry, name, type);
+        if (type.equals("double")) {
+            if (name.equals(m_topics.yaw())) {
+                m_handlers.put(data.entry, r -> odometry(r, () -> m_gyro.m_yawRad = r.getDouble()));
+                return;
+            }
+            if (name.equals(m_topics.yawRate())) {
+                m_handlers.put(data.entry, r -> odometry(r, () -> m_gyro.m_yawRateRad_S = r.getDouble()));
+                return;
+            }
+            for (int i = 0; i < MODULES.length; ++i) {
+                final int module = i;
+                String root = m_topics.positions() + "/" + MODULES[i];
+                if (name.equals(root + "/distance")) {
+                    m_handlers.put(data.entry, r -> odometry(r, () -> m_distanceM[module] = r.getDouble()));
+                    return;
+                }
+                if (name.equals(root + "/angle/rad")) {
+                    m_handlers.put(data.entry, r -> odometry(r, () -> m_angleRad[module] = r.getDouble()));
+                    return;
+                }
+            }
+            return;
+        }
+        if (type.equals("struct:" + SwerveModulePositions.struct.getTypeName())
+                && name.equals(m_topics.positions())) {
+            // newer logs pack all the modules into one struct.
+            m_handlers.put(data.entry, r -> odometry(r, () -> positions(r)));
+            return;
+        }
+        if (type.equals("boolean") && name.equals(m_topics.isRed())) {
+            m_handlers.put(data.entry,
+                    r -> m_alliance = Optional.of(r.getBoolean() ? Alliance.Red : Alliance.Blue));
+            return;
+        }
+        if (type.equals("struct:" + Blip24.struct.getTypeName() + "[]")) {
+            // key is "root/cameraId/cameraNumber/blips", same as CameraReader.
+            if (!name.startsWith(m_topics.vision() + "/"))
+                return;
+            String[] fields = name.substring(m_topics.vision().length() + 1).split("/");
+            if (fields.length != 3 || !fields[2].equals("blips"))
+                return;
+            Transform3d cameraOffset = Camera.get(fields[0]).getOffset();
+            m_handlers.put(data.entry, r -> sighting(r, cameraOffset));
+        }
+    }
+
+    /**
+     * Odometry records arriving more than half a cycle after the start of the
+     * current burst end the burst.
+     */
+    private void odometry(DataLogRecord record, Runnable setter) {
+        long timestampUs = record.getTimestamp();
+        if (m_cycleUs >= 0 && timestampUs - m_cycleUs > CYCLE_GAP_US) {
+            flush();
+        }
+        if (m_cycleUs < 0)
+            m_cycleUs = timestampUs;
+        setter.run();
+    }
+
+    /** Camera frames are used after the odometry of the current cycle. */
+    private void sighting(DataLogRecord record, Transform3d cameraOffset) {
+        byte[] bytes = record.getRaw();
+        if (bytes.length == 0)
+            return;
+        Blip24[] blips;
+        try {
+            blips = m_blipBuffer.readArray(bytes);
+        } catch (RuntimeException ex) {
+            System.out.println("WARNING: blip decoding failed");
+            return;
+        }
+        m_sightings.add(new Sighting(record.getTimestamp() / 1e6, cameraOffset, blips));
+    }
+
+    /**
+     * Do what the robot does once per cycle: update odometry, then vision, then
+     * record the estimate.
+     */
+    private void flush() {
+        if (m_cycleUs < 0)
+            return;
+        double timestampS = m_cycleUs / 1e6;
+        Takt.set(timestampS);
+        if (!m_initialized) {
+            m_odometryUpdater.reset(m_initialPose, timestampS);
+            m_initialized = true;
+        } else {
+            m_odometryUpdater.update(timestampS);
+        }
+        for (Sighting s : m_sightings) {
+            m_localizer.estimateRobotPose(s.cameraOffset(), s.blips(), s.timestampS(), m_alliance);
+        }
+        m_sightingCount += m_sightings.size();
+        m_sightings.clear();
+        m_poseEntry.append(m_history.apply(timestampS).pose(), m_cycleUs);
+        m_cycles++;
+        m_cycleUs = -1;
+    }
+
+    /** Unpack the positions struct; an empty angle leaves the old one. */
+    private void positions(DataLogRecord record) {
+        SwerveModulePositions positions = m_positionsBuffer.read(record.getRaw());
+        SwerveModulePosition100[] all = positions.all();
+        for (int i = 0; i < all.length; ++i) {
+            m_distanceM[i] = all[i].distanceMeters;
+            if (all[i].unwrappedAngle.isPresent())
+                m_angleRad[i] = all[i].unwrappedAngle.get().getRadians();
+        }
+    }
+
+    private SwerveModulePositions positions() {
+        return new SwerveModulePositions(
+                position(0), position(1), position(2), position(3));
+    }
+
+    private SwerveModulePosition100 position(int i) {
+        double angle = m_angleRad[i];
+        return new SwerveModulePosition100(
+                m_distanceM[i],
+                Double.isNaN(angle) ? Optional.empty() : Optional.of(new Rotation2d(angle)));
+    }
+}
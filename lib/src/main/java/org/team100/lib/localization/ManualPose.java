@@ -40,7 +40,7 @@ public class ManualPose {
         m_log_field_robot = fieldLogger.doubleArrayLogger(Level.COMP, "robot");
         m_v = v;
         m_state = new ModelR3(initial);
-        m_stateCache = Cache.of(this::update);
+        m_stateCache = Cache.ofPrefetched(this::update);
     }
 
     public ModelR3 getState() {
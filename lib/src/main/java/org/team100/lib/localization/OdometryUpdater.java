@@ -5,17 +5,15 @@ import java.util.Map.Entry;
 import java.util.function.Supplier;
 
 import org.team100.lib.coherence.Takt;
-import org.team100.lib.geometry.GlobalDeltaR3;
 import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.geometry.MutablePose2d;
 import org.team100.lib.sensor.gyro.Gyro;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
-import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Twist2d;
 
 /**
  * Updates SwerveModelHistory with new odometry by selecting the most-recent
@@ -29,6 +27,12 @@ import edu.wpi.first.math.geometry.Twist2d;
  * 
  * Note we use methods on the specific history implementation; the interface
  * won't work here.
+ * 
+ * This runs every cycle, and many times per vision update (replay), so the
+ * integration uses the mutable kernel (MutablePose2d) rather than WPILib
+ * immutables, and takes the twist directly from the wheel positions, without
+ * intermediate deltas. What still allocates is the new history entry (record,
+ * state, pose, velocity, boxed timestamp) and, in replay, the gyro angle.
  */
 public class OdometryUpdater {
     private static final boolean DEBUG = false;
@@ -38,7 +42,14 @@ public class OdometryUpdater {
     private final SwerveHistory m_history;
     private final Supplier<SwerveModulePositions> m_positions;
 
+    /** Reused by put(). */
+    private final double[] m_twist;
+    /** Reused by put(). */
+    private final MutablePose2d m_pose;
+
     private Rotation2d m_gyroOffset;
+    /** Total entries replayed, for performance tests. */
+    private long m_replayed;
 
     public OdometryUpdater(
             SwerveKinodynamics kinodynamics,
@@ -49,12 +60,22 @@ public class OdometryUpdater {
         m_gyro = gyro;
         m_history = estimator;
         m_positions = positions;
+        m_twist = new double[3];
+        m_pose = new MutablePose2d();
     }
 
     Rotation2d getGyroOffset() {
         return m_gyroOffset;
     }
 
+    /**
+     * Total history entries replayed so far, i.e. the work done by vision
+     * updates. For performance tests.
+     */
+    public long replayed() {
+        return m_replayed;
+    }
+
     /**
      * Put a new state estimate based on gyro and wheel data, from the suppliers
      * passed to the constructor. There is no history replay here, though it won't
@@ -128,40 +149,38 @@ public class OdometryUpdater {
             System.out.printf("previous x %.6f y %.6f\n", previousState.pose().getX(), previousState.pose().getY());
         }
 
-        SwerveModuleDeltas modulePositionDelta = SwerveModuleDeltas.modulePositionDelta(
-                value.m_wheelPositions,
-                wheelPositions);
+        m_kinodynamics.getKinematics().toTwist(value.m_wheelPositions, wheelPositions, m_twist);
         if (DEBUG) {
-            System.out.printf("modulePositionDelta %s\n", modulePositionDelta);
-        }
-
-        Twist2d twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
-        if (DEBUG) {
-            System.out.printf("twist x %.6f y %.6f theta %.6f\n", twist.dx, twist.dy, twist.dtheta);
+            System.out.printf("twist x %.6f y %.6f theta %.6f\n", m_twist[0], m_twist[1], m_twist[2]);
         }
         // replace the twist dtheta with one derived from the current
         // pose angle based on the gyro (which is more accurate)
 
-        Rotation2d angle = gyroAngleRadNWU.plus(m_gyroOffset);
+        // angle = gyro + offset
+        double angleCos = gyroAngleRadNWU.getCos() * m_gyroOffset.getCos()
+                - gyroAngleRadNWU.getSin() * m_gyroOffset.getSin();
+        double angleSin = gyroAngleRadNWU.getCos() * m_gyroOffset.getSin()
+                + gyroAngleRadNWU.getSin() * m_gyroOffset.getCos();
         if (DEBUG) {
-            System.out.printf("angle %.6f\n", angle.getRadians());
+            System.out.printf("angle %.6f\n", Math.atan2(angleSin, angleCos));
         }
-        twist.dtheta = angle.minus(previousState.pose().getRotation()).getRadians();
-
-        Pose2d newPose = previousState.pose().exp(twist);
+        // dtheta = angle - previous
+        Rotation2d prevRotation = previousState.pose().getRotation();
+        double dtheta = Math.atan2(
+                angleSin * prevRotation.getCos() - angleCos * prevRotation.getSin(),
+                angleCos * prevRotation.getCos() + angleSin * prevRotation.getSin());
+
+        m_pose.set(previousState.pose()).exp(m_twist[0], m_twist[1], dtheta);
+        Pose2d newPose = m_pose.toPose2d();
         if (DEBUG) {
             System.out.printf("new pose x %.6f y %.6f\n", newPose.getX(), newPose.getY());
         }
 
-        // this is the backward finite difference velocity from odometry
-        GlobalDeltaR3 odoVelo = GlobalDeltaR3.delta(
-                previousState.pose(), newPose)
-                .div(dt);
-
-        // use the gyro rate instead of the odometry-derived rate
+        // this is the backward finite difference velocity from odometry,
+        // but use the gyro rate instead of the odometry-derived rate
         GlobalVelocityR3 velocity = new GlobalVelocityR3(
-                odoVelo.getX(),
-                odoVelo.getY(),
+                (m_pose.getX() - previousState.pose().getX()) / dt,
+                (m_pose.getY() - previousState.pose().getY()) / dt,
                 gyroRateRad_SNWU);
 
         ModelR3 swerveState = new ModelR3(newPose, velocity);
@@ -184,6 +203,7 @@ public class OdometryUpdater {
             SwerveModulePositions wheelPositions = value.m_wheelPositions;
 
             put(entryTimestampS, entryGyroAngle, entryGyroRate, wheelPositions);
+            m_replayed++;
         }
     }
 
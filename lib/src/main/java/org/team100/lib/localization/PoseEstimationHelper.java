@@ -1,5 +1,7 @@
 package org.team100.lib.localization;
 
+import org.team100.lib.geometry.MutablePose3d;
+
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
@@ -15,6 +17,10 @@ public class PoseEstimationHelper  {
      * Compose field-to-camera with camera-to-robot, to get field-to-robot.
      * 
      * This method trusts the tag rotation calculated by the camera.
+     * 
+     * This is called for every sighting, so it uses the mutable kernel rather
+     * than composing WPILib immutables; the locals don't escape, so the only
+     * allocation is the result.
      *
      * @param cameraInRobot Robot-to-camera, offset from Camera.java
      * @param tagInField    Field-to-tag, canonical pose from the JSON file
@@ -24,7 +30,10 @@ public class PoseEstimationHelper  {
             Transform3d cameraInRobot,
             Pose3d tagInField,
             Transform3d tagInCamera) {
-        return robotInField(cameraInField(tagInField, tagInCamera), cameraInRobot);
+        MutablePose3d pose = new MutablePose3d().set(tagInField);
+        pose.transformBy(new MutablePose3d().set(tagInCamera).inverse());
+        pose.transformBy(new MutablePose3d().set(cameraInRobot).inverse());
+        return pose.toPose3d();
     }
 
     /**
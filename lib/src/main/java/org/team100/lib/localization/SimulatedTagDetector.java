@@ -10,6 +10,7 @@ import java.util.function.DoubleFunction;
 
 import org.team100.lib.coherence.Takt;
 import org.team100.lib.config.Camera;
+import org.team100.lib.network.LocalServer;
 import org.team100.lib.state.ModelR3;
 
 import edu.wpi.first.math.Vector;
@@ -50,6 +51,17 @@ public class SimulatedTagDetector {
     private static final double MEAN_DELAY = 0.085;
     private static final double STDEV_DELAY = 0.02;
 
+    /**
+     * Camera delay distribution, with its own random source so that seeded
+     * simulations are repeatable.
+     */
+    public record Latency(Random random, double meanS, double stdevS) {
+        /** Unseeded, with the usual delay. */
+        public static Latency defaults() {
+            return new Latency(new Random(), MEAN_DELAY, STDEV_DELAY);
+        }
+    }
+
     private final List<Camera> m_cameras;
     private final AprilTagFieldLayoutWithCorrectOrientation m_layout;
     private final DoubleFunction<ModelR3> m_history;
@@ -57,7 +69,7 @@ public class SimulatedTagDetector {
     private final Map<Camera, StructArrayPublisher<Blip24>> m_publishers;
     /** client instance, not the default */
     private final NetworkTableInstance m_inst;
-    private final Random m_rand;
+    private final Latency m_latency;
 
     /**
      * 
@@ -69,15 +81,28 @@ public class SimulatedTagDetector {
             List<Camera> cameras,
             AprilTagFieldLayoutWithCorrectOrientation layout,
             DoubleFunction<ModelR3> history) {
+        this(cameras, layout, history, Latency.defaults());
+    }
+
+    /**
+     * @param cameras
+     * @param layout
+     * @param history pose history by timestamp (sec)
+     * @param latency camera delay distribution
+     */
+    public SimulatedTagDetector(
+            List<Camera> cameras,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            DoubleFunction<ModelR3> history,
+            Latency latency) {
         m_cameras = cameras;
         m_layout = layout;
         m_history = history;
         m_publishers = new HashMap<>();
         m_inst = NetworkTableInstance.create();
         // this is a client just like the camera is a client.
-        m_inst.startClient4("SimulatedTagDetector");
-        m_inst.setServer("localhost");
-        m_rand = new Random();
+        LocalServer.connect(m_inst, "SimulatedTagDetector");
+        m_latency = latency;
         for (Camera camera : m_cameras) {
             // see tag_detector.py
             String name = "vision/" + camera.getSerial() + "/0/blips";
@@ -89,6 +114,13 @@ public class SimulatedTagDetector {
     }
 
     public static Runnable get(AprilTagFieldLayoutWithCorrectOrientation layout, SwerveHistory history) {
+        return get(layout, history, Latency.defaults());
+    }
+
+    public static Runnable get(
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            SwerveHistory history,
+            Latency latency) {
         if (RobotBase.isReal()) {
             // Real robots get an empty simulated tag detector.
             return () -> {
@@ -103,7 +135,8 @@ public class SimulatedTagDetector {
                             Camera.CORAL_LEFT,
                             Camera.CORAL_RIGHT),
                     layout,
-                    history);
+                    history,
+                    latency);
             return sim::periodic;
         }
     }
@@ -116,7 +149,7 @@ public class SimulatedTagDetector {
             return;
 
         // fetch the pose from a little while ago
-        double actualDelay = MEAN_DELAY + m_rand.nextGaussian() * STDEV_DELAY;
+        double actualDelay = m_latency.meanS() + m_latency.random().nextGaussian() * m_latency.stdevS();
         double timestampS = Takt.get() - actualDelay;
         Pose2d pose = m_history.apply(timestampS).pose();
 
@@ -179,7 +212,7 @@ public class SimulatedTagDetector {
 
             // publish whatever we saw
             // with a timestamp matching the pose above
-            long delayUs = (long) actualDelay * 1000000;
+            long delayUs = (long) (actualDelay * 1000000);
             long timestampUs = NetworkTablesJNI.now();
             publisher.set(
                     blips.toArray(new Blip24[0]), timestampUs - delayUs);
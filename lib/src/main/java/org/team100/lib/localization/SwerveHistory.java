@@ -34,7 +34,7 @@ public class SwerveHistory implements DoubleFunction<ModelR3> {
      * code with about 75-100 ms latency. There will never be a vision update
      * older than about 200 ms.
      */
-    private static final double BUFFER_DURATION = 0.2;
+    static final double BUFFER_DURATION = 0.2;
 
     private final SwerveKinodynamics m_kinodynamics;
     private final TimeInterpolatableBuffer100<InterpolationRecord> m_poseBuffer;
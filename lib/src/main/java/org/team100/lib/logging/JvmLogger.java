@@ -3,27 +3,154 @@ package org.team100.lib.logging;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.LoggerFactory.LongLogger;
 
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.sun.management.ThreadMXBean;
+
 /**
  * Logs stuff about the JVM. Inspired by Advantage Kit's
  * LoggedRobot.GcStatsCollector().
+ *
+ * The MXBeans are kind of slow, so they're polled once a second by a
+ * background thread, and the main thread just logs the most recent values.
+ *
+ * Each GC pause is recorded as it happens, using the GC notifications, so that
+ * when a cycle overruns, we can say whether a GC was the reason. Concurrent
+ * cycles, e.g. "ZGC Cycles", run alongside the program, so they don't count.
+ *
+ * Call close() when you're done with it, to stop the poller and the
+ * notifications.
+ *
+ * Allocation is measured on the thread calling cycle(), i.e. the main thread.
  */
-public class JvmLogger  {
-    private final LoggerFactory m_log;
+public class JvmLogger implements AutoCloseable {
+    private static final long POLL_PERIOD_MS = 1000;
+    /** Keep this many GC events for overlap checks. */
+    private static final int GC_HISTORY = 64;
+
+    private final List<GarbageCollectorMXBean> m_gcBeans;
+    private final List<MemoryPoolMXBean> m_poolBeans;
+    private final NotificationListener m_listener;
+    private final ScheduledExecutorService m_poller;
+
+    // written by the poller, read by the main thread
+    // [heap, non-heap]
+    private final AtomicLongArray m_usage;
+    private final AtomicLongArray m_gcCounts;
+    private final AtomicLongArray m_gcTimes;
+    private final AtomicLongArray m_poolUsed;
+
+    // written by the notification thread, read by the main thread
+    private final double[] m_gcStartS;
+    private final double[] m_gcDurationS;
+    /** Total GC events; volatile to publish the arrays above. */
+    private volatile long m_gcEvents;
+    /** Takt.actual() minus JVM uptime, to translate GC times. */
+    private final double m_uptimeOffsetS;
+
+    /** Null if the JVM doesn't support allocation counting. */
+    private final ThreadMXBean m_threadBean;
+    private long m_allocatedBytes;
+    private long m_gcSeen;
+
     private final LongLogger m_log_heap;
     private final LongLogger m_log_nonheap;
-    private final Map<String, LongLogger> m_log_gc_times = new HashMap<>();
-    private final Map<String, LongLogger> m_log_gc_counts = new HashMap<>();
-    private final Map<String, LongLogger> m_log_memory = new HashMap<>();
+    private final LongLogger[] m_log_gc_times;
+    private final LongLogger[] m_log_gc_counts;
+    private final LongLogger[] m_log_memory;
+    private final LongLogger m_log_allocated;
+    private final IntLogger m_log_gc_events;
+    private final DoubleLogger m_log_gc_pause;
+    private final DoubleLogger m_log_overrun;
+    private final DoubleLogger m_log_overrun_gc;
 
     public JvmLogger(LoggerFactory parent) {
-        m_log = parent.type(this);
-        m_log_heap = m_log.longLogger(Level.DEBUG, "MemoryUsage/heap");
-        m_log_nonheap = m_log.longLogger(Level.TRACE, "MemoryUsage/non-heap");
+        LoggerFactory log = parent.type(this);
+        m_gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        m_poolBeans = ManagementFactory.getMemoryPoolMXBeans();
+        m_usage = new AtomicLongArray(2);
+        m_gcCounts = new AtomicLongArray(m_gcBeans.size());
+        m_gcTimes = new AtomicLongArray(m_gcBeans.size());
+        m_poolUsed = new AtomicLongArray(m_poolBeans.size());
+        m_gcStartS = new double[GC_HISTORY];
+        m_gcDurationS = new double[GC_HISTORY];
+        m_uptimeOffsetS = Takt.actual() - ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0;
+
+        m_log_heap = log.longLogger(Level.DEBUG, "MemoryUsage/heap");
+        m_log_nonheap = log.longLogger(Level.TRACE, "MemoryUsage/non-heap");
+        m_log_gc_counts = new LongLogger[m_gcBeans.size()];
+        m_log_gc_times = new LongLogger[m_gcBeans.size()];
+        for (int i = 0; i < m_gcBeans.size(); ++i) {
+            String name = m_gcBeans.get(i).getName();
+            m_log_gc_counts[i] = log.longLogger(Level.TRACE, "GCCount/" + name);
+            m_log_gc_times[i] = log.longLogger(Level.TRACE, "GCTime_ms/" + name);
+        }
+        m_log_memory = new LongLogger[m_poolBeans.size()];
+        for (int i = 0; i < m_poolBeans.size(); ++i) {
+            m_log_memory[i] = log.longLogger(Level.TRACE, "Memory/" + m_poolBeans.get(i).getName());
+        }
+        m_log_allocated = log.longLogger(Level.DEBUG, "allocated per cycle (bytes)");
+        m_log_gc_events = log.intLogger(Level.DEBUG, "GC events per cycle");
+        m_log_gc_pause = log.doubleLogger(Level.DEBUG, "GC time per cycle (s)");
+        m_log_overrun = log.doubleLogger(Level.COMP, "overrun/duration (s)");
+        m_log_overrun_gc = log.doubleLogger(Level.COMP, "overrun/GC overlap (s)");
+
+        m_threadBean = threadBean();
+        if (m_threadBean != null)
+            m_allocatedBytes = m_threadBean.getCurrentThreadAllocatedBytes();
+
+        m_listener = (n, h) -> onNotification(n);
+        for (GarbageCollectorMXBean bean : m_gcBeans) {
+            if (bean instanceof NotificationEmitter emitter)
+                emitter.addNotificationListener(m_listener, null, null);
+        }
+
+        poll();
+        m_poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "JvmLogger");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        m_poller.scheduleAtFixedRate(this::poll, POLL_PERIOD_MS, POLL_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop the poller thread and the GC notifications. */
+    @Override
+    public void close() {
+        m_poller.shutdownNow();
+        for (GarbageCollectorMXBean bean : m_gcBeans) {
+            if (bean instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(m_listener);
+                } catch (ListenerNotFoundException e) {
+                    // already removed
+                }
+            }
+        }
+    }
+
+    /** True after close(). */
+    boolean isClosed() {
+        return m_poller.isShutdown();
     }
 
     public void logGarbageCollectors() {
@@ -31,15 +158,10 @@ public class JvmLogger  {
             // don't do any work if we're not going to log it.
             return;
         }
-        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
-            m_log_gc_counts.computeIfAbsent(
-                    bean.getName(),
-                    (x) -> m_log.longLogger(Level.TRACE, "GCCount/" + x))
-                    .log(() -> bean.getCollectionCount());
-            m_log_gc_times.computeIfAbsent(
-                    bean.getName(),
-                    (x) -> m_log.longLogger(Level.TRACE, "GCTime_ms/" + x))
-                    .log(() -> bean.getCollectionTime());
+        for (int i = 0; i < m_log_gc_counts.length; ++i) {
+            final int j = i;
+            m_log_gc_counts[i].log(() -> m_gcCounts.get(j));
+            m_log_gc_times[i].log(() -> m_gcTimes.get(j));
         }
     }
 
@@ -48,17 +170,125 @@ public class JvmLogger  {
             // don't do any work if we're not going to log it.
             return;
         }
-        for (MemoryPoolMXBean bean : ManagementFactory.getMemoryPoolMXBeans()) {
-            m_log_memory.computeIfAbsent(
-                    bean.getName(),
-                    (x) -> m_log.longLogger(Level.TRACE, "Memory/" + x))
-                    .log(() -> bean.getUsage().getUsed());
+        for (int i = 0; i < m_log_memory.length; ++i) {
+            final int j = i;
+            m_log_memory[i].log(() -> m_poolUsed.get(j));
         }
     }
 
     public void logMemoryUsage() {
-        m_log_heap.log(() -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
-        m_log_nonheap.log(() -> ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed());
+        m_log_heap.log(() -> m_usage.get(0));
+        m_log_nonheap.log(() -> m_usage.get(1));
+    }
+
+    /**
+     * Call once per cycle, on the main thread, at the end of the cycle.
+     *
+     * @param startS  when the cycle started, Takt.actual()
+     * @param endS    when the cycle ended, Takt.actual()
+     * @param marginS time remaining before the next deadline; negative means the
+     *                cycle overran.
+     */
+    public void cycle(double startS, double endS, double marginS) {
+        if (m_threadBean != null) {
+            long allocated = m_threadBean.getCurrentThreadAllocatedBytes();
+            long delta = allocated - m_allocatedBytes;
+            m_allocatedBytes = allocated;
+            m_log_allocated.log(() -> delta);
+        }
+        long events = m_gcEvents;
+        long newEvents = Math.min(events - m_gcSeen, GC_HISTORY);
+        double pauseS = 0;
+        for (long i = events - newEvents; i < events; ++i) {
+            pauseS += m_gcDurationS[(int) (i % GC_HISTORY)];
+        }
+        m_gcSeen = events;
+        final double p = pauseS;
+        m_log_gc_events.log(() -> (int) newEvents);
+        m_log_gc_pause.log(() -> p);
+        if (marginS < 0) {
+            double overlapS = gcOverlapS(startS, endS);
+            m_log_overrun.log(() -> endS - startS);
+            m_log_overrun_gc.log(() -> overlapS);
+            if (Logging.instance().getLevel().admit(Level.DEBUG)) {
+                System.out.printf("WARNING: Cycle overran by %.4f s, GC overlap %.4f s\n",
+                        -marginS, overlapS);
+            }
+        }
+    }
+
+    /** Total duration of the recorded GC events that overlap the interval. */
+    double gcOverlapS(double startS, double endS) {
+        long events = m_gcEvents;
+        double totalS = 0;
+        for (long i = Math.max(0, events - GC_HISTORY); i < events; ++i) {
+            int idx = (int) (i % GC_HISTORY);
+            double gcStartS = m_gcStartS[idx];
+            double gcEndS = gcStartS + m_gcDurationS[idx];
+            double overlapS = Math.min(endS, gcEndS) - Math.max(startS, gcStartS);
+            if (overlapS > 0)
+                totalS += overlapS;
+        }
+        return totalS;
+    }
+
+    /** Record a GC event. Only one thread should call this. */
+    void record(double startS, double durationS) {
+        long events = m_gcEvents;
+        int idx = (int) (events % GC_HISTORY);
+        m_gcStartS[idx] = startS;
+        m_gcDurationS[idx] = durationS;
+        m_gcEvents = events + 1;
+    }
+
+    /** Runs on the JMX notification thread. */
+    private void onNotification(Notification n) {
+        if (!n.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+            return;
+        GarbageCollectionNotificationInfo gc = GarbageCollectionNotificationInfo.from(
+                (CompositeData) n.getUserData());
+        if (!isPause(gc.getGcName(), gc.getGcAction()))
+            return;
+        GcInfo info = gc.getGcInfo();
+        // GcInfo times are JVM uptime in milliseconds.
+        record(m_uptimeOffsetS + info.getStartTime() / 1000.0, info.getDuration() / 1000.0);
+    }
+
+    /**
+     * True if the GC event stopped the program. The stop-the-world collectors
+     * (Serial, Parallel, G1) report "end of minor GC" and "end of major GC",
+     * and G1's remark and cleanup are "end of concurrent GC pause", all pauses.
+     * ZGC and Shenandoah report their concurrent work separately, as
+     * "... Cycles" with "end of GC cycle", which isn't a pause.
+     */
+    static boolean isPause(String gcName, String gcAction) {
+        if (gcName.endsWith("Cycles"))
+            return false;
+        return !gcAction.equals("end of GC cycle");
     }
 
+    /** Runs on the poller thread. */
+    private void poll() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        m_usage.set(0, heap.getUsed());
+        m_usage.set(1, nonHeap.getUsed());
+        for (int i = 0; i < m_gcBeans.size(); ++i) {
+            m_gcCounts.set(i, m_gcBeans.get(i).getCollectionCount());
+            m_gcTimes.set(i, m_gcBeans.get(i).getCollectionTime());
+        }
+        for (int i = 0; i < m_poolBeans.size(); ++i) {
+            m_poolUsed.set(i, m_poolBeans.get(i).getUsage().getUsed());
+        }
+    }
+
+    private static ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean))
+            return null;
+        if (!bean.isThreadAllocatedMemorySupported())
+            return null;
+        if (!bean.isThreadAllocatedMemoryEnabled())
+            bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
 }
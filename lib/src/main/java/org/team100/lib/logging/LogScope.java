@@ -0,0 +1,54 @@
+package org.team100.lib.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.team100.lib.coherence.Settings;
+
+/**
+ * The effective level, and the publish count, for one logger path, shared by
+ * all the LoggerFactories with that path.
+ *
+ * The level is the Settings override for the longest subtree containing the
+ * path, if any, or the default. The override is resolved again only when some
+ * level changes, so the usual check is just a couple of field reads.
+ *
+ * Safe to use from ParallelPeriodic workers: the count is a LongAdder, and the
+ * override is published by its generation, so a reader sees either a current
+ * pair or resolves it again itself.
+ */
+final class LogScope {
+    private final String m_path;
+    private final Supplier<Level> m_default;
+    /** Null means no override. */
+    private Level m_override;
+    /**
+     * The generation of m_override, or -1 if it's never been resolved. Written
+     * after m_override.
+     */
+    private volatile int m_generation = -1;
+    /** Publishes, ever. */
+    final LongAdder m_count = new LongAdder();
+    /** Publishes as of the last report. */
+    long m_reported;
+
+    LogScope(String path, Supplier<Level> defaultLevel) {
+        m_path = path;
+        m_default = defaultLevel;
+    }
+
+    String path() {
+        return m_path;
+    }
+
+    Level level() {
+        int generation = Settings.levelGeneration();
+        if (generation != m_generation) {
+            m_override = Settings.get().level(m_path);
+            m_generation = generation;
+        }
+        if (m_override == null)
+            return m_default.get();
+        return m_override;
+    }
+}
@@ -0,0 +1,79 @@
+package org.team100.lib.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.primitive.PrimitiveLogger;
+
+/**
+ * All the scopes under one root LoggerFactory, so we can say where the
+ * publishes come from, and the recorder, if any.
+ */
+final class LogTree {
+    private final Supplier<Level> m_default;
+    /** Null if there isn't one. */
+    private final PrimitiveLogger m_recorder;
+    private final Level m_recorderLevel;
+    private final Map<String, LogScope> m_scopes = new HashMap<>();
+    private int m_reportedCycle;
+
+    LogTree(Supplier<Level> defaultLevel) {
+        this(defaultLevel, null, null);
+    }
+
+    LogTree(Supplier<Level> defaultLevel, PrimitiveLogger recorder, Level recorderLevel) {
+        m_default = defaultLevel;
+        m_recorder = recorder;
+        m_recorderLevel = recorderLevel;
+        m_reportedCycle = Takt.cycle();
+    }
+
+    /** True if values at this level go to the recorder. */
+    boolean records(Level level) {
+        return m_recorder != null && m_recorderLevel.admit(level);
+    }
+
+    PrimitiveLogger recorder() {
+        return m_recorder;
+    }
+
+    LogScope scope(String path) {
+        return m_scopes.computeIfAbsent(path, p -> new LogScope(p, m_default));
+    }
+
+    /**
+     * Publishes per cycle since the last report, summed by subtree.
+     *
+     * @param depth number of path elements in the subtree name, e.g. 2 for
+     *              "log/Drive".
+     */
+    SortedMap<String, Double> report(int depth) {
+        int cycle = Takt.cycle();
+        int cycles = Math.max(1, cycle - m_reportedCycle);
+        m_reportedCycle = cycle;
+        SortedMap<String, Double> result = new TreeMap<>();
+        for (LogScope scope : m_scopes.values()) {
+            long total = scope.m_count.sum();
+            long count = total - scope.m_reported;
+            scope.m_reported = total;
+            if (count == 0)
+                continue;
+            result.merge(subtree(scope.path(), depth), (double) count / cycles, Double::sum);
+        }
+        return result;
+    }
+
+    private static String subtree(String path, int depth) {
+        int end = -1;
+        for (int i = 0; i < depth; ++i) {
+            end = path.indexOf('/', end + 1);
+            if (end < 0)
+                return path;
+        }
+        return path.substring(0, end);
+    }
+}
@@ -1,12 +1,14 @@
 package org.team100.lib.logging;
 
 import java.util.OptionalDouble;
+import java.util.SortedMap;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import org.team100.lib.coherence.Takt;
 import org.team100.lib.geometry.GlobalAccelerationR3;
 import org.team100.lib.geometry.GlobalDeltaR3;
 import org.team100.lib.geometry.GlobalVelocityR3;
@@ -37,6 +39,7 @@ import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.spline.PoseWithCurvature;
 import edu.wpi.first.math.trajectory.Trajectory.State;
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * This is the logger factory class.
@@ -54,19 +57,53 @@ import edu.wpi.first.math.trajectory.Trajectory.State;
  * Don't use slashes in names, it confuses Glass.
  */
 public class LoggerFactory {
-    private final Supplier<Level> m_level;
+    private final LogTree m_tree;
+    private final LogScope m_scope;
     private final String m_root;
+    /** The shared primitive logger. */
+    private final PrimitiveLogger m_base;
+    /** The primitive logger for this scope. */
     private final PrimitiveLogger m_pLogger;
+    private final int m_decimation;
+    private final boolean m_onChange;
 
     public LoggerFactory(
             Supplier<Level> level,
             String root,
             PrimitiveLogger primitiveLogger) {
+        this(new LogTree(level), root, primitiveLogger, 1, false);
+    }
+
+    /**
+     * Also send everything at the recorder level to the recorder, regardless of
+     * the live level, e.g. to keep TRACE data in the FlightRecorder while only
+     * COMP data goes to NT. Note this means the suppliers for those loggers are
+     * always called.
+     */
+    public LoggerFactory(
+            Supplier<Level> level,
+            String root,
+            PrimitiveLogger primitiveLogger,
+            PrimitiveLogger recorder,
+            Level recorderLevel) {
+        this(new LogTree(level, recorder, recorderLevel), root, primitiveLogger, 1, false);
+    }
+
+    private LoggerFactory(
+            LogTree tree,
+            String root,
+            PrimitiveLogger base,
+            int decimation,
+            boolean onChange) {
         if (root.startsWith("/"))
             throw new IllegalArgumentException("don't lead with a slash");
-        m_level = level;
+        m_tree = tree;
+        m_scope = tree.scope(root);
         m_root = root;
-        m_pLogger = primitiveLogger;
+        m_base = base;
+        m_pLogger = new ScopedPrimitiveLogger(base, m_scope, onChange);
+        m_decimation = decimation;
+        m_onChange = onChange;
     }
 
     /**
@@ -76,7 +113,40 @@ public class LoggerFactory {
      * Each child level is separated by slashes, to make a tree in glass.
      */
     public LoggerFactory name(String stem) {
-        return new LoggerFactory(m_level, root(stem), m_pLogger);
+        return new LoggerFactory(m_tree, root(stem), m_base, m_decimation, m_onChange);
+    }
+
+    /**
+     * Same root, but logs only every nth cycle, e.g. for slow-changing or
+     * high-volume things. Children inherit this.
+     */
+    public LoggerFactory decimated(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("decimation must be positive");
+        return new LoggerFactory(m_tree, m_root, m_base, n, m_onChange);
+    }
+
+    /**
+     * Same root, but each logger skips values equal to the last one it
+     * published, e.g. for states and setpoints that mostly sit still. Children
+     * inherit this.
+     * 
+     * Note a skipped value is never republished, so a dashboard that connects
+     * later won't see it until it changes.
+     */
+    public LoggerFactory onChange() {
+        return new LoggerFactory(m_tree, m_root, m_base, m_decimation, true);
+    }
+
+    /**
+     * Publishes per cycle, since the last call, for each subtree under this
+     * factory's tree, e.g. to find out what's filling up NT.
+     * 
+     * @param depth number of path elements in the subtree name, e.g. 2 for
+     *              "log/Drive".
+     */
+    public SortedMap<String, Double> publishesPerCycle(int depth) {
+        return m_tree.report(depth);
     }
 
     /**
@@ -104,13 +174,27 @@ public class LoggerFactory {
 
     //////////////////////////////////////////////////////
 
+    /** Live or recorded. */
     private boolean allow(Level level) {
-        Level allowed = m_level.get();
-        if (allowed == Level.COMP && level == Level.COMP) {
-            // comp mode allows COMP level regardless of enablement.
-            return true;
-        }
-        return allowed.admit(level);
+        return live(level) || m_tree.records(level);
+    }
+
+    /**
+     * The level is the subtree override from Settings, if any, or the default.
+     * Decimation counts loop cycles, so all the loggers under a decimated
+     * factory publish in the same cycle.
+     */
+    private boolean live(Level level) {
+        if (!m_scope.level().admit(level))
+            return false;
+        return m_decimation == 1 || Math.floorMod(Takt.cycle(), m_decimation) == 0;
+    }
+
+    /** For a logger at this level, the live logger, maybe teed to the recorder. */
+    private PrimitiveLogger primitive(Level level) {
+        if (!m_tree.records(level))
+            return m_pLogger;
+        return new TeePrimitiveLogger(m_pLogger, () -> live(level), m_tree.recorder());
     }
 
     /////////////////////////////////////////////////////
@@ -124,7 +208,7 @@ public class LoggerFactory {
 
         BooleanLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.booleanLogger(root(leaf));
+            m_primitiveLogger = primitive(level).booleanLogger(root(leaf));
         }
 
         public void log(BooleanSupplier vals) {
@@ -145,7 +229,7 @@ public class LoggerFactory {
 
         DoubleLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.doubleLogger(root(leaf));
+            m_primitiveLogger = primitive(level).doubleLogger(root(leaf));
         }
 
         public void log(DoubleSupplier vals) {
@@ -174,7 +258,7 @@ public class LoggerFactory {
 
         IntLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.intLogger(root(leaf));
+            m_primitiveLogger = primitive(level).intLogger(root(leaf));
         }
 
         public void log(IntSupplier vals) {
@@ -195,7 +279,7 @@ public class LoggerFactory {
 
         DoubleArrayLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.doubleArrayLogger(root(leaf));
+            m_primitiveLogger = primitive(level).doubleArrayLogger(root(leaf));
         }
 
         public void log(Supplier<double[]> vals) {
@@ -216,7 +300,7 @@ public class LoggerFactory {
 
         LongLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.longLogger(root(leaf));
+            m_primitiveLogger = primitive(level).longLogger(root(leaf));
         }
 
         public void log(LongSupplier vals) {
@@ -242,7 +326,7 @@ public class LoggerFactory {
 
         StringLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.stringLogger(root(leaf));
+            m_primitiveLogger = primitive(level).stringLogger(root(leaf));
         }
 
         public void log(Supplier<String> vals) {
@@ -257,13 +341,38 @@ public class LoggerFactory {
         return new StringLogger(level, leaf);
     }
 
+    /**
+     * Logs the whole value under one key, packed with the struct, so it's one
+     * publish per cycle, not one per field. AdvantageScope shows the fields.
+     */
+    public class StructLogger<T> {
+        private final Level m_level;
+        private final PrimitiveLogger.PrimitiveStructLogger<T> m_primitiveLogger;
+
+        StructLogger(Level level, String leaf, Struct<T> struct) {
+            m_level = level;
+            m_primitiveLogger = primitive(level).structLogger(root(leaf), struct);
+        }
+
+        public void log(Supplier<T> vals) {
+            if (!allow(m_level))
+                return;
+            T val = vals.get();
+            m_primitiveLogger.log(val);
+        }
+    }
+
+    public <T> StructLogger<T> structLogger(Level level, String leaf, Struct<T> struct) {
+        return new StructLogger<>(level, leaf, struct);
+    }
+
     public class OptionalDoubleLogger {
         private final Level m_level;
         private final PrimitiveLogger.PrimitiveDoubleLogger m_primitiveLogger;
 
         OptionalDoubleLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.doubleLogger(root(leaf));
+            m_primitiveLogger = primitive(level).doubleLogger(root(leaf));
         }
 
         public void log(Supplier<OptionalDouble> vals) {
@@ -286,7 +395,7 @@ public class LoggerFactory {
 
         EnumLogger(Level level, String leaf) {
             m_level = level;
-            m_primitiveLogger = m_pLogger.stringLogger(root(leaf));
+            m_primitiveLogger = primitive(level).stringLogger(root(leaf));
         }
 
         public void log(Supplier<Enum<?>> vals) {
@@ -301,23 +410,9 @@ public class LoggerFactory {
         return new EnumLogger(level, leaf);
     }
 
-    public class Pose2dLogger {
-        private final Level m_level;
-        private final Translation2dLogger m_translation2dLogger;
-        private final Rotation2dLogger m_rotation2dLogger;
-
+    public class Pose2dLogger extends StructLogger<Pose2d> {
         Pose2dLogger(Level level, String leaf) {
-            m_level = level;
-            m_translation2dLogger = translation2dLogger(level, join(leaf, "translation"));
-            m_rotation2dLogger = rotation2dLogger(level, join(leaf, "rotation"));
-        }
-
-        public void log(Supplier<Pose2d> vals) {
-            if (!allow(m_level))
-                return;
-            Pose2d val = vals.get();
-            m_translation2dLogger.log(val::getTranslation);
-            m_rotation2dLogger.log(val::getRotation);
+            super(level, leaf, Pose2d.struct);
         }
     }
 
@@ -325,23 +420,9 @@ public class LoggerFactory {
         return new Pose2dLogger(level, leaf);
     }
 
-    public class Transform3dLogger {
-        private final Level m_level;
-        private final Translation3dLogger m_translation3dLogger;
-        private final Rotation3dLogger m_rotation3dLogger;
-
+    public class Transform3dLogger extends StructLogger<Transform3d> {
         Transform3dLogger(Level level, String leaf) {
-            m_level = level;
-            m_translation3dLogger = translation3dLogger(level, join(leaf, "translation"));
-            m_rotation3dLogger = rotation3dLogger(level, join(leaf, "rotation"));
-        }
-
-        public void log(Supplier<Transform3d> vals) {
-            if (!allow(m_level))
-                return;
-            Transform3d val = vals.get();
-            m_translation3dLogger.log(val::getTranslation);
-            m_rotation3dLogger.log(val::getRotation);
+            super(level, leaf, Transform3d.struct);
         }
     }
 
@@ -730,26 +811,9 @@ public class LoggerFactory {
         return new SetpointsR1Logger(level, leaf);
     }
 
-    public class ControlR3Logger {
-        private final Level m_level;
-        private final Control100Logger m_xLogger;
-        private final Control100Logger m_yLogger;
-        private final Control100Logger m_thetaLogger;
-
+    public class ControlR3Logger extends StructLogger<ControlR3> {
         ControlR3Logger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = control100Logger(level, join(leaf, "x"));
-            m_yLogger = control100Logger(level, join(leaf, "y"));
-            m_thetaLogger = control100Logger(level, join(leaf, "theta"));
-        }
-
-        public void log(Supplier<ControlR3> vals) {
-            if (!allow(m_level))
-                return;
-            ControlR3 val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            super(level, leaf, ControlR3.struct);
         }
     }
 
@@ -761,26 +825,9 @@ public class LoggerFactory {
         return new Model100Logger(level, leaf);
     }
 
-    public class ModelR3Logger {
-        private final Level m_level;
-        private final Model100Logger m_xLogger;
-        private final Model100Logger m_yLogger;
-        private final Model100Logger m_thetaLogger;
-
+    public class ModelR3Logger extends StructLogger<ModelR3> {
         ModelR3Logger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = model100Logger(level, join(leaf, "x"));
-            m_yLogger = model100Logger(level, join(leaf, "y"));
-            m_thetaLogger = model100Logger(level, join(leaf, "theta"));
-        }
-
-        public void log(Supplier<ModelR3> vals) {
-            if (!allow(m_level))
-                return;
-            ModelR3 val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            super(level, leaf, ModelR3.struct);
         }
     }
 
@@ -788,25 +835,9 @@ public class LoggerFactory {
         return new ModelR3Logger(level, leaf);
     }
 
-    public class SwerveModulePosition100Logger {
-        private final Level m_level;
-        private final DoubleLogger m_distanceLogger;
-        private final Rotation2dLogger m_rotation2dLogger;
-
+    public class SwerveModulePosition100Logger extends StructLogger<SwerveModulePosition100> {
         SwerveModulePosition100Logger(Level level, String leaf) {
-            m_level = level;
-            m_distanceLogger = doubleLogger(level, join(leaf, "distance"));
-            m_rotation2dLogger = rotation2dLogger(level, join(leaf, "angle"));
-        }
-
-        public void log(Supplier<SwerveModulePosition100> vals) {
-            if (!allow(m_level))
-                return;
-            SwerveModulePosition100 val = vals.get();
-            m_distanceLogger.log(() -> val.distanceMeters);
-            if (val.unwrappedAngle.isPresent()) {
-                m_rotation2dLogger.log(val.unwrappedAngle::get);
-            }
+            super(level, leaf, SwerveModulePosition100.struct);
         }
     }
 
@@ -814,30 +845,9 @@ public class LoggerFactory {
         return new SwerveModulePosition100Logger(level, leaf);
     }
 
-    public class SwerveModulePositionsLogger {
-        private final Level m_level;
-
-        private final SwerveModulePosition100Logger m_frontLeft;
-        private final SwerveModulePosition100Logger m_frontRight;
-        private final SwerveModulePosition100Logger m_rearLeft;
-        private final SwerveModulePosition100Logger m_rearRight;
-
+    public class SwerveModulePositionsLogger extends StructLogger<SwerveModulePositions> {
         SwerveModulePositionsLogger(Level level, String leaf) {
-            m_level = level;
-            m_frontLeft = swerveModulePosition100Logger(level, join(leaf, "front left"));
-            m_frontRight = swerveModulePosition100Logger(level, join(leaf, "front right"));
-            m_rearLeft = swerveModulePosition100Logger(level, join(leaf, "rear left"));
-            m_rearRight = swerveModulePosition100Logger(level, join(leaf, "rear right"));
-        }
-
-        public void log(Supplier<SwerveModulePositions> vals) {
-            if (!allow(m_level))
-                return;
-            SwerveModulePositions val = vals.get();
-            m_frontLeft.log(val::frontLeft);
-            m_frontRight.log(val::frontRight);
-            m_rearLeft.log(val::rearLeft);
-            m_rearRight.log(val::rearRight);
+            super(level, leaf, SwerveModulePositions.struct);
         }
     }
 
@@ -1,11 +1,30 @@
 package org.team100.lib.logging;
 
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.team100.lib.coherence.Settings;
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.experiments.Experiments;
+import org.team100.lib.framework.Warmable;
+import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.primitive.FlightRecorder;
 import org.team100.lib.logging.primitive.NTPrimitiveLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.ModelR3;
 import org.team100.lib.util.NamedChooser;
 
 import com.ctre.phoenix6.SignalLogger;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -14,10 +33,15 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * 
  * If you use this logger you'll want to set the log level.
  */
-public class Logging {
+public class Logging implements Warmable {
     private static final Level DEFAULT_LEVEL = Level.TRACE;
+    /** Twice this is allocated, outside the heap. */
+    private static final int RECORDER_BYTES = 4 * 1024 * 1024;
+    private static final double RECORDER_WINDOW_S = 5;
 
     private PrimitiveLogger ntLogger;
+    /** Null unless the experiment is on. */
+    private final FlightRecorder m_recorder;
 
     private static final SendableChooser<Level> m_LevelChooser = new NamedChooser<>("Log Level");
 
@@ -26,6 +50,8 @@ public class Logging {
             m_LevelChooser.addOption(level.name(), level);
         }
         m_LevelChooser.setDefaultOption(DEFAULT_LEVEL.name(), DEFAULT_LEVEL);
+        Settings.initLevel(DEFAULT_LEVEL);
+        m_LevelChooser.onChange(Settings::setLevel);
         SmartDashboard.putData(m_LevelChooser);
     }
 
@@ -38,15 +64,34 @@ public class Logging {
     /** root is "log". */
     public final LoggerFactory rootLogger;
 
+    /** For warm(): same code path, but the output goes nowhere. */
+    private final DoubleLogger m_warmDouble;
+    private final Pose2dLogger m_warmPose;
+    private final ModelR3Logger m_warmModel;
+
     /**
      * Clients should use the static instance, not the constructor.
      */
     private Logging() {
         ntLogger = new NTPrimitiveLogger();
-        fieldLogger = new LoggerFactory(this::getLevel, "field", ntLogger);
-        rootLogger = new LoggerFactory(this::getLevel, "log", ntLogger);
+        if (Experiments.instance.enabled(Experiment.FlightRecorder)) {
+            // Keep recent TRACE data in memory, whatever the live level is.
+            m_recorder = new FlightRecorder(
+                    RECORDER_BYTES, RECORDER_WINDOW_S, Path.of(DataLogManager.getLogDir()));
+            fieldLogger = new LoggerFactory(this::getLevel, "field", ntLogger, m_recorder, Level.TRACE);
+            rootLogger = new LoggerFactory(this::getLevel, "log", ntLogger, m_recorder, Level.TRACE);
+        } else {
+            m_recorder = null;
+            fieldLogger = new LoggerFactory(this::getLevel, "field", ntLogger);
+            rootLogger = new LoggerFactory(this::getLevel, "log", ntLogger);
+        }
         fieldLogger.stringLogger(Level.COMP, ".type").log(() -> "Field2d");
 
+        LoggerFactory warmup = new LoggerFactory(() -> Level.TRACE, "warmup", new TestPrimitiveLogger());
+        m_warmDouble = warmup.doubleLogger(Level.TRACE, "double");
+        m_warmPose = warmup.pose2dLogger(Level.TRACE, "pose");
+        m_warmModel = warmup.modelR3Logger(Level.TRACE, "model");
+
         // turn off the CTRE log we never use
         SignalLogger.enableAutoLogging(false);
     }
@@ -57,8 +102,42 @@ public class Logging {
         return 0;
     }
 
+    /** Changes take effect at the next Cache.refresh(). */
     public Level getLevel() {
-        return m_LevelChooser.getSelected();
+        return Settings.get().level();
+    }
+
+    /**
+     * Override the level for a subtree, e.g. "log/Drive", or null to go back to
+     * the global level. Changes take effect at the next Cache.refresh().
+     */
+    public void setLevel(String subtree, Level level) {
+        Settings.setLevel(subtree, level);
+    }
+
+    /** Publishes per cycle since the last call, by subtree, field included. */
+    public SortedMap<String, Double> publishesPerCycle(int depth) {
+        SortedMap<String, Double> result = new TreeMap<>(rootLogger.publishesPerCycle(depth));
+        result.putAll(fieldLogger.publishesPerCycle(depth));
+        return result;
+    }
+
+    /** The flight recorder, if the experiment is on. */
+    public Optional<FlightRecorder> recorder() {
+        return Optional.ofNullable(m_recorder);
+    }
+
+    /**
+     * Log a few of the common types through a scratch factory whose primitive
+     * logger discards everything, so the struct serializers are loaded and
+     * compiled without publishing anything.
+     */
+    @Override
+    public void warm() {
+        Pose2d pose = new Pose2d(1, 2, Rotation2d.kCCW_Pi_2);
+        m_warmDouble.log(() -> 1.0);
+        m_warmPose.log(() -> pose);
+        m_warmModel.log(() -> new ModelR3(pose, new GlobalVelocityR3(1, 0, 0)));
     }
 
     /** The logging singleton. */
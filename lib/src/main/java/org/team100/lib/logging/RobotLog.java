@@ -8,7 +8,6 @@ import edu.wpi.first.wpilibj.RobotController;
 
 /** Robot-level logs, these used to pollute Robot.java. */
 public class RobotLog {
-    private final JvmLogger m_jvmLogger;
     private final DoubleLogger m_log_ds_MatchTime;
     private final BooleanLogger m_log_ds_AutonomousEnabled;
     private final BooleanLogger m_log_ds_TeleopEnabled;
@@ -18,7 +17,6 @@ public class RobotLog {
     public RobotLog() {
         LoggerFactory logger = Logging.instance().rootLogger;
         LoggerFactory robotLogger = logger.name("Robot");
-        m_jvmLogger = new JvmLogger(robotLogger);
         LoggerFactory dsLog = robotLogger.name("DriverStation");
         m_log_ds_MatchTime = dsLog.doubleLogger(Level.TRACE, "MatchTime");
         m_log_ds_AutonomousEnabled = dsLog.booleanLogger(Level.TRACE, "AutonomousEnabled");
@@ -29,9 +27,6 @@ public class RobotLog {
 
     /** Log some robot-wide stuff */
     public void periodic() {
-        m_jvmLogger.logGarbageCollectors();
-        m_jvmLogger.logMemoryPools();
-        m_jvmLogger.logMemoryUsage();
         m_log_ds_MatchTime.log(DriverStation::getMatchTime);
         m_log_ds_AutonomousEnabled.log(DriverStation::isAutonomousEnabled);
         m_log_ds_TeleopEnabled.log(DriverStation::isTeleopEnabled);
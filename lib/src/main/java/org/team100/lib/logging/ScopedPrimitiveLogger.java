@@ -0,0 +1,212 @@
+package org.team100.lib.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.team100.lib.logging.primitive.PrimitiveLogger;
+
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Wraps the primitive loggers of one LoggerFactory, to count publishes for its
+ * scope, and optionally, to skip values that haven't changed.
+ *
+ * Change detection is by value: doubles by bits, arrays by contents, and
+ * structs by their packed bytes, so mutable values work too.
+ */
+final class ScopedPrimitiveLogger implements PrimitiveLogger {
+    private final PrimitiveLogger m_base;
+    private final LogScope m_scope;
+    private final boolean m_onChange;
+
+    ScopedPrimitiveLogger(PrimitiveLogger base, LogScope scope, boolean onChange) {
+        m_base = base;
+        m_scope = scope;
+        m_onChange = onChange;
+    }
+
+    @Override
+    public int keyCount() {
+        return m_base.keyCount();
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        PrimitiveBooleanLogger p = m_base.booleanLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveBooleanLogger() {
+            private boolean m_logged;
+            private boolean m_last;
+
+            @Override
+            public void log(boolean val) {
+                if (m_logged && val == m_last)
+                    return;
+                m_logged = true;
+                m_last = val;
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        PrimitiveDoubleLogger p = m_base.doubleLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveDoubleLogger() {
+            private boolean m_logged;
+            private long m_last;
+
+            @Override
+            public void log(double val) {
+                long bits = Double.doubleToLongBits(val);
+                if (m_logged && bits == m_last)
+                    return;
+                m_logged = true;
+                m_last = bits;
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        PrimitiveIntLogger p = m_base.intLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveIntLogger() {
+            private boolean m_logged;
+            private int m_last;
+
+            @Override
+            public void log(int val) {
+                if (m_logged && val == m_last)
+                    return;
+                m_logged = true;
+                m_last = val;
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        PrimitiveDoubleArrayLogger p = m_base.doubleArrayLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveDoubleArrayLogger() {
+            private double[] m_last;
+
+            @Override
+            public void log(double[] val) {
+                if (Arrays.equals(val, m_last))
+                    return;
+                m_last = val.clone();
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        PrimitiveLongLogger p = m_base.longLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveLongLogger() {
+            private boolean m_logged;
+            private long m_last;
+
+            @Override
+            public void log(long val) {
+                if (m_logged && val == m_last)
+                    return;
+                m_logged = true;
+                m_last = val;
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        PrimitiveStringLogger p = m_base.stringLogger(label);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveStringLogger() {
+            private boolean m_logged;
+            private String m_last;
+
+            @Override
+            public void log(String val) {
+                if (m_logged && Objects.equals(val, m_last))
+                    return;
+                m_logged = true;
+                m_last = val;
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        PrimitiveStructLogger<T> p = m_base.structLogger(label, struct);
+        if (!m_onChange) {
+            return val -> {
+                m_scope.m_count.increment();
+                p.log(val);
+            };
+        }
+        return new PrimitiveStructLogger<T>() {
+            private final ByteBuffer m_buf = ByteBuffer.allocate(struct.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+            private final byte[] m_last = new byte[struct.getSize()];
+            private boolean m_logged;
+
+            @Override
+            public void log(T val) {
+                m_buf.clear();
+                struct.pack(m_buf, val);
+                byte[] packed = m_buf.array();
+                if (m_logged && Arrays.equals(packed, m_last))
+                    return;
+                m_logged = true;
+                System.arraycopy(packed, 0, m_last, 0, m_last.length);
+                m_scope.m_count.increment();
+                p.log(val);
+            }
+        };
+    }
+}
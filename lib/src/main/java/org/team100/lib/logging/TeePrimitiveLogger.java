@@ -0,0 +1,110 @@
+package org.team100.lib.logging;
+
+import java.util.function.BooleanSupplier;
+
+import org.team100.lib.logging.primitive.PrimitiveLogger;
+
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Sends each value to the recorder, and to the live logger too, if the live
+ * level allows it, so the recorder can take TRACE data while only COMP data
+ * goes out over NT.
+ *
+ * LoggerFactory makes one of these for each logger the recorder wants, so the
+ * level check for the recorder is already done.
+ */
+final class TeePrimitiveLogger implements PrimitiveLogger {
+    private final PrimitiveLogger m_live;
+    private final BooleanSupplier m_liveAllowed;
+    private final PrimitiveLogger m_recorder;
+
+    TeePrimitiveLogger(PrimitiveLogger live, BooleanSupplier liveAllowed, PrimitiveLogger recorder) {
+        m_live = live;
+        m_liveAllowed = liveAllowed;
+        m_recorder = recorder;
+    }
+
+    /** The live keys; the recorder doesn't use NT. */
+    @Override
+    public int keyCount() {
+        return m_live.keyCount();
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        PrimitiveBooleanLogger live = m_live.booleanLogger(label);
+        PrimitiveBooleanLogger recorder = m_recorder.booleanLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        PrimitiveDoubleLogger live = m_live.doubleLogger(label);
+        PrimitiveDoubleLogger recorder = m_recorder.doubleLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        PrimitiveIntLogger live = m_live.intLogger(label);
+        PrimitiveIntLogger recorder = m_recorder.intLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        PrimitiveDoubleArrayLogger live = m_live.doubleArrayLogger(label);
+        PrimitiveDoubleArrayLogger recorder = m_recorder.doubleArrayLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        PrimitiveLongLogger live = m_live.longLogger(label);
+        PrimitiveLongLogger recorder = m_recorder.longLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        PrimitiveStringLogger live = m_live.stringLogger(label);
+        PrimitiveStringLogger recorder = m_recorder.stringLogger(label);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        PrimitiveStructLogger<T> live = m_live.structLogger(label, struct);
+        PrimitiveStructLogger<T> recorder = m_recorder.structLogger(label, struct);
+        return val -> {
+            if (m_liveAllowed.getAsBoolean())
+                live.log(val);
+            recorder.log(val);
+        };
+    }
+}
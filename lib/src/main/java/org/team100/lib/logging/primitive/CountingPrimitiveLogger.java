@@ -0,0 +1,93 @@
+package org.team100.lib.logging.primitive;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Counts publishes, discarding the values. Each log call here is one publish
+ * in NTPrimitiveLogger, so this is for checking the NT load, e.g. in
+ * performance tests.
+ *
+ * Also estimates the bytes NT would send: the value, plus the per-message
+ * header (topic id, timestamp, and type, in MessagePack), which is about the
+ * same size as a double, so many small values cost twice what they look like.
+ */
+public class CountingPrimitiveLogger implements PrimitiveLogger {
+    /** NT4 binary message header, roughly. */
+    public static final int MESSAGE_OVERHEAD = 14;
+
+    private final Set<String> keys = new HashSet<>();
+    private long m_count;
+    private long m_bytes;
+
+    /** Publishes since the last reset. */
+    public long count() {
+        return m_count;
+    }
+
+    /** Estimated NT bytes since the last reset. */
+    public long bytes() {
+        return m_bytes;
+    }
+
+    public void reset() {
+        m_count = 0;
+        m_bytes = 0;
+    }
+
+    @Override
+    public int keyCount() {
+        return keys.size();
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        keys.add(label);
+        return val -> count(1);
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        keys.add(label);
+        return val -> count(8);
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        keys.add(label);
+        // NT integers are 64 bits
+        return val -> count(8);
+    }
+
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        keys.add(label);
+        return val -> count(8 * val.length);
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        keys.add(label);
+        return val -> count(8);
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        keys.add(label);
+        return val -> count(val.length());
+    }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        keys.add(label);
+        int size = struct.getSize();
+        return val -> count(size);
+    }
+
+    private void count(int bytes) {
+        m_count++;
+        m_bytes += MESSAGE_OVERHEAD + bytes;
+    }
+}
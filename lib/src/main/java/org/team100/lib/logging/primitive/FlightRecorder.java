@@ -0,0 +1,389 @@
+package org.team100.lib.logging.primitive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.team100.lib.coherence.Takt;
+
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Keeps the last few seconds of everything logged, in memory, and writes it to
+ * a .wpilog file when something goes wrong, e.g. a brownout, a streak of
+ * overruns, or an exception.
+ *
+ * The point is to have TRACE data for the moments that matter, without the
+ * cost of streaming it all the time. Use it alongside the NT logger; see
+ * LoggerFactory.
+ *
+ * The ring is a preallocated direct buffer, divided into blocks. Records
+ * never span blocks; when a block is full, the writer moves to the next one,
+ * discarding its contents, which are the oldest. Each record is
+ *
+ * <pre>
+ * KKTTTTTTTTSSSSVVV...
+ * ^^                   key (2 bytes)
+ *   ^^^^^^^^           timestamp, microseconds (8 bytes)
+ *           ^^^^       value size (4 bytes)
+ *               ^^^... value, in the wpilog encoding (little-endian)
+ * </pre>
+ *
+ * so the dump just copies the values. The only allocation when recording is
+ * for strings.
+ *
+ * To dump, the ring is swapped with a spare, so the loop doesn't wait, and a
+ * background thread writes the old one. New triggers are ignored until that's
+ * done.
+ *
+ * Recording is synchronized, so it's ok to log from ParallelPeriodic workers.
+ */
+public class FlightRecorder implements PrimitiveLogger {
+    private static final int BLOCKS = 64;
+    private static final int HEADER = 14;
+
+    private static final class Key {
+        private final String m_name;
+        private final String m_type;
+        /** For struct types, so the dump can write the schema. */
+        private final Struct<?> m_struct;
+
+        private Key(String name, String type, Struct<?> struct) {
+            m_name = name;
+            m_type = type;
+            m_struct = struct;
+        }
+    }
+
+    private static final class Condition {
+        private final String m_reason;
+        private final BooleanSupplier m_condition;
+        private final int m_cycles;
+        private int m_streak;
+
+        private Condition(String reason, BooleanSupplier condition, int cycles) {
+            m_reason = reason;
+            m_condition = condition;
+            m_cycles = cycles;
+        }
+    }
+
+    private final int m_blockSize;
+    private final long m_windowUs;
+    private final Path m_dir;
+    private final List<Key> m_keys = new ArrayList<>();
+    private final Map<String, Integer> m_keyIds = new HashMap<>();
+    private final List<Condition> m_conditions = new ArrayList<>();
+
+    private ByteBuffer m_ring;
+    private int[] m_used;
+    private int m_block;
+    /** Null while a dump is using it. */
+    private ByteBuffer m_spare;
+    private int[] m_spareUsed;
+
+    private Thread m_writer;
+    private long m_records;
+    private long m_dropped;
+    private int m_dumps;
+
+    /**
+     * @param capacityBytes size of the ring. At TRACE, the robot logs a few
+     *                      hundred KB per second, so a few MB is plenty. Twice
+     *                      this is allocated, for the spare.
+     * @param windowS       how much to dump, sec. The ring needs to hold at
+     *                      least this much, or the dump will be shorter.
+     * @param dir           where the dumps go
+     */
+    public FlightRecorder(int capacityBytes, double windowS, Path dir) {
+        m_blockSize = capacityBytes / BLOCKS;
+        if (m_blockSize <= HEADER)
+            throw new IllegalArgumentException("capacity is too small");
+        m_windowUs = (long) (windowS * 1e6);
+        m_dir = dir;
+        m_ring = allocate(m_blockSize * BLOCKS);
+        m_used = new int[BLOCKS];
+        m_spare = allocate(m_blockSize * BLOCKS);
+        m_spareUsed = new int[BLOCKS];
+    }
+
+    /**
+     * Dump when the condition has been true for the given number of cycles in
+     * a row, e.g. 1 for a button, or 5 for an overrun streak. It won't fire
+     * again until the condition goes false.
+     */
+    public void addTrigger(String reason, BooleanSupplier condition, int cycles) {
+        if (cycles < 1)
+            throw new IllegalArgumentException("cycles must be positive");
+        m_conditions.add(new Condition(reason, condition, cycles));
+    }
+
+    /** Check the triggers. Call this once per cycle, on the main thread. */
+    public void periodic() {
+        for (Condition c : m_conditions) {
+            c.m_streak = c.m_condition.getAsBoolean() ? c.m_streak + 1 : 0;
+            if (c.m_streak == c.m_cycles)
+                dump(c.m_reason);
+        }
+    }
+
+    /**
+     * Write the last few seconds to a file, on a background thread.
+     *
+     * @return false if the previous dump is still being written.
+     */
+    public synchronized boolean dump(String reason) {
+        if (m_spare == null)
+            return false;
+        ByteBuffer ring = m_ring;
+        int[] used = m_used;
+        int block = m_block;
+        m_ring = m_spare;
+        m_used = m_spareUsed;
+        m_block = 0;
+        Arrays.fill(m_used, 0);
+        m_spare = null;
+        m_spareUsed = null;
+        long nowUs = now();
+        List<Key> keys = List.copyOf(m_keys);
+        m_dumps++;
+        Path path = m_dir.resolve(String.format("flight_%d_%d_%s.wpilog",
+                System.currentTimeMillis(), m_dumps, reason.replaceAll("[^A-Za-z0-9]", "_")));
+        m_writer = new Thread(() -> {
+            try {
+                write(path, ring, used, block, keys, nowUs, reason);
+                System.out.printf("FlightRecorder: %s, wrote %s\n", reason, path);
+            } catch (IOException e) {
+                System.out.printf("FlightRecorder: %s, failed to write %s: %s\n", reason, path, e);
+            } finally {
+                synchronized (this) {
+                    m_spare = ring;
+                    m_spareUsed = used;
+                }
+            }
+        }, "FlightRecorder");
+        m_writer.setDaemon(true);
+        m_writer.start();
+        return true;
+    }
+
+    /**
+     * Wait for the dump in progress, if any, e.g. before letting an exception
+     * end the program.
+     */
+    public void awaitDump(long timeoutMs) {
+        Thread writer;
+        synchronized (this) {
+            writer = m_writer;
+        }
+        if (writer == null)
+            return;
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Records written to the ring, ever. */
+    public synchronized long records() {
+        return m_records;
+    }
+
+    /** Records too big for a block, which are skipped. */
+    public synchronized long dropped() {
+        return m_dropped;
+    }
+
+    public synchronized int dumps() {
+        return m_dumps;
+    }
+
+    @Override
+    public synchronized int keyCount() {
+        return m_keys.size();
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        int key = key(label, "boolean", null);
+        return val -> putBoolean(key, val);
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        int key = key(label, "double", null);
+        return val -> putDouble(key, val);
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        // wpilog integers are 64 bits
+        int key = key(label, "int64", null);
+        return val -> putLong(key, val);
+    }
+
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        int key = key(label, "double[]", null);
+        return val -> putDoubleArray(key, val);
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        int key = key(label, "int64", null);
+        return val -> putLong(key, val);
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        int key = key(label, "string", null);
+        return val -> putString(key, val);
+    }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        int key = key(label, struct.getTypeString(), struct);
+        return val -> putStruct(key, struct, val);
+    }
+
+    /////////////////////////////////////////////////////
+
+    private synchronized int key(String label, String type, Struct<?> struct) {
+        Integer existing = m_keyIds.get(label);
+        if (existing != null)
+            return existing;
+        int key = m_keys.size();
+        if (key > Character.MAX_VALUE)
+            throw new IllegalStateException("too many keys");
+        m_keys.add(new Key(label, type, struct));
+        m_keyIds.put(label, key);
+        return key;
+    }
+
+    private synchronized void putBoolean(int key, boolean val) {
+        int offset = begin(key, 1);
+        if (offset >= 0)
+            m_ring.put(offset, val ? (byte) 1 : (byte) 0);
+    }
+
+    private synchronized void putDouble(int key, double val) {
+        int offset = begin(key, 8);
+        if (offset >= 0)
+            m_ring.putDouble(offset, val);
+    }
+
+    private synchronized void putLong(int key, long val) {
+        int offset = begin(key, 8);
+        if (offset >= 0)
+            m_ring.putLong(offset, val);
+    }
+
+    private synchronized void putDoubleArray(int key, double[] val) {
+        int offset = begin(key, 8 * val.length);
+        if (offset < 0)
+            return;
+        for (int i = 0; i < val.length; ++i) {
+            m_ring.putDouble(offset + 8 * i, val[i]);
+        }
+    }
+
+    private synchronized void putString(int key, String val) {
+        byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+        int offset = begin(key, bytes.length);
+        if (offset >= 0)
+            m_ring.put(offset, bytes);
+    }
+
+    private synchronized <T> void putStruct(int key, Struct<T> struct, T val) {
+        int offset = begin(key, struct.getSize());
+        if (offset < 0)
+            return;
+        m_ring.position(offset);
+        struct.pack(m_ring, val);
+    }
+
+    /**
+     * Write the header, moving to the next block if this one is full.
+     *
+     * @return the offset of the value, or -1 if it doesn't fit.
+     */
+    private int begin(int key, int size) {
+        int length = HEADER + size;
+        if (length > m_blockSize) {
+            m_dropped++;
+            return -1;
+        }
+        if (m_used[m_block] + length > m_blockSize) {
+            m_block = (m_block + 1) % BLOCKS;
+            m_used[m_block] = 0;
+        }
+        int offset = m_block * m_blockSize + m_used[m_block];
+        m_used[m_block] += length;
+        m_ring.putChar(offset, (char) key);
+        m_ring.putLong(offset + 2, now());
+        m_ring.putInt(offset + 10, size);
+        m_records++;
+        return offset + HEADER;
+    }
+
+    /** Background thread. Oldest block first, so the file is in time order. */
+    private void write(
+            Path path,
+            ByteBuffer ring,
+            int[] used,
+            int block,
+            List<Key> keys,
+            long nowUs,
+            String reason) throws IOException {
+        long startUs = nowUs - m_windowUs;
+        int[] entries = new int[keys.size()];
+        Arrays.fill(entries, -1);
+        try (DataLogWriter log = new DataLogWriter(path.toString())) {
+            for (int i = 1; i <= BLOCKS; ++i) {
+                int b = (block + i) % BLOCKS;
+                int offset = b * m_blockSize;
+                int end = offset + used[b];
+                while (offset < end) {
+                    int key = ring.getChar(offset);
+                    long timestampUs = ring.getLong(offset + 2);
+                    int size = ring.getInt(offset + 10);
+                    if (timestampUs >= startUs) {
+                        if (entries[key] < 0)
+                            entries[key] = start(log, keys.get(key), timestampUs);
+                        byte[] value = new byte[size];
+                        ring.get(offset + HEADER, value);
+                        log.appendRaw(entries[key], value, timestampUs);
+                    }
+                    offset += HEADER + size;
+                }
+            }
+            int reasonEntry = log.start("FlightRecorder/reason", "string", "", nowUs);
+            log.appendString(reasonEntry, reason, nowUs);
+        }
+    }
+
+    /** Same names as DataLogManager uses for NT, so tools treat them the same. */
+    private static int start(DataLogWriter log, Key key, long timestampUs) {
+        if (key.m_struct != null)
+            log.addSchema(key.m_struct, timestampUs);
+        return log.start("NT:/" + key.m_name, key.m_type, "", timestampUs);
+    }
+
+    private static long now() {
+        return Math.round(Takt.get() * 1e6);
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -3,6 +3,8 @@ package org.team100.lib.logging.primitive;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.team100.lib.network.LocalServer;
+
 import edu.wpi.first.networktables.BooleanPublisher;
 import edu.wpi.first.networktables.BooleanTopic;
 import edu.wpi.first.networktables.DoubleArrayPublisher;
@@ -14,6 +16,9 @@ import edu.wpi.first.networktables.IntegerTopic;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.networktables.StringTopic;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.networktables.StructTopic;
+import edu.wpi.first.util.struct.Struct;
 import edu.wpi.first.wpilibj.DataLogManager;
 
 /**
@@ -33,7 +38,7 @@ public class NTPrimitiveLogger implements PrimitiveLogger {
     private final Set<String> keys = new HashSet<>();
 
     public NTPrimitiveLogger() {
-        NetworkTableInstance.getDefault().startServer();
+        LocalServer.start();
         inst = NetworkTableInstance.getDefault();
         // Also log to disk
         DataLogManager.start();
@@ -135,6 +140,21 @@ public class NTPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
+    public class NTStructLogger<T> implements PrimitiveLogger.PrimitiveStructLogger<T> {
+        StructPublisher<T> m_pub;
+
+        public NTStructLogger(String label, Struct<T> struct) {
+            StructTopic<T> t = inst.getStructTopic(label, struct);
+            m_pub = t.publish();
+            t.setRetained(true);
+        }
+
+        @Override
+        public void log(T val) {
+            m_pub.set(val);
+        }
+    }
+
     @Override
     public PrimitiveBooleanLogger booleanLogger(String label) {
         keys.add(label);
@@ -171,4 +191,10 @@ public class NTPrimitiveLogger implements PrimitiveLogger {
         return new NTStringLogger(label);
     }
 
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        keys.add(label);
+        return new NTStructLogger<>(label, struct);
+    }
+
 }
@@ -1,5 +1,7 @@
 package org.team100.lib.logging.primitive;
 
+import edu.wpi.first.util.struct.Struct;
+
 /**
  * This should not be used by client code. Use {@link LoggerFactory} instead.
  */
@@ -48,4 +50,12 @@ public interface PrimitiveLogger {
     }
 
     PrimitiveStringLogger stringLogger(String label);
+
+    @FunctionalInterface
+    interface PrimitiveStructLogger<T> {
+        void log(T val);
+    }
+
+    /** One key for the whole value, packed with the struct. */
+    <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct);
 }
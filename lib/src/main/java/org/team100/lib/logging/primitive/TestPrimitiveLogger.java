@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import edu.wpi.first.util.struct.Struct;
+
 /** Prints logs to stdout. */
 public class TestPrimitiveLogger implements PrimitiveLogger {
     private final boolean m_print;
@@ -99,4 +101,17 @@ public class TestPrimitiveLogger implements PrimitiveLogger {
             }
         };
     }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        keys.add(label);
+        return new PrimitiveStructLogger<T>() {
+            @Override
+            public void log(T val) {
+                if (m_print) {
+                    System.out.printf("%s/%s\n", label, val);
+                }
+            }
+        };
+    }
 }
\ No newline at end of file
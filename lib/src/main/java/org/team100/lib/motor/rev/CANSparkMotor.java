@@ -105,11 +105,11 @@ public abstract class CANSparkMotor implements BareMotor {
         m_revLimitSwitch = m_motor.getReverseLimitSwitch();
 
         // CACHES
-        m_encoder_position = Cache.ofDouble(m_encoder::getPosition);
-        m_encoder_velocity = Cache.ofDouble(m_encoder::getVelocity);
-        m_current = Cache.ofDouble(m_motor::getOutputCurrent);
-        m_supplyVoltage = Cache.ofDouble(m_motor::getBusVoltage);
-        m_output = Cache.ofDouble(m_motor::getAppliedOutput);
+        m_encoder_position = Cache.ofDoublePrefetched(m_encoder::getPosition);
+        m_encoder_velocity = Cache.ofDoublePrefetched(m_encoder::getVelocity);
+        m_current = Cache.ofDoublePrefetched(m_motor::getOutputCurrent);
+        m_supplyVoltage = Cache.ofDoublePrefetched(m_motor::getBusVoltage);
+        m_output = Cache.ofDoublePrefetched(m_motor::getAppliedOutput);
         // m_temp = Memo.ofDouble(m_motor::getMotorTemperature);
         // LOGGERS
         m_log.intLogger(Level.TRACE, "Device ID").log(m_motor::getDeviceId);
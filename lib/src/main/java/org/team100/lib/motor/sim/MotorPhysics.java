@@ -0,0 +1,335 @@
+package org.team100.lib.motor.sim;
+
+import java.util.Arrays;
+
+/**
+ * DC motor dynamics for every simulated motor, stepped together, at a fixed
+ * substep independent of the robot loop.
+ *
+ * Each motor is a resistance, a torque constant, a back-EMF constant (from the
+ * free speed), an inertia (including whatever the motor drives, reflected
+ * through the gearing), viscous and Coulomb friction, and a current limit.
+ * Inductance is ignored; its time constant is much shorter than the step.
+ *
+ * Velocity and position modes are simulated as the motor controller would do
+ * them onboard: a proportional velocity loop (in volts per rad/s), with
+ * back-EMF and torque feedforward, and for position, a proportional position
+ * loop (in rad/s per rad) feeding the velocity loop.
+ *
+ * Within each substep, the voltage (or current, if limited) is held, so the
+ * velocity obeys w' = a - k w, which is integrated exactly, so the step is
+ * stable regardless of the inertia or the velocity gain. The decay factor for
+ * each case is precomputed. A saturated step stops where the saturation would
+ * end. The position loop is sampled once per substep, like the real one, so
+ * its gain should be well below 1/dt.
+ *
+ * State is stored in parallel primitive arrays, so a step is one tight loop
+ * over all the motors.
+ *
+ * Time is simulated time, i.e. Takt. Call advanceTo() with the current time
+ * before reading the state; the first caller in each cycle does the work.
+ *
+ * Not thread-safe.
+ */
+public class MotorPhysics {
+    /** Supply voltage */
+    private static final double VBUS = 12.0;
+    /** Below this speed, Coulomb friction may hold the motor still. */
+    private static final double STICTION_SPEED = 1e-3;
+    /** Don't try to catch up more than this, e.g. after a pause. */
+    private static final double MAX_CATCHUP_S = 1.0;
+
+    private static final int DUTY = 0;
+    private static final int VELOCITY = 1;
+    private static final int POSITION = 2;
+
+    /**
+     * @param freeSpeedRad_S  at VBUS, sets the back-EMF constant
+     * @param rOhms           winding resistance
+     * @param kTNm_amp        torque constant
+     * @param inertiaKgM2     at the motor shaft, including the load
+     * @param viscousNm_rad_s friction proportional to speed
+     * @param coulombNm       constant friction
+     * @param currentLimitA   stator current limit
+     * @param kVelocity       onboard velocity loop gain, volts per rad/s
+     * @param kPosition       onboard position loop gain, rad/s per rad
+     */
+    public record Params(
+            double freeSpeedRad_S,
+            double rOhms,
+            double kTNm_amp,
+            double inertiaKgM2,
+            double viscousNm_rad_s,
+            double coulombNm,
+            double currentLimitA,
+            double kVelocity,
+            double kPosition) {
+    }
+
+    private final double m_dt;
+    private double m_time;
+    private int m_size;
+
+    // parameters
+    private double[] m_r;
+    private double[] m_kT;
+    private double[] m_kE;
+    private double[] m_invJ;
+    private double[] m_b;
+    private double[] m_c;
+    private double[] m_limit;
+    private double[] m_kV;
+    private double[] m_kX;
+    // precomputed decay, exp(-k dt), and 1/k, for open loop, closed loop, and
+    // current-limited.
+    private double[] m_e0;
+    private double[] m_ik0;
+    private double[] m_e1;
+    private double[] m_ik1;
+    private double[] m_e2;
+    private double[] m_ik2;
+
+    // command
+    private int[] m_mode;
+    /** duty cycle, velocity, or position, depending on mode */
+    private double[] m_setpoint;
+    /** velocity feedforward, for position mode */
+    private double[] m_ffVelocity;
+    /** torque feedforward, for velocity and position modes */
+    private double[] m_ffTorque;
+
+    // state
+    private double[] m_x;
+    private double[] m_v;
+    private double[] m_i;
+
+    /**
+     * @param dtS    substep, e.g. 0.001
+     * @param timeS  initial time, e.g. Takt.get()
+     */
+    public MotorPhysics(double dtS, double timeS) {
+        m_dt = dtS;
+        m_time = timeS;
+        grow(16);
+    }
+
+    /** Add a motor, at rest, with zero duty cycle. */
+    public int add(Params p) {
+        if (m_size == m_r.length)
+            grow(2 * m_size);
+        int n = m_size++;
+        m_r[n] = p.rOhms();
+        m_kT[n] = p.kTNm_amp();
+        m_kE[n] = VBUS / p.freeSpeedRad_S();
+        m_invJ[n] = 1.0 / p.inertiaKgM2();
+        m_b[n] = p.viscousNm_rad_s();
+        m_c[n] = p.coulombNm();
+        m_kV[n] = p.kVelocity();
+        m_kX[n] = p.kPosition();
+        setCurrentLimit(n, p.currentLimitA());
+        double k0 = (m_kT[n] * m_kE[n] / m_r[n] + m_b[n]) * m_invJ[n];
+        double k1 = (m_kT[n] * (m_kE[n] + m_kV[n]) / m_r[n] + m_b[n]) * m_invJ[n];
+        double k2 = m_b[n] * m_invJ[n];
+        m_e0[n] = Math.exp(-k0 * m_dt);
+        m_ik0[n] = 1 / k0;
+        m_e1[n] = Math.exp(-k1 * m_dt);
+        m_ik1[n] = 1 / k1;
+        m_e2[n] = Math.exp(-k2 * m_dt);
+        m_ik2[n] = k2 > 0 ? 1 / k2 : Double.POSITIVE_INFINITY;
+        return n;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public double time() {
+        return m_time;
+    }
+
+    public void setDutyCycle(int n, double duty) {
+        m_mode[n] = DUTY;
+        m_setpoint[n] = duty;
+    }
+
+    public void setVelocity(int n, double velocityRad_S, double torqueNm) {
+        m_mode[n] = VELOCITY;
+        m_setpoint[n] = velocityRad_S;
+        m_ffVelocity[n] = 0;
+        m_ffTorque[n] = torqueNm;
+    }
+
+    public void setPosition(int n, double positionRad, double velocityRad_S, double torqueNm) {
+        m_mode[n] = POSITION;
+        m_setpoint[n] = positionRad;
+        m_ffVelocity[n] = velocityRad_S;
+        m_ffTorque[n] = torqueNm;
+    }
+
+    public void setCurrentLimit(int n, double amps) {
+        m_limit[n] = amps;
+    }
+
+    /** Moves the encoder, not the motor. */
+    public void resetPosition(int n, double positionRad) {
+        if (m_mode[n] == POSITION)
+            m_setpoint[n] += positionRad - m_x[n];
+        m_x[n] = positionRad;
+    }
+
+    /** Stop, instantly. */
+    public void reset(int n) {
+        m_x[n] = 0;
+        m_v[n] = 0;
+        m_i[n] = 0;
+        setDutyCycle(n, 0);
+    }
+
+    public double position(int n) {
+        return m_x[n];
+    }
+
+    public double velocity(int n) {
+        return m_v[n];
+    }
+
+    public double current(int n) {
+        return m_i[n];
+    }
+
+    /** Step until the simulated time reaches the given time. */
+    public void advanceTo(double timeS) {
+        if (timeS - m_time > MAX_CATCHUP_S)
+            m_time = timeS - MAX_CATCHUP_S;
+        while (m_time + m_dt <= timeS + 1e-9) {
+            step();
+            m_time += m_dt;
+        }
+    }
+
+    /** One substep, for all the motors. */
+    void step() {
+        final double dt = m_dt;
+        for (int n = 0; n < m_size; ++n) {
+            double v = m_v[n];
+            double r = m_r[n];
+            double kT = m_kT[n];
+            double kE = m_kE[n];
+            // voltage is vc - g * v
+            double vc;
+            double g;
+            double e;
+            double ik;
+            if (m_mode[n] == DUTY) {
+                vc = Math.max(-1, Math.min(1, m_setpoint[n])) * VBUS;
+                g = 0;
+                e = m_e0[n];
+                ik = m_ik0[n];
+            } else {
+                double ref = m_setpoint[n];
+                if (m_mode[n] == POSITION)
+                    ref = m_ffVelocity[n] + m_kX[n] * (ref - m_x[n]);
+                vc = (kE + m_kV[n]) * ref + r * m_ffTorque[n] / kT;
+                g = m_kV[n];
+                e = m_e1[n];
+                ik = m_ik1[n];
+            }
+            // A saturated step shouldn't overshoot the speed where the
+            // saturation ends, or it would chatter.
+            double lo = Double.NEGATIVE_INFINITY;
+            double hi = Double.POSITIVE_INFINITY;
+            double volts = vc - g * v;
+            if (volts > VBUS || volts < -VBUS) {
+                // saturated, so the loop is open
+                if (volts > 0)
+                    hi = (vc - VBUS) / g;
+                else
+                    lo = (vc + VBUS) / g;
+                vc = Math.copySign(VBUS, volts);
+                g = 0;
+                e = m_e0[n];
+                ik = m_ik0[n];
+            }
+            double amps = (vc - (g + kE) * v) / r;
+            double invJ = m_invJ[n];
+            // w' = a - k w
+            double a;
+            double limit = m_limit[n];
+            if (Math.abs(amps) > limit) {
+                if (amps > 0)
+                    hi = Math.min(hi, (vc - limit * r) / (g + kE));
+                else
+                    lo = Math.max(lo, (vc + limit * r) / (g + kE));
+                amps = Math.copySign(limit, amps);
+                a = kT * amps * invJ;
+                e = m_e2[n];
+                ik = m_ik2[n];
+            } else {
+                a = kT * vc / r * invJ;
+            }
+            double c = m_c[n];
+            if (Math.abs(v) < STICTION_SPEED && Math.abs(kT * amps) <= c) {
+                // stuck
+                m_v[n] = 0;
+                m_i[n] = amps;
+                continue;
+            }
+            // friction opposes motion, or the drive if stopped
+            a -= Math.copySign(c, v != 0 ? v : amps) * invJ;
+            double vNext;
+            double dx;
+            if (Double.isInfinite(ik)) {
+                // no decay
+                vNext = v + a * dt;
+                dx = (v + vNext) * 0.5 * dt;
+            } else {
+                double vInf = a * ik;
+                vNext = vInf + (v - vInf) * e;
+                dx = vInf * dt + (v - vInf) * (1 - e) * ik;
+            }
+            if (vNext > hi || vNext < lo) {
+                vNext = Math.max(lo, Math.min(hi, vNext));
+                dx = (v + vNext) * 0.5 * dt;
+            }
+            if (c > 0 && v != 0 && Math.signum(vNext) != Math.signum(v)
+                    && Math.abs(kT * amps) <= c) {
+                // friction stops it, but doesn't reverse it.
+                vNext = 0;
+            }
+            m_x[n] += dx;
+            m_v[n] = vNext;
+            m_i[n] = amps;
+        }
+    }
+
+    /////////////////////////////////////////
+
+    private void grow(int capacity) {
+        m_r = grow(m_r, capacity);
+        m_kT = grow(m_kT, capacity);
+        m_kE = grow(m_kE, capacity);
+        m_invJ = grow(m_invJ, capacity);
+        m_b = grow(m_b, capacity);
+        m_c = grow(m_c, capacity);
+        m_limit = grow(m_limit, capacity);
+        m_kV = grow(m_kV, capacity);
+        m_kX = grow(m_kX, capacity);
+        m_e0 = grow(m_e0, capacity);
+        m_ik0 = grow(m_ik0, capacity);
+        m_e1 = grow(m_e1, capacity);
+        m_ik1 = grow(m_ik1, capacity);
+        m_e2 = grow(m_e2, capacity);
+        m_ik2 = grow(m_ik2, capacity);
+        m_mode = m_mode == null ? new int[capacity] : Arrays.copyOf(m_mode, capacity);
+        m_setpoint = grow(m_setpoint, capacity);
+        m_ffVelocity = grow(m_ffVelocity, capacity);
+        m_ffTorque = grow(m_ffTorque, capacity);
+        m_x = grow(m_x, capacity);
+        m_v = grow(m_v, capacity);
+        m_i = grow(m_i, capacity);
+    }
+
+    private static double[] grow(double[] a, int capacity) {
+        return a == null ? new double[capacity] : Arrays.copyOf(a, capacity);
+    }
+}
@@ -18,9 +18,19 @@ import edu.wpi.first.wpilibj.RobotState;
 /**
  * Relies on Memo and Takt, so you must put Memo.resetAll() and Takt.update() in
  * Robot.robotPeriodic().
+ *
+ * Without physics, the motor obeys velocity or position commands instantly.
+ * With physics, commands go to the MotorPhysics backend, which simulates the
+ * motor dynamics and the onboard controller.
  */
 public class SimulatedBareMotor implements BareMotor {
     private static final boolean DEBUG = false;
+    // for physics
+    private static final double VISCOUS_NM_RAD_S = 1e-5;
+    private static final double COULOMB_NM = 0.01;
+    private static final double CURRENT_LIMIT_A = 60;
+    private static final double K_VELOCITY = 0.2;
+    private static final double K_POSITION = 50;
 
     private final double m_freeSpeedRad_S;
 
@@ -31,6 +41,10 @@ public class SimulatedBareMotor implements BareMotor {
     private final DoubleLogger m_log_accelInput;
     private final DoubleLogger m_log_torqueInput;
     private final ObjectCache<Model100> m_stateCache;
+    /** Nullable */
+    private final MotorPhysics m_physics;
+    /** Index in physics */
+    private final int m_index;
 
     // just like in a real motor, the inputs remain until zeroed by the watchdog.
     // nullable; only one (velocity or position) is used at a time.
@@ -43,18 +57,46 @@ public class SimulatedBareMotor implements BareMotor {
 
     private double m_time = Takt.get();
 
+    /** Kinematic: commands are obeyed instantly. */
     public SimulatedBareMotor(LoggerFactory parent, double freeSpeedRad_S) {
+        this(parent, freeSpeedRad_S, null, 0);
+    }
+
+    /**
+     * Dynamic: the motor state comes from physics.
+     *
+     * @param inertiaKgM2 at the motor shaft, including the load.
+     */
+    public SimulatedBareMotor(
+            LoggerFactory parent,
+            double freeSpeedRad_S,
+            MotorPhysics physics,
+            double inertiaKgM2) {
         m_log = parent.type(this);
+        m_physics = physics;
+        m_index = physics == null ? -1
+                : physics.add(new MotorPhysics.Params(
+                        freeSpeedRad_S,
+                        kROhms(),
+                        kTNm_amp(),
+                        inertiaKgM2,
+                        VISCOUS_NM_RAD_S,
+                        COULOMB_NM,
+                        CURRENT_LIMIT_A,
+                        K_VELOCITY,
+                        K_POSITION));
         m_freeSpeedRad_S = freeSpeedRad_S;
         m_log_duty = m_log.doubleLogger(Level.DEBUG, "duty_cycle");
         m_log_velocityInput = m_log.doubleLogger(Level.DEBUG, "velocity input");
         m_log_positionInput = m_log.doubleLogger(Level.DEBUG, "position input");
         m_log_accelInput = m_log.doubleLogger(Level.DEBUG, "accel input");
         m_log_torqueInput = m_log.doubleLogger(Level.DEBUG, "torque input");
-        m_stateCache = Cache.of(this::update);
+        m_stateCache = Cache.ofPrefetched(this::update);
     }
 
     private Model100 update() {
+        if (m_physics != null)
+            return updatePhysics();
         // when disabled, motors don't keep moving.
         if (RobotState.isDisabled()) {
             m_velocityInput = 0.0;
@@ -95,6 +137,15 @@ public class SimulatedBareMotor implements BareMotor {
         return m_state;
     }
 
+    private Model100 updatePhysics() {
+        // when disabled, motors coast.
+        if (RobotState.isDisabled())
+            m_physics.setDutyCycle(m_index, 0);
+        m_physics.advanceTo(Takt.get());
+        m_state = new Model100(m_physics.position(m_index), m_physics.velocity(m_index));
+        return m_state;
+    }
+
     double dt() {
         double now = Takt.get();
         double dt = now - m_time;
@@ -107,6 +158,10 @@ public class SimulatedBareMotor implements BareMotor {
         final double output = MathUtil.clamp(
                 Math100.notNaN(dutyCycle), -1, 1);
         m_log_duty.log(() -> output);
+        if (m_physics != null) {
+            m_physics.setDutyCycle(m_index, output);
+            return;
+        }
         setVelocity(output * m_freeSpeedRad_S, 0, 0);
     }
 
@@ -122,6 +177,8 @@ public class SimulatedBareMotor implements BareMotor {
         m_torqueInput = torqueNm;
         // you can't use velocity and position control at the same time
         m_positionInput = null;
+        if (m_physics != null)
+            m_physics.setVelocity(m_index, m_velocityInput, torqueNm);
     }
 
     /** ignores velocity and torque */
@@ -135,6 +192,8 @@ public class SimulatedBareMotor implements BareMotor {
         m_velocityInput = null;
         m_accelInput = null;
         m_torqueInput = null;
+        if (m_physics != null)
+            m_physics.setPosition(m_index, position, velocity, torque);
     }
 
     /** placeholder */
@@ -157,6 +216,8 @@ public class SimulatedBareMotor implements BareMotor {
     @Override
     public void stop() {
         m_velocityInput = 0.0;
+        if (m_physics != null)
+            m_physics.setDutyCycle(m_index, 0);
     }
 
     @Override
@@ -171,6 +232,10 @@ public class SimulatedBareMotor implements BareMotor {
 
     @Override
     public double getCurrent() {
+        if (m_physics != null) {
+            m_stateCache.get();
+            return m_physics.current(m_index);
+        }
         // this is totally wrong
         return getVelocityRad_S() / 10.0;
     }
@@ -187,13 +252,19 @@ public class SimulatedBareMotor implements BareMotor {
     public void setUnwrappedEncoderPositionRad(double positionRad) {
         if (Double.isNaN(positionRad))
             throw new IllegalArgumentException("motor set position");
+        if (m_physics != null) {
+            m_physics.resetPosition(m_index, positionRad);
+            m_stateCache.reset();
+            return;
+        }
         m_positionInput = positionRad;
         m_stateCache.reset();
     }
 
     @Override
     public void setTorqueLimit(double torqueNm) {
-        //
+        if (m_physics != null)
+            m_physics.setCurrentLimit(m_index, torqueNm / kTNm_amp());
     }
 
     @Override
@@ -214,6 +285,8 @@ public class SimulatedBareMotor implements BareMotor {
         m_positionInput = 0.0;
         m_velocityInput = 0.0;
         m_time = Takt.get();
+        if (m_physics != null)
+            m_physics.reset(m_index);
         m_stateCache.reset();
     }
 
@@ -0,0 +1,136 @@
+package org.team100.lib.navigation;
+
+import java.util.Arrays;
+
+/**
+ * An obstacle: a convex polygon with vertices in counterclockwise order.
+ * 
+ * Immutable. Uses primitive arrays so that the visibility checks in NavGraph
+ * don't allocate.
+ */
+public final class ConvexPolygon {
+    private final double[] m_x;
+    private final double[] m_y;
+
+    /** Vertices must be counterclockwise, and the polygon must be convex. */
+    public ConvexPolygon(double[] x, double[] y) {
+        if (x.length != y.length || x.length < 3)
+            throw new IllegalArgumentException("need at least three vertices");
+        m_x = x.clone();
+        m_y = y.clone();
+    }
+
+    /**
+     * Regular polygon.
+     * 
+     * @param radius distance from center to vertex
+     * @param phase  angle of the first vertex, radians
+     */
+    public static ConvexPolygon regular(double cx, double cy, double radius, int sides, double phase) {
+        double[] x = new double[sides];
+        double[] y = new double[sides];
+        for (int i = 0; i < sides; ++i) {
+            double a = phase + 2 * Math.PI * i / sides;
+            x[i] = cx + radius * Math.cos(a);
+            y[i] = cy + radius * Math.sin(a);
+        }
+        return new ConvexPolygon(x, y);
+    }
+
+    public int size() {
+        return m_x.length;
+    }
+
+    public double x(int i) {
+        return m_x[i];
+    }
+
+    public double y(int i) {
+        return m_y[i];
+    }
+
+    /**
+     * Push each edge outward by the distance, which makes the vertices "mitered."
+     * This is a little bigger than the true Minkowski sum with a disc, which has
+     * rounded corners, so it's conservative.
+     */
+    public ConvexPolygon inflate(double d) {
+        int n = size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; ++i) {
+            int prev = (i + n - 1) % n;
+            int next = (i + 1) % n;
+            // outward normals of the adjacent edges
+            double n1x = m_y[i] - m_y[prev];
+            double n1y = m_x[prev] - m_x[i];
+            double l1 = Math.hypot(n1x, n1y);
+            n1x /= l1;
+            n1y /= l1;
+            double n2x = m_y[next] - m_y[i];
+            double n2y = m_x[i] - m_x[next];
+            double l2 = Math.hypot(n2x, n2y);
+            n2x /= l2;
+            n2y /= l2;
+            double k = d / (1 + n1x * n2x + n1y * n2y);
+            x[i] = m_x[i] + k * (n1x + n2x);
+            y[i] = m_y[i] + k * (n1y + n2y);
+        }
+        return new ConvexPolygon(x, y);
+    }
+
+    /** True if the point is strictly inside. */
+    public boolean contains(double px, double py) {
+        int n = size();
+        for (int i = 0; i < n; ++i) {
+            int j = (i + 1) % n;
+            double cross = (m_x[j] - m_x[i]) * (py - m_y[i]) - (m_y[j] - m_y[i]) * (px - m_x[i]);
+            if (cross <= 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * True if the segment passes through the interior. Touching the boundary
+     * doesn't count.
+     * 
+     * This is Cyrus-Beck clipping: each edge is a half-plane, which cuts the
+     * parameter range of the segment; if anything is left, it's inside.
+     */
+    public boolean blocks(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double tEnter = 0;
+        double tExit = 1;
+        int n = size();
+        for (int i = 0; i < n; ++i) {
+            int j = (i + 1) % n;
+            double ex = m_x[j] - m_x[i];
+            double ey = m_y[j] - m_y[i];
+            // positive inside
+            double num = ex * (ay - m_y[i]) - ey * (ax - m_x[i]);
+            double den = ex * dy - ey * dx;
+            if (Math.abs(den) < 1e-12) {
+                // parallel: either all inside this half-plane or all outside
+                if (num <= 0)
+                    return false;
+                continue;
+            }
+            double t = -num / den;
+            if (den > 0) {
+                tEnter = Math.max(tEnter, t);
+            } else {
+                tExit = Math.min(tExit, t);
+            }
+            if (tEnter >= tExit)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ConvexPolygon [x=" + Arrays.toString(m_x) + ", y=" + Arrays.toString(m_y) + "]";
+    }
+}
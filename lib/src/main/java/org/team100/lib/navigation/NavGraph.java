@@ -0,0 +1,423 @@
+package org.team100.lib.navigation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Visibility graph of the field, for shortest paths around obstacles.
+ * 
+ * The nodes are the corners of the obstacles, inflated by the robot radius
+ * (plus a little margin), and the edges connect the nodes that can see each
+ * other. The shortest path between two points always goes through such
+ * corners, so A* on this graph finds it.
+ * 
+ * The graph is built once (it's O(n^3) in the number of corners, which is a
+ * few milliseconds for the field), and can be saved to a file in the deploy
+ * directory and loaded at startup.
+ * 
+ * Queries connect the start and goal to the visible nodes, and then run A*
+ * with a straight-line heuristic. The search state is in preallocated arrays,
+ * so queries don't allocate except for the result, and the cost is bounded by
+ * the size of the graph, a few microseconds for the field.
+ * 
+ * Not thread-safe, because of the shared search state.
+ */
+public class NavGraph {
+    private static final int MAGIC = 0x4e415631; // "NAV1"
+    /** Nodes are this far outside the inflated obstacles. */
+    private static final double NODE_MARGIN_M = 0.02;
+
+    /** Obstacles inflated by the robot radius. */
+    private final ConvexPolygon[] m_obstacles;
+    private final double[] m_x;
+    private final double[] m_y;
+    /** Edges of node i are m_to[m_start[i]] to m_to[m_start[i+1]-1]. */
+    private final int[] m_start;
+    private final int[] m_to;
+    private final double[] m_cost;
+
+    // Search state; the start is node n, the goal is node n+1.
+    private final double[] m_g;
+    private final int[] m_parent;
+    /** Nodes with m_stamp != m_query haven't been touched by this query. */
+    private final int[] m_stamp;
+    private final boolean[] m_closed;
+    private final boolean[] m_seesGoal;
+    private final int[] m_startEdges;
+    private int m_startEdgeCount;
+    private int m_query;
+    /** Binary heap of nodes by f = g + h, with duplicates, skipped when closed. */
+    private int[] m_heap;
+    private double[] m_heapF;
+    private int m_heapSize;
+    /** Nodes expanded by the most recent query, for testing. */
+    private int m_expanded;
+
+    private NavGraph(
+            ConvexPolygon[] obstacles,
+            double[] x,
+            double[] y,
+            int[] start,
+            int[] to,
+            double[] cost) {
+        m_obstacles = obstacles;
+        m_x = x;
+        m_y = y;
+        m_start = start;
+        m_to = to;
+        m_cost = cost;
+        int n = x.length;
+        m_g = new double[n + 2];
+        m_parent = new int[n + 2];
+        m_stamp = new int[n + 2];
+        m_closed = new boolean[n + 2];
+        m_seesGoal = new boolean[n];
+        m_startEdges = new int[n + 1];
+        m_heap = new int[to.length + 2 * n + 4];
+        m_heapF = new double[m_heap.length];
+    }
+
+    /**
+     * Build the graph.
+     * 
+     * @param obstacles   convex obstacles
+     * @param robotRadius half the robot diagonal, or whatever clearance you want
+     * @param lengthM     field size in x; nodes must be within the field
+     * @param widthM      field size in y
+     */
+    public static NavGraph build(
+            List<ConvexPolygon> obstacles,
+            double robotRadius,
+            double lengthM,
+            double widthM) {
+        ConvexPolygon[] inflated = new ConvexPolygon[obstacles.size()];
+        List<double[]> nodes = new ArrayList<>();
+        for (int i = 0; i < obstacles.size(); ++i) {
+            ConvexPolygon p = obstacles.get(i);
+            inflated[i] = p.inflate(robotRadius);
+            ConvexPolygon corners = p.inflate(robotRadius + NODE_MARGIN_M);
+            for (int j = 0; j < corners.size(); ++j) {
+                nodes.add(new double[] { corners.x(j), corners.y(j) });
+            }
+        }
+        // drop nodes that are off the field or inside some obstacle
+        List<double[]> kept = new ArrayList<>();
+        for (double[] node : nodes) {
+            if (node[0] < robotRadius || node[0] > lengthM - robotRadius
+                    || node[1] < robotRadius || node[1] > widthM - robotRadius)
+                continue;
+            if (inside(inflated, node[0], node[1]))
+                continue;
+            kept.add(node);
+        }
+        int n = kept.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; ++i) {
+            x[i] = kept.get(i)[0];
+            y[i] = kept.get(i)[1];
+        }
+        // all pairs; both endpoints are on the field, and the field is convex, so
+        // only the obstacles matter.
+        int[] start = new int[n + 1];
+        List<Integer> to = new ArrayList<>();
+        List<Double> cost = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            start[i] = to.size();
+            for (int j = 0; j < n; ++j) {
+                if (i == j)
+                    continue;
+                if (visible(inflated, x[i], y[i], x[j], y[j])) {
+                    to.add(j);
+                    cost.add(Math.hypot(x[j] - x[i], y[j] - y[i]));
+                }
+            }
+        }
+        start[n] = to.size();
+        return new NavGraph(
+                inflated,
+                x,
+                y,
+                start,
+                to.stream().mapToInt(Integer::intValue).toArray(),
+                cost.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    public int nodes() {
+        return m_x.length;
+    }
+
+    public int edges() {
+        return m_to.length;
+    }
+
+    /** Nodes expanded by the most recent search. */
+    int expanded() {
+        return m_expanded;
+    }
+
+    /**
+     * Shortest collision-free path, including the start and goal.
+     * 
+     * @return the path, or empty if there isn't one, e.g. if the start or goal
+     *         is inside an obstacle.
+     */
+    public List<Translation2d> search(Translation2d start, Translation2d goal) {
+        int n = nodes();
+        int s = n;
+        int t = n + 1;
+        if (!search(start.getX(), start.getY(), goal.getX(), goal.getY()))
+            return List.of();
+        // walk back from the goal
+        List<Translation2d> path = new ArrayList<>();
+        for (int i = t; i != -1; i = m_parent[i]) {
+            if (i == t) {
+                path.add(goal);
+            } else if (i == s) {
+                path.add(start);
+            } else {
+                path.add(new Translation2d(m_x[i], m_y[i]));
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Serialize, e.g. to the deploy directory, so that the robot doesn't have to
+     * build the graph at startup.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(m_obstacles.length);
+            for (ConvexPolygon p : m_obstacles) {
+                out.writeInt(p.size());
+                for (int i = 0; i < p.size(); ++i) {
+                    out.writeDouble(p.x(i));
+                    out.writeDouble(p.y(i));
+                }
+            }
+            out.writeInt(nodes());
+            for (int i = 0; i < nodes(); ++i) {
+                out.writeDouble(m_x[i]);
+                out.writeDouble(m_y[i]);
+            }
+            for (int i = 0; i <= nodes(); ++i) {
+                out.writeInt(m_start[i]);
+            }
+            out.writeInt(edges());
+            for (int i = 0; i < edges(); ++i) {
+                out.writeInt(m_to[i]);
+                out.writeDouble(m_cost[i]);
+            }
+        }
+    }
+
+    public static NavGraph read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("not a nav graph: " + file);
+            ConvexPolygon[] obstacles = new ConvexPolygon[in.readInt()];
+            for (int i = 0; i < obstacles.length; ++i) {
+                int size = in.readInt();
+                double[] x = new double[size];
+                double[] y = new double[size];
+                for (int j = 0; j < size; ++j) {
+                    x[j] = in.readDouble();
+                    y[j] = in.readDouble();
+                }
+                obstacles[i] = new ConvexPolygon(x, y);
+            }
+            int n = in.readInt();
+            double[] x = new double[n];
+            double[] y = new double[n];
+            for (int i = 0; i < n; ++i) {
+                x[i] = in.readDouble();
+                y[i] = in.readDouble();
+            }
+            int[] start = new int[n + 1];
+            for (int i = 0; i <= n; ++i) {
+                start[i] = in.readInt();
+            }
+            int e = in.readInt();
+            int[] to = new int[e];
+            double[] cost = new double[e];
+            for (int i = 0; i < e; ++i) {
+                to[i] = in.readInt();
+                cost[i] = in.readDouble();
+            }
+            return new NavGraph(obstacles, x, y, start, to, cost);
+        }
+    }
+
+    /**
+     * Read the file if it's there, otherwise build the graph (and print a
+     * warning, since building takes a little while).
+     */
+    public static NavGraph readOrBuild(
+            Path file,
+            List<ConvexPolygon> obstacles,
+            double robotRadius,
+            double lengthM,
+            double widthM) {
+        if (Files.exists(file)) {
+            try {
+                return read(file);
+            } catch (IOException e) {
+                System.out.printf("WARNING: can't read nav graph %s: %s\n", file, e.getMessage());
+            }
+        }
+        System.out.println("WARNING: building nav graph");
+        return build(obstacles, robotRadius, lengthM, widthM);
+    }
+
+    /** True if the point is inside any (inflated) obstacle. */
+    public boolean blocked(double x, double y) {
+        return inside(m_obstacles, x, y);
+    }
+
+    /** True if the straight line between the points is clear. */
+    public boolean visible(double ax, double ay, double bx, double by) {
+        return visible(m_obstacles, ax, ay, bx, by);
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** A* from (sx,sy) to (tx,ty); the result is in m_parent. */
+    private boolean search(double sx, double sy, double tx, double ty) {
+        int n = nodes();
+        int s = n;
+        int t = n + 1;
+        m_expanded = 0;
+        if (blocked(sx, sy) || blocked(tx, ty))
+            return false;
+        m_query++;
+        m_heapSize = 0;
+        // connect the start and goal to the graph
+        m_startEdgeCount = 0;
+        for (int i = 0; i < n; ++i) {
+            if (visible(sx, sy, m_x[i], m_y[i]))
+                m_startEdges[m_startEdgeCount++] = i;
+            m_seesGoal[i] = visible(m_x[i], m_y[i], tx, ty);
+        }
+        if (visible(sx, sy, tx, ty))
+            m_startEdges[m_startEdgeCount++] = t;
+
+        touch(s, 0, -1);
+        push(s, Math.hypot(tx - sx, ty - sy));
+        while (m_heapSize > 0) {
+            int u = pop();
+            if (m_closed[u])
+                continue;
+            m_closed[u] = true;
+            m_expanded++;
+            if (u == t)
+                return true;
+            double ux = u == s ? sx : m_x[u];
+            double uy = u == s ? sy : m_y[u];
+            if (u == s) {
+                for (int k = 0; k < m_startEdgeCount; ++k) {
+                    int v = m_startEdges[k];
+                    double vx = v == t ? tx : m_x[v];
+                    double vy = v == t ? ty : m_y[v];
+                    relax(u, v, m_g[u] + Math.hypot(vx - ux, vy - uy), vx, vy, tx, ty);
+                }
+                continue;
+            }
+            for (int k = m_start[u]; k < m_start[u + 1]; ++k) {
+                int v = m_to[k];
+                relax(u, v, m_g[u] + m_cost[k], m_x[v], m_y[v], tx, ty);
+            }
+            if (m_seesGoal[u]) {
+                relax(u, t, m_g[u] + Math.hypot(tx - ux, ty - uy), tx, ty, tx, ty);
+            }
+        }
+        return false;
+    }
+
+    private void relax(int u, int v, double g, double vx, double vy, double tx, double ty) {
+        if (m_stamp[v] == m_query && (m_closed[v] || g >= m_g[v]))
+            return;
+        touch(v, g, u);
+        push(v, g + Math.hypot(tx - vx, ty - vy));
+    }
+
+    private void touch(int v, double g, int parent) {
+        m_stamp[v] = m_query;
+        m_closed[v] = false;
+        m_g[v] = g;
+        m_parent[v] = parent;
+    }
+
+    private void push(int v, double f) {
+        if (m_heapSize == m_heap.length) {
+            // can't happen, each edge pushes at most once; just in case.
+            m_heap = Arrays.copyOf(m_heap, m_heap.length * 2);
+            m_heapF = Arrays.copyOf(m_heapF, m_heapF.length * 2);
+        }
+        int i = m_heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (m_heapF[parent] <= f)
+                break;
+            m_heap[i] = m_heap[parent];
+            m_heapF[i] = m_heapF[parent];
+            i = parent;
+        }
+        m_heap[i] = v;
+        m_heapF[i] = f;
+    }
+
+    private int pop() {
+        int top = m_heap[0];
+        int last = m_heap[--m_heapSize];
+        double lastF = m_heapF[m_heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= m_heapSize)
+                break;
+            if (child + 1 < m_heapSize && m_heapF[child + 1] < m_heapF[child])
+                child++;
+            if (m_heapF[child] >= lastF)
+                break;
+            m_heap[i] = m_heap[child];
+            m_heapF[i] = m_heapF[child];
+            i = child;
+        }
+        m_heap[i] = last;
+        m_heapF[i] = lastF;
+        return top;
+    }
+
+    private static boolean inside(ConvexPolygon[] obstacles, double x, double y) {
+        for (ConvexPolygon p : obstacles) {
+            if (p.contains(x, y))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean visible(
+            ConvexPolygon[] obstacles, double ax, double ay, double bx, double by) {
+        for (ConvexPolygon p : obstacles) {
+            if (p.blocks(ax, ay, bx, by))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package org.team100.lib.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Pose-to-pose planning around obstacles: finds the shortest path in the
+ * NavGraph, and uses its corners as waypoints for the TrajectoryPlanner.
+ * 
+ * The spline doesn't follow the straight segments exactly, it cuts the corners
+ * a little, so the robot radius used to build the graph should include some
+ * margin.
+ */
+public class Navigator {
+    /** Path points closer than this are the same point, meters. */
+    private static final double EPSILON = 1e-3;
+    private final NavGraph m_graph;
+    private final TrajectoryPlanner m_planner;
+
+    public Navigator(NavGraph graph, TrajectoryPlanner planner) {
+        m_graph = graph;
+        m_planner = planner;
+    }
+
+    /**
+     * Waypoints from start to goal, with course along the path (bisecting the
+     * corners) and heading interpolated by distance.
+     * 
+     * @return waypoints, or empty if there's no path, or if the start and goal
+     *         are in the same place, so there's nowhere to go.
+     */
+    public List<HolonomicPose2d> waypoints(Pose2d start, Pose2d goal) {
+        List<Translation2d> path = distinct(
+                m_graph.search(start.getTranslation(), goal.getTranslation()));
+        if (path.size() < 2)
+            return List.of();
+        double total = 0;
+        for (int i = 1; i < path.size(); ++i) {
+            total += path.get(i).getDistance(path.get(i - 1));
+        }
+        List<HolonomicPose2d> waypoints = new ArrayList<>(path.size());
+        double distance = 0;
+        for (int i = 0; i < path.size(); ++i) {
+            Translation2d p = path.get(i);
+            if (i > 0)
+                distance += p.getDistance(path.get(i - 1));
+            Rotation2d heading = start.getRotation().interpolate(
+                    goal.getRotation(), total == 0 ? 1 : distance / total);
+            waypoints.add(new HolonomicPose2d(p, heading, course(path, i)));
+        }
+        return waypoints;
+    }
+
+    /**
+     * Trajectory from start to goal at rest, avoiding obstacles.
+     * 
+     * @return the trajectory, or an empty one if there's no path.
+     */
+    public Trajectory100 restToRest(Pose2d start, Pose2d goal) {
+        List<HolonomicPose2d> waypoints = waypoints(start, goal);
+        if (waypoints.isEmpty())
+            return new Trajectory100();
+        return m_planner.restToRest(waypoints);
+    }
+
+    /////////////////////////////////
+
+    /**
+     * Without repeated points, e.g. if the start or goal is on a node, since the
+     * course needs a direction. Keeps the goal exactly.
+     */
+    static List<Translation2d> distinct(List<Translation2d> path) {
+        List<Translation2d> result = new ArrayList<>(path.size());
+        for (Translation2d p : path) {
+            if (!result.isEmpty() && p.getDistance(result.get(result.size() - 1)) < EPSILON) {
+                result.set(result.size() - 1, p);
+                continue;
+            }
+            result.add(p);
+        }
+        return result;
+    }
+
+    /**
+     * Direction of the path at the point; at a corner, the bisector. At a
+     * reversal, which has no bisector, the outgoing direction.
+     */
+    private static Rotation2d course(List<Translation2d> path, int i) {
+        Translation2d p = path.get(i);
+        if (i == 0)
+            return path.get(1).minus(p).getAngle();
+        Translation2d in = p.minus(path.get(i - 1));
+        if (i == path.size() - 1)
+            return in.getAngle();
+        Translation2d out = path.get(i + 1).minus(p);
+        Translation2d bisector = in.div(in.getNorm()).plus(out.div(out.getNorm()));
+        if (bisector.getNorm() < EPSILON)
+            return out.getAngle();
+        return bisector.getAngle();
+    }
+}
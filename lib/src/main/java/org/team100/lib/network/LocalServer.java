@@ -0,0 +1,34 @@
+package org.team100.lib.network;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * The local Network Tables server, and simulated clients that connect to it.
+ * 
+ * Normally the ports are the defaults. Several simulations on the same host,
+ * each in its own JVM, would all connect to whichever server got the default
+ * port first, so they can set the "team100.nt.offset" system property to move
+ * the ports out of the way.
+ */
+public class LocalServer {
+    private static final int OFFSET = Integer.getInteger("team100.nt.offset", 0);
+
+    /** Start the server on the default instance, if it's not already running. */
+    public static void start() {
+        NetworkTableInstance.getDefault().startServer(
+                "networktables.json",
+                "",
+                NetworkTableInstance.kDefaultPort3 + OFFSET,
+                NetworkTableInstance.kDefaultPort4 + OFFSET);
+    }
+
+    /** Make the instance a client of the local server. */
+    public static void connect(NetworkTableInstance inst, String identity) {
+        inst.startClient4(identity);
+        inst.setServer("localhost", NetworkTableInstance.kDefaultPort4 + OFFSET);
+    }
+
+    private LocalServer() {
+        //
+    }
+}
@@ -1,5 +1,6 @@
 package org.team100.lib.profile.incremental;
 
+import org.team100.lib.framework.Warmable;
 import org.team100.lib.optimization.Bisection1d;
 import org.team100.lib.state.Control100;
 import org.team100.lib.state.Model100;
@@ -11,7 +12,7 @@ import org.team100.lib.state.Model100;
  * 
  * NOTE: these profiles don't know anything about angle wrapping.
  */
-public interface IncrementalProfile {
+public interface IncrementalProfile extends Warmable {
     public static final int MAX_ETA = 10;
     static final boolean DEBUG = false;
 
@@ -43,6 +44,15 @@ public interface IncrementalProfile {
         return t;
     }
 
+    /**
+     * Run a one-unit move from rest to the end. The profiles keep no state, so
+     * this changes nothing.
+     */
+    @Override
+    default void warm() {
+        simulateForETA(0.02, new Control100(), new Model100(1, 0));
+    }
+
     /**
      * Return a new profile scaled by s. The choice of what the parameter actually
      * does is up to the implementation. A good choice would be to scale
@@ -12,10 +12,15 @@ import org.team100.lib.state.ControlR3;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.trajectory.Trajectory100;
 
-/** Produces references based on a trajectory. */
+/**
+ * Produces references based on a trajectory.
+ * 
+ * The trajectory can be replaced while it's running (see
+ * TrajectoryPlanner.replan()); the clock keeps going.
+ */
 public class TrajectoryReferenceR3 implements ReferenceR3 {
     private final LoggerFactory m_log;
-    private final Trajectory100 m_trajectory;
+    private Trajectory100 m_trajectory;
     private final ModelR3Logger m_log_current;
     private final ControlR3Logger m_log_next;
     private final BooleanLogger m_log_done;
@@ -69,14 +74,27 @@ public class TrajectoryReferenceR3 implements ReferenceR3 {
         return goal;
     }
 
-    ////////////////////////////////////////////////////
+    public Trajectory100 trajectory() {
+        return m_trajectory;
+    }
 
-    private double progress() {
+    /**
+     * Replace the trajectory, keeping the time origin, so the new one should
+     * match the old one up to a little after progress().
+     */
+    public void setTrajectory(Trajectory100 trajectory) {
+        m_trajectory = trajectory;
+    }
+
+    /** Time since initialize(). */
+    public double progress() {
         double progress = Takt.get() - m_startTimeS;
         m_log_progress.log(() -> progress);
         return progress;
     }
 
+    ////////////////////////////////////////////////////
+
     private ControlR3 sample(double t) {
         return ControlR3.fromTimedPose(m_trajectory.sample(t));
     }
@@ -37,7 +37,7 @@ public class SimulatedGyro implements Gyro {
         m_log_yaw_rate = log.doubleLogger(Level.TRACE, "Yaw Rate NWU (rad_s)");
         m_kinodynamics = kinodynamics;
         m_moduleCollection = collection;
-        m_headingCache = Cache.ofDouble(() -> {
+        m_headingCache = Cache.ofDoublePrefetched(() -> {
             double dt = dt();
             if (dt > 0.04) {
                 // clock is unreliable, ignore it
@@ -38,8 +38,8 @@ public class AnalogRotaryPositionSensor extends RoboRioRotaryPositionSensor {
         super(parent, inputOffset, drive);
         LoggerFactory log = parent.type(this);
         m_input = new AnalogInput(channel.channel);
-        m_voltage = Cache.ofDouble(m_input::getVoltage);
-        m_rail = Cache.ofDouble(RobotController::getVoltage5V);
+        m_voltage = Cache.ofDoublePrefetched(m_input::getVoltage);
+        m_rail = Cache.ofDoublePrefetched(RobotController::getVoltage5V);
         m_log_voltage = log.doubleLogger(Level.TRACE, "voltage");
         m_log_ratio = log.doubleLogger(Level.TRACE, "ratio");
         log.intLogger(Level.COMP, "channel").log(m_input::getChannel);
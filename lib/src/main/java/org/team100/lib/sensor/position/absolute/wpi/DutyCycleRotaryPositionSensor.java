@@ -54,7 +54,7 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
         m_channel = channel.channel;
         m_digitalInput = new DigitalInput(channel.channel);
         m_dutyCycle = new DutyCycle(m_digitalInput);
-        m_duty = Cache.ofDouble(m_dutyCycle::getOutput);
+        m_duty = Cache.ofDoublePrefetched(m_dutyCycle::getOutput);
         m_log_duty = log.doubleLogger(Level.COMP, "duty cycle");
         m_log_frequency = log.intLogger(Level.TRACE, "frequency");
         m_log_connected = log.booleanLogger(Level.TRACE, "connected");
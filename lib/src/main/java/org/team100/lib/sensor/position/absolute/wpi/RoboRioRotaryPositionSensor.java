@@ -39,7 +39,7 @@ public abstract class RoboRioRotaryPositionSensor implements RotaryPositionSenso
         m_positionOffset = Math100.throwIfOutOfRange(inputOffset, 0.0, 1.0);
         m_drive = drive;
 
-        m_turns = Cache.of(this::wrap);
+        m_turns = Cache.ofPrefetched(this::wrap);
         m_log_position = log.doubleLogger(Level.COMP, "position (rad)");
         m_log_position_turns = log.doubleLogger(Level.COMP, "position (turns)");
         m_log_position_turns_offset = log.doubleLogger(Level.TRACE, "position (turns-offset)");
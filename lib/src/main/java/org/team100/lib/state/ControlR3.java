@@ -2,6 +2,7 @@ package org.team100.lib.state;
 
 import org.team100.lib.geometry.GlobalAccelerationR3;
 import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.state.struct.ControlR3Struct;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.trajectory.timing.TimedPose;
 
@@ -9,6 +10,7 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * Describes the state of three independent dimensions, each of which is
@@ -22,7 +24,10 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * Do not try to use zero as an initial location; always initialize with the
  * current location.
  */
-public class ControlR3 {
+public class ControlR3 implements StructSerializable {
+    /** ControlR3 struct for serialization. */
+    public static final ControlR3Struct struct = new ControlR3Struct();
+
     private final Control100 m_x;
     private final Control100 m_y;
     private final Control100 m_theta;
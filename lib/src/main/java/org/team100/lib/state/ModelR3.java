@@ -1,6 +1,7 @@
 package org.team100.lib.state;
 
 import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.state.struct.ModelR3Struct;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.trajectory.timing.TimedPose;
 
@@ -8,6 +9,7 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * Describes the state of three independent dimensions, each of which is
@@ -19,7 +21,10 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * This type is used for measurement and estimation, which is why it doesn't
  * include acceleration.
  */
-public class ModelR3 {
+public class ModelR3 implements StructSerializable {
+    /** ModelR3 struct for serialization. */
+    public static final ModelR3Struct struct = new ModelR3Struct();
+
     private final Model100 m_x;
     private final Model100 m_y;
     private final Model100 m_theta;
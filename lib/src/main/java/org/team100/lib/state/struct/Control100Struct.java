@@ -0,0 +1,44 @@
+package org.team100.lib.state.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.state.Control100;
+
+import edu.wpi.first.util.struct.Struct;
+
+public class Control100Struct implements Struct<Control100> {
+    @Override
+    public Class<Control100> getTypeClass() {
+        return Control100.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "Control100";
+    }
+
+    @Override
+    public int getSize() {
+        return kSizeDouble * 3;
+    }
+
+    @Override
+    public String getSchema() {
+        return "double x;double v;double a";
+    }
+
+    @Override
+    public Control100 unpack(ByteBuffer bb) {
+        double x = bb.getDouble();
+        double v = bb.getDouble();
+        double a = bb.getDouble();
+        return new Control100(x, v, a);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, Control100 value) {
+        bb.putDouble(value.x());
+        bb.putDouble(value.v());
+        bb.putDouble(value.a());
+    }
+}
@@ -0,0 +1,50 @@
+package org.team100.lib.state.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.state.Control100;
+import org.team100.lib.state.ControlR3;
+
+import edu.wpi.first.util.struct.Struct;
+
+public class ControlR3Struct implements Struct<ControlR3> {
+    @Override
+    public Class<ControlR3> getTypeClass() {
+        return ControlR3.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "ControlR3";
+    }
+
+    @Override
+    public int getSize() {
+        return Control100.struct.getSize() * 3;
+    }
+
+    @Override
+    public String getSchema() {
+        return "Control100 x;Control100 y;Control100 theta";
+    }
+
+    @Override
+    public Struct<?>[] getNested() {
+        return new Struct<?>[] { Control100.struct };
+    }
+
+    @Override
+    public ControlR3 unpack(ByteBuffer bb) {
+        Control100 x = Control100.struct.unpack(bb);
+        Control100 y = Control100.struct.unpack(bb);
+        Control100 theta = Control100.struct.unpack(bb);
+        return new ControlR3(x, y, theta);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, ControlR3 value) {
+        Control100.struct.pack(bb, value.x());
+        Control100.struct.pack(bb, value.y());
+        Control100.struct.pack(bb, value.theta());
+    }
+}
@@ -0,0 +1,42 @@
+package org.team100.lib.state.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.state.Model100;
+
+import edu.wpi.first.util.struct.Struct;
+
+public class Model100Struct implements Struct<Model100> {
+    @Override
+    public Class<Model100> getTypeClass() {
+        return Model100.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "Model100";
+    }
+
+    @Override
+    public int getSize() {
+        return kSizeDouble * 2;
+    }
+
+    @Override
+    public String getSchema() {
+        return "double x;double v";
+    }
+
+    @Override
+    public Model100 unpack(ByteBuffer bb) {
+        double x = bb.getDouble();
+        double v = bb.getDouble();
+        return new Model100(x, v);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, Model100 value) {
+        bb.putDouble(value.x());
+        bb.putDouble(value.v());
+    }
+}
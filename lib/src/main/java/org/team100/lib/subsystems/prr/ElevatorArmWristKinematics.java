@@ -1,5 +1,7 @@
 package org.team100.lib.subsystems.prr;
 
+import org.team100.lib.framework.Warmable;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -21,7 +23,7 @@ import edu.wpi.first.math.geometry.Translation2d;
  * the "reach down" direction.
  */
 
-public class ElevatorArmWristKinematics {
+public class ElevatorArmWristKinematics implements Warmable {
     private final double m_armLength;
     private final double m_manipulatorLength;
 
@@ -85,6 +87,12 @@ public class ElevatorArmWristKinematics {
                 wristAngle.getRadians());
     }
 
+    /** Round trip through both directions. */
+    @Override
+    public void warm() {
+        inverse(forward(new EAWConfig(0.5, 1.0, 0.5)));
+    }
+
     public double getArmLength() {
         return m_armLength;
     }
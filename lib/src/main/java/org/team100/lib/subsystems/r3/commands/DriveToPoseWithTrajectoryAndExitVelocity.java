@@ -1,9 +1,11 @@
 package org.team100.lib.subsystems.r3.commands;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.team100.lib.commands.MoveAndHold;
 import org.team100.lib.controller.r3.ControllerR3;
+import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.geometry.HolonomicPose2d;
 import org.team100.lib.logging.LoggerFactory;
@@ -20,17 +22,33 @@ import edu.wpi.first.math.geometry.Translation2d;
 /**
  * Drive to a specified pose and exit velocity, using a trajectory constructed
  * at initialization time.
+ * 
+ * If the goal moves, the trajectory is re-planned from a little ahead of the
+ * current reference, keeping what's already running; see
+ * TrajectoryPlanner.replan().
  */
 public class DriveToPoseWithTrajectoryAndExitVelocity extends MoveAndHold {
+    /** Re-plan if the goal moves more than this. */
+    private static final double REPLAN_TOLERANCE_M = 0.05;
+    private static final double REPLAN_TOLERANCE_RAD = 0.05;
+    /**
+     * Splice the new tail this far ahead, so the references for this cycle and
+     * the next are unchanged.
+     */
+    private static final double REPLAN_LOOKAHEAD_S = 2 * TimedRobot100.LOOP_PERIOD_S;
+
     private final LoggerFactory m_log;
-    private final Pose2d m_goal;
+    private final Supplier<Pose2d> m_goal;
     private final GlobalVelocityR3 m_endVelocity;
     private final VelocitySubsystemR3 m_drive;
     private final ControllerR3 m_controller;
     private final TrajectoryVisualization m_viz;
     private final TrajectoryPlanner m_planner;
 
+    private TrajectoryReferenceR3 m_reference;
     private VelocityReferenceControllerR3 m_referenceController;
+    /** The goal the current trajectory was planned for. */
+    private Pose2d m_plannedGoal;
 
     public DriveToPoseWithTrajectoryAndExitVelocity(
             LoggerFactory parent,
@@ -40,6 +58,18 @@ public class DriveToPoseWithTrajectoryAndExitVelocity extends MoveAndHold {
             ControllerR3 controller,
             TrajectoryPlanner planner,
             TrajectoryVisualization viz) {
+        this(parent, () -> goal, endVelocity, drive, controller, planner, viz);
+    }
+
+    /** The goal may move. */
+    public DriveToPoseWithTrajectoryAndExitVelocity(
+            LoggerFactory parent,
+            Supplier<Pose2d> goal,
+            GlobalVelocityR3 endVelocity,
+            VelocitySubsystemR3 drive,
+            ControllerR3 controller,
+            TrajectoryPlanner planner,
+            TrajectoryVisualization viz) {
         m_log = parent.type(this);
         m_goal = goal;
         m_endVelocity = endVelocity;
@@ -53,38 +83,53 @@ public class DriveToPoseWithTrajectoryAndExitVelocity extends MoveAndHold {
     @Override
     public void initialize() {
         Pose2d pose = m_drive.getState().pose();
-        Translation2d toGoal = m_goal.getTranslation().minus(pose.getTranslation());
+        Pose2d goal = m_goal.get();
+        Translation2d toGoal = goal.getTranslation().minus(pose.getTranslation());
         GlobalVelocityR3 startVelocity = m_drive.getState().velocity();
         HolonomicPose2d startWaypoint = new HolonomicPose2d(
                 pose.getTranslation(),
                 pose.getRotation(),
                 startVelocity.angle().orElse(toGoal.getAngle()));
-        HolonomicPose2d endWaypoint = new HolonomicPose2d(
-                m_goal.getTranslation(),
-                m_goal.getRotation(),
-                m_endVelocity.angle().orElse(toGoal.getAngle()));
         Trajectory100 trajectory = m_planner.generateTrajectory(
-                List.of(startWaypoint, endWaypoint),
+                List.of(startWaypoint, endWaypoint(pose, goal)),
                 startVelocity.norm(),
                 m_endVelocity.norm());
 
         if (trajectory.length() == 0) {
+            m_reference = null;
             m_referenceController = null;
             return;
         }
 
         m_viz.setViz(trajectory);
+        m_plannedGoal = goal;
 
-        TrajectoryReferenceR3 reference = new TrajectoryReferenceR3(m_log, trajectory);
+        m_reference = new TrajectoryReferenceR3(m_log, trajectory);
         m_referenceController = new VelocityReferenceControllerR3(
-                m_log, m_drive, m_controller, reference);
+                m_log, m_drive, m_controller, m_reference);
     }
 
     @Override
     public void execute() {
-        if (m_referenceController != null)
-            m_referenceController.execute();
-
+        if (m_referenceController == null)
+            return;
+        Pose2d goal = m_goal.get();
+        if (moved(goal)) {
+            Trajectory100 current = m_reference.trajectory();
+            Trajectory100 trajectory = m_planner.replan(
+                    current,
+                    m_reference.progress() + REPLAN_LOOKAHEAD_S,
+                    endWaypoint(m_drive.getState().pose(), goal),
+                    m_endVelocity.norm());
+            // replan() returns the current trajectory if it fails; keep the old
+            // goal, so we try again next time.
+            if (trajectory != current) {
+                m_reference.setTrajectory(trajectory);
+                m_viz.setViz(trajectory);
+                m_plannedGoal = goal;
+            }
+        }
+        m_referenceController.execute();
     }
 
     @Override
@@ -104,4 +149,19 @@ public class DriveToPoseWithTrajectoryAndExitVelocity extends MoveAndHold {
         m_drive.stop();
         m_viz.clear();
     }
+
+    ////////////////////////////////////
+
+    private HolonomicPose2d endWaypoint(Pose2d pose, Pose2d goal) {
+        Translation2d toGoal = goal.getTranslation().minus(pose.getTranslation());
+        return new HolonomicPose2d(
+                goal.getTranslation(),
+                goal.getRotation(),
+                m_endVelocity.angle().orElse(toGoal.getAngle()));
+    }
+
+    private boolean moved(Pose2d goal) {
+        return goal.getTranslation().getDistance(m_plannedGoal.getTranslation()) > REPLAN_TOLERANCE_M
+                || Math.abs(goal.getRotation().minus(m_plannedGoal.getRotation()).getRadians()) > REPLAN_TOLERANCE_RAD;
+    }
 }
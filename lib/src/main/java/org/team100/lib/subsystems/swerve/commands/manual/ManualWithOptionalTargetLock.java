@@ -30,7 +30,9 @@ import edu.wpi.first.math.geometry.Translation2d;
  * This is useful for shooting solutions, or for keeping the camera pointed at
  * something.
  * 
- * Rotation uses a profile, velocity feedforward, and positional feedback.
+ * Rotation uses a profile, velocity feedforward, and positional feedback. The
+ * profile steps from the previous setpoint every cycle, so there's no plan to
+ * redo when the target moves.
  * 
  * The targeting solution is based on bearing alone, so it won't work if the
  * robot or target is moving. That effect can be compensated, though.
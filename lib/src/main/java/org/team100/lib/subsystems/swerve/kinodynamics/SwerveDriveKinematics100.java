@@ -3,8 +3,10 @@ package org.team100.lib.subsystems.swerve.kinodynamics;
 import java.util.Arrays;
 
 import org.ejml.simple.SimpleMatrix;
+import org.team100.lib.framework.Warmable;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDelta;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleState100;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleStates;
@@ -20,8 +22,10 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * absolutely cannot operate without a functional gyro, so we should use the
  * gyro instead. see https://github.com/Team100/all24/issues/350
  */
-public class SwerveDriveKinematics100 {
-    private final int m_numModules;
+public class SwerveDriveKinematics100 implements Warmable {
+    /** The records in module.state all have exactly four modules. */
+    private static final int MODULES = 4;
+
     private final Translation2d[] m_moduleLocations;
 
     /**
@@ -50,8 +54,10 @@ public class SwerveDriveKinematics100 {
      * vy + x2 omega = xy2
      * ...
      * </pre>
+     * 
+     * The hot path doesn't use this matrix, it uses the unrolled coefficients
+     * below. The matrix is kept as the reference for tests.
      */
-
     final SimpleMatrix m_inverseKinematics;
     /**
      * like this:
@@ -82,9 +88,28 @@ public class SwerveDriveKinematics100 {
      * mean(vy)
      * some combination depending on dimensions
      * </pre>
+     * 
+     * The hot path doesn't use this matrix, it uses the unrolled coefficients
+     * below. The matrix is kept as the reference for tests.
      */
     final SimpleMatrix m_forwardKinematics;
 
+    // Inverse coefficients, i.e. module locations, unrolled.
+    private final double m_x0;
+    private final double m_y0;
+    private final double m_x1;
+    private final double m_y1;
+    private final double m_x2;
+    private final double m_y2;
+    private final double m_x3;
+    private final double m_y3;
+
+    /**
+     * Forward coefficients, i.e. the pseudo-inverse above, row-major (3 x 8),
+     * copied out of the matrix so the multiply can be unrolled.
+     */
+    private final double[] m_f;
+
     /**
      * array order:
      * 
@@ -97,10 +122,23 @@ public class SwerveDriveKinematics100 {
      */
     public SwerveDriveKinematics100(Translation2d... moduleTranslationsM) {
         checkModuleCount(moduleTranslationsM);
-        m_numModules = moduleTranslationsM.length;
-        m_moduleLocations = Arrays.copyOf(moduleTranslationsM, m_numModules);
+        m_moduleLocations = Arrays.copyOf(moduleTranslationsM, MODULES);
         m_inverseKinematics = inverseMatrix(m_moduleLocations);
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        m_x0 = m_moduleLocations[0].getX();
+        m_y0 = m_moduleLocations[0].getY();
+        m_x1 = m_moduleLocations[1].getX();
+        m_y1 = m_moduleLocations[1].getY();
+        m_x2 = m_moduleLocations[2].getX();
+        m_y2 = m_moduleLocations[2].getY();
+        m_x3 = m_moduleLocations[3].getX();
+        m_y3 = m_moduleLocations[3].getY();
+        m_f = new double[3 * 2 * MODULES];
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < 2 * MODULES; ++c) {
+                m_f[r * 2 * MODULES + c] = m_forwardKinematics.get(r, c);
+            }
+        }
     }
 
     /**
@@ -113,10 +151,34 @@ public class SwerveDriveKinematics100 {
      * Angles are otherwise always within [-pi, pi].
      */
     public SwerveModuleStates toSwerveModuleStates(DiscreteSpeed speed) {
-        // [vx; vy; omega] (3 x 1)
-        SimpleMatrix chassisSpeedsVector = chassisSpeeds2Vector(speed);
-        // [v cos; v sin; ...] (2n x 1)
-        return statesFromVector(chassisSpeedsVector);
+        double vx = speed.twist().dx / speed.dt();
+        double vy = speed.twist().dy / speed.dt();
+        double omega = speed.twist().dtheta / speed.dt();
+        return new SwerveModuleStates(
+                SwerveModuleState100.fromSpeed(vx - m_y0 * omega, vy + m_x0 * omega),
+                SwerveModuleState100.fromSpeed(vx - m_y1 * omega, vy + m_x1 * omega),
+                SwerveModuleState100.fromSpeed(vx - m_y2 * omega, vy + m_x2 * omega),
+                SwerveModuleState100.fromSpeed(vx - m_y3 * omega, vy + m_x3 * omega));
+    }
+
+    /**
+     * INVERSE: chassis speeds -> module velocity components, without allocation.
+     * 
+     * @param speed robot-relative speed
+     * @param out   [vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3], length at least 8
+     */
+    public void toModuleVelocities(DiscreteSpeed speed, double[] out) {
+        double vx = speed.twist().dx / speed.dt();
+        double vy = speed.twist().dy / speed.dt();
+        double omega = speed.twist().dtheta / speed.dt();
+        out[0] = vx - m_y0 * omega;
+        out[1] = vy + m_x0 * omega;
+        out[2] = vx - m_y1 * omega;
+        out[3] = vy + m_x1 * omega;
+        out[4] = vx - m_y2 * omega;
+        out[5] = vy + m_x2 * omega;
+        out[6] = vx - m_y3 * omega;
+        out[7] = vy + m_x3 * omega;
     }
 
     /**
@@ -129,11 +191,14 @@ public class SwerveDriveKinematics100 {
      * States may include empty angles for motionless wheels.
      */
     public SwerveModuleDeltas toSwerveModuleDelta(Twist2d twist) {
-        // [dx; dy; dtheta] (3 x 1)
-        SimpleMatrix twistVector = twist2Vector(twist);
-        // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = m_inverseKinematics.mult(twistVector);
-        return deltasFromVector(deltaVector);
+        double dx = twist.dx;
+        double dy = twist.dy;
+        double dtheta = twist.dtheta;
+        return new SwerveModuleDeltas(
+                new SwerveModuleDelta(dx - m_y0 * dtheta, dy + m_x0 * dtheta),
+                new SwerveModuleDelta(dx - m_y1 * dtheta, dy + m_x1 * dtheta),
+                new SwerveModuleDelta(dx - m_y2 * dtheta, dy + m_x2 * dtheta),
+                new SwerveModuleDelta(dx - m_y3 * dtheta, dy + m_x3 * dtheta));
     }
 
     /**
@@ -150,12 +215,18 @@ public class SwerveDriveKinematics100 {
      * FORWARD: module states -> chassis speeds
      */
     public ChassisSpeeds toChassisSpeeds(SwerveModuleStates states) {
-        // checkLength(states);
-        // [v cos; v sin; ...] (2n x 1)
-        SimpleMatrix statesVector = states2Vector(states);
-        // [vx; vy; omega]
-        SimpleMatrix chassisSpeedsVector = m_forwardKinematics.mult(statesVector);
-        return vector2ChassisSpeeds(chassisSpeedsVector);
+        double vx0 = vx(states.frontLeft());
+        double vy0 = vy(states.frontLeft());
+        double vx1 = vx(states.frontRight());
+        double vy1 = vy(states.frontRight());
+        double vx2 = vx(states.rearLeft());
+        double vy2 = vy(states.rearLeft());
+        double vx3 = vx(states.rearRight());
+        double vy3 = vy(states.rearRight());
+        return new ChassisSpeeds(
+                row(0, vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3),
+                row(1, vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3),
+                row(2, vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3));
     }
 
     /**
@@ -169,121 +240,149 @@ public class SwerveDriveKinematics100 {
      * as if it were the instantaneous speed.
      */
     public Twist2d toTwist2d(SwerveModuleDeltas deltas) {
-        // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = deltas2Vector(deltas);
-        // [dx ;dy; dtheta]
-        SimpleMatrix twistVector = m_forwardKinematics.mult(deltaVector);
-        return vector2Twist(twistVector);
+        double dx0 = dx(deltas.frontLeft());
+        double dy0 = dy(deltas.frontLeft());
+        double dx1 = dx(deltas.frontRight());
+        double dy1 = dy(deltas.frontRight());
+        double dx2 = dx(deltas.rearLeft());
+        double dy2 = dy(deltas.rearLeft());
+        double dx3 = dx(deltas.rearRight());
+        double dy3 = dy(deltas.rearRight());
+        return new Twist2d(
+                row(0, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3),
+                row(1, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3),
+                row(2, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3));
     }
 
-    ///////////////////////////////////////
-
-    /** states -> [v cos; v sin; ... v cos; v sin] (2n x 1) */
-    private SimpleMatrix states2Vector(SwerveModuleStates moduleStates) {
-        SwerveModuleState100[] moduleStatesAll = moduleStates.all();
-        SimpleMatrix moduleStatesMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleState100 module = moduleStatesAll[i];
-            if (Math.abs(module.speedMetersPerSecond()) < 1e-6 || module.angle().isEmpty()) {
-                // wheel is stopped, or angle is invalid so pretend it's stopped.
-                moduleStatesMatrix.set(i * 2, 0, 0);
-                moduleStatesMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleStatesMatrix.set(i * 2, 0, module.speedMetersPerSecond() * module.angle().get().getCos());
-                moduleStatesMatrix.set(i * 2 + 1, 0, module.speedMetersPerSecond() * module.angle().get().getSin());
-
-            }
-        }
-        return moduleStatesMatrix;
+    /**
+     * FORWARD: module deltas -> twist, without allocation.
+     * 
+     * @param deltas module deltas, as for toTwist2d()
+     * @param out    [dx, dy, dtheta], length at least 3
+     */
+    public void toTwist(SwerveModuleDeltas deltas, double[] out) {
+        double dx0 = dx(deltas.frontLeft());
+        double dy0 = dy(deltas.frontLeft());
+        double dx1 = dx(deltas.frontRight());
+        double dy1 = dy(deltas.frontRight());
+        double dx2 = dx(deltas.rearLeft());
+        double dy2 = dy(deltas.rearLeft());
+        double dx3 = dx(deltas.rearRight());
+        double dy3 = dy(deltas.rearRight());
+        out[0] = row(0, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
+        out[1] = row(1, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
+        out[2] = row(2, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
     }
 
     /**
-     * produces a vector of corner dx and dy, assuming the module deltas represent
-     * straight line paths.
+     * FORWARD: module positions -> twist, without allocation.
+     * 
+     * The same as toTwist(SwerveModuleDeltas.modulePositionDelta(start, end)),
+     * without the intermediate deltas.
      * 
-     * @param moduleDeltas [d cos; d sin; ... ] (2n x 1)
+     * @param start module positions at the start
+     * @param end   module positions at the end
+     * @param out   [dx, dy, dtheta], length at least 3
      */
-    private SimpleMatrix deltas2Vector(SwerveModuleDeltas moduleDeltas) {
-        SwerveModuleDelta[] deltas = moduleDeltas.all();
-        SimpleMatrix moduleDeltaMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleDelta module = deltas[i];
-            if (Math.abs(module.distanceMeters) < 1e-6 || module.wrappedAngle.isEmpty()) {
-                moduleDeltaMatrix.set(i * 2, 0, 0);
-                moduleDeltaMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleDeltaMatrix.set(i * 2, 0, module.distanceMeters * module.wrappedAngle.get().getCos());
-                moduleDeltaMatrix.set(i * 2 + 1, 0, module.distanceMeters * module.wrappedAngle.get().getSin());
-            }
-        }
-        return moduleDeltaMatrix;
+    public void toTwist(SwerveModulePositions start, SwerveModulePositions end, double[] out) {
+        double dx0 = dx(start.frontLeft(), end.frontLeft());
+        double dy0 = dy(start.frontLeft(), end.frontLeft());
+        double dx1 = dx(start.frontRight(), end.frontRight());
+        double dy1 = dy(start.frontRight(), end.frontRight());
+        double dx2 = dx(start.rearLeft(), end.rearLeft());
+        double dy2 = dy(start.rearLeft(), end.rearLeft());
+        double dx3 = dx(start.rearRight(), end.rearRight());
+        double dy3 = dy(start.rearRight(), end.rearRight());
+        out[0] = row(0, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
+        out[1] = row(1, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
+        out[2] = row(2, dx0, dy0, dx1, dy1, dx2, dy2, dx3, dy3);
     }
 
-    /** ChassisSpeeds -> [vx; vy; omega] (3 x 1) */
-    private SimpleMatrix chassisSpeeds2Vector(DiscreteSpeed speed) {
-        SimpleMatrix chassisSpeedsVector = new SimpleMatrix(3, 1);
-        chassisSpeedsVector.setColumn(
-                0,
-                0,
-                speed.twist().dx / speed.dt(),
-                speed.twist().dy / speed.dt(),
-                speed.twist().dtheta / speed.dt());
-        return chassisSpeedsVector;
+    public Translation2d[] getModuleLocations() {
+        return m_moduleLocations;
     }
 
-    /** Twist as a 3x1 column vector: [dx; dy; dtheta] */
-    private static SimpleMatrix twist2Vector(Twist2d twist) {
-        return new SimpleMatrix(new double[] {
-                twist.dx,
-                twist.dy,
-                twist.dtheta });
+    /** Round trip, both directions, with and without allocation. */
+    @Override
+    public void warm() {
+        DiscreteSpeed speed = new DiscreteSpeed(new Twist2d(0.02, 0.01, 0.03), 0.02);
+        SwerveModuleStates states = toSwerveModuleStates(speed);
+        toChassisSpeeds(states);
+        toModuleVelocities(speed, new double[2 * MODULES]);
+        SwerveModuleDeltas deltas = toSwerveModuleDelta(speed.twist());
+        toTwist2d(deltas);
+        toTwist(deltas, new double[3]);
+        SwerveModulePositions start = SwerveModulePositions.kZero();
+        toTwist(start, SwerveModulePositions.modulePositionFromDelta(start, deltas), new double[3]);
     }
 
-    /** [vx; vy; omega] (3 x 1) -> ChassisSpeeds */
-    private static ChassisSpeeds vector2ChassisSpeeds(SimpleMatrix v) {
-        return new ChassisSpeeds(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    ///////////////////////////////////////
+
+    /** One row of the forward kinematics, in the same order as the matrix. */
+    private double row(int r,
+            double a0, double b0,
+            double a1, double b1,
+            double a2, double b2,
+            double a3, double b3) {
+        int i = r * 2 * MODULES;
+        return m_f[i] * a0
+                + m_f[i + 1] * b0
+                + m_f[i + 2] * a1
+                + m_f[i + 3] * b1
+                + m_f[i + 4] * a2
+                + m_f[i + 5] * b2
+                + m_f[i + 6] * a3
+                + m_f[i + 7] * b3;
     }
 
-    /** [dx; dy; dtheta] (3 x 1) -> Twist2d */
-    private static Twist2d vector2Twist(SimpleMatrix v) {
-        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    /** v cos, or zero if the wheel is stopped or the angle is invalid. */
+    private static double vx(SwerveModuleState100 module) {
+        if (Math.abs(module.speedMetersPerSecond()) < 1e-6 || module.angle().isEmpty())
+            return 0;
+        return module.speedMetersPerSecond() * module.angle().get().getCos();
     }
 
-    /**
-     * [v cos; v sin; ... ] (2n x 1) -> states[]
-     * 
-     * Speed is always non-negative.
-     * 
-     * Angle can be empty if speed is about zero.
-     * Otherwise angle is always within [-pi, pi].
-     * 
-     * @param chassisSpeedsVector [vx0; vy0; vx1; ...]
-     */
-    SwerveModuleStates statesFromVector(SimpleMatrix chassisSpeedsVector) {
-        SimpleMatrix m = m_inverseKinematics.mult(chassisSpeedsVector);
-        return new SwerveModuleStates(
-                SwerveModuleState100.fromSpeed(m.get(0, 0), m.get(1, 0)),
-                SwerveModuleState100.fromSpeed(m.get(2, 0), m.get(3, 0)),
-                SwerveModuleState100.fromSpeed(m.get(4, 0), m.get(5, 0)),
-                SwerveModuleState100.fromSpeed(m.get(6, 0), m.get(7, 0)));
+    /** v sin, or zero if the wheel is stopped or the angle is invalid. */
+    private static double vy(SwerveModuleState100 module) {
+        if (Math.abs(module.speedMetersPerSecond()) < 1e-6 || module.angle().isEmpty())
+            return 0;
+        return module.speedMetersPerSecond() * module.angle().get().getSin();
     }
 
-    public Translation2d[] getModuleLocations() {
-        return m_moduleLocations;
+    /** d cos, assuming a straight line path, or zero if it didn't move. */
+    private static double dx(SwerveModuleDelta module) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.wrappedAngle.isEmpty())
+            return 0;
+        return module.distanceMeters * module.wrappedAngle.get().getCos();
+    }
+
+    /** d sin, assuming a straight line path, or zero if it didn't move. */
+    private static double dy(SwerveModuleDelta module) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.wrappedAngle.isEmpty())
+            return 0;
+        return module.distanceMeters * module.wrappedAngle.get().getSin();
     }
 
     /**
-     * The resulting distance is always positive.
-     * 
-     * @param moduleDeltaVector [d cos; d sin; ...] (2n x 1),
-     *                          equivalently [dx0; dy0; dx1; ...]
+     * d cos between positions, like dx(SwerveModuleDelta.delta(start, end)), using
+     * the end angle.
      */
-    private SwerveModuleDeltas deltasFromVector(SimpleMatrix moduleDeltaVector) {
-        return new SwerveModuleDeltas(
-                new SwerveModuleDelta(moduleDeltaVector.get(0, 0), moduleDeltaVector.get(1, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(2, 0), moduleDeltaVector.get(3, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(4, 0), moduleDeltaVector.get(5, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(6, 0), moduleDeltaVector.get(7, 0)));
+    private static double dx(SwerveModulePosition100 start, SwerveModulePosition100 end) {
+        double d = end.distanceMeters - start.distanceMeters;
+        if (Math.abs(d) < 1e-6 || end.unwrappedAngle.isEmpty())
+            return 0;
+        return d * end.unwrappedAngle.get().getCos();
+    }
+
+    /**
+     * d sin between positions, like dy(SwerveModuleDelta.delta(start, end)), using
+     * the end angle.
+     */
+    private static double dy(SwerveModulePosition100 start, SwerveModulePosition100 end) {
+        double d = end.distanceMeters - start.distanceMeters;
+        if (Math.abs(d) < 1e-6 || end.unwrappedAngle.isEmpty())
+            return 0;
+        return d * end.unwrappedAngle.get().getSin();
     }
 
     /** module locations -> inverse kinematics matrix (2n x 3) */
@@ -298,8 +397,8 @@ public class SwerveDriveKinematics100 {
     }
 
     private void checkModuleCount(Translation2d... moduleTranslationsM) {
-        if (moduleTranslationsM.length < 2) {
-            throw new IllegalArgumentException("Swerve requires at least two modules");
+        if (moduleTranslationsM.length != MODULES) {
+            throw new IllegalArgumentException("Swerve requires exactly four modules");
         }
     }
 }
@@ -0,0 +1,55 @@
+package org.team100.lib.subsystems.swerve.kinodynamics.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.util.struct.Struct;
+
+/** All four modules, so odometry inputs are logged as one value. */
+public class SwerveModulePositionsStruct implements Struct<SwerveModulePositions> {
+
+    @Override
+    public Class<SwerveModulePositions> getTypeClass() {
+        return SwerveModulePositions.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "SwerveModulePositions";
+    }
+
+    @Override
+    public int getSize() {
+        return SwerveModulePosition100.struct.getSize() * 4;
+    }
+
+    @Override
+    public String getSchema() {
+        return "SwerveModulePosition100 frontLeft;SwerveModulePosition100 frontRight;"
+                + "SwerveModulePosition100 rearLeft;SwerveModulePosition100 rearRight";
+    }
+
+    @Override
+    public Struct<?>[] getNested() {
+        return new Struct<?>[] { SwerveModulePosition100.struct };
+    }
+
+    @Override
+    public SwerveModulePositions unpack(ByteBuffer bb) {
+        SwerveModulePosition100 frontLeft = SwerveModulePosition100.struct.unpack(bb);
+        SwerveModulePosition100 frontRight = SwerveModulePosition100.struct.unpack(bb);
+        SwerveModulePosition100 rearLeft = SwerveModulePosition100.struct.unpack(bb);
+        SwerveModulePosition100 rearRight = SwerveModulePosition100.struct.unpack(bb);
+        return new SwerveModulePositions(frontLeft, frontRight, rearLeft, rearRight);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, SwerveModulePositions value) {
+        SwerveModulePosition100.struct.pack(bb, value.frontLeft());
+        SwerveModulePosition100.struct.pack(bb, value.frontRight());
+        SwerveModulePosition100.struct.pack(bb, value.rearLeft());
+        SwerveModulePosition100.struct.pack(bb, value.rearRight());
+    }
+}
@@ -5,6 +5,7 @@ import org.team100.lib.controller.r1.PIDFeedback;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.mechanism.LinearMechanism;
 import org.team100.lib.mechanism.RotaryMechanism;
+import org.team100.lib.motor.sim.MotorPhysics;
 import org.team100.lib.motor.sim.SimulatedBareMotor;
 import org.team100.lib.profile.incremental.IncrementalProfile;
 import org.team100.lib.reference.r1.IncrementalProfileReferenceR1;
@@ -27,6 +28,11 @@ public class SimulatedSwerveModule100 extends SwerveModule100 {
 
     private static final double DRIVE_GEAR_RATIO = 5.5;
     private static final double WHEEL_DIAMETER_M = 0.1;
+    private static final double FREE_SPEED_RAD_S = 600;
+    /** For physics: each module carries a quarter of this. */
+    private static final double ROBOT_MASS_KG = 60;
+    /** For physics: steering inertia of the module, kg m^2 */
+    private static final double STEERING_INERTIA_KG_M2 = 0.005;
 
     public static SimulatedSwerveModule100 get(
             LoggerFactory parent,
@@ -39,6 +45,30 @@ public class SimulatedSwerveModule100 extends SwerveModule100 {
         return new SimulatedSwerveModule100(driveServo, turningServo);
     }
 
+    /**
+     * The motors are simulated by the physics backend, rather than obeying
+     * commands instantly. Each drive motor carries a quarter of the robot mass,
+     * i.e. the modules are not coupled through the chassis.
+     */
+    public static SimulatedSwerveModule100 withPhysics(
+            LoggerFactory parent,
+            SwerveKinodynamics kinodynamics,
+            MotorPhysics physics) {
+        double wheelRadius = WHEEL_DIAMETER_M / 2;
+        double driveInertia = ROBOT_MASS_KG / 4 * wheelRadius * wheelRadius
+                / (DRIVE_GEAR_RATIO * DRIVE_GEAR_RATIO);
+        LoggerFactory driveLog = parent.name("Drive");
+        LoggerFactory turningLog = parent.name("Turning");
+        LinearVelocityServo driveServo = simulatedDriveServo(
+                driveLog,
+                new SimulatedBareMotor(driveLog, FREE_SPEED_RAD_S, physics, driveInertia));
+        AngularPositionServo turningServo = simulatedTurningServo(
+                turningLog,
+                kinodynamics,
+                new SimulatedBareMotor(turningLog, FREE_SPEED_RAD_S, physics, STEERING_INERTIA_KG_M2));
+        return new SimulatedSwerveModule100(driveServo, turningServo);
+    }
+
     /**
      * The simulated outboard servo instantaneously obeys position input
      */
@@ -54,7 +84,12 @@ public class SimulatedSwerveModule100 extends SwerveModule100 {
     }
 
     private static LinearVelocityServo simulatedDriveServo(LoggerFactory parent) {
-        SimulatedBareMotor driveMotor = new SimulatedBareMotor(parent, 600);
+        return simulatedDriveServo(parent, new SimulatedBareMotor(parent, FREE_SPEED_RAD_S));
+    }
+
+    private static LinearVelocityServo simulatedDriveServo(
+            LoggerFactory parent,
+            SimulatedBareMotor driveMotor) {
         IncrementalBareEncoder encoder = driveMotor.encoder();
         LinearMechanism mech = new LinearMechanism(parent,
                 driveMotor,
@@ -74,7 +109,14 @@ public class SimulatedSwerveModule100 extends SwerveModule100 {
             LoggerFactory parent,
             SwerveKinodynamics kinodynamics) {
         // simulated turning motor free speed is 20 rad/s
-        SimulatedBareMotor turningMotor = new SimulatedBareMotor(parent, 600);
+        return simulatedTurningServo(
+                parent, kinodynamics, new SimulatedBareMotor(parent, FREE_SPEED_RAD_S));
+    }
+
+    private static AngularPositionServo simulatedTurningServo(
+            LoggerFactory parent,
+            SwerveKinodynamics kinodynamics,
+            SimulatedBareMotor turningMotor) {
         IncrementalBareEncoder encoder = turningMotor.encoder();
         SimulatedRotaryPositionSensor turningSensor = new SimulatedRotaryPositionSensor(
                 parent, encoder, 1);
@@ -5,6 +5,7 @@ import java.util.List;
 import org.team100.lib.config.Identity;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motor.MotorPhase;
+import org.team100.lib.motor.sim.MotorPhysics;
 import org.team100.lib.motor.NeutralMode;
 import org.team100.lib.music.Player;
 import org.team100.lib.sensor.position.absolute.EncoderDrive;
@@ -58,6 +59,21 @@ public class SwerveModuleCollection implements Player {
             double supplyLimit,
             double statorLimit,
             SwerveKinodynamics kinodynamics) {
+        return get(parent, supplyLimit, statorLimit, kinodynamics, null);
+    }
+
+    /**
+     * Creates collections according to Identity.
+     * 
+     * @param physics for simulated modules, or null for the kinematic ones.
+     *                Ignored by real modules.
+     */
+    public static SwerveModuleCollection get(
+            LoggerFactory parent,
+            double supplyLimit,
+            double statorLimit,
+            SwerveKinodynamics kinodynamics,
+            MotorPhysics physics) {
         LoggerFactory collectionLogger = parent.name("Swerve Modules");
         LoggerFactory frontLeftLogger = collectionLogger.name("Front Left");
         LoggerFactory frontRightLogger = collectionLogger.name("Front Right");
@@ -145,6 +161,12 @@ public class SwerveModuleCollection implements Player {
                  * Uses simulated position sensors, must be used with clock control (e.g.
                  * {@link Timeless}).
                  */
+                if (physics != null)
+                    return new SwerveModuleCollection(
+                            SimulatedSwerveModule100.withPhysics(frontLeftLogger, kinodynamics, physics),
+                            SimulatedSwerveModule100.withPhysics(frontRightLogger, kinodynamics, physics),
+                            SimulatedSwerveModule100.withPhysics(rearLeftLogger, kinodynamics, physics),
+                            SimulatedSwerveModule100.withPhysics(rearRightLogger, kinodynamics, physics));
                 return new SwerveModuleCollection(
                         SimulatedSwerveModule100.get(frontLeftLogger, kinodynamics),
                         SimulatedSwerveModule100.get(frontRightLogger, kinodynamics),
@@ -1,5 +1,6 @@
 package org.team100.lib.subsystems.turret;
 
+import java.util.Optional;
 import java.util.function.Supplier;
 
 import org.team100.lib.controller.r1.PIDFeedback;
@@ -16,6 +17,7 @@ import org.team100.lib.sensor.position.absolute.sim.SimulatedRotaryPositionSenso
 import org.team100.lib.sensor.position.incremental.IncrementalBareEncoder;
 import org.team100.lib.servo.AngularPositionServo;
 import org.team100.lib.servo.OnboardAngularPositionServo;
+import org.team100.lib.targeting.ShootingSolver;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -87,6 +89,18 @@ public class Turret extends SubsystemBase {
         m_pivot.setPositionProfiled(relativeBearing.getRadians(), 0);
     }
 
+    /** Aim using the firing solution, e.g. from ShootingSolver, if any. */
+    private void moveToSolution(Optional<ShootingSolver.Solution> solution) {
+        if (solution.isEmpty()) {
+            stopAiming();
+            return;
+        }
+        m_aiming = true;
+        Rotation2d absoluteBearing = new Rotation2d(solution.get().azimuth());
+        Rotation2d relativeBearing = absoluteBearing.minus(m_pose.get().getRotation());
+        m_pivot.setPositionProfiled(relativeBearing.getRadians(), 0);
+    }
+
     private void stopAiming() {
         m_aiming = false;
         m_pivot.stop();
@@ -100,6 +114,11 @@ public class Turret extends SubsystemBase {
         return run(this::moveToAim);
     }
 
+    /** Shoot on the move: follow the firing solution every cycle. */
+    public Command track(Supplier<Optional<ShootingSolver.Solution>> solution) {
+        return run(() -> moveToSolution(solution.get()));
+    }
+
     public Command stop() {
         return run(this::stopAiming);
     }
@@ -0,0 +1,153 @@
+package org.team100.lib.targeting;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N6;
+import edu.wpi.first.math.system.NumericalIntegration;
+
+/**
+ * Precomputed drag-aware flight, for fixed muzzle speed and spin, to a target
+ * at fixed height above the muzzle.
+ *
+ * Unlike Range, this is indexed by ground range, on a uniform grid, so a lookup
+ * is a multiply and a linear interpolation: no tree, no allocation.
+ *
+ * Only the "low" branch is kept, i.e. elevations from the lowest that reaches
+ * the target height, up to the one with the longest range. The target is hit
+ * on the way down.
+ */
+public class FlightTable {
+    private static final boolean DEBUG = false;
+    /** Integration step, sec */
+    private static final double DT = 0.001;
+    /** Elevation step for the integration sweep, rad */
+    private static final double ELEVATION_STEP = 0.005;
+    /** Longest flight we care about, sec */
+    private static final double MAX_TOF = 10;
+
+    private final double m_minRange;
+    private final double m_maxRange;
+    private final double m_step;
+    private final double[] m_elevation;
+    private final double[] m_tof;
+
+    /**
+     * @param d      drag model
+     * @param v      muzzle speed, m/s
+     * @param omega  spin, positive is backspin, rad/s
+     * @param height target height above the muzzle, m
+     * @param points size of the range grid
+     */
+    public FlightTable(Drag d, double v, double omega, double height, int points) {
+        // sweep elevation, recording range and tof at the target height
+        int n = (int) Math.ceil((Math.PI / 2) / ELEVATION_STEP);
+        double[] elevations = new double[n];
+        double[] ranges = new double[n];
+        double[] tofs = new double[n];
+        int count = 0;
+        if (DEBUG)
+            System.out.println("elevation, range, tof");
+        for (int i = 0; i < n; ++i) {
+            double elevation = i * ELEVATION_STEP;
+            double[] rt = flight(d, v, omega, height, elevation);
+            if (rt == null) {
+                // doesn't reach the target height
+                if (count > 0)
+                    break;
+                continue;
+            }
+            if (count > 0 && rt[0] <= ranges[count - 1]) {
+                // past the longest range, so this is the high branch.
+                break;
+            }
+            if (DEBUG)
+                System.out.printf("%6.3f, %6.3f, %6.3f\n", elevation, rt[0], rt[1]);
+            elevations[count] = elevation;
+            ranges[count] = rt[0];
+            tofs[count] = rt[1];
+            count++;
+        }
+        if (count < 2)
+            throw new IllegalArgumentException("target height is unreachable");
+
+        // resample on a uniform range grid
+        m_minRange = ranges[0];
+        m_maxRange = ranges[count - 1];
+        m_step = (m_maxRange - m_minRange) / (points - 1);
+        m_elevation = new double[points];
+        m_tof = new double[points];
+        int j = 0;
+        for (int i = 0; i < points; ++i) {
+            double r = Math.min(m_minRange + i * m_step, m_maxRange);
+            while (j < count - 2 && ranges[j + 1] < r)
+                j++;
+            double s = (r - ranges[j]) / (ranges[j + 1] - ranges[j]);
+            m_elevation[i] = elevations[j] + s * (elevations[j + 1] - elevations[j]);
+            m_tof[i] = tofs[j] + s * (tofs[j + 1] - tofs[j]);
+        }
+    }
+
+    public double minRange() {
+        return m_minRange;
+    }
+
+    public double maxRange() {
+        return m_maxRange;
+    }
+
+    public boolean contains(double range) {
+        return range >= m_minRange && range <= m_maxRange;
+    }
+
+    /** Elevation to hit the target at this range, rad. Range must be in bounds. */
+    public double elevation(double range) {
+        return lookup(m_elevation, range);
+    }
+
+    /** Time of flight to the target at this range, sec. Range must be in bounds. */
+    public double tof(double range) {
+        return lookup(m_tof, range);
+    }
+
+    /////////////////////////////////////////
+
+    private double lookup(double[] table, double range) {
+        double x = (range - m_minRange) / m_step;
+        int i = Math.min((int) x, table.length - 2);
+        double s = x - i;
+        return table[i] + s * (table[i + 1] - table[i]);
+    }
+
+    /**
+     * Integrate the flight until it descends through the target height.
+     *
+     * @return [range, tof], or null if the flight never gets that high.
+     */
+    private static double[] flight(Drag d, double v, double omega, double height, double elevation) {
+        double vx = v * Math.cos(elevation);
+        double vy = v * Math.sin(elevation);
+        Matrix<N6, N1> x = VecBuilder.fill(0, 0, 0, vx, vy, omega);
+        boolean above = false;
+        for (double t = 0; t < MAX_TOF; t += DT) {
+            Matrix<N6, N1> next = NumericalIntegration.rk4(d, x, DT);
+            double y0 = x.get(1, 0);
+            double y1 = next.get(1, 0);
+            if (y1 >= height)
+                above = true;
+            if (above && y1 < height) {
+                // interpolate the crossing
+                double s = (y0 - height) / (y0 - y1);
+                double x0 = x.get(0, 0);
+                double range = x0 + s * (next.get(0, 0) - x0);
+                return new double[] { range, t + s * DT };
+            }
+            if (next.get(4, 0) < 0 && !above) {
+                // past the apex without reaching the height
+                return null;
+            }
+            x = next;
+        }
+        return null;
+    }
+}
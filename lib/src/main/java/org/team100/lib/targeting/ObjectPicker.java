@@ -3,6 +3,8 @@ package org.team100.lib.targeting;
 import java.util.List;
 import java.util.Optional;
 
+import org.team100.lib.targeting.TargetTracker.Track;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 
@@ -41,6 +43,27 @@ public class ObjectPicker {
         return closestTranslation;
     }
 
+    /**
+     * Given a list of tracks, return the one closest to the robot.
+     * 
+     * @param tracks    from Targets
+     * @param robotPose the pose of the swerve drivetrain
+     * @return the closest track, or empty if none
+     */
+    public static Optional<Track> closestTrack(List<Track> tracks, Pose2d robotPose) {
+        Translation2d robotTranslation = robotPose.getTranslation();
+        double shortestDistance = Double.MAX_VALUE;
+        Optional<Track> closest = Optional.empty();
+        for (Track track : tracks) {
+            double distance = robotTranslation.getDistance(track.position());
+            if (distance < shortestDistance) {
+                shortestDistance = distance;
+                closest = Optional.of(track);
+            }
+        }
+        return closest;
+    }
+
     private ObjectPicker() {
         //
     }
@@ -0,0 +1,162 @@
+package org.team100.lib.targeting;
+
+import java.util.Optional;
+import java.util.function.DoubleFunction;
+
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.geometry.GlobalVelocityR2;
+import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.state.ModelR3;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Shoot-on-the-move firing solution: azimuth, elevation, and time of flight,
+ * using drag-aware flight from a FlightTable.
+ *
+ * Intercept solves the straight-line constant-speed case in closed form, but
+ * with drag, time of flight is not proportional to range, and the ground
+ * component of the muzzle speed depends on elevation. So this uses the same
+ * robot-relative frame (see INTERCEPT.md) and iterates to a fixed point:
+ *
+ * aim at the "virtual target" T0 + vT * t, look up the time of flight t for
+ * that range, repeat until t stops changing.
+ *
+ * This converges when the relative speed is less than the ground speed of the
+ * projectile, which is the same condition Intercept has. It's warm-started
+ * from the previous solution, so in steady state it takes one or two
+ * iterations. The number of iterations is bounded, and each one is a table
+ * lookup, so the solve time is bounded too; see ShootingSolverTest for the
+ * benchmark.
+ *
+ * Drag here acts on the projectile velocity relative to the robot, not the
+ * air, which is a fine approximation at robot speeds.
+ */
+public class ShootingSolver {
+    /** Convergence tolerance on time of flight, sec. */
+    private static final double TOLERANCE = 1e-4;
+    private static final int MAX_ITERATIONS = 8;
+
+    /**
+     * @param azimuth    field-relative, rad
+     * @param elevation  above horizontal, rad
+     * @param tof        time of flight, sec
+     * @param range      ground distance to the virtual target, m
+     * @param iterations used for this solution
+     */
+    public record Solution(
+            double azimuth,
+            double elevation,
+            double tof,
+            double range,
+            int iterations) {
+    }
+
+    private final FlightTable m_table;
+    /** Time from the pose measurement until the projectile leaves, sec. */
+    private final double m_latencyS;
+    private final IntLogger m_log_iterations;
+    private final DoubleLogger m_log_tof;
+    /** Warm start, NaN if none. */
+    private double m_tof;
+
+    /**
+     * @param latencyS from the pose measurement until the projectile leaves the
+     *                 muzzle, sec
+     */
+    public ShootingSolver(LoggerFactory parent, FlightTable table, double latencyS) {
+        LoggerFactory log = parent.type(this);
+        m_table = table;
+        m_latencyS = latencyS;
+        m_log_iterations = log.intLogger(Level.TRACE, "iterations");
+        m_log_tof = log.doubleLogger(Level.TRACE, "tof (s)");
+        m_tof = Double.NaN;
+    }
+
+    /**
+     * Solve using the current robot state, e.g. from SwerveHistory, for a
+     * stationary target.
+     */
+    public Optional<Solution> solve(DoubleFunction<ModelR3> history, Translation2d target) {
+        ModelR3 robot = history.apply(Takt.get());
+        GlobalVelocityR3 v = robot.velocity();
+        Translation2d p = robot.translation();
+        return solve(p.getX(), p.getY(), v.x(), v.y(), target.getX(), target.getY(), 0, 0);
+    }
+
+    public Optional<Solution> solve(
+            Translation2d robotPosition,
+            GlobalVelocityR2 robotVelocity,
+            Translation2d targetPosition,
+            GlobalVelocityR2 targetVelocity) {
+        return solve(
+                robotPosition.getX(), robotPosition.getY(),
+                robotVelocity.x(), robotVelocity.y(),
+                targetPosition.getX(), targetPosition.getY(),
+                targetVelocity.x(), targetVelocity.y());
+    }
+
+    /**
+     * All field-relative, meters and meters/sec.
+     *
+     * @return solution, or empty if the target is out of range.
+     */
+    public Optional<Solution> solve(
+            double rx, double ry, double rvx, double rvy,
+            double tx, double ty, double tvx, double tvy) {
+        // relative velocity
+        double vx = tvx - rvx;
+        double vy = tvy - rvy;
+        // relative position at release
+        double x0 = tx - rx + vx * m_latencyS;
+        double y0 = ty - ry + vy * m_latencyS;
+        double t = m_tof;
+        if (Double.isNaN(t)) {
+            // cold start from the static solution
+            double r = Math.hypot(x0, y0);
+            if (!m_table.contains(r))
+                return fail();
+            t = m_table.tof(r);
+        }
+        for (int i = 1; i <= MAX_ITERATIONS; ++i) {
+            double px = x0 + vx * t;
+            double py = y0 + vy * t;
+            double r = Math.hypot(px, py);
+            if (!m_table.contains(r))
+                return fail();
+            double next = m_table.tof(r);
+            if (Math.abs(next - t) < TOLERANCE) {
+                // aim at the virtual target for the final time of flight
+                px = x0 + vx * next;
+                py = y0 + vy * next;
+                r = Math.hypot(px, py);
+                if (!m_table.contains(r))
+                    return fail();
+                m_tof = next;
+                Solution s = new Solution(
+                        Math.atan2(py, px), m_table.elevation(r), next, r, i);
+                m_log_iterations.log(s::iterations);
+                m_log_tof.log(s::tof);
+                return Optional.of(s);
+            }
+            t = next;
+        }
+        return fail();
+    }
+
+    /** Forget the warm start. */
+    public void reset() {
+        m_tof = Double.NaN;
+    }
+
+    /////////////////////////////////////////
+
+    private Optional<Solution> fail() {
+        m_tof = Double.NaN;
+        return Optional.empty();
+    }
+}
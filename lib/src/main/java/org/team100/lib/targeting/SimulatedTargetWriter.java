@@ -9,6 +9,7 @@ import org.team100.lib.coherence.Takt;
 import org.team100.lib.config.Camera;
 import org.team100.lib.field.FieldConstants;
 import org.team100.lib.localization.SwerveHistory;
+import org.team100.lib.network.LocalServer;
 import org.team100.lib.state.ModelR3;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -47,8 +48,7 @@ public class SimulatedTargetWriter {
         m_targets = targets;
         m_publishers = new HashMap<>();
         m_inst = NetworkTableInstance.getDefault();
-        m_inst.startClient4("tag_finder24");
-        m_inst.setServer("localhost");
+        LocalServer.connect(m_inst, "tag_finder24");
         for (Camera camera : m_cameras) {
             String name = "objectVision/"
                     + camera.getSerial() + "/0/Rotation3d";
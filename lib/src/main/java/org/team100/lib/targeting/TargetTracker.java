@@ -0,0 +1,346 @@
+package org.team100.lib.targeting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.team100.lib.geometry.GlobalVelocityR2;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Tracks several moving targets, e.g. game pieces, from a stream of
+ * field-relative sights.
+ *
+ * Each track is a constant-velocity Kalman filter. The noise is isotropic, and
+ * x and y see the same updates, so both axes share one 2x2 covariance:
+ * position variance, position-velocity covariance, and velocity variance.
+ *
+ * Each sight is associated with the nearest track inside the gate, i.e. within
+ * GATE standard deviations and HARD_GATE meters. Tracks are indexed by a
+ * uniform grid with cells of HARD_GATE, so association looks only at the nine
+ * cells around the sight. Unassociated sights start new tracks, unless they're
+ * within DUPLICATE of a track already updated by the same batch, which means
+ * the detector saw the same object twice. Tracks not seen for awhile are
+ * dropped.
+ *
+ * A track that isn't seen coasts at its estimated velocity for at most
+ * MAX_EXTRAPOLATION, and then stays put while its uncertainty grows, so a
+ * missed detection doesn't send it off across the field.
+ *
+ * Storage is preallocated, parallel arrays, so the per-sight cost is constant,
+ * and nothing is allocated except in the query methods. If every slot is in
+ * use, the stalest track is replaced.
+ *
+ * Not thread-safe.
+ */
+public class TargetTracker {
+    /**
+     * @param id       stable for the life of the track
+     * @param position field-relative, meters
+     * @param velocity field-relative, meters/sec
+     * @param hits     number of sights, so far; one-hit tracks may be noise.
+     * @param age      since the last sight, sec
+     */
+    public record Track(
+            int id,
+            Translation2d position,
+            GlobalVelocityR2 velocity,
+            int hits,
+            double age) {
+    }
+
+    /** Default measurement noise, meters */
+    private static final double MEASUREMENT_STDDEV = 0.1;
+    /**
+     * Default process noise, i.e. acceleration spectral density, m^2/s^3. Game
+     * pieces mostly sit still or roll, so this is small.
+     */
+    private static final double ACCEL_PSD = 0.5;
+    /** Velocity uncertainty of a new track, m/s */
+    private static final double INITIAL_VELOCITY_STDDEV = 2.0;
+    /** Chi-squared, two degrees of freedom, 99% */
+    private static final double GATE = 9.21;
+    /** No association farther than this, also the grid cell size, meters */
+    private static final double HARD_GATE = 1.0;
+    /** Sights this close to a track in the same batch are duplicates, meters */
+    private static final double DUPLICATE = 0.15;
+    /** Coast unseen tracks for at most this long, sec */
+    private static final double MAX_EXTRAPOLATION = 0.1;
+    /** Grid hash buckets, a power of two. */
+    private static final int BUCKETS = 256;
+    private static final int NONE = -1;
+
+    private final double m_r;
+    private final double m_q;
+    /** Drop tracks not seen for this long, sec. */
+    private final double m_maxAge;
+
+    // Per-slot state. A slot is free if m_id is NONE.
+    private final int[] m_id;
+    private final int[] m_hits;
+    /** Time of the state estimate. */
+    private final double[] m_time;
+    /** Time of the last sight. */
+    private final double[] m_seen;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_vx;
+    private final double[] m_vy;
+    /** Position variance */
+    private final double[] m_p00;
+    /** Position-velocity covariance */
+    private final double[] m_p01;
+    /** Velocity variance */
+    private final double[] m_p11;
+    /** Batch that last updated the slot; one sight per track per batch. */
+    private final int[] m_batch;
+
+    // Grid, as a hash of cells, each a linked list of slots.
+    private final int[] m_head;
+    private final int[] m_next;
+
+    private int m_nextId;
+    private int m_currentBatch;
+    private int m_size;
+
+    /**
+     * @param capacity maximum number of tracks
+     * @param maxAge   drop tracks not seen for this long, sec
+     */
+    public TargetTracker(int capacity, double maxAge) {
+        m_r = MEASUREMENT_STDDEV * MEASUREMENT_STDDEV;
+        m_q = ACCEL_PSD;
+        m_maxAge = maxAge;
+        m_id = new int[capacity];
+        m_hits = new int[capacity];
+        m_time = new double[capacity];
+        m_seen = new double[capacity];
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_vx = new double[capacity];
+        m_vy = new double[capacity];
+        m_p00 = new double[capacity];
+        m_p01 = new double[capacity];
+        m_p11 = new double[capacity];
+        m_batch = new int[capacity];
+        m_head = new int[BUCKETS];
+        m_next = new int[capacity];
+        Arrays.fill(m_id, NONE);
+        Arrays.fill(m_head, NONE);
+    }
+
+    /**
+     * Add a batch of simultaneous sights, e.g. one camera frame. Each track gets
+     * at most one sight from each batch.
+     *
+     * @param time   of the sights, sec
+     * @param sights field-relative, meters
+     */
+    public void addAll(double time, List<Translation2d> sights) {
+        m_currentBatch++;
+        predictAll(time);
+        for (int i = 0; i < sights.size(); ++i) {
+            Translation2d s = sights.get(i);
+            add(time, s.getX(), s.getY());
+        }
+    }
+
+    /**
+     * Current tracks, extrapolated to the given time, or at most
+     * MAX_EXTRAPOLATION past the last sight; dead tracks are dropped. Allocates.
+     */
+    public List<Track> getTracks(double time) {
+        List<Track> tracks = new ArrayList<>(m_size);
+        for (int i = 0; i < m_id.length; ++i) {
+            if (m_id[i] == NONE)
+                continue;
+            double age = time - m_seen[i];
+            if (age > m_maxAge) {
+                free(i);
+                continue;
+            }
+            double dt = coast(i, time);
+            tracks.add(new Track(
+                    m_id[i],
+                    new Translation2d(m_x[i] + m_vx[i] * dt, m_y[i] + m_vy[i] * dt),
+                    new GlobalVelocityR2(m_vx[i], m_vy[i]),
+                    m_hits[i],
+                    age));
+        }
+        return tracks;
+    }
+
+    /** Number of live tracks, including any not yet pruned by age. */
+    public int size() {
+        return m_size;
+    }
+
+    /////////////////////////////////////////
+
+    /**
+     * Move every live track to the given time, and drop the dead ones. This is
+     * per batch, not per sight, and the capacity is fixed.
+     */
+    private void predictAll(double time) {
+        for (int i = 0; i < m_id.length; ++i) {
+            if (m_id[i] == NONE)
+                continue;
+            if (time - m_seen[i] > m_maxAge) {
+                free(i);
+                continue;
+            }
+            double dt = time - m_time[i];
+            // out-of-order batches are treated as simultaneous.
+            if (dt <= 0)
+                continue;
+            unlink(i);
+            double move = coast(i, time);
+            m_x[i] += m_vx[i] * move;
+            m_y[i] += m_vy[i] * move;
+            double p00 = m_p00[i];
+            double p01 = m_p01[i];
+            double p11 = m_p11[i];
+            // P = F P F^T + Q, with white-noise acceleration.
+            m_p00[i] = p00 + 2 * dt * p01 + dt * dt * p11 + m_q * dt * dt * dt / 3;
+            m_p01[i] = p01 + dt * p11 + m_q * dt * dt / 2;
+            m_p11[i] = p11 + m_q * dt;
+            m_time[i] = time;
+            link(i);
+        }
+    }
+
+    /**
+     * How far to move the track's position estimate, in time, to get to the
+     * given time: not past MAX_EXTRAPOLATION after the last sight.
+     */
+    private double coast(int i, double time) {
+        double end = Math.min(time, m_seen[i] + MAX_EXTRAPOLATION);
+        return Math.max(0, end - m_time[i]);
+    }
+
+    private void add(double time, double zx, double zy) {
+        int best = NONE;
+        double bestD2 = GATE;
+        boolean duplicate = false;
+        int cx = cell(zx);
+        int cy = cell(zy);
+        for (int ix = cx - 1; ix <= cx + 1; ++ix) {
+            for (int iy = cy - 1; iy <= cy + 1; ++iy) {
+                for (int i = m_head[bucket(ix, iy)]; i != NONE; i = m_next[i]) {
+                    double dx = zx - m_x[i];
+                    double dy = zy - m_y[i];
+                    double d2 = dx * dx + dy * dy;
+                    if (m_batch[i] == m_currentBatch) {
+                        // one sight per track per batch
+                        if (d2 < DUPLICATE * DUPLICATE)
+                            duplicate = true;
+                        continue;
+                    }
+                    if (d2 > HARD_GATE * HARD_GATE)
+                        continue;
+                    // normalized by the innovation variance
+                    double nd2 = d2 / (m_p00[i] + m_r);
+                    if (nd2 < bestD2) {
+                        bestD2 = nd2;
+                        best = i;
+                    }
+                }
+            }
+        }
+        if (best == NONE) {
+            if (!duplicate)
+                birth(time, zx, zy);
+        } else {
+            correct(best, time, zx, zy);
+        }
+    }
+
+    private void correct(int i, double time, double zx, double zy) {
+        unlink(i);
+        double s = m_p00[i] + m_r;
+        double k0 = m_p00[i] / s;
+        double k1 = m_p01[i] / s;
+        double ex = zx - m_x[i];
+        double ey = zy - m_y[i];
+        m_x[i] += k0 * ex;
+        m_y[i] += k0 * ey;
+        m_vx[i] += k1 * ex;
+        m_vy[i] += k1 * ey;
+        // P = (I - K H) P
+        double p01 = m_p01[i];
+        m_p11[i] -= k1 * p01;
+        m_p01[i] = (1 - k0) * p01;
+        m_p00[i] = (1 - k0) * m_p00[i];
+        m_hits[i]++;
+        m_seen[i] = time;
+        m_batch[i] = m_currentBatch;
+        link(i);
+    }
+
+    private void birth(double time, double zx, double zy) {
+        int i = slot();
+        m_id[i] = m_nextId++;
+        m_hits[i] = 1;
+        m_time[i] = time;
+        m_seen[i] = time;
+        m_x[i] = zx;
+        m_y[i] = zy;
+        m_vx[i] = 0;
+        m_vy[i] = 0;
+        m_p00[i] = m_r;
+        m_p01[i] = 0;
+        m_p11[i] = INITIAL_VELOCITY_STDDEV * INITIAL_VELOCITY_STDDEV;
+        m_batch[i] = m_currentBatch;
+        m_size++;
+        link(i);
+    }
+
+    /** A free slot, or the stalest one if they're all in use. */
+    private int slot() {
+        int stalest = 0;
+        for (int i = 0; i < m_id.length; ++i) {
+            if (m_id[i] == NONE)
+                return i;
+            if (m_seen[i] < m_seen[stalest])
+                stalest = i;
+        }
+        free(stalest);
+        return stalest;
+    }
+
+    private void free(int i) {
+        unlink(i);
+        m_id[i] = NONE;
+        m_size--;
+    }
+
+    private void link(int i) {
+        int b = bucket(cell(m_x[i]), cell(m_y[i]));
+        m_next[i] = m_head[b];
+        m_head[b] = i;
+    }
+
+    private void unlink(int i) {
+        int b = bucket(cell(m_x[i]), cell(m_y[i]));
+        if (m_head[b] == i) {
+            m_head[b] = m_next[i];
+            return;
+        }
+        for (int j = m_head[b]; j != NONE; j = m_next[j]) {
+            if (m_next[j] == i) {
+                m_next[j] = m_next[i];
+                return;
+            }
+        }
+    }
+
+    private static int cell(double v) {
+        return (int) Math.floor(v / HARD_GATE);
+    }
+
+    /** Distinct cells may share a bucket, which is fine, just slower. */
+    private static int bucket(int ix, int iy) {
+        return (ix * 73856093 ^ iy * 19349663) & (BUCKETS - 1);
+    }
+}
@@ -1,5 +1,6 @@
 package org.team100.lib.targeting;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.DoubleFunction;
@@ -8,16 +9,13 @@ import java.util.stream.DoubleStream;
 import org.team100.lib.coherence.Cache;
 import org.team100.lib.coherence.SideEffect;
 import org.team100.lib.coherence.Takt;
-import org.team100.lib.geometry.Centroid2d;
-import org.team100.lib.geometry.Near2d;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
 import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.network.CameraReader;
 import org.team100.lib.state.ModelR3;
-import org.team100.lib.util.CoalescingCollection;
-import org.team100.lib.util.TrailingHistory;
+import org.team100.lib.targeting.TargetTracker.Track;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation3d;
@@ -26,8 +24,8 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.util.struct.StructBuffer;
 
 /**
- * Listen for updates from the object-detector camera and remember them for
- * awhile.
+ * Listen for updates from the object-detector camera, and track the objects,
+ * with identity and velocity, for awhile.
  */
 public class Targets extends CameraReader<Rotation3d> {
     private static final boolean DEBUG = false;
@@ -39,19 +37,18 @@ public class Targets extends CameraReader<Rotation3d> {
     private static final double MAX_SIGHT_AGE = 0.2;
     /** Forget sights older than this. */
     private static final double HISTORY_DURATION = 1.0;
-    /** Targets closer than this to each other are combined */
-    private static final double NEARNESS_THRESHOLD = 0.15;
+    /** Most objects we'll ever see at once. */
+    private static final int MAX_TRACKS = 32;
 
     public final DoubleArrayLogger m_log_target;
 
     /** state = f(takt seconds) from history. */
     private final DoubleFunction<ModelR3> m_history;
-    /** Accumulation of targets we see. */
-    // private final TrailingHistory<Translation2d> m_targets;
-    private final CoalescingCollection<Translation2d> m_targets;
+    /** Targets we see. */
+    private final TargetTracker m_targets;
     /** Side effect mutates targets. */
     private final SideEffect m_vision;
-    private final IntLogger m_log_historySize;
+    private final IntLogger m_log_tracks;
 
     public Targets(
             LoggerFactory log,
@@ -61,15 +58,11 @@ public class Targets extends CameraReader<Rotation3d> {
                 "objectVision",
                 "Rotation3d",
                 StructBuffer.create(Rotation3d.struct));
-        m_log_historySize = log.type(this).intLogger(Level.TRACE, "history size");
+        m_log_tracks = log.type(this).intLogger(Level.TRACE, "tracks");
         m_log_target = log.doubleArrayLogger(Level.TRACE, "target");
         m_history = history;
-        // m_targets = new TrailingHistory<>(HISTORY_DURATION);
-        m_targets = new CoalescingCollection<>(
-                new TrailingHistory<>(HISTORY_DURATION),
-                new Near2d(NEARNESS_THRESHOLD),
-                new Centroid2d());
-        m_vision = Cache.ofSideEffect(this::update);
+        m_targets = new TargetTracker(MAX_TRACKS, HISTORY_DURATION);
+        m_vision = Cache.ofSideEffectPrefetched(this::update);
     }
 
     @Override
@@ -94,11 +87,32 @@ public class Targets extends CameraReader<Rotation3d> {
     }
 
     /**
-     * Field-relative translations of recent sights.
+     * Recently seen targets, with stable IDs and field-relative velocity,
+     * extrapolated to now.
      */
-    public List<Translation2d> getTargets() {
+    public List<Track> getTracks() {
         m_vision.run();
-        return m_targets.getAll();
+        return m_targets.getTracks(Takt.get());
+    }
+
+    /**
+     * Field-relative translations of recently seen targets.
+     */
+    public List<Translation2d> getTargets() {
+        List<Track> tracks = getTracks();
+        List<Translation2d> targets = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            targets.add(track.position());
+        }
+        return targets;
+    }
+
+    /**
+     * The closest track, if any.
+     */
+    public Optional<Track> getClosestTrack() {
+        Pose2d robotPose = m_history.apply(Takt.get()).pose();
+        return ObjectPicker.closestTrack(getTracks(), robotPose);
     }
 
     /**
@@ -124,6 +138,6 @@ public class Targets extends CameraReader<Rotation3d> {
                 () -> getTargets().stream().flatMapToDouble(
                         x -> DoubleStream.of(x.getX(), x.getY(), 0.0)).toArray());
 
-        m_log_historySize.log(() -> m_targets.size());
+        m_log_tracks.log(() -> m_targets.size());
     }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package org.team100.lib.trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.state.ModelR3;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Plans several candidate trajectories between the same endpoints, varying the
+ * course at each end and the spline "magic numbers," and picks the fastest
+ * feasible one.
+ *
+ * The candidates are independent, so they're planned in parallel, in a
+ * fork/join pool. Planning is thread-safe: the planner and schedule generator
+ * have no mutable state, and the constraints read Mutables from the Settings
+ * snapshot.
+ *
+ * Candidates that aren't finished within the time budget are abandoned.
+ */
+public class CandidatePlanner {
+    private static final boolean DEBUG = false;
+    private static final double VELOCITY_EPSILON = 1e-2;
+
+    /** One way to connect the endpoints. */
+    public record Candidate(Rotation2d startCourse, Rotation2d endCourse, double mN) {
+    }
+
+    /**
+     * @param trajectory the fastest feasible one, or empty if none
+     * @param best       the candidate that made it, or null
+     * @param candidates number tried
+     * @param feasible   number that finished in time and were feasible
+     * @param wallS      planning time
+     */
+    public record Result(
+            Trajectory100 trajectory,
+            Candidate best,
+            int candidates,
+            int feasible,
+            double wallS) {
+    }
+
+    private final TrajectoryPlanner m_planner;
+    private final ForkJoinPool m_pool;
+    private final List<Rotation2d> m_courseOffsets;
+    private final List<Double> m_magicNumbers;
+    private final IntLogger m_log_candidates;
+    private final IntLogger m_log_feasible;
+    private final DoubleLogger m_log_wall;
+    private final DoubleLogger m_log_duration;
+
+    /**
+     * @param pool          for planning, e.g. ForkJoinPool.commonPool(); note
+     *                      the common pool on the RoboRIO has only one thread.
+     * @param courseOffsets relative to the straight line, for each end
+     * @param magicNumbers  spline tension, see HolonomicSpline
+     */
+    public CandidatePlanner(
+            LoggerFactory parent,
+            TrajectoryPlanner planner,
+            ForkJoinPool pool,
+            List<Rotation2d> courseOffsets,
+            List<Double> magicNumbers) {
+        LoggerFactory log = parent.type(this);
+        m_planner = planner;
+        m_pool = pool;
+        m_courseOffsets = courseOffsets;
+        m_magicNumbers = magicNumbers;
+        m_log_candidates = log.intLogger(Level.TRACE, "candidates");
+        m_log_feasible = log.intLogger(Level.TRACE, "feasible");
+        m_log_wall = log.doubleLogger(Level.TRACE, "wall time (s)");
+        m_log_duration = log.doubleLogger(Level.TRACE, "duration (s)");
+    }
+
+    /** Three course offsets, three magic numbers, i.e. 27 candidates from rest. */
+    public CandidatePlanner(LoggerFactory parent, TrajectoryPlanner planner, ForkJoinPool pool) {
+        this(parent, planner, pool,
+                List.of(Rotation2d.kZero, Rotation2d.fromDegrees(30), Rotation2d.fromDegrees(-30)),
+                List.of(0.8, 1.2, 1.6));
+    }
+
+    /**
+     * The candidates for these endpoints. If the start is moving, its course is
+     * fixed.
+     */
+    public List<Candidate> candidates(ModelR3 start, Pose2d goal) {
+        Rotation2d straight = goal.getTranslation().minus(start.translation()).getAngle();
+        List<Rotation2d> startCourses = new ArrayList<>();
+        if (start.velocity().norm() < VELOCITY_EPSILON) {
+            for (Rotation2d offset : m_courseOffsets) {
+                startCourses.add(straight.plus(offset));
+            }
+        } else {
+            startCourses.add(start.velocity().angle().orElse(straight));
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        for (Rotation2d startCourse : startCourses) {
+            for (Rotation2d offset : m_courseOffsets) {
+                for (double mN : m_magicNumbers) {
+                    candidates.add(new Candidate(startCourse, straight.plus(offset), mN));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Plan all the candidates, and return the fastest feasible one.
+     *
+     * @param start    the start may be moving
+     * @param goal     the goal is at rest
+     * @param feasible e.g. an obstacle check; empty trajectories are always
+     *                 infeasible.
+     * @param budgetS  wall-clock time limit
+     */
+    public Result plan(
+            ModelR3 start,
+            Pose2d goal,
+            Predicate<Trajectory100> feasible,
+            double budgetS) {
+        long startNs = System.nanoTime();
+        long deadlineNs = startNs + (long) (budgetS * 1e9);
+        List<Candidate> candidates = candidates(start, goal);
+        List<ForkJoinTask<Trajectory100>> tasks = new ArrayList<>(candidates.size());
+        for (Candidate c : candidates) {
+            tasks.add(m_pool.submit(() -> plan(start, goal, c)));
+        }
+        Trajectory100 best = new Trajectory100();
+        Candidate bestCandidate = null;
+        int feasibleCount = 0;
+        for (int i = 0; i < tasks.size(); ++i) {
+            ForkJoinTask<Trajectory100> task = tasks.get(i);
+            Trajectory100 t;
+            try {
+                t = task.get(Math.max(0, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                task.cancel(false);
+                continue;
+            } catch (ExecutionException e) {
+                if (DEBUG)
+                    System.out.printf("candidate %s failed: %s\n", candidates.get(i), e.getCause());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (t.isEmpty() || !Double.isFinite(t.duration()) || !feasible.test(t))
+                continue;
+            feasibleCount++;
+            if (bestCandidate == null || t.duration() < best.duration()) {
+                best = t;
+                bestCandidate = candidates.get(i);
+            }
+        }
+        double wallS = (System.nanoTime() - startNs) / 1e9;
+        Result result = new Result(best, bestCandidate, candidates.size(), feasibleCount, wallS);
+        m_log_candidates.log(result::candidates);
+        m_log_feasible.log(result::feasible);
+        m_log_wall.log(result::wallS);
+        m_log_duration.log(best::duration);
+        return result;
+    }
+
+    /** Rest to rest, everything feasible. */
+    public Result plan(Pose2d start, Pose2d goal, double budgetS) {
+        return plan(new ModelR3(start), goal, t -> true, budgetS);
+    }
+
+    /////////////////////////////////////////
+
+    private Trajectory100 plan(ModelR3 start, Pose2d goal, Candidate c) {
+        Translation2d startTranslation = start.translation();
+        return m_planner.generateTrajectory(
+                List.of(
+                        new HolonomicPose2d(startTranslation, start.rotation(), c.startCourse()),
+                        new HolonomicPose2d(goal.getTranslation(), goal.getRotation(), c.endCourse())),
+                start.velocity().norm(),
+                0,
+                List.of(c.mN(), c.mN()));
+    }
+}
@@ -1,14 +1,20 @@
 package org.team100.lib.trajectory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
+import org.team100.lib.framework.Warmable;
+import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.trajectory.path.Path100;
 import org.team100.lib.trajectory.path.PathFactory;
+import org.team100.lib.trajectory.path.spline.HolonomicSpline;
 import org.team100.lib.trajectory.timing.ScheduleGenerator;
+import org.team100.lib.trajectory.timing.TimedPose;
 import org.team100.lib.trajectory.timing.TimingConstraint;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -25,8 +31,11 @@ import edu.wpi.first.math.trajectory.TrajectoryParameterizer.TrajectoryGeneratio
  * within the spline sample tolerance
  * 3. walk down the secant lines using the step distance
  * 4. assign timestamps to each step
+ * 
+ * To follow a moving goal, use replan(), which keeps the current trajectory up
+ * to a splice point, and does the four steps only for the new tail.
  */
-public class TrajectoryPlanner {
+public class TrajectoryPlanner implements Warmable {
     /*
      * Maximum distance of the secant lines to the continuous spline. The resulting
      * path will have little scallops if it involves rotation. In SE(2), a constant
@@ -101,6 +110,99 @@ public class TrajectoryPlanner {
                 initial.plus(new Transform2d(1, 0, Rotation2d.kZero)));
     }
 
+    /** One meter with a quarter turn, which touches most of the planner. */
+    @Override
+    public void warm() {
+        restToRest(
+                new Pose2d(0, 0, Rotation2d.kZero),
+                new Pose2d(1, 0, Rotation2d.kCCW_90deg));
+    }
+
+    /**
+     * Keep the current trajectory up to the splice time, and replace the rest
+     * with a new path to the goal, which starts at the splice point with the
+     * same position, heading, course, curvature, heading rate, and speed.
+     * 
+     * Only the new tail is splined and scheduled, so the cost depends on the
+     * distance remaining, not the whole path.
+     * 
+     * Times in the result have the same origin as the current trajectory, so the
+     * follower can just switch to it.
+     * 
+     * If the tail can't be made (e.g. the splice point is the goal), returns the
+     * current trajectory.
+     * 
+     * @param current     the trajectory being followed
+     * @param spliceS     time on the current trajectory where the new tail
+     *                    starts, a little after "now," so that the references
+     *                    the follower is using now don't change.
+     * @param goal        new goal, course is the direction of travel at the end.
+     * @param endVelocity speed at the goal
+     */
+    public Trajectory100 replan(
+            Trajectory100 current,
+            double spliceS,
+            HolonomicPose2d goal,
+            double endVelocity) {
+        if (current.isEmpty())
+            return current;
+        spliceS = Math.max(0, Math.min(spliceS, current.duration()));
+        TimedPose splice = current.sample(spliceS);
+        Pose2dWithMotion start = splice.state();
+        if (GeometryUtil.distanceM(start.getPose().translation(), goal.translation()) < 1e-6) {
+            // no room for a spline
+            return current;
+        }
+        HolonomicSpline spline;
+        if (splice.velocityM_S() < VELOCITY_EPSILON) {
+            // stopped, e.g. at the end, so start towards the goal
+            Rotation2d courseToGoal = goal.translation()
+                    .minus(start.getPose().translation()).getAngle();
+            spline = new HolonomicSpline(
+                    new HolonomicPose2d(
+                            start.getPose().translation(),
+                            start.getPose().heading(),
+                            courseToGoal),
+                    goal);
+        } else {
+            spline = HolonomicSpline.fromState(start, goal, 1.2, 1.2);
+        }
+        Trajectory100 tail;
+        try {
+            Path100 path = new Path100(PathFactory.parameterizeSplines(
+                    List.of(spline),
+                    m_splineTolerance,
+                    m_splineTolerance,
+                    m_splineRotationTolerance));
+            tail = m_scheduleGenerator.timeParameterizeTrajectory(
+                    path,
+                    m_trajectoryStep,
+                    splice.velocityM_S(),
+                    endVelocity);
+        } catch (IllegalArgumentException e) {
+            System.out.println("WARNING: Bad replan input");
+            return current;
+        }
+        if (tail.isEmpty())
+            return current;
+        List<TimedPose> points = new ArrayList<>(current.length() + tail.length());
+        // the prefix, up to but not including the splice
+        for (TimedPose p : current.getPoints()) {
+            if (p.getTimeS() >= spliceS)
+                break;
+            points.add(p);
+        }
+        // the tail, starting with the splice, shifted in time
+        for (TimedPose p : tail.getPoints()) {
+            points.add(new TimedPose(
+                    p.state(),
+                    p.getTimeS() + spliceS,
+                    p.velocityM_S(),
+                    p.acceleration()));
+        }
+        return new Trajectory100(points);
+    }
+
     public Trajectory100 restToRest(List<HolonomicPose2d> waypoints) {
         return generateTrajectory(waypoints, 0.0, 0.0);
     }
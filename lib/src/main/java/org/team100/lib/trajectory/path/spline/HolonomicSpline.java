@@ -117,6 +117,34 @@ public class HolonomicSpline {
         m_theta = SplineR1.get(0.0, delta, dtheta0, dtheta1, ddtheta0, ddtheta1);
     }
 
+    /**
+     * A spline that starts in the given state, matching its course, heading
+     * rate, and curvature, so it can be spliced onto an existing path without a
+     * corner or a jump in curvature. The end is as in the constructor.
+     *
+     * The first derivative at the start is the course times scale0, so ds/dp is
+     * scale0 there; the curvature is the normal part of the second derivative
+     * divided by (ds/dp)^2.
+     */
+    public static HolonomicSpline fromState(
+            Pose2dWithMotion start,
+            HolonomicPose2d end,
+            double mN0,
+            double mN1) {
+        HolonomicSpline s = new HolonomicSpline(start.getPose(), end, mN0, mN1);
+        double scale0 = mN0 * GeometryUtil.distanceM(
+                start.getPose().translation(), end.translation());
+        double k = start.getCurvature() * scale0 * scale0;
+        Rotation2d course = start.getCourse();
+        return s.replaceFirstDerivatives(
+                s.dx(0), s.dx(1),
+                s.dy(0), s.dy(1),
+                start.getHeadingRateRad_M() * scale0, s.dtheta(1))
+                .addToSecondDerivatives(
+                        -course.getSin() * k, 0,
+                        course.getCos() * k, 0);
+    }
+
     @Override
     public String toString() {
         return "HolonomicSpline [m_x=" + m_x + ", m_y=" + m_y + ", m_theta=" + m_theta + ", m_r0=" + m_r0 + "]";
@@ -1,16 +1,20 @@
 package org.team100.lib.tuning;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 
-import org.team100.lib.coherence.Cache;
-import org.team100.lib.coherence.DoubleCache;
+import org.team100.lib.coherence.Settings;
 import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.network.LocalServer;
 
 import edu.wpi.first.networktables.DoubleEntry;
 import edu.wpi.first.networktables.DoubleTopic;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
 /**
@@ -19,20 +23,32 @@ import edu.wpi.first.networktables.NetworkTableInstance;
  * Use the DoubleSupplier API for polling.
  * Provide a DoubleConsumer to get called on changes.
  * Values do not survive restarts.
+ * 
+ * This doesn't read Network Tables in the loop: an NT listener writes changes
+ * to Settings, which applies them once per cycle, and calls the DoubleConsumer
+ * only if the value actually changed.
  */
 public class Mutable implements DoubleSupplier {
     private static final Map<String, DoubleEntry> ALL_ENTRIES = new HashMap<>();
-    private final DoubleEntry m_entry;
-    private final DoubleConsumer m_onChange;
-    private final DoubleCache m_cache;
+    private static final List<Integer> ALL_LISTENERS = new ArrayList<>();
+    private final double m_default;
+    private final int m_slot;
+    private final int m_generation;
 
     public Mutable(LoggerFactory log, String leaf, double defaultValue, DoubleConsumer onChange) {
+        LocalServer.start();
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
-        inst.startServer();
         String name = log.root(leaf);
-        m_entry = getEntry(inst, name, defaultValue);
-        m_onChange = onChange;
-        m_cache = Cache.ofDouble(this::update);
+        DoubleEntry entry = getEntry(inst, name, defaultValue);
+        m_default = defaultValue;
+        int slot = Settings.registerDouble(defaultValue, onChange);
+        m_slot = slot;
+        m_generation = Settings.get().doubleGeneration();
+        // The listener runs on the NT listener thread.
+        ALL_LISTENERS.add(inst.addListener(
+                entry,
+                EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                e -> Settings.setDouble(slot, e.valueData.value.getDouble())));
     }
 
     private static DoubleEntry getEntry(NetworkTableInstance inst, String name, double defaultValue) {
@@ -54,12 +70,20 @@ public class Mutable implements DoubleSupplier {
         return entry;
     }
 
-    /** Use this in tests to avoid mixing values */
+    /**
+     * Use this in tests to avoid mixing values. This also clears the Settings
+     * slots and callbacks; a Mutable made before this just supplies its default.
+     */
     public static void unpublishAll() {
+        for (int listener : ALL_LISTENERS) {
+            NetworkTableInstance.getDefault().removeListener(listener);
+        }
+        ALL_LISTENERS.clear();
         for (DoubleEntry e : ALL_ENTRIES.values()) {
             e.unpublish();
         }
         ALL_ENTRIES.clear();
+        Settings.clearDoubles();
     }
 
     /** if you don't care to subscribe to changes */
@@ -68,19 +92,13 @@ public class Mutable implements DoubleSupplier {
         });
     }
 
-    /** Supply the current value. */
+    /** Supply the current value, which is constant for the whole cycle. */
     @Override
     public double getAsDouble() {
-        return m_cache.getAsDouble();
-    }
-
-    /** Updates the cache and also notifies the consumer. */
-    private double update() {
-        double[] queue = m_entry.readQueueValues();
-        double val = m_entry.get();
-        if (queue.length > 0)
-            m_onChange.accept(val);
-        return val;
+        Settings.Snapshot settings = Settings.get();
+        if (settings.doubleGeneration() != m_generation)
+            return m_default;
+        return settings.getDouble(m_slot);
     }
 
 }
@@ -2,57 +2,124 @@ package org.team100.lib.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
-import org.team100.lib.util.TrailingHistory.ValueRecord;
+import org.team100.lib.util.TrailingHistory.Entry;
 
 /**
  * A collection that combines new entries with old ones if they're close enough.
- * 
- * This is brute-force, iterating through the whole collection on every write,
- * so don't let it get too large.
+ *
+ * Entries are also indexed by a uniform grid, with cells the size of the
+ * nearness threshold, so each write only needs to look at the nine cells
+ * around the new entry, not the whole collection.
+ *
+ * Without a position (e.g. for values that aren't in the plane), everything is
+ * in one cell, which is brute force, so don't let it get too large.
+
+ *
+ * Targets used to use this; it now uses TargetTracker, which also estimates
+ * velocity, so nothing in lib uses it at the moment.
  */
 public class CoalescingCollection<T> {
 
     private final TrailingHistory<T> m_delegate;
     /** True if items should be combined. */
     private final BiPredicate<T, T> m_near;
-    /**  */
+    /** Makes one item out of several. */
     private final Function<Collection<T>, T> m_combine;
+    private final ToDoubleFunction<T> m_x;
+    private final ToDoubleFunction<T> m_y;
+    /** Grid cell size, at least the nearness threshold. */
+    private final double m_cell;
+    /** Entries by cell; may contain removed entries, which are pruned lazily. */
+    private final Map<Long, List<Entry<T>>> m_grid;
+    /** Reused for each add. */
+    private final List<T> m_neighbors;
+    /** Number of entries in the grid, including removed ones. */
+    private int m_gridCount;
 
+    /**
+     * Brute force: every write checks every entry.
+     */
     public CoalescingCollection(
             TrailingHistory<T> delegate,
             BiPredicate<T, T> near,
             Function<Collection<T>, T> combine) {
+        this(delegate, near, combine, x -> 0, x -> 0, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Spatial hash: each write checks only nearby entries.
+     *
+     * @param x    position of an item
+     * @param y    position of an item
+     * @param cell grid cell size; items closer than this may be near, items
+     *             farther must not be.
+     */
+    public CoalescingCollection(
+            TrailingHistory<T> delegate,
+            BiPredicate<T, T> near,
+            Function<Collection<T>, T> combine,
+            ToDoubleFunction<T> x,
+            ToDoubleFunction<T> y,
+            double cell) {
         m_delegate = delegate;
         m_near = near;
         m_combine = combine;
+        m_x = x;
+        m_y = y;
+        m_cell = cell;
+        m_grid = new HashMap<>();
+        m_neighbors = new ArrayList<>();
     }
 
     public void add(double time, T value) {
-        List<T> neighbors = new ArrayList<>();
-        neighbors.add(value);
-        Iterator<ValueRecord<T>> iter = m_delegate.iterator();
-        while (iter.hasNext()) {
-            ValueRecord<T> vr = iter.next();
-            T v = vr.value();
-            if (m_near.test(v, value)) {
-                iter.remove();
-                neighbors.add(v);
+        m_neighbors.clear();
+        m_neighbors.add(value);
+        int cx = cell(m_x.applyAsDouble(value));
+        int cy = cell(m_y.applyAsDouble(value));
+        for (int ix = cx - 1; ix <= cx + 1; ++ix) {
+            for (int iy = cy - 1; iy <= cy + 1; ++iy) {
+                List<Entry<T>> entries = m_grid.get(key(ix, iy));
+                if (entries == null)
+                    continue;
+                for (int i = entries.size() - 1; i >= 0; --i) {
+                    Entry<T> e = entries.get(i);
+                    if (e.removed) {
+                        removeAt(entries, i);
+                    } else if (m_near.test(e.value, value)) {
+                        m_delegate.remove(e);
+                        removeAt(entries, i);
+                        m_neighbors.add(e.value);
+                    }
+                }
+                if (entries.isEmpty())
+                    m_grid.remove(key(ix, iy));
             }
         }
-        T rep = m_combine.apply(neighbors);
-        m_delegate.add(time, rep);
+        T rep = m_combine.apply(m_neighbors);
+        m_delegate.cleanup(time);
+        Entry<T> entry = m_delegate.insert(new Entry<>(time, rep));
+        m_grid.computeIfAbsent(
+                key(cell(m_x.applyAsDouble(rep)), cell(m_y.applyAsDouble(rep))),
+                k -> new ArrayList<>()).add(entry);
+        m_gridCount++;
+        if (m_gridCount > 2 * m_delegate.size() + 64)
+            prune();
     }
 
     public void addAll(double time, Collection<T> values) {
-        // this does unnecesary extra work
-        values.forEach(v -> add(time, v));
+        for (T v : values) {
+            add(time, v);
+        }
     }
 
+    /** Current values; see TrailingHistory.getAll(). */
     public List<T> getAll() {
         return m_delegate.getAll();
     }
@@ -61,4 +128,34 @@ public class CoalescingCollection<T> {
         return m_delegate.size();
     }
 
+    /////////////////////////////////
+
+    /** Evicted entries stay in cells nobody looks at; clean them out. */
+    private void prune() {
+        m_grid.values().removeIf(entries -> {
+            for (int i = entries.size() - 1; i >= 0; --i) {
+                if (entries.get(i).removed)
+                    removeAt(entries, i);
+            }
+            return entries.isEmpty();
+        });
+    }
+
+    private int cell(double v) {
+        if (Double.isInfinite(m_cell))
+            return 0;
+        return (int) Math.floor(v / m_cell);
+    }
+
+    private static Long key(int ix, int iy) {
+        return ((long) ix << 32) | (iy & 0xFFFFFFFFL);
+    }
+
+    /** Order doesn't matter, so swap with the last one. */
+    private void removeAt(List<Entry<T>> list, int i) {
+        int last = list.size() - 1;
+        list.set(i, list.get(last));
+        list.remove(last);
+        m_gridCount--;
+    }
 }
@@ -2,64 +2,197 @@ package org.team100.lib.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
 
 /**
  * A collection that evicts old entries.
+ *
+ * Entries are kept in time order in a ring, so eviction just advances the
+ * head. Entries are almost always added in order; an out-of-order entry is
+ * inserted in its place, which is slower.
+ *
+ * Removal (via the iterator, or by CoalescingCollection) just marks the entry;
+ * marked entries are skipped, and dropped when they reach the head.
  */
 public class TrailingHistory<T> {
     public record ValueRecord<T>(double time, T value) {
     };
 
+    /** An entry in the ring; mutable so it can be marked removed. */
+    static final class Entry<T> {
+        final double time;
+        final T value;
+        boolean removed;
+
+        Entry(double time, T value) {
+            this.time = time;
+            this.value = value;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
     /** Entry timeout in seconds */
     private final double m_timeout;
-    private final List<ValueRecord<T>> m_entries;
+    /** Ring of entries, oldest at m_head. */
+    private Entry<T>[] m_ring;
+    private int m_head;
+    /** Occupied slots, including removed entries. */
+    private int m_slots;
+    /** Entries not removed. */
+    private int m_size;
+    /** Cached result of getAll(), null if there have been changes. */
+    private List<T> m_view;
 
     /**
      * @param timeout in seconds
      */
     public TrailingHistory(double timeout) {
         m_timeout = timeout;
-        m_entries = new ArrayList<ValueRecord<T>>();
+        m_ring = newRing(INITIAL_CAPACITY);
     }
 
     /** Remove stale entries and add the new value. */
     public void add(double time, T value) {
         cleanup(time);
-        m_entries.add(new ValueRecord<>(time, value));
+        insert(new Entry<>(time, value));
     }
 
     /** Remove stale entries and all the values. */
     public void addAll(double time, Collection<T> values) {
         cleanup(time);
-        m_entries.addAll(
-                values.stream()
-                        .map((x) -> new ValueRecord<>(time, x))
-                        .collect(Collectors.toList()));
+        for (T value : values) {
+            insert(new Entry<>(time, value));
+        }
     }
 
+    /**
+     * Current values, oldest first. The list is unmodifiable, and is reused
+     * until the next change, so calling this repeatedly is cheap.
+     */
     public List<T> getAll() {
-        return m_entries.stream()
-                .map((x) -> x.value)
-                .collect(Collectors.toUnmodifiableList());
+        if (m_view == null) {
+            List<T> values = new ArrayList<>(m_size);
+            for (int i = 0; i < m_slots; ++i) {
+                Entry<T> e = at(i);
+                if (!e.removed)
+                    values.add(e.value);
+            }
+            m_view = Collections.unmodifiableList(values);
+        }
+        return m_view;
     }
 
     /** Mutating iterator for filtering. */
     public Iterator<ValueRecord<T>> iterator() {
-        return m_entries.iterator();
+        return new Iterator<>() {
+            private int m_next = advance(0);
+            private Entry<T> m_last;
+
+            @Override
+            public boolean hasNext() {
+                return m_next < m_slots;
+            }
+
+            @Override
+            public ValueRecord<T> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                m_last = at(m_next);
+                m_next = advance(m_next + 1);
+                return new ValueRecord<>(m_last.time, m_last.value);
+            }
+
+            @Override
+            public void remove() {
+                if (m_last == null)
+                    throw new IllegalStateException();
+                TrailingHistory.this.remove(m_last);
+                m_last = null;
+            }
+
+            private int advance(int i) {
+                while (i < m_slots && at(i).removed)
+                    ++i;
+                return i;
+            }
+        };
     }
 
     public int size() {
-        return m_entries.size();
+        return m_size;
     }
 
     //////////////////
 
-    private void cleanup(double time) {
+    /** Mark the entry removed. */
+    void remove(Entry<T> e) {
+        if (e.removed)
+            return;
+        e.removed = true;
+        m_size--;
+        m_view = null;
+    }
+
+    /** Add the entry, returning it, without cleanup. */
+    Entry<T> insert(Entry<T> e) {
+        if (m_slots == m_ring.length)
+            grow();
+        // find the place, from the tail; usually that's the tail itself.
+        int i = m_slots;
+        while (i > 0 && at(i - 1).time > e.time) {
+            set(i, at(i - 1));
+            --i;
+        }
+        set(i, e);
+        m_slots++;
+        m_size++;
+        m_view = null;
+        return e;
+    }
+
+    /** Drop entries older than the timeout, and removed ones, from the head. */
+    void cleanup(double time) {
         double horizon = time - m_timeout;
-        m_entries.removeIf(x -> x.time < horizon);
+        while (m_slots > 0) {
+            Entry<T> e = m_ring[m_head];
+            if (e.removed) {
+                // already counted
+            } else if (e.time < horizon) {
+                e.removed = true;
+                m_size--;
+                m_view = null;
+            } else {
+                break;
+            }
+            m_ring[m_head] = null;
+            m_head = (m_head + 1) & (m_ring.length - 1);
+            m_slots--;
+        }
+    }
+
+    private Entry<T> at(int i) {
+        return m_ring[(m_head + i) & (m_ring.length - 1)];
     }
 
+    private void set(int i, Entry<T> e) {
+        m_ring[(m_head + i) & (m_ring.length - 1)] = e;
+    }
+
+    private void grow() {
+        Entry<T>[] ring = newRing(m_ring.length * 2);
+        for (int i = 0; i < m_slots; ++i) {
+            ring[i] = at(i);
+        }
+        m_ring = ring;
+        m_head = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newRing(int capacity) {
+        return (Entry<T>[]) new Entry<?>[capacity];
+    }
 }
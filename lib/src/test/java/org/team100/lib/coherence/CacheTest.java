@@ -0,0 +1,170 @@
+package org.team100.lib.coherence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.testing.Timeless;
+
+public class CacheTest implements Timeless {
+    private static final boolean DEBUG = false;
+
+    /** Forget the prefetched caches from other tests. */
+    @BeforeEach
+    void clear() {
+        Cache.clear();
+    }
+
+    /** Lazy caches compute on the first read in each cycle, and only then. */
+    @Test
+    void testLazy() {
+        int[] calls = new int[1];
+        ObjectCache<Integer> c = Cache.of(() -> ++calls[0]);
+        stepTime();
+        // nobody asked
+        assertEquals(0, calls[0]);
+        assertEquals(1, c.get());
+        assertEquals(1, c.get());
+        assertEquals(1, calls[0]);
+        stepTime();
+        stepTime();
+        // skipped cycles cost nothing
+        assertEquals(1, calls[0]);
+        assertEquals(2, c.get());
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    void testDouble() {
+        int[] calls = new int[1];
+        DoubleCache c = Cache.ofDouble(() -> ++calls[0]);
+        stepTime();
+        assertEquals(1, c.getAsDouble());
+        assertEquals(1, c.getAsDouble());
+        stepTime();
+        assertEquals(2, c.getAsDouble());
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    void testSideEffect() {
+        int[] calls = new int[1];
+        SideEffect s = Cache.ofSideEffect(() -> calls[0]++);
+        stepTime();
+        s.run();
+        s.run();
+        assertEquals(1, calls[0]);
+        stepTime();
+        s.run();
+        assertEquals(2, calls[0]);
+    }
+
+    /** Reset and set override the epoch. */
+    @Test
+    void testResetAndSet() {
+        int[] calls = new int[1];
+        ObjectCache<Integer> c = Cache.of(() -> ++calls[0]);
+        stepTime();
+        assertEquals(1, c.get());
+        c.reset();
+        assertEquals(2, c.get());
+        c.set(10);
+        assertEquals(10, c.get());
+        assertEquals(2, calls[0]);
+        stepTime();
+        assertEquals(3, c.get());
+    }
+
+    /** Prefetched caches compute in refresh(), before anyone asks. */
+    @Test
+    void testPrefetched() {
+        int[] calls = new int[1];
+        DoubleCache c = Cache.ofDoublePrefetched(() -> ++calls[0]);
+        stepTime();
+        assertEquals(1, calls[0]);
+        assertEquals(1, c.getAsDouble());
+        assertEquals(1, calls[0]);
+        stepTime();
+        assertEquals(2, calls[0]);
+        assertEquals(2, c.getAsDouble());
+    }
+
+    /** Ending a prefetched cache stops the prefetch, but it still works. */
+    @Test
+    void testEnd() {
+        int[] calls = new int[1];
+        ObjectCache<Integer> c = Cache.ofPrefetched(() -> ++calls[0]);
+        stepTime();
+        assertEquals(1, calls[0]);
+        c.end();
+        stepTime();
+        assertEquals(1, calls[0]);
+        assertEquals(2, c.get());
+    }
+
+    /** Refresh alone starts a new epoch, e.g. for tests that don't use Takt. */
+    @Test
+    void testRefresh() {
+        int[] calls = new int[1];
+        ObjectCache<Integer> c = Cache.of(() -> ++calls[0]);
+        assertEquals(1, c.get());
+        Cache.refresh();
+        assertEquals(2, c.get());
+    }
+
+    @Test
+    void testCounters() {
+        ObjectCache<Integer> lazy = Cache.of(() -> 1);
+        Cache.ofPrefetched(() -> 2);
+        stepTime();
+        lazy.get();
+        lazy.get();
+        lazy.get();
+        stepTime();
+        // counts from the previous cycle.
+        assertEquals(2, Cache.hits());
+        assertEquals(1, Cache.misses());
+        assertEquals(1, Cache.prefetches());
+    }
+
+    /** Reads from several threads at once, e.g. ParallelPeriodic, all count. */
+    @Test
+    void testCountersFromThreads() throws InterruptedException {
+        DoubleCache c = Cache.ofDouble(() -> 1);
+        stepTime();
+        final int THREADS = 4;
+        final int READS = 100000;
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < READS; ++j) {
+                    c.getAsDouble();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        stepTime();
+        // racing readers may each miss once, but nothing is lost.
+        assertEquals(THREADS * READS, Cache.hits() + Cache.misses());
+    }
+
+    @Test
+    void testPerformance() {
+        ObjectCache<Integer> c = Cache.of(() -> 1);
+        stepTime();
+        int iterations = 10000000;
+        long startNs = System.nanoTime();
+        int total = 0;
+        for (int i = 0; i < iterations; ++i) {
+            total += c.get();
+        }
+        long endNs = System.nanoTime();
+        assertEquals(iterations, total);
+        if (DEBUG) {
+            System.out.printf("ns per read %.2f\n", (double) (endNs - startNs) / iterations);
+        }
+    }
+}
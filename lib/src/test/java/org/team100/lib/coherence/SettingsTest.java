@@ -0,0 +1,137 @@
+package org.team100.lib.coherence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.logging.Level;
+
+public class SettingsTest {
+    private static final boolean DEBUG = false;
+
+    @Test
+    void testDouble() {
+        int[] calls = new int[1];
+        int slot = Settings.registerDouble(1.0, x -> calls[0]++);
+        // registration is immediate
+        assertEquals(1.0, Settings.get().getDouble(slot));
+        Settings.setDouble(slot, 2.0);
+        // changes wait for the update
+        assertEquals(1.0, Settings.get().getDouble(slot));
+        assertEquals(0, calls[0]);
+        Settings.update();
+        assertEquals(2.0, Settings.get().getDouble(slot));
+        assertEquals(1, calls[0]);
+        assertEquals(1, Settings.applied());
+        // same value again: no callback
+        Settings.setDouble(slot, 2.0);
+        Settings.update();
+        assertEquals(1, calls[0]);
+        // nothing pending
+        Settings.update();
+        assertEquals(0, Settings.applied());
+    }
+
+    @Test
+    void testClearDoubles() {
+        int[] calls = new int[1];
+        int slot = Settings.registerDouble(1.0, x -> calls[0]++);
+        int generation = Settings.get().doubleGeneration();
+        Settings.clearDoubles();
+        assertTrue(Settings.get().doubleGeneration() != generation);
+        // a late write to the old slot is ignored
+        Settings.setDouble(slot, 2.0);
+        Settings.update();
+        assertEquals(0, calls[0]);
+        // slots start over
+        assertEquals(0, Settings.registerDouble(3.0, x -> {
+        }));
+        assertEquals(3.0, Settings.get().getDouble(0));
+    }
+
+    @Test
+    void testSnapshotIsStable() {
+        int slot = Settings.registerDouble(1.0, x -> {
+        });
+        Settings.Snapshot snapshot = Settings.get();
+        Settings.setDouble(slot, 5.0);
+        Settings.update();
+        // the old snapshot doesn't change
+        assertEquals(1.0, snapshot.getDouble(slot));
+        assertEquals(5.0, Settings.get().getDouble(slot));
+    }
+
+    @Test
+    void testExperimentAndLevel() {
+        Settings.initExperiment(Experiment.FlushOften, false);
+        assertFalse(Settings.get().enabled(Experiment.FlushOften));
+        Settings.setExperiment(Experiment.FlushOften, true);
+        Settings.update();
+        assertTrue(Settings.get().enabled(Experiment.FlushOften));
+        Settings.initExperiment(Experiment.FlushOften, false);
+
+        Level prev = Settings.get().level();
+        Settings.setLevel(Level.COMP);
+        Settings.update();
+        assertEquals(Level.COMP, Settings.get().level());
+        Settings.initLevel(prev);
+    }
+
+    @Test
+    void testSubtreeLevel() {
+        Settings.initLevel("log/Drive", Level.TRACE);
+        assertEquals(Level.TRACE, Settings.get().level("log/Drive"));
+        assertEquals(Level.TRACE, Settings.get().level("log/Drive/SwerveLocal"));
+        assertEquals(null, Settings.get().level("log/Arm"));
+        // not a path prefix, just a string prefix
+        assertEquals(null, Settings.get().level("log/Drivetrain"));
+
+        // the longest subtree wins; changes wait for the update
+        int generation = Settings.levelGeneration();
+        Settings.setLevel("log/Drive/SwerveLocal/*", Level.COMP);
+        assertEquals(Level.TRACE, Settings.get().level("log/Drive/SwerveLocal/x"));
+        assertEquals(generation, Settings.levelGeneration());
+        Settings.update();
+        assertEquals(Level.COMP, Settings.get().level("log/Drive/SwerveLocal/x"));
+        assertEquals(Level.TRACE, Settings.get().level("log/Drive/Other"));
+        assertTrue(Settings.levelGeneration() != generation);
+
+        // removal
+        Settings.setLevel("log/Drive/SwerveLocal", null);
+        Settings.update();
+        assertEquals(Level.TRACE, Settings.get().level("log/Drive/SwerveLocal/x"));
+        Settings.initLevel("log/Drive", null);
+        assertEquals(null, Settings.get().level("log/Drive"));
+    }
+
+    /**
+     * The point of the snapshot is that reading is cheap; before, each Mutable
+     * did two NT reads per cycle (readQueueValues() and get()), and each log
+     * call read the level chooser.
+     */
+    @Test
+    void testReadPerformance() {
+        final int N = 100;
+        int[] slots = new int[N];
+        for (int i = 0; i < N; ++i) {
+            slots[i] = Settings.registerDouble(i, x -> {
+            });
+        }
+        final int ITERATIONS = 100000;
+        double total = 0;
+        long startNs = System.nanoTime();
+        for (int j = 0; j < ITERATIONS; ++j) {
+            Settings.update();
+            for (int i = 0; i < N; ++i) {
+                total += Settings.get().getDouble(slots[i]);
+            }
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        if (DEBUG)
+            System.out.printf("ns per read %.2f (total %f)\n",
+                    (double) elapsedNs / ((long) N * ITERATIONS), total);
+        assertEquals(0, Settings.applied());
+    }
+}
@@ -0,0 +1,47 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AppCdsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testStale() throws IOException {
+        File jar = dir.resolve("robot.jar").toFile();
+        File archive = dir.resolve("robot.jsa").toFile();
+        assertTrue(jar.createNewFile());
+        jar.setLastModified(1000000);
+        // missing
+        assertTrue(AppCds.isStale(archive, jar));
+        assertTrue(archive.createNewFile());
+        // older than the jar
+        archive.setLastModified(900000);
+        assertTrue(AppCds.isStale(archive, jar));
+        // newer
+        archive.setLastModified(1100000);
+        assertFalse(AppCds.isStale(archive, jar));
+    }
+
+    @Test
+    void testCommand() {
+        File jar = new File("/home/lvuser/robot.jar");
+        List<String> cmd = AppCds.command(jar, new File("a.jsa"), new File("a.classlist"));
+        assertTrue(cmd.contains("-Xshare:dump"));
+        assertTrue(cmd.contains("-XX:SharedArchiveFile=a.jsa"));
+        assertTrue(cmd.contains("-XX:SharedClassListFile=a.classlist"));
+        // the classpath is last, and it's exactly the jar.
+        assertEquals(jar.getPath(), cmd.get(cmd.size() - 1));
+        assertEquals("-cp", cmd.get(cmd.size() - 2));
+    }
+}
@@ -0,0 +1,266 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.controller.r1.PIDFeedback;
+import org.team100.lib.controller.r3.ControllerFactoryR3;
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.experiments.Experiments;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.primitive.CountingPrimitiveLogger;
+import org.team100.lib.mechanism.RotaryMechanism;
+import org.team100.lib.motor.sim.SimulatedBareMotor;
+import org.team100.lib.profile.incremental.TrapezoidIncrementalProfile;
+import org.team100.lib.reference.r1.IncrementalProfileReferenceR1;
+import org.team100.lib.sensor.position.absolute.sim.SimulatedRotaryPositionSensor;
+import org.team100.lib.servo.AngularPositionServo;
+import org.team100.lib.servo.OnboardAngularPositionServo;
+import org.team100.lib.state.Model100;
+import org.team100.lib.subsystems.r3.commands.test.DriveWithTrajectory;
+import org.team100.lib.subsystems.swerve.Fixture;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+import org.team100.lib.visualization.TrajectoryVisualization;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Deterministic performance tests: instead of timing things, which is noisy,
+ * count the work, and fail if it exceeds the budget.
+ *
+ * The scenario is a few seconds of the control loop: the simulated drive
+ * follows trajectories out and back, with vision sights every few cycles, while
+ * an arm moves back and forth on its profile.
+ *
+ * If you make something cheaper, lower the budget, so it stays that way. If you
+ * make something more expensive on purpose, raise it, and say why in the
+ * commit. Turn on DEBUG to see the measurements.
+ */
+class ControlLoopBudgetTest implements Timeless {
+    private static final boolean DEBUG = false;
+
+    /**
+     * Heap allocation on the main thread, per cycle, averaged after warmup.
+     * Measured 13.9 KB, mostly log suppliers and state records, and the same
+     * within a few bytes with -Xint, with C1 only, and with C2, so at this
+     * length the JIT doesn't change it. Budget is about 15% over.
+     */
+    private static final double BYTES_PER_CYCLE = 16 * 1024;
+    /**
+     * Constraint calls per sample, per constraint, in schedule generation: a
+     * velocity and an acceleration call forward, and an acceleration call
+     * backward where the forward pass was too fast. Measured 2.14. Budget is
+     * about 15% over.
+     */
+    private static final double EVALUATIONS_PER_SAMPLE = 2.5;
+    /**
+     * History entries replayed per sight: the sight is VISION_LATENCY_S old, so
+     * only the entries after it, at 50 Hz, should be replayed, not the whole
+     * buffer. Measured 3.00, which is exact: 0.05 s at 50 Hz spans three
+     * entries.
+     */
+    private static final double REPLAYED_PER_SIGHT = 3;
+    /**
+     * Log calls, i.e. NT publishes, per cycle, averaged. Measured 213.2, of
+     * which 145.6 are the swerve modules, 18 the controller, and the rest the
+     * drive, the arm, and the command. Budget is 20% over.
+     */
+    private static final double PUBLISHES_PER_CYCLE = 256;
+    /**
+     * Estimated NT bytes per cycle, averaged, including message headers.
+     * Measured 5254, about 25 bytes per publish. Budget is 20% over.
+     */
+    private static final double NT_BYTES_PER_CYCLE = 6400;
+
+    private static final int WARMUP_CYCLES = 100;
+    private static final int CYCLES = 400;
+    /** Replan this often, whether or not the trajectory is done. */
+    private static final int LEG_CYCLES = 150;
+    private static final int VISION_PERIOD = 5;
+    private static final double VISION_LATENCY_S = 0.05;
+    private static final double[] STATE_SIGMA = new double[] { 0.1, 0.1, 0.1 };
+    private static final double[] VISION_SIGMA = new double[] { 0.5, 0.5, Double.MAX_VALUE };
+
+    /** Counts calls to the wrapped constraint. */
+    private static class CountingConstraint implements TimingConstraint {
+        private final TimingConstraint m_constraint;
+        private long m_count;
+
+        CountingConstraint(TimingConstraint constraint) {
+            m_constraint = constraint;
+        }
+
+        @Override
+        public NonNegativeDouble getMaxVelocity(Pose2dWithMotion state) {
+            m_count++;
+            return m_constraint.getMaxVelocity(state);
+        }
+
+        @Override
+        public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocityM_S) {
+            m_count++;
+            return m_constraint.getMinMaxAcceleration(state, velocityM_S);
+        }
+    }
+
+    @Test
+    void testBudget() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Experiments.instance.testOverride(Experiment.UseSetpointGenerator, true);
+        CountingPrimitiveLogger publishes = new CountingPrimitiveLogger();
+        Fixture fixture = new Fixture(publishes);
+        try {
+            LoggerFactory logger = fixture.logger;
+            TrajectoryVisualization viz = new TrajectoryVisualization(logger);
+
+            List<CountingConstraint> constraints = new ArrayList<>();
+            for (TimingConstraint c : new TimingConstraintFactory(fixture.swerveKinodynamics).allGood(logger)) {
+                constraints.add(new CountingConstraint(c));
+            }
+            TrajectoryPlanner planner = new TrajectoryPlanner(new ArrayList<>(constraints));
+
+            SimulatedBareMotor motor = new SimulatedBareMotor(logger, 600);
+            RotaryMechanism mech = new RotaryMechanism(
+                    logger, motor, new SimulatedRotaryPositionSensor(logger, motor.encoder(), 165),
+                    165, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            IncrementalProfileReferenceR1 ref = new IncrementalProfileReferenceR1(
+                    logger, new TrapezoidIncrementalProfile(logger, 8, 8, 0.001), 0.05, 0.05);
+            AngularPositionServo arm = new OnboardAngularPositionServo(
+                    logger, mech, ref, new PIDFeedback(logger, 4.5, 0.0, 0.000, false, 0.05, 1));
+            arm.reset();
+            ref.init(new Model100(arm.getWrappedPositionRad(), 0));
+
+            List<Pose2d> goals = List.of(
+                    new Pose2d(2, 1, Rotation2d.kCCW_Pi_2),
+                    Pose2d.kZero);
+            int goal = 0;
+            long evaluations = 0;
+            long samples = 0;
+            DriveWithTrajectory command = null;
+
+            long bytes = 0;
+            long publishCount = 0;
+            long ntBytes = 0;
+            long replayed = 0;
+            int sights = 0;
+            int measured = 0;
+            for (int i = 0; i < WARMUP_CYCLES + CYCLES; ++i) {
+                stepTime();
+                boolean measure = i >= WARMUP_CYCLES;
+                if (i == WARMUP_CYCLES) {
+                    // forget the warmup
+                    logger.publishesPerCycle(2);
+                }
+
+                // planning is not per-cycle, so it's not in the cycle budget.
+                if (i % LEG_CYCLES == 0) {
+                    if (command != null)
+                        command.end(false);
+                    long evaluations0 = count(constraints);
+                    Trajectory100 t = planner.restToRest(
+                            fixture.drive.getPose(), goals.get(goal++ % goals.size()));
+                    assertFalse(t.isEmpty());
+                    evaluations += count(constraints) - evaluations0;
+                    samples += t.length();
+                    command = new DriveWithTrajectory(
+                            logger, fixture.drive, ControllerFactoryR3.test(logger), t, viz);
+                    command.initialize();
+                }
+                publishes.reset();
+                long bytes0 = threads.getCurrentThreadAllocatedBytes();
+
+                fixture.drive.periodic();
+                arm.periodic();
+                if (i % VISION_PERIOD == 0) {
+                    long replayed0 = fixture.odometryUpdater.replayed();
+                    Pose2d pose = fixture.drive.getPose();
+                    fixture.visionUpdater.put(
+                            Takt.get() - VISION_LATENCY_S,
+                            new Pose2d(pose.getX() + 0.05, pose.getY(), pose.getRotation()),
+                            STATE_SIGMA,
+                            VISION_SIGMA);
+                    if (measure) {
+                        replayed += fixture.odometryUpdater.replayed() - replayed0;
+                        sights++;
+                    }
+                }
+                command.execute();
+                arm.setPositionProfiled((i / 75) % 2 == 0 ? 1 : 0, 0);
+
+                if (measure) {
+                    bytes += threads.getCurrentThreadAllocatedBytes() - bytes0;
+                    publishCount += publishes.count();
+                    ntBytes += publishes.bytes();
+                    measured++;
+                }
+            }
+
+            double bytesPerCycle = (double) bytes / measured;
+            double evaluationsPerSample = (double) evaluations / (samples * constraints.size());
+            double replayedPerSight = (double) replayed / sights;
+            double publishesPerCycle = (double) publishCount / measured;
+            double ntBytesPerCycle = (double) ntBytes / measured;
+            if (DEBUG) {
+                System.out.printf("bytes per cycle %.0f (budget %.0f)\n",
+                        bytesPerCycle, BYTES_PER_CYCLE);
+                System.out.printf("trajectories %d samples %d evaluations %d\n",
+                        goal, samples, evaluations);
+                System.out.printf("evaluations per sample per constraint %.2f (budget %.2f)\n",
+                        evaluationsPerSample, EVALUATIONS_PER_SAMPLE);
+                System.out.printf("replayed per sight %.2f (budget %.2f)\n",
+                        replayedPerSight, REPLAYED_PER_SIGHT);
+                System.out.printf("publishes per cycle %.1f, keys %d (budget %.1f)\n",
+                        publishesPerCycle, publishes.keyCount(), PUBLISHES_PER_CYCLE);
+                System.out.printf("NT bytes per cycle %.0f (budget %.0f)\n",
+                        ntBytesPerCycle, NT_BYTES_PER_CYCLE);
+                System.out.printf("publishes per cycle by subtree %s\n",
+                        logger.publishesPerCycle(2));
+            }
+            // make sure the scenario actually did something
+            assertTrue(goal > 1);
+            assertTrue(sights > 0);
+            assertTrue(replayed > 0);
+            assertTrue(publishCount > 0);
+
+            assertTrue(bytesPerCycle <= BYTES_PER_CYCLE,
+                    String.format("bytes per cycle %.0f > %.0f", bytesPerCycle, BYTES_PER_CYCLE));
+            assertTrue(evaluationsPerSample <= EVALUATIONS_PER_SAMPLE,
+                    String.format("evaluations per sample %.2f > %.2f", evaluationsPerSample,
+                            EVALUATIONS_PER_SAMPLE));
+            assertTrue(replayedPerSight <= REPLAYED_PER_SIGHT,
+                    String.format("replayed per sight %.2f > %.2f", replayedPerSight, REPLAYED_PER_SIGHT));
+            assertTrue(publishesPerCycle <= PUBLISHES_PER_CYCLE,
+                    String.format("publishes per cycle %.1f > %.1f", publishesPerCycle, PUBLISHES_PER_CYCLE));
+            assertTrue(ntBytesPerCycle <= NT_BYTES_PER_CYCLE,
+                    String.format("NT bytes per cycle %.0f > %.0f", ntBytesPerCycle, NT_BYTES_PER_CYCLE));
+        } finally {
+            fixture.close();
+        }
+    }
+
+    private static long count(List<CountingConstraint> constraints) {
+        long total = 0;
+        for (CountingConstraint c : constraints) {
+            total += c.m_count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,205 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+public class ParallelPeriodicTest {
+    private static final boolean DEBUG = false;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** Conflicting tasks go in later levels; independent ones share a level. */
+    @Test
+    void testLevels() {
+        Object a = new Object();
+        Object b = new Object();
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 1)) {
+            p.add("write a", () -> {
+            }, Set.of(), Set.of(a));
+            p.add("write b", () -> {
+            }, Set.of(), Set.of(b));
+            assertEquals(1, p.levels());
+            p.add("read a", () -> {
+            }, Set.of(a), Set.of());
+            p.add("read b", () -> {
+            }, Set.of(b), Set.of());
+            assertEquals(2, p.levels());
+            // readers don't conflict with each other
+            p.add("also read a", () -> {
+            }, Set.of(a), Set.of());
+            assertEquals(2, p.levels());
+            // write after read
+            p.add("write a again", () -> {
+            }, Set.of(), Set.of(a));
+            assertEquals(3, p.levels());
+        }
+    }
+
+    /** Sequential mode runs in registration order, actuators last. */
+    @Test
+    void testSequential() {
+        List<String> log = new ArrayList<>();
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 1)) {
+            p.add("a", () -> log.add("a"), Set.of(), Set.of());
+            p.addActuator("out", () -> log.add("out"));
+            p.add("b", () -> log.add("b"), Set.of(), Set.of());
+            p.run();
+            assertEquals(List.of("a", "b", "out"), log);
+            p.run();
+            assertEquals(6, log.size());
+        }
+    }
+
+    /** Conflicting tasks keep their order, even in parallel. */
+    @Test
+    void testOrder() {
+        Object state = new Object();
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 3)) {
+            p.add("first", () -> {
+                sleep(5);
+                log.add("first");
+            }, Set.of(), Set.of(state));
+            p.add("second", () -> log.add("second"), Set.of(state), Set.of());
+            p.add("other", () -> log.add("other"), Set.of(), Set.of());
+            p.addActuator("out", () -> log.add("out"));
+            p.setParallel(true);
+            for (int i = 0; i < 10; ++i) {
+                log.clear();
+                p.run();
+                assertEquals(4, log.size());
+                assertTrue(log.indexOf("first") < log.indexOf("second"));
+                assertEquals("out", log.get(3));
+            }
+        }
+    }
+
+    /**
+     * Independent tasks really do run at the same time: each one waits for the
+     * other, which would time out if they ran one after the other.
+     */
+    @Test
+    void testConcurrent() {
+        CountDownLatch latch = new CountDownLatch(2);
+        boolean[] met = new boolean[2];
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 1)) {
+            p.add("a", () -> met[0] = meet(latch), Set.of(), Set.of());
+            p.add("b", () -> met[1] = meet(latch), Set.of(), Set.of());
+            p.setParallel(true);
+            p.run();
+        }
+        assertTrue(met[0]);
+        assertTrue(met[1]);
+    }
+
+    /** The actuators run on the main thread. */
+    @Test
+    void testActuatorThread() {
+        Thread[] ran = new Thread[1];
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 2)) {
+            p.add("a", () -> sleep(1), Set.of(), Set.of());
+            p.addActuator("out", () -> ran[0] = Thread.currentThread());
+            p.setParallel(true);
+            p.run();
+        }
+        assertEquals(Thread.currentThread(), ran[0]);
+    }
+
+    /** A failure on a worker appears on the main thread, and the loop survives. */
+    @Test
+    void testFailure() {
+        int[] count = new int[1];
+        boolean[] fail = new boolean[] { true };
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 1)) {
+            p.add("bad", () -> {
+                if (fail[0])
+                    throw new IllegalStateException();
+            }, Set.of(), Set.of());
+            p.add("good", () -> count[0]++, Set.of(), Set.of());
+            p.setParallel(true);
+            assertThrows(IllegalStateException.class, p::run);
+            fail[0] = false;
+            p.run();
+            assertEquals(2, count[0]);
+        }
+    }
+
+    @Test
+    void testClosed() {
+        ParallelPeriodic p = new ParallelPeriodic(logger, 1);
+        p.setParallel(true);
+        p.close();
+        assertThrows(IllegalStateException.class, () -> p.setParallel(true));
+    }
+
+    /**
+     * Two equal independent tasks take about half as long in parallel, if there
+     * are two cores.
+     */
+    @Test
+    void testPerformance() {
+        try (ParallelPeriodic p = new ParallelPeriodic(logger, 1)) {
+            p.add("a", () -> spin(1000000), Set.of(), Set.of());
+            p.add("b", () -> spin(1000000), Set.of(), Set.of());
+            for (boolean parallel : new boolean[] { false, true }) {
+                p.setParallel(parallel);
+                for (int i = 0; i < 100; ++i) {
+                    p.run();
+                }
+                p.resetWorst();
+                double totalS = 0;
+                int iterations = 100;
+                for (int i = 0; i < iterations; ++i) {
+                    p.run();
+                    totalS += p.wallS();
+                }
+                if (DEBUG) {
+                    System.out.printf("parallel %5b mean wall %.3f ms worst %.3f ms speedup %.2f\n",
+                            parallel, 1e3 * totalS / iterations, 1e3 * p.worstS(), p.speedup());
+                }
+                assertTrue(p.speedup() > 0);
+            }
+        }
+    }
+
+    /////////////////////////////////////////
+
+    private static boolean meet(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static volatile double sink;
+
+    private static void spin(int n) {
+        double x = 0;
+        for (int i = 0; i < n; ++i) {
+            x += Math.sqrt(i);
+        }
+        sink = x;
+    }
+}
@@ -0,0 +1,103 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.profile.incremental.CompleteProfile;
+import org.team100.lib.profile.incremental.TrapezoidIncrementalProfile;
+import org.team100.lib.subsystems.prr.ElevatorArmWristKinematics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveDriveKinematics100;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+public class WarmupTest {
+    private static final LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @AfterEach
+    void clear() {
+        Warmup.clear();
+    }
+
+    @Test
+    void testRunsEach() {
+        int[] count = new int[2];
+        Warmup.register("a", () -> count[0]++);
+        Warmup.register("b", () -> count[1]++);
+        List<Warmup.Result> results = Warmup.run(5);
+        assertEquals(2, results.size());
+        assertEquals(5, count[0]);
+        assertEquals(5, count[1]);
+        assertEquals("a", results.get(0).name());
+        assertEquals(5, results.get(0).nanos().length);
+    }
+
+    @Test
+    void testFailureSkipped() {
+        Warmup.register("bad", () -> {
+            throw new IllegalStateException();
+        });
+        Warmup.register("good", () -> {
+        });
+        List<Warmup.Result> results = Warmup.run(3);
+        assertEquals(1, results.size());
+        assertEquals("good", results.get(0).name());
+    }
+
+    @Test
+    void testConverged() {
+        assertTrue(new Warmup.Result("x", new long[] { 1000, 100, 110 }).converged());
+        assertFalse(new Warmup.Result("x", new long[] { 1000, 100, 500 }).converged());
+    }
+
+    /** A routine that gets slower at the end is reported as not converged. */
+    @Test
+    void testSlowReported() {
+        int[] count = new int[1];
+        Warmup.register("slow", () -> {
+            if (++count[0] == 5) {
+                long t0 = System.nanoTime();
+                while (System.nanoTime() - t0 < 5000000) {
+                    // spin for 5 ms
+                }
+            }
+        });
+        Warmup.Result r = Warmup.run(5).get(0);
+        assertFalse(r.converged());
+        assertEquals(r.lastNs(), Arrays.stream(r.nanos()).max().getAsLong());
+    }
+
+    @Test
+    void testKinematics() {
+        SwerveDriveKinematics100 k = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        Warmup.register("kinematics", k);
+        List<Warmup.Result> results = Warmup.run(100);
+        assertEquals(1, results.size());
+        assertEquals(100, results.get(0).nanos().length);
+    }
+
+    /** The lib profiles and mechanism kinematics warm up without failing. */
+    @Test
+    void testProfilesAndMechanism() {
+        Warmup.register("complete", new CompleteProfile(
+                log.name("complete"), 2, 6, 4, 5, 50, 50, 0.001));
+        Warmup.register("trapezoid", new TrapezoidIncrementalProfile(
+                log.name("trapezoid"), 1, 2, 0.05));
+        Warmup.register("mech", new ElevatorArmWristKinematics(0.5, 0.343));
+        List<Warmup.Result> results = Warmup.run(10);
+        // a routine that throws is left out
+        assertEquals(3, results.size());
+    }
+}
@@ -0,0 +1,141 @@
+package org.team100.lib.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+class MutablePose2dTest {
+    private static final boolean DEBUG = false;
+    private static final double EPSILON = 1e-12;
+
+    @Test
+    void testExp() {
+        Random random = new Random(0);
+        MutablePose2d m = new MutablePose2d();
+        for (int i = 0; i < 1000; ++i) {
+            Pose2d p = randomPose(random);
+            // include tiny angles, for the series branch
+            double dtheta = (i % 10 == 0) ? 1e-11 : random.nextDouble(-4, 4);
+            Twist2d t = new Twist2d(random.nextDouble(-1, 1), random.nextDouble(-1, 1), dtheta);
+            Pose2d expected = p.exp(t);
+            m.set(p).exp(t.dx, t.dy, t.dtheta);
+            verify(expected, m);
+        }
+    }
+
+    @Test
+    void testLog() {
+        Random random = new Random(1);
+        MutablePose2d a = new MutablePose2d();
+        MutablePose2d b = new MutablePose2d();
+        MutablePose2d scratch = new MutablePose2d();
+        double[] twist = new double[3];
+        for (int i = 0; i < 1000; ++i) {
+            Pose2d p0 = randomPose(random);
+            Pose2d p1 = (i % 10 == 0) ? p0.exp(new Twist2d(0.1, 0.2, 0)) : randomPose(random);
+            Twist2d expected = p0.log(p1);
+            a.set(p0).log(b.set(p1), scratch, twist);
+            assertEquals(expected.dx, twist[0], EPSILON);
+            assertEquals(expected.dy, twist[1], EPSILON);
+            assertEquals(expected.dtheta, twist[2], EPSILON);
+        }
+    }
+
+    @Test
+    void testTransformAndRelative() {
+        Random random = new Random(2);
+        MutablePose2d a = new MutablePose2d();
+        MutablePose2d b = new MutablePose2d();
+        for (int i = 0; i < 1000; ++i) {
+            Pose2d p0 = randomPose(random);
+            Pose2d p1 = randomPose(random);
+            verify(p0.relativeTo(p1), a.set(p0).relativeTo(b.set(p1)));
+            verify(p0.plus(p1.minus(Pose2d.kZero)), a.set(p0).transformBy(b.set(p1)));
+        }
+    }
+
+    @Test
+    void testInterpolate() {
+        Random random = new Random(3);
+        MutablePose2d a = new MutablePose2d();
+        MutablePose2d b = new MutablePose2d();
+        MutablePose2d scratch = new MutablePose2d();
+        double[] twist = new double[3];
+        for (int i = 0; i < 1000; ++i) {
+            Pose2d p0 = randomPose(random);
+            Pose2d p1 = randomPose(random);
+            double t = random.nextDouble(-0.5, 1.5);
+            verify(p0.interpolate(p1, t), a.set(p0).interpolate(b.set(p1), t, scratch, twist));
+        }
+    }
+
+    @Test
+    void testRoundTrip() {
+        Pose2d p = new Pose2d(1, 2, new Rotation2d(3));
+        Pose2d p2 = new MutablePose2d().set(p).toPose2d();
+        assertEquals(p.getX(), p2.getX(), EPSILON);
+        assertEquals(p.getY(), p2.getY(), EPSILON);
+        assertEquals(p.getRotation().getRadians(), p2.getRotation().getRadians(), EPSILON);
+    }
+
+    /**
+     * Allocation per exp(), WPILib vs the kernel. With the kernel, the JIT
+     * eliminates all of it; WPILib makes a Translation2d, two Rotation2ds, a
+     * Transform2d, and the Pose2d result, and a few more inside plus().
+     */
+    @Test
+    void testAllocation() {
+        final int ITERATIONS = 1000000;
+        Pose2d p = new Pose2d(1, 2, new Rotation2d(0.5));
+        Twist2d t = new Twist2d(0.01, 0.002, 0.003);
+        MutablePose2d m = new MutablePose2d();
+        // warm up both, for the JIT
+        double total = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += p.exp(t).getX();
+            total += m.set(p).exp(t.dx, t.dy, t.dtheta).getX();
+        }
+        long b0 = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += p.exp(t).getX();
+        }
+        long b1 = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += m.set(p).exp(t.dx, t.dy, t.dtheta).getX();
+        }
+        long b2 = allocatedBytes();
+        if (DEBUG)
+            System.out.printf("bytes per exp: WPILib %.1f kernel %.1f (total %f)\n",
+                    (double) (b1 - b0) / ITERATIONS,
+                    (double) (b2 - b1) / ITERATIONS,
+                    total);
+    }
+
+    ////////////////////////////
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static Pose2d randomPose(Random random) {
+        return new Pose2d(
+                random.nextDouble(-10, 10),
+                random.nextDouble(-10, 10),
+                new Rotation2d(random.nextDouble(-Math.PI, Math.PI)));
+    }
+
+    private static void verify(Pose2d expected, MutablePose2d actual) {
+        assertEquals(expected.getX(), actual.getX(), EPSILON);
+        assertEquals(expected.getY(), actual.getY(), EPSILON);
+        assertEquals(expected.getRotation().getCos(), actual.getCos(), EPSILON);
+        assertEquals(expected.getRotation().getSin(), actual.getSin(), EPSILON);
+    }
+}
@@ -0,0 +1,121 @@
+package org.team100.lib.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.localization.PoseEstimationHelper;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+
+class MutablePose3dTest {
+    private static final boolean DEBUG = false;
+    private static final double EPSILON = 1e-12;
+
+    @Test
+    void testTransformBy() {
+        Random random = new Random(0);
+        MutablePose3d a = new MutablePose3d();
+        MutablePose3d b = new MutablePose3d();
+        for (int i = 0; i < 1000; ++i) {
+            Pose3d p = randomPose(random);
+            Transform3d t = randomTransform(random);
+            verify(p.transformBy(t), a.set(p).transformBy(b.set(t)).toPose3d());
+        }
+    }
+
+    @Test
+    void testInverse() {
+        Random random = new Random(1);
+        MutablePose3d a = new MutablePose3d();
+        for (int i = 0; i < 1000; ++i) {
+            Transform3d t = randomTransform(random);
+            Transform3d expected = t.inverse();
+            Transform3d actual = a.set(t).inverse().toTransform3d();
+            verify(new Pose3d().transformBy(expected), new Pose3d().transformBy(actual));
+        }
+    }
+
+    /** The kernel version of robotInField matches the WPILib version. */
+    @Test
+    void testRobotInField() {
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; ++i) {
+            Transform3d cameraInRobot = randomTransform(random);
+            Pose3d tagInField = randomPose(random);
+            Transform3d tagInCamera = randomTransform(random);
+            Pose3d expected = tagInField
+                    .transformBy(tagInCamera.inverse())
+                    .transformBy(cameraInRobot.inverse());
+            verify(expected, PoseEstimationHelper.robotInField(cameraInRobot, tagInField, tagInCamera));
+        }
+    }
+
+    @Test
+    void testAllocation() {
+        final int ITERATIONS = 1000000;
+        Transform3d cameraInRobot = new Transform3d(0.1, 0.2, 0.3, new Rotation3d(0.1, 0.2, 0.3));
+        Pose3d tagInField = new Pose3d(5, 4, 1, new Rotation3d(0, 0, 3));
+        Transform3d tagInCamera = new Transform3d(2, 0.5, 0.1, new Rotation3d(0.3, 0.2, 0.1));
+        double total = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += wpi(cameraInRobot, tagInField, tagInCamera).getX();
+            total += PoseEstimationHelper.robotInField(cameraInRobot, tagInField, tagInCamera).getX();
+        }
+        long b0 = MutablePose2dTest.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += wpi(cameraInRobot, tagInField, tagInCamera).getX();
+        }
+        long b1 = MutablePose2dTest.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            total += PoseEstimationHelper.robotInField(cameraInRobot, tagInField, tagInCamera).getX();
+        }
+        long b2 = MutablePose2dTest.allocatedBytes();
+        if (DEBUG)
+            System.out.printf("bytes per robotInField: WPILib %.1f kernel %.1f (total %f)\n",
+                    (double) (b1 - b0) / ITERATIONS,
+                    (double) (b2 - b1) / ITERATIONS,
+                    total);
+    }
+
+    ////////////////////////////
+
+    private static Pose3d wpi(Transform3d cameraInRobot, Pose3d tagInField, Transform3d tagInCamera) {
+        return tagInField.transformBy(tagInCamera.inverse()).transformBy(cameraInRobot.inverse());
+    }
+
+    private static Rotation3d randomRotation(Random random) {
+        return new Rotation3d(
+                random.nextDouble(-Math.PI, Math.PI),
+                random.nextDouble(-1, 1),
+                random.nextDouble(-Math.PI, Math.PI));
+    }
+
+    private static Pose3d randomPose(Random random) {
+        return new Pose3d(
+                random.nextDouble(-10, 10),
+                random.nextDouble(-10, 10),
+                random.nextDouble(-2, 2),
+                randomRotation(random));
+    }
+
+    private static Transform3d randomTransform(Random random) {
+        return new Transform3d(
+                random.nextDouble(-3, 3),
+                random.nextDouble(-3, 3),
+                random.nextDouble(-1, 1),
+                randomRotation(random));
+    }
+
+    private static void verify(Pose3d expected, Pose3d actual) {
+        assertEquals(expected.getX(), actual.getX(), EPSILON);
+        assertEquals(expected.getY(), actual.getY(), EPSILON);
+        assertEquals(expected.getZ(), actual.getZ(), EPSILON);
+        // q and -q are the same rotation
+        double dot = expected.getRotation().getQuaternion().dot(actual.getRotation().getQuaternion());
+        assertEquals(1, Math.abs(dot), EPSILON);
+    }
+}
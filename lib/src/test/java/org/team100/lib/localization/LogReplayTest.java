@@ -0,0 +1,228 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.config.Camera;
+import org.team100.lib.localization.LogReplay.Stats;
+import org.team100.lib.localization.LogReplay.Topics;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StructArrayLogEntry;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+class LogReplayTest implements Timeless {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.01;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    /** Matches the AprilTagRobotLocalizer correction; the robot moves 1 m/s. */
+    private static final double MAGIC_DELAY_S = 0.027;
+
+    @TempDir
+    Path dir;
+
+    /** Drive straight ahead at 1 m/s, odometry only. */
+    @Test
+    void testOdometry() throws IOException {
+        Pose2d start = new Pose2d(1, 4, Rotation2d.kZero);
+        String input = dir.resolve("input.wpilog").toString();
+        write(input, start, 51, false);
+        Stats stats = replay(input, dir.resolve("output.wpilog").toString(), start);
+        if (DEBUG)
+            System.out.println(stats);
+        assertEquals(51, stats.cycles());
+        assertEquals(0, stats.sightings());
+        assertEquals(2, stats.finalPose().getX(), DELTA);
+        assertEquals(4, stats.finalPose().getY(), DELTA);
+        assertEquals(0, stats.finalPose().getRotation().getRadians(), DELTA);
+    }
+
+    /** Older logs have a separate double for each module distance and angle. */
+    @Test
+    void testUnpackedOdometry() throws IOException {
+        Pose2d start = new Pose2d(1, 4, Rotation2d.kZero);
+        String input = dir.resolve("input.wpilog").toString();
+        write(input, start, 51, false, false);
+        Stats stats = replay(input, dir.resolve("output.wpilog").toString(), start);
+        assertEquals(51, stats.cycles());
+        assertEquals(2, stats.finalPose().getX(), DELTA);
+        assertEquals(4, stats.finalPose().getY(), DELTA);
+    }
+
+    /** The output log should have one pose per cycle. */
+    @Test
+    void testOutput() throws IOException {
+        Pose2d start = new Pose2d(1, 4, Rotation2d.kZero);
+        String input = dir.resolve("input.wpilog").toString();
+        String output = dir.resolve("output.wpilog").toString();
+        write(input, start, 51, false);
+        replay(input, output, start);
+        DataLogReader reader = new DataLogReader(output);
+        assertTrue(reader.isValid());
+        int poseEntry = -1;
+        List<Long> timestamps = new ArrayList<>();
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                if (record.getStartData().name.equals("replay/pose"))
+                    poseEntry = record.getStartData().entry;
+                continue;
+            }
+            if (record.isControl())
+                continue;
+            if (record.getEntry() == poseEntry)
+                timestamps.add(record.getTimestamp());
+        }
+        assertEquals(51, timestamps.size());
+        assertEquals(1000000, timestamps.get(0));
+        assertEquals(2000000, timestamps.get(50));
+    }
+
+    /**
+     * The odometry starts in the wrong place, and the camera sees the right
+     * place, so the estimate should move towards the right place.
+     */
+    @Test
+    void testVision() throws IOException {
+        Pose2d start = new Pose2d(1, 4, Rotation2d.kZero);
+        String input = dir.resolve("input.wpilog").toString();
+        write(input, start, 51, true);
+        Pose2d wrong = new Pose2d(1, 4.05, Rotation2d.kZero);
+        Stats stats = replay(input, dir.resolve("output.wpilog").toString(), wrong);
+        if (DEBUG)
+            System.out.println(stats);
+        assertEquals(51, stats.cycles());
+        assertTrue(stats.sightings() > 0);
+        assertEquals(2, stats.finalPose().getX(), DELTA);
+        // closer than it started.
+        double error = Math.abs(stats.finalPose().getY() - 4);
+        assertTrue(error < 0.05, stats.toString());
+    }
+
+    /** A whole match worth of records. */
+    @Test
+    void testPerformance() throws IOException {
+        Pose2d start = new Pose2d(1, 4, Rotation2d.kZero);
+        String input = dir.resolve("input.wpilog").toString();
+        // 150 seconds
+        write(input, start, 7500, true);
+        Stats stats = replay(input, dir.resolve("output.wpilog").toString(), start);
+        if (DEBUG)
+            System.out.printf("records %d wall (s) %6.3f records/s %.0f\n",
+                    stats.records(), stats.wallTimeS(), stats.recordsPerS());
+        assertEquals(7500, stats.cycles());
+    }
+
+    //////////////////////////////////////////////////
+
+    private Stats replay(String input, String output, Pose2d initial) throws IOException {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        LogReplay replay = new LogReplay(
+                logger, kinodynamics, layout, Topics.defaults(), Optional.of(Alliance.Blue));
+        DataLogReader reader = new DataLogReader(input);
+        assertTrue(reader.isValid());
+        try (DataLogWriter writer = new DataLogWriter(output)) {
+            return replay.run(reader, writer, initial);
+        }
+    }
+
+    private static void write(String filename, Pose2d start, int cycles, boolean vision)
+            throws IOException {
+        write(filename, start, cycles, vision, true);
+    }
+
+    /**
+     * Write a log like the robot would, driving straight ahead at 1 m/s,
+     * starting at 1 s.
+     *
+     * @param vision if true, the "test4" camera sees whatever tags are visible,
+     *               every cycle.
+     * @param packed if true, the module positions are one struct, as the robot
+     *               logs them now, otherwise separate doubles, as it used to.
+     */
+    private static void write(String filename, Pose2d start, int cycles, boolean vision, boolean packed)
+            throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        Topics topics = Topics.defaults();
+        try (DataLogWriter log = new DataLogWriter(filename)) {
+            DoubleLogEntry yaw = new DoubleLogEntry(log, topics.yaw());
+            DoubleLogEntry yawRate = new DoubleLogEntry(log, topics.yawRate());
+            String[] modules = { "front left", "front right", "rear left", "rear right" };
+            DoubleLogEntry[] distance = new DoubleLogEntry[4];
+            DoubleLogEntry[] angle = new DoubleLogEntry[4];
+            StructLogEntry<SwerveModulePositions> positions = null;
+            if (packed) {
+                positions = StructLogEntry.create(log, topics.positions(), SwerveModulePositions.struct);
+            } else {
+                for (int i = 0; i < 4; ++i) {
+                    distance[i] = new DoubleLogEntry(log, topics.positions() + "/" + modules[i] + "/distance");
+                    angle[i] = new DoubleLogEntry(log, topics.positions() + "/" + modules[i] + "/angle/rad");
+                }
+            }
+            // something we don't care about
+            DoubleLogEntry other = new DoubleLogEntry(log, "NT:/log/something else");
+            StructArrayLogEntry<Blip24> blips = StructArrayLogEntry.create(
+                    log, topics.vision() + "/test4/0/blips", Blip24.struct);
+            Transform3d cameraOffset = Camera.TEST4.getOffset();
+            for (int c = 0; c < cycles; ++c) {
+                long t = 1000000 + c * 20000L;
+                double x = c * 0.02;
+                // the values are published a little bit apart.
+                yaw.append(0, t);
+                yawRate.append(0, t + 10);
+                if (packed) {
+                    positions.append(new SwerveModulePositions(
+                            module(x), module(x), module(x), module(x)), t + 20);
+                } else {
+                    for (int i = 0; i < 4; ++i) {
+                        distance[i].append(x, t + 20 + i);
+                        angle[i].append(0, t + 30 + i);
+                    }
+                }
+                other.append(c, t + 50);
+                if (vision && c > 1) {
+                    // the frame arrives now, showing the true pose from a while ago.
+                    double xFrame = x - MAGIC_DELAY_S;
+                    Pose3d cameraPose = new Pose3d(new Pose2d(
+                            start.getX() + xFrame, start.getY(), start.getRotation())).plus(cameraOffset);
+                    List<Blip24> seen = new ArrayList<>();
+                    for (int id = 1; id <= 22; ++id) {
+                        Pose3d tagPose = layout.getTagPose(Alliance.Blue, id).get();
+                        Transform3d tagInCamera = SimulatedTagDetector.tagInCamera(cameraPose, tagPose);
+                        if (SimulatedTagDetector.visible(tagInCamera))
+                            seen.add(Blip24.fromXForward(id, tagInCamera));
+                    }
+                    blips.append(seen.toArray(new Blip24[0]), t + 100);
+                }
+            }
+        }
+    }
+
+    private static SwerveModulePosition100 module(double distanceM) {
+        return new SwerveModulePosition100(distanceM, Optional.of(Rotation2d.kZero));
+    }
+}
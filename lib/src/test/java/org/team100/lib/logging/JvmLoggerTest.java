@@ -0,0 +1,74 @@
+package org.team100.lib.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+public class JvmLoggerTest {
+    private static final double DELTA = 1e-9;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testOverlap() {
+        JvmLogger jvm = new JvmLogger(logger);
+        // the constructor doesn't record anything by itself, but a real GC
+        // could happen during the test, so use times far in the future.
+        jvm.record(1000.010, 0.005);
+        jvm.record(1000.050, 0.010);
+        // entirely inside
+        assertEquals(0.005, jvm.gcOverlapS(1000.000, 1000.020), DELTA);
+        // partial
+        assertEquals(0.003, jvm.gcOverlapS(1000.012, 1000.020), DELTA);
+        // both
+        assertEquals(0.015, jvm.gcOverlapS(1000.000, 1000.100), DELTA);
+        // neither
+        assertEquals(0, jvm.gcOverlapS(1000.020, 1000.040), DELTA);
+        jvm.close();
+    }
+
+    @Test
+    void testHistoryWraps() {
+        JvmLogger jvm = new JvmLogger(logger);
+        for (int i = 0; i < 100; ++i) {
+            jvm.record(2000 + i, 0.5);
+        }
+        // old events are forgotten
+        assertEquals(0, jvm.gcOverlapS(2000, 2010), DELTA);
+        // recent ones are not
+        assertEquals(5, jvm.gcOverlapS(2090, 2100), DELTA);
+        jvm.close();
+    }
+
+    @Test
+    void testCycle() {
+        JvmLogger jvm = new JvmLogger(logger);
+        jvm.record(3000.005, 0.010);
+        // an overrun just logs; this shouldn't throw.
+        jvm.cycle(3000, 3000.030, -0.010);
+        jvm.cycle(3000.030, 3000.040, 0.010);
+        jvm.close();
+    }
+
+    @Test
+    void testClose() {
+        JvmLogger jvm = new JvmLogger(logger);
+        assertFalse(jvm.isClosed());
+        jvm.close();
+        assertTrue(jvm.isClosed());
+        // twice is fine
+        jvm.close();
+    }
+
+    @Test
+    void testPause() {
+        assertTrue(JvmLogger.isPause("G1 Young Generation", "end of minor GC"));
+        assertTrue(JvmLogger.isPause("G1 Old Generation", "end of major GC"));
+        assertTrue(JvmLogger.isPause("G1 Concurrent GC", "end of concurrent GC pause"));
+        assertTrue(JvmLogger.isPause("ZGC Pauses", "end of GC pause"));
+        assertFalse(JvmLogger.isPause("ZGC Cycles", "end of GC cycle"));
+        assertFalse(JvmLogger.isPause("Shenandoah Cycles", "end of GC cycle"));
+    }
+}
@@ -0,0 +1,223 @@
+package org.team100.lib.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.coherence.Settings;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.LoggerFactory.Control100Logger;
+import org.team100.lib.logging.LoggerFactory.ControlR3Logger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.Model100Logger;
+import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.LoggerFactory.Rotation2dLogger;
+import org.team100.lib.logging.LoggerFactory.SwerveModulePositionsLogger;
+import org.team100.lib.logging.LoggerFactory.Translation2dLogger;
+import org.team100.lib.logging.primitive.CountingPrimitiveLogger;
+import org.team100.lib.state.Control100;
+import org.team100.lib.state.ControlR3;
+import org.team100.lib.state.Model100;
+import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class LoggerFactoryTest {
+    private static final boolean DEBUG = false;
+
+    /** Composite values are one key and one publish each. */
+    @Test
+    void testStructs() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new TestLoggerFactory(p);
+        Pose2dLogger pose = log.pose2dLogger(Level.TRACE, "pose");
+        ModelR3Logger model = log.modelR3Logger(Level.TRACE, "model");
+        ControlR3Logger control = log.controlR3Logger(Level.TRACE, "control");
+        SwerveModulePositionsLogger positions = log.swerveModulePositionsLogger(Level.TRACE, "positions");
+        assertEquals(4, p.keyCount());
+        pose.log(() -> new Pose2d(1, 2, new Rotation2d(3)));
+        model.log(ModelR3::new);
+        control.log(() -> new ControlR3(new Pose2d()));
+        positions.log(SwerveModulePositions::kZero);
+        assertEquals(4, p.count());
+    }
+
+    /** Level filtering works the same way for structs. */
+    @Test
+    void testLevel() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.COMP, "test", p);
+        Pose2dLogger pose = log.pose2dLogger(Level.TRACE, "pose");
+        pose.log(() -> Pose2d.kZero);
+        assertEquals(0, p.count());
+    }
+
+    /**
+     * The same values, the old way, one double per field, vs the new way, one
+     * struct per value. Each message has a header, so the separate doubles cost
+     * more than twice as much.
+     */
+    @Test
+    void testBytes() {
+        CountingPrimitiveLogger before = new CountingPrimitiveLogger();
+        LoggerFactory beforeLog = new TestLoggerFactory(before);
+        Translation2dLogger translation = beforeLog.translation2dLogger(Level.TRACE, "pose/translation");
+        Rotation2dLogger rotation = beforeLog.rotation2dLogger(Level.TRACE, "pose/rotation");
+        Model100Logger[] model = new Model100Logger[3];
+        Control100Logger[] control = new Control100Logger[3];
+        for (int i = 0; i < 3; ++i) {
+            model[i] = beforeLog.model100Logger(Level.TRACE, "model/" + i);
+            control[i] = beforeLog.control100Logger(Level.TRACE, "control/" + i);
+        }
+        Pose2d p = new Pose2d(1, 2, new Rotation2d(3));
+        translation.log(p::getTranslation);
+        rotation.log(p::getRotation);
+        for (int i = 0; i < 3; ++i) {
+            model[i].log(Model100::new);
+            control[i].log(Control100::new);
+        }
+
+        CountingPrimitiveLogger after = new CountingPrimitiveLogger();
+        LoggerFactory afterLog = new TestLoggerFactory(after);
+        afterLog.pose2dLogger(Level.TRACE, "pose").log(() -> p);
+        afterLog.modelR3Logger(Level.TRACE, "model").log(ModelR3::new);
+        afterLog.controlR3Logger(Level.TRACE, "control").log(() -> new ControlR3(new Pose2d()));
+
+        if (DEBUG) {
+            System.out.printf("before keys %d publishes %d bytes %d\n",
+                    before.keyCount(), before.count(), before.bytes());
+            System.out.printf("after  keys %d publishes %d bytes %d\n",
+                    after.keyCount(), after.count(), after.bytes());
+        }
+        // 3 + 6 + 9 doubles
+        assertEquals(18, before.keyCount());
+        assertEquals(18, before.count());
+        assertEquals(3, after.keyCount());
+        assertEquals(3, after.count());
+        // the payload is the same, the headers aren't.
+        assertEquals(18 * 8, after.bytes() - 3 * CountingPrimitiveLogger.MESSAGE_OVERHEAD);
+        assertTrue(after.bytes() < before.bytes());
+    }
+
+    /** A subtree override changes the level of everything under it, at update. */
+    @Test
+    void testSubtreeLevel() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.COMP, "test", p);
+        DoubleLogger drive = log.name("Drive").name("Module").doubleLogger(Level.TRACE, "x");
+        DoubleLogger arm = log.name("Arm").doubleLogger(Level.TRACE, "x");
+        drive.log(() -> 1);
+        arm.log(() -> 1);
+        assertEquals(0, p.count());
+        try {
+            Settings.setLevel("test/Drive", Level.TRACE);
+            // not yet
+            drive.log(() -> 1);
+            assertEquals(0, p.count());
+            Settings.update();
+            drive.log(() -> 1);
+            arm.log(() -> 1);
+            assertEquals(1, p.count());
+        } finally {
+            Settings.setLevel("test/Drive", null);
+            Settings.update();
+        }
+        drive.log(() -> 1);
+        assertEquals(1, p.count());
+    }
+
+    /** Decimated loggers publish every nth cycle, all in the same cycle. */
+    @Test
+    void testDecimation() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new TestLoggerFactory(p).decimated(5);
+        DoubleLogger a = log.doubleLogger(Level.TRACE, "a");
+        DoubleLogger b = log.name("child").doubleLogger(Level.TRACE, "b");
+        for (int i = 0; i < 100; ++i) {
+            Takt.update();
+            long before = p.count();
+            a.log(() -> 1);
+            b.log(() -> 1);
+            long published = p.count() - before;
+            assertTrue(published == 0 || published == 2);
+        }
+        assertEquals(40, p.count());
+    }
+
+    /** On-change loggers skip repeats, by value. */
+    @Test
+    void testOnChange() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new TestLoggerFactory(p).onChange();
+        DoubleLogger d = log.doubleLogger(Level.TRACE, "d");
+        Pose2dLogger pose = log.name("child").pose2dLogger(Level.TRACE, "pose");
+        for (int i = 0; i < 10; ++i) {
+            d.log(() -> 1);
+            pose.log(() -> new Pose2d(1, 2, new Rotation2d(3)));
+        }
+        assertEquals(2, p.count());
+        d.log(() -> 2);
+        pose.log(() -> Pose2d.kZero);
+        assertEquals(4, p.count());
+        // NaN equals itself here, so it's not republished either
+        d.log(() -> Double.NaN);
+        d.log(() -> Double.NaN);
+        assertEquals(5, p.count());
+    }
+
+    /** The report says where the publishes come from. */
+    @Test
+    void testReport() {
+        CountingPrimitiveLogger p = new CountingPrimitiveLogger();
+        LoggerFactory log = new TestLoggerFactory(p);
+        DoubleLogger drive = log.name("Drive").name("Module").doubleLogger(Level.TRACE, "x");
+        DoubleLogger drive2 = log.name("Drive").doubleLogger(Level.TRACE, "y");
+        DoubleLogger arm = log.name("Arm").doubleLogger(Level.TRACE, "x");
+        log.publishesPerCycle(2);
+        for (int i = 0; i < 10; ++i) {
+            Takt.update();
+            drive.log(() -> 1);
+            drive2.log(() -> 1);
+            if (i % 2 == 0)
+                arm.log(() -> 1);
+        }
+        SortedMap<String, Double> report = log.publishesPerCycle(2);
+        if (DEBUG)
+            System.out.println(report);
+        assertEquals(2, report.size());
+        assertEquals(2.0, report.get("test/Drive"), 1e-9);
+        assertEquals(0.5, report.get("test/Arm"), 1e-9);
+        // counts start over
+        assertTrue(log.publishesPerCycle(2).isEmpty());
+    }
+
+    /** The recorder gets TRACE values, while only COMP values go live. */
+    @Test
+    void testRecorder() {
+        CountingPrimitiveLogger live = new CountingPrimitiveLogger();
+        CountingPrimitiveLogger recorder = new CountingPrimitiveLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.COMP, "test", live, recorder, Level.TRACE);
+        DoubleLogger comp = log.doubleLogger(Level.COMP, "comp");
+        Pose2dLogger trace = log.name("child").pose2dLogger(Level.TRACE, "trace");
+        comp.log(() -> 1);
+        trace.log(() -> Pose2d.kZero);
+        assertEquals(1, live.count());
+        assertEquals(2, recorder.count());
+        // the live side can still change at runtime
+        try {
+            Settings.setLevel("test/child", Level.TRACE);
+            Settings.update();
+            trace.log(() -> Pose2d.kZero);
+            assertEquals(2, live.count());
+            assertEquals(3, recorder.count());
+        } finally {
+            Settings.setLevel("test/child", null);
+            Settings.update();
+        }
+    }
+}
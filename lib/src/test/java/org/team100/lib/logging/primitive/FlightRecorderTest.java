@@ -0,0 +1,186 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleArrayLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStructLogger;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+class FlightRecorderTest implements Timeless {
+    private static final boolean DEBUG = false;
+
+    @TempDir
+    Path dir;
+
+    /** The dump has the last second of each value, in time order. */
+    @Test
+    void testDump() throws IOException {
+        FlightRecorder r = new FlightRecorder(1024 * 1024, 1, dir);
+        PrimitiveDoubleLogger d = r.doubleLogger("test/d");
+        PrimitiveStructLogger<Pose2d> pose = r.structLogger("test/pose", Pose2d.struct);
+        PrimitiveStringLogger s = r.stringLogger("test/s");
+        for (int i = 0; i < 100; ++i) {
+            stepTime();
+            d.log(i);
+            pose.log(new Pose2d(i, 0, Rotation2d.kZero));
+            s.log("hello");
+        }
+        assertEquals(300, r.records());
+        assertTrue(r.dump("test"));
+        r.awaitDump(5000);
+        Map<String, List<DataLogRecord>> records = read(dump());
+        // 1 s at 20 ms, inclusive
+        List<DataLogRecord> doubles = records.get("NT:/test/d");
+        assertEquals(51, doubles.size());
+        for (int i = 0; i < 51; ++i) {
+            assertEquals(49 + i, doubles.get(i).getDouble());
+        }
+        List<DataLogRecord> poses = records.get("NT:/test/pose");
+        assertEquals(51, poses.size());
+        Pose2d last = Pose2d.struct.unpack(
+                ByteBuffer.wrap(poses.get(50).getRaw()).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(99, last.getX());
+        assertEquals("hello", records.get("NT:/test/s").get(0).getString());
+        assertEquals("test", records.get("FlightRecorder/reason").get(0).getString());
+    }
+
+    /** When the ring is full, the oldest values go first. */
+    @Test
+    void testWrap() throws IOException {
+        // 64 blocks of 64 bytes, so two doubles per block.
+        FlightRecorder r = new FlightRecorder(4096, 100, dir);
+        PrimitiveDoubleLogger d = r.doubleLogger("test/d");
+        PrimitiveDoubleArrayLogger a = r.doubleArrayLogger("test/a");
+        for (int i = 0; i < 1000; ++i) {
+            stepTime();
+            d.log(i);
+        }
+        // too big for a block
+        a.log(new double[10]);
+        assertEquals(1, r.dropped());
+        r.dump("wrap");
+        r.awaitDump(5000);
+        List<DataLogRecord> doubles = read(dump()).get("NT:/test/d");
+        // the whole ring: 64 blocks of two.
+        assertEquals(128, doubles.size());
+        for (int i = 0; i < doubles.size(); ++i) {
+            assertEquals(872 + i, doubles.get(i).getDouble());
+        }
+    }
+
+    /** Triggers fire once per streak. */
+    @Test
+    void testTrigger() {
+        boolean[] condition = new boolean[1];
+        FlightRecorder r = new FlightRecorder(4096, 1, dir);
+        r.addTrigger("streak", () -> condition[0], 3);
+        condition[0] = true;
+        r.periodic();
+        r.periodic();
+        assertEquals(0, r.dumps());
+        r.periodic();
+        assertEquals(1, r.dumps());
+        r.periodic();
+        assertEquals(1, r.dumps());
+        r.awaitDump(5000);
+        condition[0] = false;
+        r.periodic();
+        condition[0] = true;
+        r.periodic();
+        r.periodic();
+        r.periodic();
+        assertEquals(2, r.dumps());
+        r.awaitDump(5000);
+    }
+
+    /** After a dump is written, the recorder is ready for another one. */
+    @Test
+    void testAgain() throws IOException {
+        FlightRecorder r = new FlightRecorder(4096, 1, dir);
+        PrimitiveDoubleLogger d = r.doubleLogger("test/d");
+        stepTime();
+        d.log(1);
+        assertTrue(r.dump("first"));
+        r.awaitDump(5000);
+        // the ring starts over after a dump
+        stepTime();
+        d.log(2);
+        assertTrue(r.dump("second"));
+        r.awaitDump(5000);
+        assertEquals(2, r.dumps());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    /** Recording should be cheap enough to do everything, every cycle. */
+    @Test
+    void testPerformance() {
+        FlightRecorder r = new FlightRecorder(4 * 1024 * 1024, 5, dir);
+        final int N = 1000;
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[N];
+        for (int i = 0; i < N; ++i) {
+            loggers[i] = r.doubleLogger("test/" + i);
+        }
+        final int CYCLES = 1000;
+        long startNs = System.nanoTime();
+        for (int j = 0; j < CYCLES; ++j) {
+            for (int i = 0; i < N; ++i) {
+                loggers[i].log(j);
+            }
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        if (DEBUG)
+            System.out.printf("ns per record %.2f\n", (double) elapsedNs / ((long) N * CYCLES));
+        assertEquals((long) N * CYCLES, r.records());
+    }
+
+    /////////////////////////////////////////
+
+    private Path dump() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> list = files.toList();
+            assertEquals(1, list.size());
+            return list.get(0);
+        }
+    }
+
+    /** Records by entry name. */
+    private static Map<String, List<DataLogRecord>> read(Path path) throws IOException {
+        DataLogReader reader = new DataLogReader(path.toString());
+        assertTrue(reader.isValid());
+        Map<Integer, String> names = new HashMap<>();
+        Map<String, List<DataLogRecord>> result = new HashMap<>();
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                names.put(record.getStartData().entry, record.getStartData().name);
+                continue;
+            }
+            if (record.isControl())
+                continue;
+            result.computeIfAbsent(names.get(record.getEntry()), k -> new ArrayList<>()).add(record);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+package org.team100.lib.motor.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MotorPhysicsTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+
+    /** No friction, no current limit. */
+    private static MotorPhysics.Params ideal(double inertia) {
+        return new MotorPhysics.Params(600, 0.1, 0.02, inertia, 0, 0, 1000, 0.2, 50);
+    }
+
+    @Test
+    void testDutyCycle() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(ideal(1e-3));
+        p.setDutyCycle(n, 1);
+        // k = kT kE / (R J) = 4, so the velocity is first-order.
+        p.advanceTo(0.5);
+        assertEquals(600 * (1 - Math.exp(-2)), p.velocity(n), DELTA);
+        // position is the integral
+        double x = 600 * (0.5 - (1 - Math.exp(-2)) / 4);
+        assertEquals(x, p.position(n), DELTA);
+        // eventually, free speed
+        for (int i = 1; i <= 5; ++i) {
+            p.advanceTo(i);
+        }
+        assertEquals(600, p.velocity(n), 0.1);
+        assertEquals(0, p.current(n), 0.01);
+    }
+
+    @Test
+    void testCurrentLimit() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 1e-3, 0, 0, 40, 0.2, 50));
+        p.setDutyCycle(n, 1);
+        p.advanceTo(0.01);
+        // stall current would be 120 A; at 40 A, the accel is 800 rad/s^2
+        assertEquals(40, p.current(n), DELTA);
+        assertEquals(8, p.velocity(n), DELTA);
+    }
+
+    @Test
+    void testVelocity() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(ideal(1e-3));
+        p.setVelocity(n, 300, 0);
+        p.advanceTo(1);
+        // back-EMF feedforward means no steady-state error.
+        assertEquals(300, p.velocity(n), DELTA);
+        p.setVelocity(n, -100, 0);
+        p.advanceTo(2);
+        assertEquals(-100, p.velocity(n), DELTA);
+    }
+
+    @Test
+    void testPosition() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(ideal(1e-3));
+        p.setPosition(n, 10, 0, 0);
+        p.advanceTo(1);
+        assertEquals(10, p.position(n), DELTA);
+        assertEquals(0, p.velocity(n), DELTA);
+        // moving the encoder doesn't move the motor
+        p.resetPosition(n, 0);
+        p.advanceTo(2);
+        assertEquals(0, p.position(n), DELTA);
+    }
+
+    @Test
+    void testFriction() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 1e-3, 0, 0.1, 1000, 0.2, 50));
+        // too weak to overcome friction: 0.01 * 12 V / 0.1 ohm = 1.2 A = 0.024 Nm
+        p.setDutyCycle(n, 0.01);
+        p.advanceTo(1);
+        assertEquals(0, p.velocity(n), DELTA);
+        // spin up and coast down; friction stops it, doesn't reverse it.
+        p.setDutyCycle(n, 1);
+        p.advanceTo(2);
+        assertTrue(p.velocity(n) > 100);
+        p.setDutyCycle(n, 0);
+        p.advanceTo(4);
+        assertEquals(0, p.velocity(n), DELTA);
+    }
+
+    /** The exact integration is stable even for a bare rotor and high gain. */
+    @Test
+    void testStiff() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        int n = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 1e-7, 0, 0, 1000, 10, 50));
+        p.setVelocity(n, 100, 0);
+        p.advanceTo(0.1);
+        assertEquals(100, p.velocity(n), DELTA);
+        p.setPosition(n, 1, 0, 0);
+        p.advanceTo(1);
+        assertEquals(1, p.position(n), DELTA);
+    }
+
+    /** The robot loop period doesn't matter, only the substep. */
+    @Test
+    void testDecoupled() {
+        MotorPhysics a = new MotorPhysics(0.001, 0);
+        MotorPhysics b = new MotorPhysics(0.001, 0);
+        int na = a.add(ideal(1e-3));
+        int nb = b.add(ideal(1e-3));
+        a.setVelocity(na, 300, 0);
+        b.setVelocity(nb, 300, 0);
+        for (int i = 1; i <= 50; ++i) {
+            a.advanceTo(i * 0.02);
+        }
+        b.advanceTo(1.0);
+        assertEquals(1.0, a.time(), 1e-9);
+        assertEquals(b.position(nb), a.position(na), 1e-9);
+        assertEquals(b.velocity(nb), a.velocity(na), 1e-9);
+    }
+
+    /**
+     * Simulated seconds per wall second, for a full drivetrain (eight motors)
+     * plus CalgamesMech (four motors), at 1 kHz.
+     */
+    @Test
+    void testPerformance() {
+        MotorPhysics p = new MotorPhysics(0.001, 0);
+        for (int i = 0; i < 4; ++i) {
+            int drive = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 1.24e-3, 1e-5, 0.01, 60, 0.2, 50));
+            int steer = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 0.005, 1e-5, 0.01, 60, 0.2, 50));
+            p.setVelocity(drive, 300, 0);
+            p.setPosition(steer, 1, 0, 0);
+        }
+        // elevator front and back, shoulder, wrist
+        for (int i = 0; i < 4; ++i) {
+            int n = p.add(new MotorPhysics.Params(600, 0.1, 0.02, 1e-4, 1e-5, 0.01, 60, 0.2, 50));
+            p.setPosition(n, 20, 0, 0.1);
+        }
+        assertEquals(12, p.size());
+        double simS = DEBUG ? 3600 : 10;
+        long startNs = System.nanoTime();
+        // the robot loop is 50 Hz
+        for (double t = 0.02; t <= simS; t += 0.02) {
+            p.advanceTo(t);
+        }
+        double wallS = (System.nanoTime() - startNs) / 1e9;
+        double ratio = simS / wallS;
+        // A substep is a few ns per motor, so this should be thousands; the
+        // margin is for slow CI machines, and the JIT warming up.
+        assertTrue(ratio > 200, "ratio " + ratio);
+        if (DEBUG)
+            System.out.printf("%.0f simulated seconds per wall second\n", ratio);
+    }
+}
@@ -0,0 +1,42 @@
+package org.team100.lib.motor.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.testing.Timeless;
+
+class SimulatedBareMotorTest implements Timeless {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testKinematic() {
+        SimulatedBareMotor motor = new SimulatedBareMotor(logger, 600);
+        motor.setVelocity(300, 0, 0);
+        stepTime();
+        // instant
+        assertEquals(300, motor.getVelocityRad_S(), 1e-6);
+    }
+
+    @Test
+    void testPhysics() {
+        MotorPhysics physics = new MotorPhysics(0.001, Takt.get());
+        SimulatedBareMotor motor = new SimulatedBareMotor(logger, 600, physics, 1e-3);
+        motor.setVelocity(300, 0, 0);
+        stepTime();
+        // current-limited, so not instant
+        assertTrue(motor.getVelocityRad_S() < 100);
+        assertTrue(motor.getCurrent() > 0);
+        for (int i = 0; i < 50; ++i) {
+            motor.setVelocity(300, 0, 0);
+            stepTime();
+        }
+        // friction means a little steady-state error
+        assertEquals(300, motor.getVelocityRad_S(), 0.5);
+        assertTrue(motor.getUnwrappedPositionRad() > 0);
+    }
+}
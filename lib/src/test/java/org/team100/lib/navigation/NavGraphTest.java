@@ -0,0 +1,140 @@
+package org.team100.lib.navigation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.field.FieldConstants;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class NavGraphTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+
+    @Test
+    void testPolygon() {
+        ConvexPolygon square = new ConvexPolygon(
+                new double[] { 0, 1, 1, 0 },
+                new double[] { 0, 0, 1, 1 });
+        assertTrue(square.contains(0.5, 0.5));
+        assertFalse(square.contains(1.5, 0.5));
+        // through the middle
+        assertTrue(square.blocks(-1, 0.5, 2, 0.5));
+        // along an edge doesn't count
+        assertFalse(square.blocks(-1, 0, 2, 0));
+        // touching a corner doesn't count
+        assertFalse(square.blocks(0, 2, 2, 0));
+        // stops short
+        assertFalse(square.blocks(-1, 0.5, -0.1, 0.5));
+        ConvexPolygon big = square.inflate(0.5);
+        assertEquals(-0.5, big.x(0), DELTA);
+        assertEquals(-0.5, big.y(0), DELTA);
+        assertEquals(1.5, big.x(2), DELTA);
+    }
+
+    @Test
+    void testClear() {
+        NavGraph g = NavGraph.build(List.of(), 0.5, 10, 10);
+        List<Translation2d> path = g.search(new Translation2d(1, 1), new Translation2d(9, 9));
+        assertEquals(2, path.size());
+    }
+
+    @Test
+    void testAround() {
+        // a wall in the way
+        ConvexPolygon wall = new ConvexPolygon(
+                new double[] { 4, 6, 6, 4 },
+                new double[] { 0, 0, 6, 6 });
+        NavGraph g = NavGraph.build(List.of(wall), 0.5, 10, 10);
+        List<Translation2d> path = g.search(new Translation2d(1, 1), new Translation2d(9, 1));
+        // over the top of the wall
+        assertEquals(4, path.size());
+        assertEquals(3.48, path.get(1).getX(), 0.01);
+        assertEquals(6.52, path.get(1).getY(), 0.01);
+        assertEquals(6.52, path.get(2).getX(), 0.01);
+        assertEquals(6.52, path.get(2).getY(), 0.01);
+        // start inside the wall
+        assertTrue(g.search(new Translation2d(5, 1), new Translation2d(9, 1)).isEmpty());
+        // no way around
+        ConvexPolygon fullWall = new ConvexPolygon(
+                new double[] { 4, 6, 6, 4 },
+                new double[] { -1, -1, 11, 11 });
+        NavGraph blocked = NavGraph.build(List.of(fullWall), 0.5, 10, 10);
+        assertTrue(blocked.search(new Translation2d(1, 1), new Translation2d(9, 1)).isEmpty());
+    }
+
+    @Test
+    void testReef() {
+        NavGraph g = reef();
+        assertEquals(12, g.nodes());
+        // straight through the reef is not allowed
+        List<Translation2d> path = g.search(new Translation2d(2, 4.026), new Translation2d(7, 4.026));
+        assertEquals(5, path.size());
+        for (int i = 1; i < path.size(); ++i) {
+            Translation2d a = path.get(i - 1);
+            Translation2d b = path.get(i);
+            assertTrue(g.visible(a.getX(), a.getY(), b.getX(), b.getY()));
+        }
+    }
+
+    @Test
+    void testSerialization(@TempDir Path dir) throws IOException {
+        NavGraph g = reef();
+        Path file = dir.resolve("nav.bin");
+        g.write(file);
+        NavGraph g2 = NavGraph.read(file);
+        assertEquals(g.nodes(), g2.nodes());
+        assertEquals(g.edges(), g2.edges());
+        Translation2d start = new Translation2d(2, 4.026);
+        Translation2d goal = new Translation2d(7, 4.026);
+        assertEquals(g.search(start, goal), g2.search(start, goal));
+        // missing file
+        NavGraph g3 = NavGraph.readOrBuild(dir.resolve("missing.bin"),
+                FieldConstants.obstacles(), 0.5, FieldConstants.FIELD_LENGTH_M, FieldConstants.FIELD_WIDTH_M);
+        assertEquals(g.edges(), g3.edges());
+    }
+
+    /** Search cost is bounded by the graph, a few microseconds. */
+    @Test
+    void testPerformance() {
+        NavGraph g = reef();
+        Random random = new Random(0);
+        final int N = 100000;
+        Translation2d[] points = new Translation2d[2 * N];
+        for (int i = 0; i < points.length; ++i) {
+            points[i] = new Translation2d(
+                    1 + random.nextDouble() * 15.5,
+                    0.6 + random.nextDouble() * 6.8);
+        }
+        int found = 0;
+        int maxExpanded = 0;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < N; ++i) {
+            if (!g.search(points[2 * i], points[2 * i + 1]).isEmpty())
+                found++;
+            maxExpanded = Math.max(maxExpanded, g.expanded());
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        if (DEBUG)
+            System.out.printf("us per query %.3f found %d max expanded %d\n",
+                    elapsedNs / 1000.0 / N, found, maxExpanded);
+        // start, goal, and all the nodes
+        assertTrue(maxExpanded <= g.nodes() + 2);
+    }
+
+    private static NavGraph reef() {
+        return NavGraph.build(
+                FieldConstants.obstacles(),
+                0.5,
+                FieldConstants.FIELD_LENGTH_M,
+                FieldConstants.FIELD_WIDTH_M);
+    }
+}
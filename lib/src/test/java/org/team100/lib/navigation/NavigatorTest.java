@@ -0,0 +1,105 @@
+package org.team100.lib.navigation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.field.FieldConstants;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.timing.TimedPose;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class NavigatorTest {
+    private static final double DELTA = 0.01;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testAroundTheReef() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(
+                new TimingConstraintFactory(limits).allGood(logger));
+        NavGraph graph = NavGraph.build(
+                FieldConstants.obstacles(),
+                0.6,
+                FieldConstants.FIELD_LENGTH_M,
+                FieldConstants.FIELD_WIDTH_M);
+        Navigator navigator = new Navigator(graph, planner);
+        Pose2d start = new Pose2d(2, 4.026, Rotation2d.kZero);
+        Pose2d goal = new Pose2d(7, 4.026, Rotation2d.k180deg);
+
+        List<HolonomicPose2d> waypoints = navigator.waypoints(start, goal);
+        assertEquals(5, waypoints.size());
+        // heading goes from start to goal
+        assertEquals(0, waypoints.get(0).heading().getRadians(), DELTA);
+        assertEquals(Math.PI, Math.abs(waypoints.get(4).heading().getRadians()), DELTA);
+        // over the top of the reef, the course is +x
+        assertEquals(0, waypoints.get(2).course().getRadians(), DELTA);
+
+        Trajectory100 trajectory = navigator.restToRest(start, goal);
+        assertFalse(trajectory.isEmpty());
+        // the trajectory stays out of the reef itself
+        for (TimedPose p : trajectory.getPoints()) {
+            double x = p.state().getPose().translation().getX();
+            double y = p.state().getPose().translation().getY();
+            assertTrue(FieldConstants.getDistanceToReefCenter(p.state().getPose().translation()) > 0.9,
+                    String.format("%f %f", x, y));
+        }
+    }
+
+    @Test
+    void testNoPath() {
+        TrajectoryPlanner planner = new TrajectoryPlanner(List.of());
+        NavGraph graph = NavGraph.build(
+                FieldConstants.obstacles(), 0.5, FieldConstants.FIELD_LENGTH_M, FieldConstants.FIELD_WIDTH_M);
+        Navigator navigator = new Navigator(graph, planner);
+        // the goal is in the reef
+        Pose2d start = new Pose2d(2, 4, Rotation2d.kZero);
+        Pose2d goal = new Pose2d(4.489, 4.026, Rotation2d.kZero);
+        assertTrue(navigator.waypoints(start, goal).isEmpty());
+        assertTrue(navigator.restToRest(start, goal).isEmpty());
+    }
+
+    @Test
+    void testSamePlace() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(
+                new TimingConstraintFactory(limits).allGood(logger));
+        NavGraph graph = NavGraph.build(
+                FieldConstants.obstacles(), 0.6, FieldConstants.FIELD_LENGTH_M, FieldConstants.FIELD_WIDTH_M);
+        Navigator navigator = new Navigator(graph, planner);
+        Pose2d start = new Pose2d(2, 4, Rotation2d.kZero);
+        // nowhere to go
+        assertTrue(navigator.waypoints(start, start).isEmpty());
+        assertTrue(navigator.restToRest(start, start).isEmpty());
+        // turning in place is not a path either
+        Pose2d turned = new Pose2d(2, 4, Rotation2d.kCCW_Pi_2);
+        assertTrue(navigator.waypoints(start, turned).isEmpty());
+    }
+
+    @Test
+    void testDistinct() {
+        List<Translation2d> path = Navigator.distinct(List.of(
+                new Translation2d(0, 0),
+                new Translation2d(0, 0),
+                new Translation2d(1, 0),
+                new Translation2d(1.0001, 0)));
+        assertEquals(2, path.size());
+        assertEquals(0, path.get(0).getX(), DELTA);
+        // the last one is kept exactly
+        assertEquals(1.0001, path.get(1).getX(), 1e-9);
+    }
+}
@@ -0,0 +1,118 @@
+package org.team100.lib.subsystems.r3.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.controller.r3.ControllerFactoryR3;
+import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.r3.MockSubsystemR3;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+import org.team100.lib.visualization.TrajectoryVisualization;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class DriveToPoseWithTrajectoryAndExitVelocityTest implements Timeless {
+    private static final boolean DEBUG = false;
+    private static final LoggerFactory log = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final TrajectoryVisualization viz = new TrajectoryVisualization(log);
+
+    /** Counts replans, and can make them fail. */
+    private static class CountingPlanner extends TrajectoryPlanner {
+        int m_replans;
+        boolean m_fail;
+
+        CountingPlanner(List<TimingConstraint> constraints) {
+            super(constraints);
+        }
+
+        @Override
+        public Trajectory100 replan(
+                Trajectory100 current,
+                double spliceS,
+                HolonomicPose2d goal,
+                double endVelocity) {
+            m_replans++;
+            if (m_fail)
+                return current;
+            return super.replan(current, spliceS, goal, endVelocity);
+        }
+    }
+
+    SwerveKinodynamics swerveKinodynamics = SwerveKinodynamicsFactory.forRealisticTest(log);
+    CountingPlanner planner = new CountingPlanner(
+            new TimingConstraintFactory(swerveKinodynamics).allGood(log));
+    MockSubsystemR3 subsystem = new MockSubsystemR3(new ModelR3());
+
+    /** The goal moves partway through, and the robot ends up at the new one. */
+    @Test
+    void testMovingGoal() {
+        Pose2d[] goal = new Pose2d[] { new Pose2d(2, 0, Rotation2d.kZero) };
+        DriveToPoseWithTrajectoryAndExitVelocity command = new DriveToPoseWithTrajectoryAndExitVelocity(
+                log, () -> goal[0], GlobalVelocityR3.ZERO, subsystem,
+                ControllerFactoryR3.test(log), planner, viz);
+        command.initialize();
+        stepTime();
+        for (int i = 0; i < 500 && !command.isDone(); ++i) {
+            if (i == 25) {
+                // halfway there, the goal moves to the side.
+                goal[0] = new Pose2d(2, 1, Rotation2d.kZero);
+            }
+            command.execute();
+            subsystem.m_state = new ModelR3(subsystem.m_state.pose(), subsystem.m_setpoint).evolve(0.02);
+            if (DEBUG) {
+                Pose2d p = subsystem.m_state.pose();
+                System.out.printf("%6.3f, %6.3f, %6.3f\n", p.getX(), p.getY(), p.getRotation().getRadians());
+            }
+            stepTime();
+        }
+        // one move, one replan; the replan doesn't look like another move.
+        assertEquals(1, planner.m_replans);
+        assertTrue(command.isDone());
+        Pose2d p = subsystem.m_state.pose();
+        assertEquals(2, p.getX(), 0.05);
+        assertEquals(1, p.getY(), 0.05);
+        command.end(false);
+    }
+
+    /** A failed replan keeps the old goal, so the next cycle tries again. */
+    @Test
+    void testFailedReplan() {
+        Pose2d[] goal = new Pose2d[] { new Pose2d(2, 0, Rotation2d.kZero) };
+        DriveToPoseWithTrajectoryAndExitVelocity command = new DriveToPoseWithTrajectoryAndExitVelocity(
+                log, () -> goal[0], GlobalVelocityR3.ZERO, subsystem,
+                ControllerFactoryR3.test(log), planner, viz);
+        command.initialize();
+        stepTime();
+        planner.m_fail = true;
+        goal[0] = new Pose2d(2, 1, Rotation2d.kZero);
+        for (int i = 0; i < 3; ++i) {
+            command.execute();
+            stepTime();
+        }
+        // every cycle tries
+        assertEquals(3, planner.m_replans);
+        planner.m_fail = false;
+        for (int i = 0; i < 3; ++i) {
+            command.execute();
+            stepTime();
+        }
+        // then it works, once
+        assertEquals(4, planner.m_replans);
+        command.end(false);
+    }
+}
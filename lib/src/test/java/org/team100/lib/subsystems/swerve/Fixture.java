@@ -12,6 +12,7 @@ import org.team100.lib.localization.OdometryUpdater;
 import org.team100.lib.localization.SwerveHistory;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.PrimitiveLogger;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
 import org.team100.lib.sensor.gyro.Gyro;
 import org.team100.lib.sensor.gyro.SimulatedGyro;
@@ -40,14 +41,20 @@ public class Fixture {
     public SwerveKinodynamics swerveKinodynamics;
     public SwerveLocal swerveLocal;
     public OdometryUpdater odometryUpdater;
+    public NudgingVisionUpdater visionUpdater;
     public SwerveDriveSubsystem drive;
     public ControllerR3 controller;
     public LoggerFactory logger;
     public LoggerFactory fieldLogger;
 
     public Fixture() throws IOException {
-        logger = new TestLoggerFactory(new TestPrimitiveLogger());
-        fieldLogger = new TestLoggerFactory(new TestPrimitiveLogger());
+        this(new TestPrimitiveLogger());
+    }
+
+    /** Everything logs to the given primitive logger, e.g. for counting. */
+    public Fixture(PrimitiveLogger primitiveLogger) throws IOException {
+        logger = new TestLoggerFactory(primitiveLogger);
+        fieldLogger = new TestLoggerFactory(primitiveLogger);
         swerveKinodynamics = SwerveKinodynamicsFactory.forTest(logger);
         // uses simulated modules
         collection = SwerveModuleCollection.get(logger, 10, 20, swerveKinodynamics);
@@ -64,7 +71,7 @@ public class Fixture {
         odometryUpdater = new OdometryUpdater(swerveKinodynamics, gyro, history, collection::positions);
         odometryUpdater.reset(Pose2d.kZero, 0);
 
-        final NudgingVisionUpdater visionUpdater = new NudgingVisionUpdater(history, odometryUpdater);
+        visionUpdater = new NudgingVisionUpdater(history, odometryUpdater);
 
         final AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
 
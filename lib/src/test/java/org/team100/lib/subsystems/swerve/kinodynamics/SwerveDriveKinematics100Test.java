@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Optional;
+import java.util.Random;
 
+import org.ejml.simple.SimpleMatrix;
 import org.junit.jupiter.api.Test;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDelta;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
@@ -21,6 +23,7 @@ import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 class SwerveDriveKinematics100Test {
+    private static final boolean DEBUG = false;
     private static final double DELTA = 0.001;
 
     @Test
@@ -399,6 +402,153 @@ class SwerveDriveKinematics100Test {
         assertEquals(0, twist.dtheta, DELTA);
     }
 
+    /** The unrolled inverse should match the matrix multiply. */
+    @Test
+    void testInverseMatchesMatrix() {
+        SwerveDriveKinematics100 k = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.25),
+                new Translation2d(0.3, -0.25),
+                new Translation2d(-0.3, 0.25),
+                new Translation2d(-0.3, -0.25));
+        Random random = new Random(0);
+        double[] out = new double[8];
+        for (int i = 0; i < 1000; ++i) {
+            ChassisSpeeds speeds = new ChassisSpeeds(
+                    random.nextDouble() * 10 - 5,
+                    random.nextDouble() * 10 - 5,
+                    random.nextDouble() * 20 - 10);
+            DiscreteSpeed speed = SwerveKinodynamics.discretize(speeds, 0.02);
+            SimpleMatrix v = new SimpleMatrix(new double[] {
+                    speed.twist().dx / speed.dt(),
+                    speed.twist().dy / speed.dt(),
+                    speed.twist().dtheta / speed.dt() });
+            SimpleMatrix m = k.m_inverseKinematics.mult(v);
+            k.toModuleVelocities(speed, out);
+            for (int j = 0; j < 8; ++j) {
+                assertEquals(m.get(j, 0), out[j], 1e-12);
+            }
+            SwerveModuleStates states = k.toSwerveModuleStates(speed);
+            assertEquals(SwerveModuleState100.fromSpeed(m.get(0, 0), m.get(1, 0)), states.frontLeft());
+            assertEquals(SwerveModuleState100.fromSpeed(m.get(2, 0), m.get(3, 0)), states.frontRight());
+            assertEquals(SwerveModuleState100.fromSpeed(m.get(4, 0), m.get(5, 0)), states.rearLeft());
+            assertEquals(SwerveModuleState100.fromSpeed(m.get(6, 0), m.get(7, 0)), states.rearRight());
+        }
+    }
+
+    /** The unrolled forward should match the matrix multiply. */
+    @Test
+    void testForwardMatchesMatrix() {
+        SwerveDriveKinematics100 k = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.25),
+                new Translation2d(0.3, -0.25),
+                new Translation2d(-0.3, 0.25),
+                new Translation2d(-0.3, -0.25));
+        Random random = new Random(0);
+        double[] out = new double[3];
+        for (int i = 0; i < 1000; ++i) {
+            SwerveModuleDeltas deltas = new SwerveModuleDeltas(
+                    new SwerveModuleDelta(random.nextDouble() * 0.2 - 0.1, random.nextDouble() * 0.2 - 0.1),
+                    new SwerveModuleDelta(random.nextDouble() * 0.2 - 0.1, random.nextDouble() * 0.2 - 0.1),
+                    new SwerveModuleDelta(random.nextDouble() * 0.2 - 0.1, random.nextDouble() * 0.2 - 0.1),
+                    new SwerveModuleDelta(random.nextDouble() * 0.2 - 0.1, random.nextDouble() * 0.2 - 0.1));
+            SwerveModuleDelta[] all = deltas.all();
+            SimpleMatrix v = new SimpleMatrix(8, 1);
+            for (int j = 0; j < 4; ++j) {
+                v.set(2 * j, 0, all[j].distanceMeters * all[j].wrappedAngle.get().getCos());
+                v.set(2 * j + 1, 0, all[j].distanceMeters * all[j].wrappedAngle.get().getSin());
+            }
+            SimpleMatrix m = k.m_forwardKinematics.mult(v);
+            Twist2d twist = k.toTwist2d(deltas);
+            assertEquals(m.get(0, 0), twist.dx, 1e-12);
+            assertEquals(m.get(1, 0), twist.dy, 1e-12);
+            assertEquals(m.get(2, 0), twist.dtheta, 1e-12);
+            k.toTwist(deltas, out);
+            assertEquals(twist.dx, out[0]);
+            assertEquals(twist.dy, out[1]);
+            assertEquals(twist.dtheta, out[2]);
+        }
+    }
+
+    /** Twist from positions should match twist from their deltas. */
+    @Test
+    void testTwistFromPositions() {
+        SwerveDriveKinematics100 k = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.25),
+                new Translation2d(0.3, -0.25),
+                new Translation2d(-0.3, 0.25),
+                new Translation2d(-0.3, -0.25));
+        Random random = new Random(0);
+        double[] out = new double[3];
+        for (int i = 0; i < 1000; ++i) {
+            SwerveModulePositions start = randomPositions(random);
+            SwerveModulePositions end = randomPositions(random);
+            Twist2d twist = k.toTwist2d(SwerveModuleDeltas.modulePositionDelta(start, end));
+            k.toTwist(start, end, out);
+            assertEquals(twist.dx, out[0], 1e-12);
+            assertEquals(twist.dy, out[1], 1e-12);
+            assertEquals(twist.dtheta, out[2], 1e-12);
+        }
+        // an empty angle contributes nothing.
+        SwerveModulePositions start = SwerveModulePositions.kZero();
+        SwerveModulePositions end = new SwerveModulePositions(
+                new SwerveModulePosition100(0.1, Optional.empty()),
+                new SwerveModulePosition100(0.1, Optional.of(Rotation2d.kZero)),
+                new SwerveModulePosition100(0.1, Optional.of(Rotation2d.kZero)),
+                new SwerveModulePosition100(0.1, Optional.of(Rotation2d.kZero)));
+        Twist2d twist = k.toTwist2d(SwerveModuleDeltas.modulePositionDelta(start, end));
+        k.toTwist(start, end, out);
+        assertEquals(twist.dx, out[0], 1e-12);
+        assertEquals(twist.dy, out[1], 1e-12);
+        assertEquals(twist.dtheta, out[2], 1e-12);
+    }
+
+    private static SwerveModulePositions randomPositions(Random random) {
+        return new SwerveModulePositions(
+                randomPosition(random),
+                randomPosition(random),
+                randomPosition(random),
+                randomPosition(random));
+    }
+
+    /** Unwrapped, i.e. possibly more than one turn. */
+    private static SwerveModulePosition100 randomPosition(Random random) {
+        return new SwerveModulePosition100(
+                random.nextDouble() * 0.2 - 0.1,
+                Optional.of(new Rotation2d(random.nextDouble() * 20 - 10)));
+    }
+
+    @Test
+    void testPerformance() {
+        SwerveDriveKinematics100 k = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.25),
+                new Translation2d(0.3, -0.25),
+                new Translation2d(-0.3, 0.25),
+                new Translation2d(-0.3, -0.25));
+        DiscreteSpeed speed = SwerveKinodynamics.discretize(new ChassisSpeeds(1, 2, 3), 0.02);
+        SwerveModuleDeltas deltas = k.toSwerveModuleDelta(new Twist2d(0.01, 0.02, 0.03));
+        double[] velocities = new double[8];
+        double[] twist = new double[3];
+        int iterations = DEBUG ? 10000000 : 10000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            k.toModuleVelocities(speed, velocities);
+        }
+        long finishTime = System.nanoTime();
+        if (DEBUG) {
+            double et = ((double) finishTime - startTime) / 1e9;
+            System.out.printf("inverse ET (s): %6.3f calls/s: %6.0f\n", et, iterations / et);
+        }
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            k.toTwist(deltas, twist);
+        }
+        finishTime = System.nanoTime();
+        if (DEBUG) {
+            double et = ((double) finishTime - startTime) / 1e9;
+            System.out.printf("forward ET (s): %6.3f calls/s: %6.0f\n", et, iterations / et);
+        }
+    }
+
     ////////////////////////////////////////
     //
     // tests below are from WPILib
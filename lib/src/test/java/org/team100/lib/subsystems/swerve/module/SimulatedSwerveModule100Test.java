@@ -0,0 +1,55 @@
+package org.team100.lib.subsystems.swerve.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motor.sim.MotorPhysics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleState100;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class SimulatedSwerveModule100Test implements Timeless {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forRealisticTest(logger);
+    private static final SwerveModuleState100 GOAL = new SwerveModuleState100(1, Optional.of(Rotation2d.kZero));
+
+    @Test
+    void testKinematic() {
+        SimulatedSwerveModule100 module = SimulatedSwerveModule100.get(logger, kinodynamics);
+        step(module);
+        // instant
+        assertEquals(1, module.getState().speedMetersPerSecond(), 1e-6);
+    }
+
+    @Test
+    void testPhysics() {
+        MotorPhysics physics = new MotorPhysics(0.001, Takt.get());
+        SimulatedSwerveModule100 module = SimulatedSwerveModule100.withPhysics(logger, kinodynamics, physics);
+        step(module);
+        // a quarter of the robot is heavy, so the current limit applies.
+        double speed = module.getState().speedMetersPerSecond();
+        assertTrue(speed > 0);
+        assertTrue(speed < 0.5);
+        for (int i = 0; i < 50; ++i) {
+            step(module);
+        }
+        assertEquals(1, module.getState().speedMetersPerSecond(), 0.02);
+        assertTrue(module.getPosition().distanceMeters > 0.5);
+    }
+
+    private void step(SimulatedSwerveModule100 module) {
+        module.setDesiredState(GOAL);
+        stepTime();
+        module.periodic();
+    }
+}
@@ -0,0 +1,42 @@
+package org.team100.lib.targeting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FlightTableTest {
+    private static final double DELTA = 0.002;
+
+    @Test
+    void testNoDrag() {
+        // without drag, this should match the parabolic solution.
+        Drag d = new Drag(0, 0, 0.01, 0.2, 0);
+        FlightTable t = new FlightTable(d, 10, 0, 0, 200);
+        // max range is at 45 degrees
+        assertEquals(10.19, t.maxRange(), 0.01);
+        for (double r = 2; r < 9; r += 1) {
+            double elevation = t.elevation(r);
+            Ballistics.Solution s = Ballistics.parabolic(10, elevation);
+            assertEquals(r, s.range(), 0.01);
+            assertEquals(s.tof(), t.tof(r), DELTA);
+        }
+    }
+
+    @Test
+    void testDrag() {
+        Drag d = new Drag(0.5, 0.025, 0.01, 0.2, 0.1);
+        FlightTable t = new FlightTable(d, 12, 50, 1.5, 200);
+        assertTrue(t.contains(8));
+        assertFalse(t.contains(2));
+        assertFalse(t.contains(20));
+        // low branch, so both increase with range
+        assertTrue(t.elevation(9) > t.elevation(8));
+        assertTrue(t.tof(9) > t.tof(8));
+        // drag makes it slower than the parabolic path at the same elevation
+        Drag none = new Drag(0, 0, 0.01, 0.2, 0);
+        FlightTable parabolic = new FlightTable(none, 12, 0, 1.5, 200);
+        assertTrue(t.tof(8) > parabolic.tof(8));
+    }
+}
@@ -0,0 +1,124 @@
+package org.team100.lib.targeting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+class ShootingSolverTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final FlightTable TABLE = new FlightTable(
+            new Drag(0.5, 0.025, 0.01, 0.2, 0.1), 12, 50, 1.5, 200);
+
+    @Test
+    void testStationary() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0);
+        Optional<ShootingSolver.Solution> s = solver.solve(0, 0, 0, 0, 8, 0, 0, 0);
+        assertTrue(s.isPresent());
+        assertEquals(0, s.get().azimuth(), DELTA);
+        assertEquals(8, s.get().range(), DELTA);
+        assertEquals(TABLE.tof(8), s.get().tof(), DELTA);
+        assertEquals(TABLE.elevation(8), s.get().elevation(), DELTA);
+    }
+
+    @Test
+    void testMoving() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0);
+        // robot moving +y, target +x, so aim behind, i.e. -y.
+        Optional<ShootingSolver.Solution> s = solver.solve(0, 0, 0, 2, 8, 0, 0, 0);
+        assertTrue(s.isPresent());
+        double tof = s.get().tof();
+        assertTrue(s.get().azimuth() < 0);
+        // the virtual target
+        double px = 8;
+        double py = -2 * tof;
+        assertEquals(Math.hypot(px, py), s.get().range(), DELTA);
+        assertEquals(Math.atan2(py, px), s.get().azimuth(), DELTA);
+        // fixed point
+        assertEquals(TABLE.tof(s.get().range()), tof, DELTA);
+    }
+
+    @Test
+    void testApproaching() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0);
+        // driving toward the target means a shorter shot
+        double still = solver.solve(0, 0, 0, 0, 8, 0, 0, 0).get().elevation();
+        solver.reset();
+        double moving = solver.solve(0, 0, 2, 0, 8, 0, 0, 0).get().elevation();
+        assertTrue(moving < still);
+    }
+
+    @Test
+    void testLatency() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0.1);
+        // the shot leaves 0.1 s later, 0.2 m closer.
+        Optional<ShootingSolver.Solution> s = solver.solve(0, 0, 2, 0, 8, 0, 0, 0);
+        assertEquals(7.8 - 2 * s.get().tof(), s.get().range(), DELTA);
+    }
+
+    @Test
+    void testWarmStart() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0);
+        Optional<ShootingSolver.Solution> cold = solver.solve(0, 0, 0, 2, 8, 0, 0, 0);
+        assertTrue(cold.get().iterations() > 1);
+        // a cycle later, the robot has moved a little.
+        Optional<ShootingSolver.Solution> warm = solver.solve(0, 0.04, 0, 2, 8, 0, 0, 0);
+        assertTrue(warm.get().iterations() <= 2);
+    }
+
+    @Test
+    void testOutOfRange() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0);
+        assertTrue(solver.solve(0, 0, 0, 0, 20, 0, 0, 0).isEmpty());
+        assertTrue(solver.solve(0, 0, 0, 0, 2, 0, 0, 0).isEmpty());
+        // can't outrun the target
+        assertTrue(solver.solve(0, 0, 0, 0, 8, 0, 10, 0).isEmpty());
+    }
+
+    /**
+     * The solver runs every cycle, so it has a hard budget, a few microseconds.
+     * With the robot circling the target, the warm-started solve should take
+     * one or two iterations. Turn on DEBUG to see the time.
+     */
+    @Test
+    void testPerformance() {
+        ShootingSolver solver = new ShootingSolver(logger, TABLE, 0.05);
+        int iterations = DEBUG ? 10000000 : 10000;
+        double dt = 0.02;
+        int maxIterations = 0;
+        long worstNs = 0;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            double theta = 0.05 * i * dt;
+            double rx = 8 * Math.cos(theta);
+            double ry = 8 * Math.sin(theta);
+            double rvx = -0.4 * Math.sin(theta);
+            double rvy = 0.4 * Math.cos(theta);
+            long t0 = System.nanoTime();
+            Optional<ShootingSolver.Solution> s = solver.solve(rx, ry, rvx, rvy, 0, 0, 0, 0);
+            long elapsed = System.nanoTime() - t0;
+            if (i > iterations / 2)
+                worstNs = Math.max(worstNs, elapsed);
+            assertTrue(s.isPresent());
+            if (i > 0)
+                maxIterations = Math.max(maxIterations, s.get().iterations());
+        }
+        long totalNs = System.nanoTime() - startNs;
+        double meanUs = totalNs / 1e3 / iterations;
+        if (DEBUG) {
+            System.out.printf("mean solve %.3f us, worst %.3f us\n",
+                    meanUs, worstNs / 1e3);
+        }
+        // Warm start converges quickly. The cost of a solve is the iteration
+        // count times a table lookup, so count iterations rather than timing
+        // them; see ShootingSolverBenchmark for the time.
+        assertTrue(maxIterations <= 2, "iterations " + maxIterations);
+    }
+}
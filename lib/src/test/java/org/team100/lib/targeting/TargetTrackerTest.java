@@ -0,0 +1,164 @@
+package org.team100.lib.targeting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.targeting.TargetTracker.Track;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class TargetTrackerTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+
+    @Test
+    void testOne() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        t.addAll(0, List.of(new Translation2d(1, 0)));
+        List<Track> tracks = t.getTracks(0);
+        assertEquals(1, tracks.size());
+        assertEquals(1, tracks.get(0).position().getX(), DELTA);
+        assertEquals(0, tracks.get(0).velocity().norm(), DELTA);
+        assertEquals(1, tracks.get(0).hits());
+    }
+
+    @Test
+    void testSameTarget() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        t.addAll(0, List.of(new Translation2d(1, 0)));
+        // a second camera sees the same thing
+        t.addAll(0, List.of(new Translation2d(1.05, 0)));
+        List<Track> tracks = t.getTracks(0);
+        assertEquals(1, tracks.size());
+        assertEquals(2, tracks.get(0).hits());
+        assertEquals(1.025, tracks.get(0).position().getX(), 0.01);
+    }
+
+    @Test
+    void testTwoTargets() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        t.addAll(0, List.of(new Translation2d(1, 0), new Translation2d(2, 0)));
+        t.addAll(0.02, List.of(new Translation2d(2, 0), new Translation2d(1, 0)));
+        List<Track> tracks = t.getTracks(0.02);
+        assertEquals(2, tracks.size());
+        assertNotEquals(tracks.get(0).id(), tracks.get(1).id());
+        for (Track track : tracks) {
+            assertEquals(2, track.hits());
+        }
+    }
+
+    @Test
+    void testCloseTogether() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        // one frame can't update one track twice
+        t.addAll(0, List.of(new Translation2d(1, 0), new Translation2d(1.3, 0)));
+        assertEquals(2, t.getTracks(0).size());
+    }
+
+    @Test
+    void testDuplicate() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        // the detector saw the same object twice in one frame
+        t.addAll(0, List.of(new Translation2d(1, 0), new Translation2d(1.1, 0)));
+        assertEquals(1, t.getTracks(0).size());
+        // also for an existing track
+        t.addAll(0.02, List.of(new Translation2d(1, 0), new Translation2d(1.1, 0)));
+        List<Track> tracks = t.getTracks(0.02);
+        assertEquals(1, tracks.size());
+        assertEquals(2, tracks.get(0).hits());
+    }
+
+    @Test
+    void testMissed() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        // rolling at 1 m/s in +x
+        for (int i = 0; i < 50; ++i) {
+            double time = i * 0.02;
+            t.addAll(time, List.of(new Translation2d(time, 0)));
+        }
+        // then it's not seen, e.g. something is in the way
+        for (int i = 50; i < 75; ++i) {
+            t.addAll(i * 0.02, List.of());
+        }
+        Track track = t.getTracks(1.5).get(0);
+        // coasts for a short time, not for the whole half second
+        assertEquals(1.08, track.position().getX(), 0.05);
+        assertEquals(0.52, track.age(), DELTA);
+    }
+
+    @Test
+    void testVelocity() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        // target rolling at 1 m/s in +x, +y
+        double dt = 0.02;
+        int id = -1;
+        for (int i = 0; i < 50; ++i) {
+            double time = i * dt;
+            t.addAll(time, List.of(new Translation2d(1 + time, 2 + time)));
+            List<Track> tracks = t.getTracks(time);
+            assertEquals(1, tracks.size());
+            if (i == 0)
+                id = tracks.get(0).id();
+            // stable identity
+            assertEquals(id, tracks.get(0).id());
+        }
+        Track track = t.getTracks(1.0).get(0);
+        assertEquals(1, track.velocity().x(), 0.05);
+        assertEquals(1, track.velocity().y(), 0.05);
+        // extrapolated
+        assertEquals(2, track.position().getX(), 0.05);
+        if (DEBUG)
+            System.out.println(track);
+    }
+
+    @Test
+    void testDeath() {
+        TargetTracker t = new TargetTracker(8, 1.0);
+        t.addAll(0, List.of(new Translation2d(1, 0)));
+        assertEquals(1, t.getTracks(0.5).size());
+        assertEquals(0, t.getTracks(1.5).size());
+        assertEquals(0, t.size());
+        // a new sight is a new track
+        t.addAll(1.5, List.of(new Translation2d(1, 0)));
+        assertEquals(1, t.getTracks(1.5).get(0).hits());
+    }
+
+    @Test
+    void testFull() {
+        TargetTracker t = new TargetTracker(2, 1.0);
+        t.addAll(0, List.of(new Translation2d(0, 0)));
+        t.addAll(0.1, List.of(new Translation2d(5, 0)));
+        // replaces the stalest
+        t.addAll(0.2, List.of(new Translation2d(10, 0)));
+        List<Track> tracks = t.getTracks(0.2);
+        assertEquals(2, tracks.size());
+        for (Track track : tracks) {
+            assertTrue(track.position().getX() > 1);
+        }
+    }
+
+    /** Per-sight cost should not depend on the number of tracks. */
+    @Test
+    void testPerformance() {
+        int capacity = 64;
+        TargetTracker t = new TargetTracker(capacity, 1.0);
+        Translation2d[] objects = new Translation2d[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            objects[i] = new Translation2d(i % 8 * 2.0, i / 8 * 1.5);
+        }
+        List<Translation2d> frame = List.of(objects);
+        int iterations = DEBUG ? 100000 : 100;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            t.addAll(i * 0.02, frame);
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        assertEquals(capacity, t.size());
+        if (DEBUG)
+            System.out.printf("%.3f us per sight\n", elapsedNs / 1e3 / iterations / capacity);
+    }
+}
@@ -0,0 +1,119 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class CandidatePlannerTest {
+    private static final boolean DEBUG = false;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    private final TrajectoryPlanner m_planner;
+
+    CandidatePlannerTest() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        m_planner = new TrajectoryPlanner(new TimingConstraintFactory(limits).allGood(logger));
+    }
+
+    @Test
+    void testFastest() {
+        CandidatePlanner planner = new CandidatePlanner(logger, m_planner, ForkJoinPool.commonPool());
+        Pose2d start = Pose2d.kZero;
+        Pose2d goal = new Pose2d(3, 1, Rotation2d.kCCW_90deg);
+        CandidatePlanner.Result result = planner.plan(start, goal, 10);
+        assertEquals(27, result.candidates());
+        assertTrue(result.feasible() > 0);
+        assertNotNull(result.best());
+        // at least as good as the default
+        Trajectory100 straight = m_planner.restToRest(start, goal);
+        assertTrue(result.trajectory().duration() <= straight.duration() + 1e-9,
+                String.format("%f %f", result.trajectory().duration(), straight.duration()));
+        if (DEBUG)
+            System.out.printf("best %s duration %.3f (default %.3f) wall %.3f ms\n",
+                    result.best(), result.trajectory().duration(), straight.duration(),
+                    result.wallS() * 1000);
+    }
+
+    @Test
+    void testMoving() {
+        CandidatePlanner planner = new CandidatePlanner(logger, m_planner, ForkJoinPool.commonPool());
+        ModelR3 start = new ModelR3(Pose2d.kZero, new GlobalVelocityR3(1, 0, 0));
+        Pose2d goal = new Pose2d(3, 1, Rotation2d.kZero);
+        // start course is fixed
+        assertEquals(9, planner.candidates(start, goal).size());
+        CandidatePlanner.Result result = planner.plan(start, goal, t -> true, 10);
+        assertEquals(0, result.best().startCourse().getRadians(), 1e-9);
+        assertEquals(1, result.trajectory().getPoint(0).velocityM_S(), 0.01);
+    }
+
+    @Test
+    void testInfeasible() {
+        CandidatePlanner planner = new CandidatePlanner(logger, m_planner, ForkJoinPool.commonPool());
+        CandidatePlanner.Result result = planner.plan(
+                new ModelR3(Pose2d.kZero),
+                new Pose2d(3, 1, Rotation2d.kZero),
+                t -> false,
+                10);
+        assertEquals(0, result.feasible());
+        assertNull(result.best());
+        assertTrue(result.trajectory().isEmpty());
+    }
+
+    /** Wall time with one thread vs several. */
+    @Test
+    void testPerformance() {
+        Pose2d start = Pose2d.kZero;
+        Pose2d goal = new Pose2d(3, 1, Rotation2d.kCCW_90deg);
+        ForkJoinPool serial = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            CandidatePlanner p1 = new CandidatePlanner(logger, m_planner, serial);
+            CandidatePlanner pN = new CandidatePlanner(logger, m_planner, parallel);
+            // warm up
+            for (int i = 0; i < 10; ++i) {
+                p1.plan(start, goal, 10);
+                pN.plan(start, goal, 10);
+            }
+            CandidatePlanner.Result r1 = p1.plan(start, goal, 10);
+            CandidatePlanner.Result rN = pN.plan(start, goal, 10);
+            if (DEBUG)
+                System.out.printf("%d candidates, serial %.3f ms, %d threads %.3f ms\n",
+                        r1.candidates(), r1.wallS() * 1000,
+                        parallel.getParallelism(), rN.wallS() * 1000);
+            // same answer either way
+            assertEquals(r1.trajectory().duration(), rN.trajectory().duration(), 1e-9);
+        } finally {
+            serial.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void testCandidates() {
+        CandidatePlanner planner = new CandidatePlanner(
+                logger, m_planner, ForkJoinPool.commonPool(),
+                List.of(Rotation2d.kZero), List.of(1.2));
+        List<CandidatePlanner.Candidate> c = planner.candidates(
+                new ModelR3(Pose2d.kZero), new Pose2d(1, 1, Rotation2d.kZero));
+        assertEquals(1, c.size());
+        assertEquals(Math.PI / 4, c.get(0).startCourse().getRadians(), 1e-9);
+        assertEquals(Math.PI / 4, c.get(0).endCourse().getRadians(), 1e-9);
+    }
+}
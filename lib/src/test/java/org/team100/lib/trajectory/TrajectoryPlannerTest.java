@@ -1,6 +1,7 @@
 package org.team100.lib.trajectory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -168,4 +169,94 @@ class TrajectoryPlannerTest implements Timeless {
         assertEquals(2.958, traj.duration(), DELTA);
     }
 
+    /** The prefix is unchanged, the splice is smooth, and it ends at the new goal. */
+    @Test
+    void testReplan() {
+        SwerveKinodynamics swerveKinodynamics = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(swerveKinodynamics).allGood(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(constraints);
+        Trajectory100 current = planner.restToRest(Pose2d.kZero, new Pose2d(4, 0, Rotation2d.kZero));
+        final double spliceS = 0.5;
+        Trajectory100 replanned = planner.replan(
+                current,
+                spliceS,
+                HolonomicPose2d.make(4, 1, 0, 0),
+                0);
+        assertEquals(0, replanned.getPoint(0).getTimeS(), DELTA);
+        for (int i = 0; current.getPoint(i).getTimeS() < spliceS; ++i) {
+            assertSame(current.getPoint(i), replanned.getPoint(i));
+        }
+        // same state at the splice
+        TimedPose before = current.sample(spliceS);
+        TimedPose after = replanned.sample(spliceS);
+        assertEquals(before.state().getPose().translation().getX(),
+                after.state().getPose().translation().getX(), DELTA);
+        assertEquals(before.state().getPose().translation().getY(),
+                after.state().getPose().translation().getY(), DELTA);
+        assertEquals(before.state().getCourse().getRadians(),
+                after.state().getCourse().getRadians(), DELTA);
+        assertEquals(before.state().getCurvature(), after.state().getCurvature(), DELTA);
+        assertEquals(before.velocityM_S(), after.velocityM_S(), DELTA);
+        // new goal
+        TimedPose last = replanned.getLastPoint();
+        assertEquals(4, last.state().getPose().translation().getX(), DELTA);
+        assertEquals(1, last.state().getPose().translation().getY(), DELTA);
+        assertEquals(0, last.velocityM_S(), DELTA);
+        // a little slower, because of the curve
+        assertTrue(replanned.duration() > current.duration());
+    }
+
+    /** Splicing onto a curve matches the curvature too. */
+    @Test
+    void testReplanCurve() {
+        List<TimingConstraint> constraints = new ArrayList<>();
+        TrajectoryPlanner planner = new TrajectoryPlanner(constraints);
+        Trajectory100 current = planner.generateTrajectory(
+                List.of(
+                        HolonomicPose2d.make(0, 0, 0, 0),
+                        HolonomicPose2d.make(2, 2, 0, Math.PI / 2)),
+                1, 1);
+        double spliceS = current.duration() / 2;
+        TimedPose before = current.sample(spliceS);
+        Trajectory100 replanned = planner.replan(
+                current, spliceS, HolonomicPose2d.make(2.5, 2, 0, Math.PI / 2), 1);
+        TimedPose after = replanned.sample(spliceS);
+        assertEquals(before.state().getCourse().getRadians(),
+                after.state().getCourse().getRadians(), DELTA);
+        assertEquals(before.state().getCurvature(), after.state().getCurvature(), 0.05);
+        assertEquals(before.state().getHeadingRateRad_M(), after.state().getHeadingRateRad_M(), DELTA);
+        assertEquals(2.5, replanned.getLastPoint().state().getPose().translation().getX(), DELTA);
+    }
+
+    /**
+     * Replanning near the end only builds the end, so it's much faster than
+     * planning the whole thing.
+     */
+    @Test
+    void testReplanPerformance() {
+        SwerveKinodynamics swerveKinodynamics = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(swerveKinodynamics).allGood(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(constraints);
+        Pose2d start = Pose2d.kZero;
+        Trajectory100 current = planner.restToRest(start, new Pose2d(10, 0, Rotation2d.kZero));
+        double spliceS = current.duration() - 0.5;
+        final int iterations = 100;
+        Trajectory100 t = null;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            t = planner.restToRest(start, new Pose2d(10, 0.5, Rotation2d.kZero));
+        }
+        long fullNs = System.nanoTime() - startNs;
+        startNs = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            t = planner.replan(current, spliceS, HolonomicPose2d.make(10, 0.5, 0, 0), 0);
+        }
+        long replanNs = System.nanoTime() - startNs;
+        if (DEBUG) {
+            System.out.printf("full ms %5.3f replan ms %5.3f\n",
+                    fullNs / 1e6 / iterations, replanNs / 1e6 / iterations);
+        }
+        assertEquals(0.5, t.getLastPoint().state().getPose().translation().getY(), DELTA);
+    }
+
 }
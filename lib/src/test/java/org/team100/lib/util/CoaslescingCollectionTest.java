@@ -2,14 +2,23 @@ package org.team100.lib.util;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Centroid2d;
+import org.team100.lib.geometry.Near2d;
+
+import edu.wpi.first.math.geometry.Translation2d;
 
 public class CoaslescingCollectionTest {
+    private static final boolean DEBUG = false;
     @Test
     void test1d() {
         TrailingHistory<Double> history = new TrailingHistory<>(5);
@@ -49,4 +58,78 @@ public class CoaslescingCollectionTest {
                 c.getAll().stream().mapToDouble(Double::doubleValue).toArray());
     }
 
+
+    /** The grid gives the same answer as brute force. */
+    @Test
+    void testGridMatchesBruteForce() {
+        Near2d near = new Near2d(0.15);
+        CoalescingCollection<Translation2d> brute = new CoalescingCollection<>(
+                new TrailingHistory<>(1.0), near, new Centroid2d());
+        CoalescingCollection<Translation2d> grid = new CoalescingCollection<>(
+                new TrailingHistory<>(1.0), near, new Centroid2d(),
+                Translation2d::getX, Translation2d::getY, near.threshold());
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; ++i) {
+            double t = i * 0.005;
+            // a few objects, with noise, and some clutter
+            Translation2d sight = random.nextDouble() < 0.8
+                    ? new Translation2d(random.nextInt(5) + 0.05 * random.nextGaussian(),
+                            random.nextInt(3) + 0.05 * random.nextGaussian())
+                    : new Translation2d(random.nextDouble() * 16, random.nextDouble() * 8);
+            brute.add(t, sight);
+            grid.add(t, sight);
+        }
+        assertSame(brute, grid);
+    }
+
+    /**
+     * Four object cameras, 50 Hz, 5 sights per frame (1000 sights per second),
+     * mostly clutter so the history is large.
+     */
+    @Test
+    void testPerformance() {
+        Near2d near = new Near2d(0.15);
+        for (int rep = 0; rep < 3; ++rep) {
+            CoalescingCollection<Translation2d> brute = new CoalescingCollection<>(
+                    new TrailingHistory<>(1.0), near, new Centroid2d());
+            CoalescingCollection<Translation2d> grid = new CoalescingCollection<>(
+                    new TrailingHistory<>(1.0), near, new Centroid2d(),
+                    Translation2d::getX, Translation2d::getY, near.threshold());
+            long bruteNs = run(brute);
+            long gridNs = run(grid);
+            if (DEBUG)
+                System.out.printf("brute %d ms grid %d ms size %d\n",
+                        bruteNs / 1000000, gridNs / 1000000, grid.size());
+            // same sights, so the grid should find the same neighbors
+            assertSame(brute, grid);
+        }
+    }
+
+    private static void assertSame(
+            CoalescingCollection<Translation2d> brute,
+            CoalescingCollection<Translation2d> grid) {
+        List<Translation2d> b = brute.getAll();
+        List<Translation2d> g = grid.getAll();
+        assertEquals(b.size(), g.size());
+        for (int i = 0; i < b.size(); ++i) {
+            assertEquals(b.get(i).getX(), g.get(i).getX(), 1e-9);
+            assertEquals(b.get(i).getY(), g.get(i).getY(), 1e-9);
+        }
+    }
+
+    private long run(CoalescingCollection<Translation2d> c) {
+        Random random = new Random(1);
+        long startNs = System.nanoTime();
+        // 10 seconds
+        for (int frame = 0; frame < 500; ++frame) {
+            double t = frame * 0.02;
+            for (int camera = 0; camera < 4; ++camera) {
+                for (int sight = 0; sight < 5; ++sight) {
+                    c.add(t, new Translation2d(random.nextDouble() * 16, random.nextDouble() * 8));
+                }
+                c.getAll();
+            }
+        }
+        return System.nanoTime() - startNs;
+    }
 }
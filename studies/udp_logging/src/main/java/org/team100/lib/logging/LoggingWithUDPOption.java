@@ -5,7 +5,6 @@ import org.team100.lib.logging.primitive.NTPrimitiveLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger;
 import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
 import org.team100.lib.logging.primitive.UdpSender;
-import org.team100.lib.util.Util;
 
 import com.ctre.phoenix6.SignalLogger;
 
@@ -34,10 +33,10 @@ public class LoggingWithUDPOption {
         // this will be overridden by {@link LogLevelPoller}
         m_level = Level.COMP;
         if (USE_UDP_LOGGING) {
-            Util.warn("=======================================");
-            Util.warn("Using UDP network logging!");
-            Util.warn("You must have a log listener connected!");
-            Util.warn("=======================================");
+            System.out.println("WARNING: =======================================");
+            System.out.println("WARNING: Using UDP network logging!");
+            System.out.println("WARNING: You must have a log listener connected!");
+            System.out.println("WARNING: =======================================");
             if (USE_REAL_UDP) {
                 udpLogger = new UdpPrimitiveLogger(
                         UdpSender.data(),
@@ -4,14 +4,28 @@ import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 /**
- * For performance testing, to count output packets.
+ * For performance testing, to count output packets, and optionally pass them
+ * along to some in-process receiver, without the network.
  */
 public class DummySender implements Consumer<ByteBuffer> {
+    /** nullable */
+    private final Consumer<ByteBuffer> m_next;
     private int m_counter = 0;
 
+    public DummySender() {
+        this(null);
+    }
+
+    /** @param next receives each packet, e.g. UdpRing::offer */
+    public DummySender(Consumer<ByteBuffer> next) {
+        m_next = next;
+    }
+
     @Override
     public void accept(ByteBuffer arg0) {
         m_counter++;
+        if (m_next != null)
+            m_next.accept(arg0);
     }
 
     public int getCounter() {
@@ -0,0 +1,304 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+/**
+ * Log data protocol 3
+ *
+ * Most of our keys barely change from one flush to the next, so this protocol
+ * sends a full "keyframe" of every key once in a while, and in between, only
+ * the keys whose values differ from the keyframe. Doubles are sent as the XOR
+ * with their keyframe value, which is mostly zero bits.
+ *
+ * Deltas are relative to the keyframe, not to the previous packet, so losing a
+ * packet loses only the values in it. If a keyframe packet is lost, the
+ * receiver drops the deltas for its keys until the next keyframe.
+ *
+ * Packets start with the same timestamp as protocol 2, followed by key zero,
+ * which protocol 2 never uses, so the receiver can tell them apart.
+ *
+ * <pre>
+ * DDDDDDDD00FIIII
+ * ^^^^^^^^        timestamp
+ *         ^^      key = 0 means protocol 3
+ *           ^     flags: 1 = keyframe
+ *            ^^^^ keyframe id
+ * </pre>
+ *
+ * followed by tuples:
+ *
+ * * key (varint, 1-3 bytes)
+ * * type (1 byte); for doubles, the high bit means "absolute," i.e. XOR with
+ * zero instead of the keyframe value
+ * * value (varies)
+ *
+ * The double encoding is like the XOR compression in Facebook's Gorilla, but
+ * byte-aligned rather than bit-aligned, which is a little less compact but much
+ * simpler and faster:
+ *
+ * <pre>
+ * CXXX
+ * ^    control: leading zero bytes (high nibble), trailing zero bytes (low nibble)
+ *  ^^^ the bytes in between, big-endian
+ * </pre>
+ *
+ * Ints and longs are zigzag varints. Booleans, strings, double arrays, and raw
+ * (packed struct) values are the same as protocol 2; they're never relative to
+ * the keyframe, they're just omitted if they match it.
+ */
+public class UdpDeltaProtocol {
+    /** timestamp, marker, flags, keyframe id */
+    public static final int kHeaderBytes = 15;
+    private static final byte kKeyframeFlag = 1;
+    private static final byte kAbsolute = (byte) 0x80;
+
+    private final ByteBuffer m_buffer;
+
+    public UdpDeltaProtocol(int bufferSize) {
+        // direct buffer goes slightly faster out the network
+        m_buffer = ByteBuffer.allocateDirect(bufferSize);
+        // big-endian is the default, but just to make it clear...
+        m_buffer.order(ByteOrder.BIG_ENDIAN);
+        clear(false, 0);
+    }
+
+    public UdpDeltaProtocol() {
+        this(UdpSender.MTU);
+    }
+
+    /** Return a buffer view of length equal to current position. */
+    ByteBuffer trim() {
+        return m_buffer.slice(0, m_buffer.position());
+    }
+
+    /** True if nothing but the header has been written. */
+    boolean isEmpty() {
+        return m_buffer.position() == kHeaderBytes;
+    }
+
+    /** Clear the underlying buffer and rewrite the header into it. */
+    void clear(boolean keyframe, int keyframeId) {
+        m_buffer.clear();
+        m_buffer.putLong(UdpMetadataProtocol.timestamp);
+        m_buffer.putChar((char) 0);
+        m_buffer.put(keyframe ? kKeyframeFlag : 0);
+        m_buffer.putInt(keyframeId);
+    }
+
+    /** @return true if written */
+    public boolean putBoolean(int key, boolean val) {
+        if (m_buffer.remaining() < 5)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.BOOLEAN.id);
+        m_buffer.put(val ? (byte) 1 : (byte) 0);
+        return true;
+    }
+
+    /**
+     * @param ref      raw bits of the keyframe value
+     * @param absolute ignore ref, use zero instead
+     * @return true if written
+     */
+    public boolean putDouble(int key, double val, long ref, boolean absolute) {
+        // worst case: 3 key + 1 type + 1 control + 8 value
+        if (m_buffer.remaining() < 13)
+            return false;
+        encodeVarint(m_buffer, key);
+        if (absolute) {
+            m_buffer.put((byte) (UdpType.DOUBLE.id | kAbsolute));
+            encodeXor(m_buffer, Double.doubleToRawLongBits(val));
+        } else {
+            m_buffer.put(UdpType.DOUBLE.id);
+            encodeXor(m_buffer, Double.doubleToRawLongBits(val) ^ ref);
+        }
+        return true;
+    }
+
+    /** @return true if written */
+    public boolean putInt(int key, int val) {
+        // worst case: 3 key + 1 type + 5 value
+        if (m_buffer.remaining() < 9)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.INT.id);
+        encodeVarlong(m_buffer, zigzag(val));
+        return true;
+    }
+
+    /** @return true if written */
+    public boolean putLong(int key, long val) {
+        // worst case: 3 key + 1 type + 10 value
+        if (m_buffer.remaining() < 14)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.LONG.id);
+        encodeVarlong(m_buffer, zigzag(val));
+        return true;
+    }
+
+    /** @return true if written */
+    public boolean putString(int key, String val) {
+        final byte[] bytes = val.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > 255)
+            throw new IllegalArgumentException();
+        if (m_buffer.remaining() < 5 + bytes.length)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.STRING.id);
+        m_buffer.put((byte) bytes.length);
+        m_buffer.put(bytes);
+        return true;
+    }
+
+    /** @return true if written */
+    public boolean putDoubleArray(int key, double[] val) {
+        if (val.length > 255)
+            throw new IllegalArgumentException();
+        if (m_buffer.remaining() < 5 + val.length * 8)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.DOUBLE_ARRAY.id);
+        m_buffer.put((byte) val.length);
+        for (int i = 0; i < val.length; ++i) {
+            m_buffer.putDouble(val[i]);
+        }
+        return true;
+    }
+
+    /** @return true if written */
+    public boolean putRaw(int key, byte[] val) {
+        if (val.length > 255)
+            throw new IllegalArgumentException();
+        if (m_buffer.remaining() < 5 + val.length)
+            return false;
+        encodeVarint(m_buffer, key);
+        m_buffer.put(UdpType.RAW.id);
+        m_buffer.put((byte) val.length);
+        m_buffer.put(val);
+        return true;
+    }
+
+    //////////////////////////////////////////////////
+    //
+    // decoding
+    //
+
+    /** True if the packet is protocol 3. Doesn't move the position. */
+    public static boolean isDelta(ByteBuffer packet) {
+        return packet.limit() >= kHeaderBytes && packet.getChar(8) == 0;
+    }
+
+    /** Absolute get, doesn't move the position. */
+    public static boolean isKeyframe(ByteBuffer packet) {
+        return (packet.get(10) & kKeyframeFlag) != 0;
+    }
+
+    /** Absolute get, doesn't move the position. */
+    public static int keyframeId(ByteBuffer packet) {
+        return packet.getInt(11);
+    }
+
+    /** The raw type byte, including the absolute bit. */
+    public static byte decodeTypeByte(ByteBuffer buf) throws ProtocolException {
+        try {
+            return buf.get();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    /** The type, without the absolute bit. */
+    public static UdpType decodeType(byte b) {
+        return UdpType.get((byte) (b & ~kAbsolute));
+    }
+
+    public static boolean isAbsolute(byte b) {
+        return (b & kAbsolute) != 0;
+    }
+
+    //////////////////////////////////////////////////
+    //
+    // primitives
+    //
+
+    /** Unsigned LEB128. Keys need at most three bytes. */
+    static void encodeVarint(ByteBuffer buf, int val) {
+        while ((val & ~0x7F) != 0) {
+            buf.put((byte) ((val & 0x7F) | 0x80));
+            val >>>= 7;
+        }
+        buf.put((byte) val);
+    }
+
+    public static int decodeVarint(ByteBuffer buf) throws ProtocolException {
+        return (int) decodeVarlong(buf);
+    }
+
+    static void encodeVarlong(ByteBuffer buf, long val) {
+        while ((val & ~0x7FL) != 0) {
+            buf.put((byte) ((val & 0x7F) | 0x80));
+            val >>>= 7;
+        }
+        buf.put((byte) val);
+    }
+
+    public static long decodeVarlong(ByteBuffer buf) throws ProtocolException {
+        try {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+            }
+            throw new ProtocolException();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    static long zigzag(long val) {
+        return (val << 1) ^ (val >> 63);
+    }
+
+    public static long unzigzag(long val) {
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    /** Control byte, then the non-zero middle bytes. */
+    static void encodeXor(ByteBuffer buf, long x) {
+        if (x == 0) {
+            buf.put((byte) 0x80);
+            return;
+        }
+        int lz = Long.numberOfLeadingZeros(x) >>> 3;
+        int tz = Long.numberOfTrailingZeros(x) >>> 3;
+        buf.put((byte) ((lz << 4) | tz));
+        for (int i = 7 - lz; i >= tz; --i) {
+            buf.put((byte) (x >>> (8 * i)));
+        }
+    }
+
+    public static long decodeXor(ByteBuffer buf) throws ProtocolException {
+        try {
+            int control = buf.get() & 0xFF;
+            int lz = control >>> 4;
+            int tz = control & 0x0F;
+            if (lz + tz > 8)
+                throw new ProtocolException();
+            long x = 0;
+            for (int i = 0; i < 8 - lz - tz; ++i) {
+                x = (x << 8) | (buf.get() & 0xFF);
+            }
+            return x << (8 * tz);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package org.team100.lib.logging.primitive;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
-import org.team100.lib.util.Takt;
-import org.team100.lib.util.Util;
+import org.team100.lib.coherence.Takt;
+
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * Send logs to a log recipient via UDP.
@@ -22,6 +26,13 @@ import org.team100.lib.util.Util;
  * 
  * This logger accepts inputs only one value per key per flush period; the
  * newest value wins.
+ * 
+ * In delta mode, it uses UdpDeltaProtocol: every kKeyframePeriod flushes, it
+ * sends every key, and in between, only the keys that were logged with a
+ * value different from the last one sent.
+ * 
+ * Structs are sent as their packed bytes, as in wpilog. The metadata doesn't
+ * say which struct, so the receiver publishes them as raw.
  */
 public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** if false, throw when a duplicate logger is created. */
@@ -39,6 +50,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     private static final double kFlushPeriod = 0.1;
+    /** In delta mode, send a full keyframe every this many flushes, i.e. 1 sec. */
+    static final int kKeyframePeriod = 10;
 
     /** Using lists makes the scan for flushing ever-so-slightly faster */
     private final List<UdpBooleanLogger> booleanLoggers = new ArrayList<>();
@@ -47,6 +60,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final List<UdpDoubleArrayLogger> doubleArrayLoggers = new ArrayList<>();
     private final List<UdpLongLogger> longLoggers = new ArrayList<>();
     private final List<UdpStringLogger> stringLoggers = new ArrayList<>();
+    private final List<UdpRawLogger> rawLoggers = new ArrayList<>();
 
     final List<Metadata> metadata = new ArrayList<>();
     /**
@@ -60,26 +74,48 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final Map<String, UdpDoubleArrayLogger> doubleArrayIdx = new HashMap<>();
     private final Map<String, UdpLongLogger> longIdx = new HashMap<>();
     private final Map<String, UdpStringLogger> stringIdx = new HashMap<>();
+    private final Map<String, UdpRawLogger> rawIdx = new HashMap<>();
     private final Consumer<ByteBuffer> m_bufferSink;
     private final Consumer<ByteBuffer> m_metadataSink;
 
     // keep the output buffers forever because allocating it is slow.
     private final UdpPrimitiveProtocol m_dataProtocol;
     private final UdpMetadataProtocol m_metadataProtocol;
+    /** nullable, only in delta mode */
+    private final UdpDeltaProtocol m_deltaProtocol;
 
     /** Current offset of label dumper */
     int offset = 0;
 
     private double flushTime;
 
+    /** Flushes since the last keyframe, in delta mode. */
+    private int m_flushesSinceKeyframe;
+    /**
+     * Starts somewhere random so that the receiver won't confuse a new session's
+     * keyframes with an old one's.
+     */
+    private int m_keyframeId;
+
     public UdpPrimitiveLogger(
             Consumer<ByteBuffer> dataSink,
             Consumer<ByteBuffer> metadataSink) {
+        this(dataSink, metadataSink, false);
+    }
+
+    /** @param delta use UdpDeltaProtocol */
+    public UdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink,
+            boolean delta) {
         m_bufferSink = dataSink;
         m_metadataSink = metadataSink;
         m_dataProtocol = new UdpPrimitiveProtocol();
         m_metadataProtocol = new UdpMetadataProtocol();
+        m_deltaProtocol = delta ? new UdpDeltaProtocol() : null;
         flushTime = 0;
+        m_flushesSinceKeyframe = kKeyframePeriod;
+        m_keyframeId = new Random().nextInt() & 0x3FFFFFFF;
     }
 
     /**
@@ -137,8 +173,15 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return false;
     }
 
-    /** Send at least one packet. */
+    /**
+     * Send at least one packet (except in delta mode, where there's nothing to
+     * send if nothing has changed since the keyframe).
+     */
     public void flush() {
+        if (m_deltaProtocol != null) {
+            flushDelta();
+            return;
+        }
         m_dataProtocol.clear();
         flushBoolean();
         flushDouble();
@@ -146,6 +189,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         flushDoubleArray();
         flushLong();
         flushString();
+        flushRaw();
         m_bufferSink.accept(m_dataProtocol.trim());
     }
 
@@ -153,6 +197,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private boolean m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Last value sent, for delta mode. */
+        private boolean m_sent;
 
         public UdpBooleanLogger(String label) {
             m_key = getKey(UdpType.BOOLEAN, label);
@@ -170,6 +218,14 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private double m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Keyframe value bits, for delta mode. */
+        private long m_ref;
+        /** Last value bits sent, for delta mode. */
+        private long m_sent;
+        /** In a keyframe, so the receiver has m_ref. */
+        private boolean m_keyframed;
 
         public UdpDoubleLogger(String label) {
             m_key = getKey(UdpType.DOUBLE, label);
@@ -188,6 +244,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private int m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Last value sent, for delta mode. */
+        private int m_sent;
 
         public UdpIntLogger(String label) {
             m_key = getKey(UdpType.INT, label);
@@ -205,6 +265,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private double[] m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Copy of the last value sent, for delta mode. */
+        private double[] m_sent;
 
         public UdpDoubleArrayLogger(String label) {
             m_key = getKey(UdpType.DOUBLE_ARRAY, label);
@@ -222,6 +286,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private long m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Last value sent, for delta mode. */
+        private long m_sent;
 
         public UdpLongLogger(String label) {
             m_key = getKey(UdpType.LONG, label);
@@ -240,6 +308,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         private final int m_key;
         private String m_val;
         private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Last value sent, for delta mode. */
+        private String m_sent;
 
         public UdpStringLogger(String label) {
             m_key = getKey(UdpType.STRING, label);
@@ -253,6 +325,34 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
+    /** Packed struct bytes; any struct with the right size can use it. */
+    public class UdpRawLogger {
+        private final int m_key;
+        private final byte[] m_val;
+        private final ByteBuffer m_buf;
+        private boolean m_dirty;
+        /** Sent at least once, for delta mode. */
+        private boolean m_hasSent;
+        /** Copy of the last value sent, for delta mode. */
+        private final byte[] m_sent;
+
+        public UdpRawLogger(String label, int size) {
+            if (size > 255)
+                throw new IllegalArgumentException("struct too big: " + label);
+            m_key = getKey(UdpType.RAW, label);
+            m_val = new byte[size];
+            m_buf = ByteBuffer.wrap(m_val).order(ByteOrder.LITTLE_ENDIAN);
+            m_sent = new byte[size];
+            rawLoggers.add(this);
+        }
+
+        public <T> void log(Struct<T> struct, T val) {
+            m_buf.clear();
+            struct.pack(m_buf, val);
+            m_dirty = true;
+        }
+    }
+
     //////////////////////////////////////////
 
     /** @param putter puts the value if there's room, returns false if not. */
@@ -267,6 +367,126 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     }
 
+    /**
+     * Send the keys that were logged since the last flush with a value different
+     * from the one last sent, or all of them if it's time for a keyframe. Doubles
+     * are XOR'ed with the keyframe value, except the ones that weren't in the
+     * keyframe (because they hadn't been logged yet), which are sent as absolute
+     * values.
+     */
+    private void flushDelta() {
+        boolean keyframe = m_flushesSinceKeyframe >= kKeyframePeriod;
+        if (keyframe) {
+            m_keyframeId++;
+            m_flushesSinceKeyframe = 0;
+        }
+        m_flushesSinceKeyframe++;
+        m_deltaProtocol.clear(keyframe, m_keyframeId);
+        for (UdpBooleanLogger logger : booleanLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || logger.m_val != logger.m_sent);
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putBoolean(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putBoolean(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            logger.m_sent = logger.m_val;
+        }
+        for (UdpDoubleLogger logger : doubleLoggers) {
+            long bits = Double.doubleToRawLongBits(logger.m_val);
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || bits != logger.m_sent);
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            // not in the keyframe, so the receiver doesn't have a reference.
+            boolean absolute = keyframe || !logger.m_keyframed;
+            if (!m_deltaProtocol.putDouble(logger.m_key, logger.m_val, logger.m_ref, absolute)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putDouble(logger.m_key, logger.m_val, logger.m_ref, absolute);
+            }
+            logger.m_hasSent = true;
+            logger.m_sent = bits;
+            if (keyframe) {
+                logger.m_ref = bits;
+                logger.m_keyframed = true;
+            }
+        }
+        for (UdpIntLogger logger : integerLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || logger.m_val != logger.m_sent);
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putInt(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putInt(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            logger.m_sent = logger.m_val;
+        }
+        for (UdpDoubleArrayLogger logger : doubleArrayLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || !Arrays.equals(logger.m_val, logger.m_sent));
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putDoubleArray(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putDoubleArray(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            // the caller may reuse its array, so keep a copy.
+            if (logger.m_sent == null || logger.m_sent.length != logger.m_val.length)
+                logger.m_sent = logger.m_val.clone();
+            else
+                System.arraycopy(logger.m_val, 0, logger.m_sent, 0, logger.m_sent.length);
+        }
+        for (UdpLongLogger logger : longLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || logger.m_val != logger.m_sent);
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putLong(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putLong(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            logger.m_sent = logger.m_val;
+        }
+        for (UdpStringLogger logger : stringLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || !logger.m_val.equals(logger.m_sent));
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putString(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putString(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            logger.m_sent = logger.m_val;
+        }
+        for (UdpRawLogger logger : rawLoggers) {
+            boolean changed = logger.m_dirty && (!logger.m_hasSent || !Arrays.equals(logger.m_val, logger.m_sent));
+            logger.m_dirty = false;
+            if (!changed && !(keyframe && logger.m_hasSent))
+                continue;
+            if (!m_deltaProtocol.putRaw(logger.m_key, logger.m_val)) {
+                sendDelta(keyframe);
+                m_deltaProtocol.putRaw(logger.m_key, logger.m_val);
+            }
+            logger.m_hasSent = true;
+            System.arraycopy(logger.m_val, 0, logger.m_sent, 0, logger.m_sent.length);
+        }
+        if (!m_deltaProtocol.isEmpty())
+            m_bufferSink.accept(m_deltaProtocol.trim());
+    }
+
+    /** The packet is full, send it and start another with the same header. */
+    private void sendDelta(boolean keyframe) {
+        m_bufferSink.accept(m_deltaProtocol.trim());
+        m_deltaProtocol.clear(keyframe, m_keyframeId);
+    }
+
     private void flushBoolean() {
         for (UdpBooleanLogger logger : booleanLoggers) {
             if (logger.m_dirty) {
@@ -321,11 +541,20 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
+    private void flushRaw() {
+        for (UdpRawLogger logger : rawLoggers) {
+            if (logger.m_dirty) {
+                putAndMaybeSend(() -> m_dataProtocol.putRaw(logger.m_key, logger.m_val));
+                logger.m_dirty = false;
+            }
+        }
+    }
+
     @Override
     public PrimitiveBooleanLogger booleanLogger(String label) {
         if (booleanIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return booleanIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -340,7 +569,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     public PrimitiveDoubleLogger doubleLogger(String label) {
         if (doubleIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return doubleIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -355,7 +584,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     public PrimitiveIntLogger intLogger(String label) {
         if (intIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return intIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -370,7 +599,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
         if (doubleArrayIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return doubleArrayIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -385,7 +614,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     public PrimitiveLongLogger longLogger(String label) {
         if (longIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return longIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -400,7 +629,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     public PrimitiveStringLogger stringLogger(String label) {
         if (stringIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
+                System.out.println("WARNING: duplicate label " + label);
                 return stringIdx.get(label);
             } else {
                 throw new IllegalArgumentException("duplicate label " + label);
@@ -411,4 +640,20 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return x;
     }
 
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        if (rawIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                System.out.println("WARNING: duplicate label " + label);
+                UdpRawLogger x = rawIdx.get(label);
+                return val -> x.log(struct, val);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        UdpRawLogger x = new UdpRawLogger(label, struct.getSize());
+        rawIdx.put(label, x);
+        return val -> x.log(struct, val);
+    }
+
 }
@@ -104,6 +104,11 @@ public class UdpPrimitiveProtocol {
         return encodeDoubleArray(m_buffer, key, val) != 0;
     }
 
+    /** @return true if written */
+    public boolean putRaw(int key, byte[] val) {
+        return encodeRaw(m_buffer, key, val) != 0;
+    }
+
     /** just the key */
     public static int decodeKey(ByteBuffer buf) throws ProtocolException {
         try {
@@ -309,4 +314,39 @@ public class UdpPrimitiveProtocol {
             throw new ProtocolException();
         }
     }
+
+    /**
+     * For packed structs; the bytes are whatever Struct.pack() wrote.
+     * 
+     * <pre>
+     * KKTLbbbbbbbb
+     * ^^           key (2 bytes)
+     *   ^          type (1 byte)
+     *    ^         length (1 byte)
+     *     ^^^^^^^^ bytes (255 max)
+     * </pre>
+     */
+    static int encodeRaw(ByteBuffer buf, int key, byte[] val) {
+        if (val.length > 255)
+            throw new IllegalArgumentException();
+        final int totalLength = 4 + val.length;
+        if (buf.remaining() < totalLength)
+            return 0;
+        buf.putChar((char) key); // 2 bytes
+        buf.put(UdpType.RAW.id); // type = 1 byte
+        buf.put((byte) val.length); // 1 byte
+        buf.put(val);
+        return totalLength;
+    }
+
+    public static byte[] decodeRaw(ByteBuffer buf) throws ProtocolException {
+        try {
+            int length = buf.get() & 0xFF;
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            return bytes;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
 }
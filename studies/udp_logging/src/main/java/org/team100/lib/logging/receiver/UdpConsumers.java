@@ -5,14 +5,12 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.team100.lib.logging.primitive.UdpType;
-import org.team100.lib.util.Util;
 
 import edu.wpi.first.networktables.BooleanPublisher;
 import edu.wpi.first.networktables.DoubleArrayPublisher;
@@ -20,18 +18,30 @@ import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawPublisher;
 import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.util.datalog.BooleanLogEntry;
 import edu.wpi.first.util.datalog.DataLogBackgroundWriter;
 import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
 import edu.wpi.first.util.datalog.DoubleLogEntry;
 import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
 import edu.wpi.first.util.datalog.StringLogEntry;
 
 /**
  * All the publishers and log entries.
+ * 
  * The meta reader adds new entries here (in its own thread), and the data
- * reader adds items (in its own thread), so we use ConcurrentHashMap.
+ * workers use them (in their own threads). The keys are small dense ints
+ * (see UdpPrimitiveLogger.getKey()) so the entries are in arrays indexed by
+ * key, which is much faster than ConcurrentHashMap. The publishers and entries
+ * are immutable, so a worker racing with the meta reader sees either null (and
+ * drops the value, as it would if the metadata were late) or the whole thing.
+ * 
+ * A new session (i.e. a new timestamp) gets a new log file. The reader drains
+ * the workers before that (see UdpDataReader), and the swap is synchronized
+ * with the meta reader and the flusher, so nobody uses the old file after it's
+ * closed.
  */
 public class UdpConsumers implements UdpConsumersInterface {
     // see DataLogManager.java
@@ -44,29 +54,37 @@ public class UdpConsumers implements UdpConsumersInterface {
     // write to disk
     private static final boolean LOG = true;
 
+    /** Keys are two bytes. */
+    private static final int kMaxKeys = 65536;
+
     // write the count periodically
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private final AtomicInteger counter = new AtomicInteger(0);
+    /** Many workers increment this, so it needs to avoid contention. */
+    private final LongAdder counter = new LongAdder();
 
-    NetworkTableInstance inst;
-    DataLogBackgroundWriter log_file;
+    /** Null until the first session. */
+    volatile NetworkTableInstance inst;
+    /** Null until the first session. */
+    volatile DataLogBackgroundWriter log_file;
 
     volatile long m_timestamp;
 
-    Map<Integer, BooleanPublisher> booleanPublishers = new ConcurrentHashMap<>();
-    Map<Integer, BooleanLogEntry> booleanEntries = new ConcurrentHashMap<>();
-    Map<Integer, DoublePublisher> doublePublishers = new ConcurrentHashMap<>();
-    Map<Integer, DoubleLogEntry> doubleEntries = new ConcurrentHashMap<>();
-    Map<Integer, IntegerPublisher> intPublishers = new ConcurrentHashMap<>();
-    Map<Integer, IntegerLogEntry> intEntries = new ConcurrentHashMap<>();
-    Map<Integer, DoubleArrayPublisher> doubleArrayPublishers = new ConcurrentHashMap<>();
-    Map<Integer, DoubleArrayLogEntry> doubleArrayEntries = new ConcurrentHashMap<>();
-    Map<Integer, StringPublisher> stringPublishers = new ConcurrentHashMap<>();
-    Map<Integer, StringLogEntry> stringEntries = new ConcurrentHashMap<>();
+    final BooleanPublisher[] booleanPublishers = new BooleanPublisher[kMaxKeys];
+    final BooleanLogEntry[] booleanEntries = new BooleanLogEntry[kMaxKeys];
+    final DoublePublisher[] doublePublishers = new DoublePublisher[kMaxKeys];
+    final DoubleLogEntry[] doubleEntries = new DoubleLogEntry[kMaxKeys];
+    final IntegerPublisher[] intPublishers = new IntegerPublisher[kMaxKeys];
+    final IntegerLogEntry[] intEntries = new IntegerLogEntry[kMaxKeys];
+    final DoubleArrayPublisher[] doubleArrayPublishers = new DoubleArrayPublisher[kMaxKeys];
+    final DoubleArrayLogEntry[] doubleArrayEntries = new DoubleArrayLogEntry[kMaxKeys];
+    final StringPublisher[] stringPublishers = new StringPublisher[kMaxKeys];
+    final StringLogEntry[] stringEntries = new StringLogEntry[kMaxKeys];
+    final RawPublisher[] rawPublishers = new RawPublisher[kMaxKeys];
+    final RawLogEntry[] rawEntries = new RawLogEntry[kMaxKeys];
 
     public UdpConsumers() {
         scheduler.scheduleAtFixedRate(
-                () -> Util.printf("counter %d\n", counter.getAndSet(0)),
+                () -> System.out.printf("counter %d\n", counter.sumThenReset()),
                 0, 1, SECONDS);
         if (PUB) {
             // inst = NetworkTableInstance.getDefault();
@@ -89,53 +107,64 @@ public class UdpConsumers implements UdpConsumersInterface {
             return true;
         }
         if (m_timestamp == 0 || timestamp != m_timestamp) {
-            m_timestamp = 0;
-            
-            booleanPublishers.clear();
-            booleanEntries.clear();
-            doublePublishers.clear();
-            doubleEntries.clear();
-            intPublishers.clear();
-            intEntries.clear();
-            doubleArrayPublishers.clear();
-            doubleArrayEntries.clear();
-            stringPublishers.clear();
-            stringEntries.clear();
+            newSession(timestamp);
+            return true;
+        }
+        return true;
+    }
 
-            // make a new log file?
-            if (log_file != null)
-                log_file.close();
-            log_file = new DataLogBackgroundWriter("", "", 0.1);
-            Util.println("impl " + log_file.getImpl());
-            Instant i = Instant.ofEpochSecond(timestamp);
-            // TODO: sometimes this fails because the internal
-            // "impl" is somehow null!?
-            log_file.setFilename("FRC_" + m_timeFormatter.format(i) + ".wpilog");
+    private synchronized void newSession(long timestamp) {
+        m_timestamp = 0;
 
-            // restart the NT server?
-            if (inst != null)
-                inst.close();
-            inst = NetworkTableInstance.getDefault();
-            inst.startServer();
+        Arrays.fill(booleanPublishers, null);
+        Arrays.fill(booleanEntries, null);
+        Arrays.fill(doublePublishers, null);
+        Arrays.fill(doubleEntries, null);
+        Arrays.fill(intPublishers, null);
+        Arrays.fill(intEntries, null);
+        Arrays.fill(doubleArrayPublishers, null);
+        Arrays.fill(doubleArrayEntries, null);
+        Arrays.fill(stringPublishers, null);
+        Arrays.fill(stringEntries, null);
+        Arrays.fill(rawPublishers, null);
+        Arrays.fill(rawEntries, null);
 
-            m_timestamp = timestamp;
-            return true;
+        // open the new file before closing the old one, so log_file is never a
+        // closed file.
+        DataLogBackgroundWriter newLog = new DataLogBackgroundWriter("", "", 0.1);
+        System.out.println("impl " + newLog.getImpl());
+        Instant i = Instant.ofEpochSecond(timestamp);
+        // TODO: sometimes this fails because the internal
+        // "impl" is somehow null!?
+        newLog.setFilename("FRC_" + m_timeFormatter.format(i) + ".wpilog");
+        DataLogBackgroundWriter oldLog = log_file;
+        log_file = newLog;
+        if (oldLog != null)
+            oldLog.close();
+
+        // The default instance can't be closed (close() does nothing to it), so
+        // the server just keeps running across sessions.
+        if (inst == null) {
+            NetworkTableInstance newInst = NetworkTableInstance.getDefault();
+            newInst.startServer();
+            inst = newInst;
         }
-        return true;
+
+        m_timestamp = timestamp;
     }
 
     @Override
     public void acceptBoolean(int key, boolean val) {
         if (m_timestamp == 0)
             return;
-        counter.incrementAndGet();
+        counter.increment();
         if (PUB) {
-            BooleanPublisher pub = booleanPublishers.get(key);
+            BooleanPublisher pub = booleanPublishers[key];
             if (pub != null)
                 pub.set(val);
         }
         if (LOG) {
-            BooleanLogEntry entry = booleanEntries.get(key);
+            BooleanLogEntry entry = booleanEntries[key];
             if (entry != null)
                 entry.append(val);
         }
@@ -145,14 +174,14 @@ public class UdpConsumers implements UdpConsumersInterface {
     public void acceptDouble(int key, double val) {
         if (m_timestamp == 0)
             return;
-        counter.incrementAndGet();
+        counter.increment();
         if (PUB) {
-            DoublePublisher pub = doublePublishers.get(key);
+            DoublePublisher pub = doublePublishers[key];
             if (pub != null)
                 pub.set(val);
         }
         if (LOG) {
-            DoubleLogEntry entry = doubleEntries.get(key);
+            DoubleLogEntry entry = doubleEntries[key];
             if (entry != null)
                 entry.append(val);
         }
@@ -162,14 +191,14 @@ public class UdpConsumers implements UdpConsumersInterface {
     public void acceptInt(int key, int val) {
         if (m_timestamp == 0)
             return;
-        counter.incrementAndGet();
+        counter.increment();
         if (PUB) {
-            IntegerPublisher pub = intPublishers.get(key);
+            IntegerPublisher pub = intPublishers[key];
             if (pub != null)
                 pub.set(val);
         }
         if (LOG) {
-            IntegerLogEntry entry = intEntries.get(key);
+            IntegerLogEntry entry = intEntries[key];
             if (entry != null)
                 entry.append(val);
         }
@@ -179,14 +208,14 @@ public class UdpConsumers implements UdpConsumersInterface {
     public void acceptDoubleArray(int key, double[] val) {
         if (m_timestamp == 0)
             return;
-        counter.incrementAndGet();
+        counter.increment();
         if (PUB) {
-            DoubleArrayPublisher pub = doubleArrayPublishers.get(key);
+            DoubleArrayPublisher pub = doubleArrayPublishers[key];
             if (pub != null)
                 pub.set(val);
         }
         if (LOG) {
-            DoubleArrayLogEntry entry = doubleArrayEntries.get(key);
+            DoubleArrayLogEntry entry = doubleArrayEntries[key];
             if (entry != null)
                 entry.append(val);
         }
@@ -196,83 +225,120 @@ public class UdpConsumers implements UdpConsumersInterface {
     public void acceptString(int key, String val) {
         if (m_timestamp == 0)
             return;
-        counter.incrementAndGet();
+        counter.increment();
+        if (PUB) {
+            StringPublisher pub = stringPublishers[key];
+            if (pub != null)
+                pub.set(val);
+        }
+        if (LOG) {
+            StringLogEntry entry = stringEntries[key];
+            if (entry != null)
+                entry.append(val);
+        }
+    }
+
+    @Override
+    public void acceptRaw(int key, byte[] val) {
+        if (m_timestamp == 0)
+            return;
+        counter.increment();
         if (PUB) {
-            StringPublisher pub = stringPublishers.get(key);
+            RawPublisher pub = rawPublishers[key];
             if (pub != null)
                 pub.set(val);
         }
         if (LOG) {
-            StringLogEntry entry = stringEntries.get(key);
+            RawLogEntry entry = rawEntries[key];
             if (entry != null)
                 entry.append(val);
         }
     }
 
+    /** Synchronized with newSession(), so it doesn't use a closed log file. */
     @Override
-    public void acceptMeta(int key, UdpType type, String val) {
-        counter.incrementAndGet();
+    public synchronized void acceptMeta(int key, UdpType type, String val) {
+        if (m_timestamp == 0)
+            return;
+        counter.increment();
         if (PUB) {
             switch (type) {
                 case BOOLEAN -> {
-                    booleanPublishers.computeIfAbsent(key, k -> {
+                    if (booleanPublishers[key] == null) {
                         var t = inst.getBooleanTopic(val);
-                        var p = t.publish(PubSubOption.keepDuplicates(true));
+                        booleanPublishers[key] = t.publish(PubSubOption.keepDuplicates(true));
                         t.setRetained(true);
-                        return p;
-                    });
+                    }
                 }
                 case DOUBLE -> {
-                    doublePublishers.computeIfAbsent(key, k -> {
+                    if (doublePublishers[key] == null) {
                         var t = inst.getDoubleTopic(val);
-                        var p = t.publish(PubSubOption.keepDuplicates(true));
+                        doublePublishers[key] = t.publish(PubSubOption.keepDuplicates(true));
                         t.setRetained(true);
-                        return p;
-                    });
+                    }
                 }
                 case INT, LONG -> {
-                    intPublishers.computeIfAbsent(key, k -> {
+                    if (intPublishers[key] == null) {
                         var t = inst.getIntegerTopic(val);
-                        var p = t.publish(PubSubOption.keepDuplicates(true));
+                        intPublishers[key] = t.publish(PubSubOption.keepDuplicates(true));
                         t.setRetained(true);
-                        return p;
-                    });
+                    }
                 }
                 case DOUBLE_ARRAY -> {
-                    doubleArrayPublishers.computeIfAbsent(key, k -> {
+                    if (doubleArrayPublishers[key] == null) {
                         var t = inst.getDoubleArrayTopic(val);
-                        var p = t.publish(PubSubOption.keepDuplicates(true));
+                        doubleArrayPublishers[key] = t.publish(PubSubOption.keepDuplicates(true));
                         t.setRetained(true);
-                        return p;
-                    });
+                    }
                 }
                 case STRING -> {
-                    stringPublishers.computeIfAbsent(key, k -> {
+                    if (stringPublishers[key] == null) {
                         var t = inst.getStringTopic(val);
-                        var p = t.publish(PubSubOption.keepDuplicates(true));
+                        stringPublishers[key] = t.publish(PubSubOption.keepDuplicates(true));
+                        t.setRetained(true);
+                    }
+                }
+                case RAW -> {
+                    // the struct type isn't in the metadata, so it's just raw.
+                    if (rawPublishers[key] == null) {
+                        var t = inst.getRawTopic(val);
+                        rawPublishers[key] = t.publish("raw", PubSubOption.keepDuplicates(true));
                         t.setRetained(true);
-                        return p;
-                    });
+                    }
                 }
                 default -> {
-                    Util.warn("unknown meta type 1");
+                    System.out.println("WARNING: unknown meta type 1");
                 }
             }
         }
         if (LOG) {
             switch (type) {
-                case BOOLEAN -> booleanEntries.computeIfAbsent(key,
-                        k -> new BooleanLogEntry(log_file, val));
-                case DOUBLE -> doubleEntries.computeIfAbsent(key,
-                        k -> new DoubleLogEntry(log_file, val));
-                case INT, LONG -> intEntries.computeIfAbsent(key,
-                        k -> new IntegerLogEntry(log_file, val));
-                case DOUBLE_ARRAY -> doubleArrayEntries.computeIfAbsent(key,
-                        k -> new DoubleArrayLogEntry(log_file, val));
-                case STRING -> stringEntries.computeIfAbsent(key,
-                        k -> new StringLogEntry(log_file, val));
+                case BOOLEAN -> {
+                    if (booleanEntries[key] == null)
+                        booleanEntries[key] = new BooleanLogEntry(log_file, val);
+                }
+                case DOUBLE -> {
+                    if (doubleEntries[key] == null)
+                        doubleEntries[key] = new DoubleLogEntry(log_file, val);
+                }
+                case INT, LONG -> {
+                    if (intEntries[key] == null)
+                        intEntries[key] = new IntegerLogEntry(log_file, val);
+                }
+                case DOUBLE_ARRAY -> {
+                    if (doubleArrayEntries[key] == null)
+                        doubleArrayEntries[key] = new DoubleArrayLogEntry(log_file, val);
+                }
+                case STRING -> {
+                    if (stringEntries[key] == null)
+                        stringEntries[key] = new StringLogEntry(log_file, val);
+                }
+                case RAW -> {
+                    if (rawEntries[key] == null)
+                        rawEntries[key] = new RawLogEntry(log_file, val);
+                }
                 default -> {
-                    Util.println("unknown meta type 2");
+                    System.out.println("unknown meta type 2");
                 }
             }
         }
@@ -283,11 +349,14 @@ public class UdpConsumers implements UdpConsumersInterface {
      * call flush() often enough to keep it from filling up (thus dropping values).
      */
     @Override
-    public void flush() {
-        if (PUB)
-            inst.flush();
-        if (LOG)
-            log_file.flush();
+    public synchronized void flush() {
+        // before the first session, there's nothing to flush.
+        NetworkTableInstance nt = inst;
+        if (PUB && nt != null)
+            nt.flush();
+        DataLogBackgroundWriter log = log_file;
+        if (LOG && log != null)
+            log.flush();
     }
 
     @Override
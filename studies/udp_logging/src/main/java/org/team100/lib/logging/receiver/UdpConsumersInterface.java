@@ -16,6 +16,8 @@ public interface UdpConsumersInterface {
 
     void acceptString(int key, String val);
 
+    void acceptRaw(int key, byte[] val);
+
     void acceptMeta(int key, UdpType type, String val);
 
     void flush();
@@ -1,19 +1,50 @@
 package org.team100.lib.logging.receiver;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.team100.lib.logging.primitive.UdpDeltaProtocol;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 import org.team100.lib.logging.primitive.UdpType;
-import org.team100.lib.util.Util;
 
+/**
+ * Decodes data packets into the consumers. This is called by several worker
+ * threads at once.
+ *
+ * Protocol 2 (UdpPrimitiveProtocol) is stateless. Protocol 3
+ * (UdpDeltaProtocol) needs the keyframe value of each double, which is kept
+ * here, with the id of the keyframe it came from. A keyframe and a delta
+ * packet can be decoded at the same time by different workers, so the id is
+ * used like a seqlock: the writer invalidates the id, writes the value, and
+ * then writes the new id; the reader checks the id before and after reading the
+ * value, and drops the delta if it changed.
+ *
+ * It doesn't flush the consumers: flushing NT and the log file every few keys
+ * was most of the cost of receiving. The receiver flushes them periodically
+ * instead, so the appends are written out in batches.
+ */
 public class UdpDataDecoder {
-    private static final int kFlushFrequency = 50;
+    /** Each packet starts with the timestamp. */
+    private static final int kTimestampBytes = 8;
+    /** Keys are at most two bytes. */
+    private static final int kMaxKeys = 65536;
+    /** Means "no keyframe value," or "being written." */
+    private static final int kInvalid = -1;
     private final UdpConsumersInterface m_consumers;
-    private int flushCounter = 0;
+    /** Keyframe value bits, by key. */
+    private final AtomicLongArray m_ref;
+    /** Keyframe id for m_ref, by key. */
+    private final AtomicIntegerArray m_refId;
 
     public UdpDataDecoder(UdpConsumersInterface consumers) {
         m_consumers = consumers;
+        m_ref = new AtomicLongArray(kMaxKeys);
+        m_refId = new AtomicIntegerArray(kMaxKeys);
+        for (int i = 0; i < kMaxKeys; ++i) {
+            m_refId.set(i, kInvalid);
+        }
     }
 
     /**
@@ -26,10 +57,81 @@ public class UdpDataDecoder {
         return m_consumers.validateTimestamp(timestamp);
     }
 
-    /**
-     * Starts at buf.position()
-     * Flushes the consumers at the end.
-     */
+    /** Decodes all the tuples in the packet, skipping the timestamp. */
+    public void decodePacket(ByteBuffer buf) throws ProtocolException {
+        if (UdpDeltaProtocol.isDelta(buf)) {
+            decodeDeltaPacket(buf);
+            return;
+        }
+        buf.position(kTimestampBytes);
+        while (buf.remaining() > 0) {
+            decode(buf);
+        }
+    }
+
+    /** Protocol 3, see UdpDeltaProtocol. */
+    void decodeDeltaPacket(ByteBuffer buf) throws ProtocolException {
+        boolean keyframe = UdpDeltaProtocol.isKeyframe(buf);
+        int id = UdpDeltaProtocol.keyframeId(buf);
+        buf.position(UdpDeltaProtocol.kHeaderBytes);
+        while (buf.remaining() > 0) {
+            int key = UdpDeltaProtocol.decodeVarint(buf);
+            if (key <= 0 || key >= kMaxKeys)
+                throw new ProtocolException();
+            byte typeByte = UdpDeltaProtocol.decodeTypeByte(buf);
+            UdpType type = UdpDeltaProtocol.decodeType(typeByte);
+            switch (type) {
+                case BOOLEAN -> {
+                    boolean v = UdpPrimitiveProtocol.decodeBoolean(buf);
+                    m_consumers.acceptBoolean(key, v);
+                }
+                case DOUBLE -> {
+                    long x = UdpDeltaProtocol.decodeXor(buf);
+                    if (UdpDeltaProtocol.isAbsolute(typeByte)) {
+                        if (keyframe) {
+                            m_refId.set(key, kInvalid);
+                            m_ref.set(key, x);
+                            m_refId.set(key, id);
+                        }
+                        m_consumers.acceptDouble(key, Double.longBitsToDouble(x));
+                        continue;
+                    }
+                    if (m_refId.get(key) != id)
+                        continue;
+                    long ref = m_ref.get(key);
+                    if (m_refId.get(key) != id)
+                        continue;
+                    m_consumers.acceptDouble(key, Double.longBitsToDouble(ref ^ x));
+                }
+                case INT -> {
+                    long v = UdpDeltaProtocol.unzigzag(UdpDeltaProtocol.decodeVarlong(buf));
+                    m_consumers.acceptInt(key, (int) v);
+                }
+                case DOUBLE_ARRAY -> {
+                    double[] v = UdpPrimitiveProtocol.decodeDoubleArray(buf);
+                    m_consumers.acceptDoubleArray(key, v);
+                }
+                case LONG -> {
+                    long v = UdpDeltaProtocol.unzigzag(UdpDeltaProtocol.decodeVarlong(buf));
+                    m_consumers.acceptInt(key, (int) v);
+                }
+                case STRING -> {
+                    String v = UdpPrimitiveProtocol.decodeString(buf);
+                    m_consumers.acceptString(key, v);
+                }
+                case RAW -> {
+                    byte[] v = UdpPrimitiveProtocol.decodeRaw(buf);
+                    m_consumers.acceptRaw(key, v);
+                }
+                default -> {
+                    // can't skip a value of unknown length.
+                    throw new ProtocolException();
+                }
+            }
+        }
+    }
+
+    /** Decodes one tuple, starting at buf.position() */
     public void decode(ByteBuffer buf) throws ProtocolException {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
@@ -58,11 +160,11 @@ public class UdpDataDecoder {
                 String v = UdpPrimitiveProtocol.decodeString(buf);
                 m_consumers.acceptString(key, v);
             }
-            default -> Util.warn("unknown data decoder type");
-        }
-        if (flushCounter++ > kFlushFrequency) {
-            m_consumers.flush();
-            flushCounter = 0;
+            case RAW -> {
+                byte[] v = UdpPrimitiveProtocol.decodeRaw(buf);
+                m_consumers.acceptRaw(key, v);
+            }
+            default -> System.out.println("WARNING: unknown data decoder type");
         }
     }
 }
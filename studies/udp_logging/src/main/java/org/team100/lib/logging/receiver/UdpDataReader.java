@@ -3,46 +3,51 @@ package org.team100.lib.logging.receiver;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.channels.DatagramChannel;
 
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 import org.team100.lib.logging.primitive.UdpSender;
-import org.team100.lib.util.Util;
 
+/**
+ * Receives data packets directly into the ring, and checks the timestamp; the
+ * workers do the decoding.
+ *
+ * When the timestamp changes, i.e. a new session, the consumers open a new log
+ * file, so the workers are drained first, to be sure none of them is still
+ * appending the old session's values.
+ */
 public class UdpDataReader implements Runnable {
     private final UdpDataDecoder m_decoder;
+    private final UdpRing m_ring;
 
     /** nullable */
     private final DatagramChannel m_channel;
+    /** The previous packet's timestamp. */
+    private long m_timestamp;
 
-    /** TODO: maybe this should be the "protocol"'s buffer' */
-    private final ByteBuffer m_buffer;
-
-    public UdpDataReader(UdpDataDecoder decoder) {
+    public UdpDataReader(UdpDataDecoder decoder, UdpRing ring) {
         m_decoder = decoder;
+        m_ring = ring;
         m_channel = makeChannel(UdpSender.kPort);
-        m_buffer = ByteBuffer.allocateDirect(UdpSender.MTU);
-        // big-endian is the default, but just to make it clear...
-        m_buffer.order(ByteOrder.BIG_ENDIAN);
     }
 
     @Override
     public void run() {
         while (true) {
             try {
-                m_buffer.clear();
+                ByteBuffer buffer = m_ring.claim();
                 // TODO: replace this with socket.read with a timeout
-                m_channel.receive(m_buffer);
-                m_buffer.limit(m_buffer.position());
-                m_buffer.position(0);
-                if (!m_decoder.validateTimestamp(m_buffer)) {
-                    Util.warn("data timestamp is bad, bail");
-                    return;
+                m_channel.receive(buffer);
+                buffer.flip();
+                if (buffer.limit() >= Long.BYTES && buffer.getLong(0) != m_timestamp) {
+                    m_ring.drain();
+                    m_timestamp = buffer.getLong(0);
                 }
-                while (m_buffer.remaining() > 0) {
-                    m_decoder.decode(m_buffer);
+                if (!m_decoder.validateTimestamp(buffer)) {
+                    System.out.println("WARNING: data timestamp is bad, bail");
+                    return;
                 }
+                m_ring.publish();
             } catch (IOException | ProtocolException e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,46 @@
+package org.team100.lib.logging.receiver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+/**
+ * Takes packets from the ring and decodes them. Run several of these, each in
+ * its own thread; each packet is decoded by exactly one of them.
+ *
+ * The keys in one packet are all different, and each key appears at most once
+ * per flush period (0.1 sec), so it doesn't matter much which worker handles
+ * which packet.
+ */
+public class UdpDataWorker implements Runnable {
+    /** When the ring is empty, wait this long before looking again. */
+    private static final long IDLE_NS = 20000;
+
+    private final UdpRing m_ring;
+    private final UdpDataDecoder m_decoder;
+
+    public UdpDataWorker(UdpRing ring, UdpDataDecoder decoder) {
+        m_ring = ring;
+        m_decoder = decoder;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long seq = m_ring.poll();
+            if (seq < 0) {
+                LockSupport.parkNanos(IDLE_NS);
+                continue;
+            }
+            ByteBuffer buf = m_ring.get(seq);
+            try {
+                m_decoder.decodePacket(buf);
+            } catch (ProtocolException e) {
+                System.out.println("WARNING: bad data packet");
+            } finally {
+                m_ring.release(seq);
+            }
+        }
+    }
+}
@@ -7,7 +7,6 @@ import java.nio.ByteOrder;
 import java.nio.channels.DatagramChannel;
 
 import org.team100.lib.logging.primitive.UdpSender;
-import org.team100.lib.util.Util;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
 public class UdpMetaReader implements Runnable {
@@ -29,7 +28,7 @@ public class UdpMetaReader implements Runnable {
 
     @Override
     public void run() {
-        Util.println("meta reader running...");
+        System.out.println("meta reader running...");
         while (true) {
             try {
                 m_buffer.clear();
@@ -38,7 +37,7 @@ public class UdpMetaReader implements Runnable {
                 m_buffer.limit(m_buffer.position());
                 m_buffer.position(0);
                 if (!m_decoder.validateTimestamp(m_buffer)) {
-                    Util.warn("meta timestamp is bad, bail");
+                    System.out.println("WARNING: meta timestamp is bad, bail");
                     return;
                 }
                 while (m_buffer.remaining() > 0) {
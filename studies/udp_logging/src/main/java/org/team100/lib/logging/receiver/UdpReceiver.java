@@ -1,23 +1,61 @@
 package org.team100.lib.logging.receiver;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.team100.lib.logging.primitive.UdpSender;
+
+/**
+ * The receiver pipeline is:
+ * 
+ * <pre>
+ * socket -> UdpDataReader -> UdpRing -> UdpDataWorker (several) -> consumers
+ * </pre>
+ * 
+ * The consumers are flushed periodically, not by the decoders.
+ */
 public class UdpReceiver {
+    /** Packets in flight between the reader and the workers. */
+    private static final int kRingSize = 1024;
+    /** Leave a core for the reader and one for NT. */
+    private static final int kWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    /** Same as the sender's flush period. */
+    private static final long kFlushPeriodMs = 100;
 
     public static void run() throws InterruptedException {
         // sender can go about 30M keys/sec.
-        // real consumer can go about 4M keys/sec.
+        // the single-threaded consumer with hash maps went about 4M keys/sec.
         UdpConsumersInterface consumers = new UdpConsumers();
         // the dummy consumer can keep up, about 30M keys/sec
         // UdpConsumersInterface consumers = new DummyUdpConsumers();
+        UdpRing ring = new UdpRing(kRingSize, UdpSender.MTU);
         UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
         UdpMetaDecoder metaDecoder = new UdpMetaDecoder(consumers);
-        UdpDataReader dataReader = new UdpDataReader(dataDecoder);
+        UdpDataReader dataReader = new UdpDataReader(dataDecoder, ring);
         UdpMetaReader metaReader = new UdpMetaReader(metaDecoder);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < kWorkers; ++i) {
+            Thread worker = new Thread(new UdpDataWorker(ring, dataDecoder));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        ScheduledExecutorService flusher = Executors.newScheduledThreadPool(1);
+        flusher.scheduleAtFixedRate(consumers::flush, kFlushPeriodMs, kFlushPeriodMs, MILLISECONDS);
         Thread dataReaderThread = new Thread(dataReader);
         dataReaderThread.start();
         Thread metaReaderThread = new Thread(metaReader);
         metaReaderThread.start();
         // these should block forever.
         dataReaderThread.join();
+        flusher.shutdown();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
         consumers.close();
     }
 
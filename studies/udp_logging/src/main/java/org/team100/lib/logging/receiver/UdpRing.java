@@ -0,0 +1,135 @@
+package org.team100.lib.logging.receiver;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring of packet buffers, between the socket reader and the
+ * decoder workers.
+ *
+ * There's one producer (the socket reader) and any number of consumers (the
+ * workers). Each slot has a sequence number that says whose turn it is: the
+ * producer may fill slot i when its sequence is the write sequence, and a
+ * consumer may take it when its sequence is one more than that. This is the
+ * usual bounded MPMC queue, specialized for a single producer.
+ *
+ * Nothing is allocated after construction.
+ */
+public class UdpRing {
+    private final int m_capacity;
+    private final int m_mask;
+    private final ByteBuffer[] m_slots;
+    private final AtomicLongArray m_sequence;
+    /** Next slot for consumers to take. */
+    private final AtomicLong m_readSeq;
+    /** Next slot for the producer to fill; only the producer touches this. */
+    private long m_writeSeq;
+
+    /**
+     * @param capacity number of slots, a power of two
+     * @param slotSize bytes per slot, e.g. the MTU
+     */
+    public UdpRing(int capacity, int slotSize) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        m_capacity = capacity;
+        m_mask = capacity - 1;
+        m_slots = new ByteBuffer[capacity];
+        m_sequence = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            // direct buffer is what the channel wants
+            m_slots[i] = ByteBuffer.allocateDirect(slotSize);
+            m_slots[i].order(ByteOrder.BIG_ENDIAN);
+            m_sequence.set(i, i);
+        }
+        m_readSeq = new AtomicLong(0);
+        m_writeSeq = 0;
+    }
+
+    /**
+     * Producer only. Returns the next empty slot, cleared, waiting for the workers
+     * if the ring is full. Fill it and then call publish().
+     */
+    public ByteBuffer claim() {
+        int idx = (int) (m_writeSeq & m_mask);
+        while (m_sequence.get(idx) != m_writeSeq) {
+            // full: the socket buffer will absorb the backlog for a while.
+            // yield rather than spin, so the workers get the core if there
+            // aren't enough to go around.
+            Thread.yield();
+        }
+        ByteBuffer slot = m_slots[idx];
+        slot.clear();
+        return slot;
+    }
+
+    /**
+     * Producer only. Makes the claimed slot visible to the workers. The slot
+     * should be flipped, i.e. limit at the end of the packet.
+     */
+    public void publish() {
+        int idx = (int) (m_writeSeq & m_mask);
+        m_sequence.set(idx, m_writeSeq + 1);
+        m_writeSeq++;
+    }
+
+    /**
+     * Producer only. Wait until the workers have released every published slot,
+     * e.g. so the consumers can switch files without a worker still appending
+     * to the old one.
+     */
+    public void drain() {
+        for (long seq = Math.max(0, m_writeSeq - m_capacity); seq < m_writeSeq; ++seq) {
+            int idx = (int) (seq & m_mask);
+            // published but not yet released.
+            while (m_sequence.get(idx) == seq + 1) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /** Producer only. Copy the packet into the ring. */
+    public void offer(ByteBuffer packet) {
+        ByteBuffer slot = claim();
+        slot.put(packet.duplicate());
+        slot.flip();
+        publish();
+    }
+
+    /**
+     * Consumer. Take the next full slot, if there is one.
+     *
+     * @return the sequence number, to use with get() and release(), or -1 if the
+     *         ring is empty.
+     */
+    public long poll() {
+        long seq = m_readSeq.get();
+        while (true) {
+            long s = m_sequence.get((int) (seq & m_mask));
+            if (s == seq + 1) {
+                if (m_readSeq.compareAndSet(seq, seq + 1))
+                    return seq;
+                // another worker took it.
+                seq = m_readSeq.get();
+            } else if (s < seq + 1) {
+                // not filled yet.
+                return -1;
+            } else {
+                // another worker took it and the producer already refilled it.
+                seq = m_readSeq.get();
+            }
+        }
+    }
+
+    /** Consumer. The slot for the sequence returned by poll(). */
+    public ByteBuffer get(long seq) {
+        return m_slots[(int) (seq & m_mask)];
+    }
+
+    /** Consumer. Give the slot back to the producer. */
+    public void release(long seq) {
+        m_sequence.set((int) (seq & m_mask), seq + m_capacity);
+    }
+}
@@ -0,0 +1,102 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+
+/**
+ * Compares protocol 2 and protocol 3 on data shaped like a match: most keys
+ * are constant (config, idle mechanisms), some move slowly (pose, setpoints),
+ * and a few are noisy (currents, raw sensors).
+ *
+ * There are no recorded match logs in the repo, so the data is synthetic, in
+ * roughly those proportions.
+ */
+class UdpDeltaProtocolPerformanceTest {
+    private static final boolean DEBUG = false;
+    private static final int KEYS = 2000;
+    /** 150 sec at 10 Hz */
+    private static final int FLUSHES = 1500;
+
+    @Test
+    void testRaw() {
+        Result r = run(false);
+        if (DEBUG)
+            System.out.printf("raw   bytes/sec %8.0f packets/sec %5.1f ns/key %5.1f\n",
+                    r.bytesPerSec(), r.packetsPerSec(), r.nsPerKey());
+    }
+
+    @Test
+    void testDelta() {
+        Result r = run(true);
+        if (DEBUG)
+            System.out.printf("delta bytes/sec %8.0f packets/sec %5.1f ns/key %5.1f\n",
+                    r.bytesPerSec(), r.packetsPerSec(), r.nsPerKey());
+    }
+
+    @Test
+    void testRatio() {
+        Result raw = run(false);
+        Result delta = run(true);
+        double ratio = raw.bytes() / (double) delta.bytes();
+        if (DEBUG)
+            System.out.printf("compression ratio %.1f\n", ratio);
+        // the constant keys alone make it several times smaller.
+        assertTrue(ratio > 3);
+    }
+
+    record Result(long bytes, long packets, long elapsedNs) {
+        double bytesPerSec() {
+            return bytes * 10.0 / FLUSHES;
+        }
+
+        double packetsPerSec() {
+            return packets * 10.0 / FLUSHES;
+        }
+
+        double nsPerKey() {
+            return elapsedNs / ((double) KEYS * FLUSHES);
+        }
+    }
+
+    private Result run(boolean delta) {
+        long[] bytes = new long[1];
+        long[] packets = new long[1];
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> {
+            bytes[0] += x.remaining();
+            packets[0]++;
+        }, x -> {
+        }, delta);
+        List<PrimitiveDoubleLogger> loggers = new ArrayList<>();
+        for (int i = 0; i < KEYS; ++i) {
+            loggers.add(udpLogger.doubleLogger("key" + i));
+        }
+        Random random = new Random(0);
+        double[] values = new double[KEYS];
+        for (int i = 0; i < KEYS; ++i) {
+            values[i] = random.nextDouble() * 10;
+        }
+        long startNs = System.nanoTime();
+        for (int f = 0; f < FLUSHES; ++f) {
+            for (int i = 0; i < KEYS; ++i) {
+                int kind = i % 10;
+                if (kind == 8) {
+                    // slow: a little change, rounded like a setpoint
+                    values[i] = Math.round((values[i] + 0.01) * 1000) / 1000.0;
+                } else if (kind == 9) {
+                    // noisy
+                    values[i] = random.nextGaussian();
+                }
+                loggers.get(i).log(values[i]);
+            }
+            udpLogger.flush();
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        return new Result(bytes[0], packets[0], elapsedNs);
+    }
+}
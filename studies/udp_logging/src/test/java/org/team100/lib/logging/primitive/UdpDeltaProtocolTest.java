@@ -0,0 +1,286 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveIntLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.logging.receiver.UdpConsumersInterface;
+import org.team100.lib.logging.receiver.UdpDataDecoder;
+
+class UdpDeltaProtocolTest {
+
+    /** Remembers the latest value of each key, and counts them. */
+    static class Latest implements UdpConsumersInterface {
+        final double[] doubles = new double[100];
+        final int[] ints = new int[100];
+        final String[] strings = new String[100];
+        int count;
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+            count++;
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            count++;
+            doubles[key] = val;
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+            count++;
+            ints[key] = val;
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+            count++;
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+            count++;
+            strings[key] = val;
+        }
+
+        @Override
+        public void acceptRaw(int key, byte[] val) {
+            count++;
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+            //
+        }
+
+        @Override
+        public void flush() {
+            //
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+
+    @Test
+    void testXor() throws ProtocolException {
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        for (long x : new long[] { 0, 1, -1, 0x3ff0000000000000L, 0x0000ff0000000000L, Long.MIN_VALUE }) {
+            bb.clear();
+            UdpDeltaProtocol.encodeXor(bb, x);
+            bb.flip();
+            assertEquals(x, UdpDeltaProtocol.decodeXor(bb));
+            assertEquals(0, bb.remaining());
+        }
+        // zero is just the control byte
+        bb.clear();
+        UdpDeltaProtocol.encodeXor(bb, 0);
+        assertEquals(1, bb.position());
+        // 1.0 is 3ff0000000000000, six trailing zero bytes
+        bb.clear();
+        UdpDeltaProtocol.encodeXor(bb, Double.doubleToRawLongBits(1.0));
+        assertEquals(3, bb.position());
+        assertEquals((byte) 0x06, bb.get(0));
+    }
+
+    @Test
+    void testVarint() throws ProtocolException {
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        for (int x : new int[] { 1, 127, 128, 16383, 16384, 65535 }) {
+            bb.clear();
+            UdpDeltaProtocol.encodeVarint(bb, x);
+            bb.flip();
+            assertEquals(x, UdpDeltaProtocol.decodeVarint(bb));
+        }
+        bb.clear();
+        UdpDeltaProtocol.encodeVarint(bb, 127);
+        assertEquals(1, bb.position());
+        bb.clear();
+        UdpDeltaProtocol.encodeVarint(bb, 65535);
+        assertEquals(3, bb.position());
+    }
+
+    @Test
+    void testZigzag() {
+        for (long x : new long[] { 0, 1, -1, 1000, -1000, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            assertEquals(x, UdpDeltaProtocol.unzigzag(UdpDeltaProtocol.zigzag(x)));
+        }
+        assertEquals(1, UdpDeltaProtocol.zigzag(-1));
+        assertEquals(2, UdpDeltaProtocol.zigzag(1));
+    }
+
+    @Test
+    void testHeader() {
+        UdpDeltaProtocol p = new UdpDeltaProtocol();
+        p.clear(true, 1234);
+        assertTrue(p.isEmpty());
+        ByteBuffer bb = p.trim();
+        assertTrue(UdpDeltaProtocol.isDelta(bb));
+        assertTrue(UdpDeltaProtocol.isKeyframe(bb));
+        assertEquals(1234, UdpDeltaProtocol.keyframeId(bb));
+        p.clear(false, 1235);
+        bb = p.trim();
+        assertFalse(UdpDeltaProtocol.isKeyframe(bb));
+        // protocol 2 is never mistaken for protocol 3
+        UdpPrimitiveProtocol p2 = new UdpPrimitiveProtocol();
+        p2.putInt(1, 0);
+        assertFalse(UdpDeltaProtocol.isDelta(p2.trim()));
+    }
+
+    /** Keyframe, then only changes, with resync after loss. */
+    @Test
+    void testEndToEnd() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> packets.add(copy(x)), x -> {
+        }, true);
+        PrimitiveDoubleLogger d1 = udpLogger.doubleLogger("d1");
+        PrimitiveDoubleLogger d2 = udpLogger.doubleLogger("d2");
+        PrimitiveIntLogger i3 = udpLogger.intLogger("i3");
+        PrimitiveStringLogger s4 = udpLogger.stringLogger("s4");
+        Latest latest = new Latest();
+        UdpDataDecoder decoder = new UdpDataDecoder(latest);
+
+        // first flush is a keyframe with everything
+        d1.log(1.0);
+        d2.log(2.0);
+        i3.log(-3);
+        s4.log("four");
+        udpLogger.flush();
+        assertEquals(1, packets.size());
+        decoder.decodePacket(packets.get(0));
+        assertEquals(4, latest.count);
+        assertEquals(1.0, latest.doubles[1]);
+        assertEquals(2.0, latest.doubles[2]);
+        assertEquals(-3, latest.ints[3]);
+        assertEquals("four", latest.strings[4]);
+
+        // only the change is sent
+        d1.log(1.5);
+        d2.log(2.0);
+        udpLogger.flush();
+        assertEquals(2, packets.size());
+        decoder.decodePacket(packets.get(1));
+        assertEquals(5, latest.count);
+        assertEquals(1.5, latest.doubles[1]);
+
+        // no change, no packet
+        udpLogger.flush();
+        assertEquals(2, packets.size());
+
+        // skip ahead to the next keyframe, and lose it
+        for (int i = 0; i < UdpPrimitiveLogger.kKeyframePeriod - 3; ++i) {
+            udpLogger.flush();
+        }
+        d1.log(7.0);
+        udpLogger.flush();
+        int keyframeIdx = packets.size() - 1;
+        assertTrue(UdpDeltaProtocol.isKeyframe(packets.get(keyframeIdx)));
+
+        // a delta against the lost keyframe is ignored
+        d1.log(8.0);
+        udpLogger.flush();
+        decoder.decodePacket(packets.get(packets.size() - 1));
+        assertEquals(1.5, latest.doubles[1]);
+
+        // next keyframe resyncs
+        for (int i = 0; i < UdpPrimitiveLogger.kKeyframePeriod - 2; ++i) {
+            udpLogger.flush();
+        }
+        d1.log(9.0);
+        udpLogger.flush();
+        assertTrue(UdpDeltaProtocol.isKeyframe(packets.get(packets.size() - 1)));
+        decoder.decodePacket(packets.get(packets.size() - 1));
+        assertEquals(9.0, latest.doubles[1]);
+        d1.log(9.5);
+        udpLogger.flush();
+        decoder.decodePacket(packets.get(packets.size() - 1));
+        assertEquals(9.5, latest.doubles[1]);
+    }
+
+    /** A key logged for the first time between keyframes is sent as absolute. */
+    @Test
+    void testLateKey() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> packets.add(copy(x)), x -> {
+        }, true);
+        PrimitiveDoubleLogger d1 = udpLogger.doubleLogger("d1");
+        PrimitiveDoubleLogger d2 = udpLogger.doubleLogger("d2");
+        Latest latest = new Latest();
+        UdpDataDecoder decoder = new UdpDataDecoder(latest);
+        d1.log(1.0);
+        udpLogger.flush();
+        decoder.decodePacket(packets.get(0));
+        d2.log(2.0);
+        udpLogger.flush();
+        decoder.decodePacket(packets.get(1));
+        assertEquals(2.0, latest.doubles[2]);
+    }
+
+    /**
+     * Only keys logged since the last flush, with a new value, are sent; zero is
+     * a value like any other.
+     */
+    @Test
+    void testDirty() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> packets.add(copy(x)), x -> {
+        }, true);
+        PrimitiveDoubleLogger d1 = udpLogger.doubleLogger("d1");
+        PrimitiveIntLogger i2 = udpLogger.intLogger("i2");
+        Latest latest = new Latest();
+        UdpDataDecoder decoder = new UdpDataDecoder(latest);
+        d1.log(1.0);
+        udpLogger.flush();
+        decoder.decodePacket(packets.get(0));
+        assertEquals(1, latest.count);
+
+        // same value again, nothing to send
+        d1.log(1.0);
+        udpLogger.flush();
+        assertEquals(1, packets.size());
+
+        // first value of a late key is sent, even if it's zero
+        i2.log(0);
+        udpLogger.flush();
+        assertEquals(2, packets.size());
+        decoder.decodePacket(packets.get(1));
+        assertEquals(2, latest.count);
+        assertEquals(0, latest.ints[2]);
+
+        // a change and back is two packets
+        d1.log(2.0);
+        udpLogger.flush();
+        d1.log(1.0);
+        udpLogger.flush();
+        assertEquals(4, packets.size());
+        decoder.decodePacket(packets.get(2));
+        assertEquals(2.0, latest.doubles[1]);
+        decoder.decodePacket(packets.get(3));
+        assertEquals(1.0, latest.doubles[1]);
+    }
+
+    /** The logger reuses its buffer, so keep a copy. */
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer b = ByteBuffer.allocate(x.remaining());
+        b.put(x.duplicate());
+        b.flip();
+        return b;
+    }
+}
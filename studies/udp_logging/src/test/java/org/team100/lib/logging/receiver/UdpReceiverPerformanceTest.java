@@ -0,0 +1,136 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.DummySender;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpSender;
+import org.team100.lib.logging.primitive.UdpType;
+
+/**
+ * Runs the receiver pipeline in-process, with the DummySender feeding the ring
+ * directly instead of the network, to measure decoding throughput.
+ */
+class UdpReceiverPerformanceTest {
+    private static final boolean DEBUG = false;
+
+    /** Does what UdpConsumers does, minus NT and the log file. */
+    static class CountingConsumers implements UdpConsumersInterface {
+        final LongAdder counter = new LongAdder();
+        final double[] doubles = new double[65536];
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+            counter.increment();
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            counter.increment();
+            doubles[key] = val;
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+            counter.increment();
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+            counter.increment();
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+            counter.increment();
+        }
+
+        @Override
+        public void acceptRaw(int key, byte[] val) {
+            counter.increment();
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+            //
+        }
+
+        @Override
+        public void flush() {
+            //
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+
+    @Test
+    void testOneWorker() throws InterruptedException {
+        double keysPerSec = run(1);
+        if (DEBUG)
+            System.out.printf("1 worker keys/sec %.0f\n", keysPerSec);
+    }
+
+    @Test
+    void testFourWorkers() throws InterruptedException {
+        double keysPerSec = run(4);
+        if (DEBUG)
+            System.out.printf("4 workers keys/sec %.0f\n", keysPerSec);
+    }
+
+    /** @return keys per second */
+    private double run(int workerCount) throws InterruptedException {
+        final int KEYS = 5000;
+        final int FLUSHES = 1000;
+        CountingConsumers consumers = new CountingConsumers();
+        UdpRing ring = new UdpRing(1024, UdpSender.MTU);
+        UdpDataDecoder decoder = new UdpDataDecoder(consumers);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; ++i) {
+            Thread t = new Thread(new UdpDataWorker(ring, decoder));
+            t.start();
+            workers.add(t);
+        }
+        DummySender sender = new DummySender(ring::offer);
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(sender, x -> {
+        });
+        List<PrimitiveDoubleLogger> loggers = new ArrayList<>();
+        for (int i = 0; i < KEYS; ++i) {
+            loggers.add(udpLogger.doubleLogger("key" + i));
+        }
+
+        long startNs = System.nanoTime();
+        for (int f = 0; f < FLUSHES; ++f) {
+            for (int i = 0; i < KEYS; ++i) {
+                loggers.get(i).log(f);
+            }
+            udpLogger.flush();
+        }
+        long deadline = System.nanoTime() + 60000000000L;
+        while (consumers.counter.sum() < (long) KEYS * FLUSHES && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        double elapsedS = (System.nanoTime() - startNs) / 1e9;
+        for (Thread t : workers) {
+            t.interrupt();
+            t.join();
+        }
+        if (DEBUG)
+            System.out.printf("packets %d elapsed sec %.3f\n", sender.getCounter(), elapsedS);
+        assertEquals((long) KEYS * FLUSHES, consumers.counter.sum());
+        return KEYS * FLUSHES / elapsedS;
+    }
+}
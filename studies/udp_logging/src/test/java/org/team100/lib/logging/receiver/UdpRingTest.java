@@ -0,0 +1,127 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+class UdpRingTest {
+
+    @Test
+    void testOne() {
+        UdpRing ring = new UdpRing(4, 16);
+        assertEquals(-1, ring.poll());
+        ByteBuffer packet = ByteBuffer.allocate(8);
+        packet.putLong(1234);
+        packet.flip();
+        ring.offer(packet);
+        // the source packet is untouched.
+        assertEquals(8, packet.remaining());
+        long seq = ring.poll();
+        assertEquals(0, seq);
+        assertEquals(-1, ring.poll());
+        ByteBuffer slot = ring.get(seq);
+        assertEquals(8, slot.remaining());
+        assertEquals(1234, slot.getLong());
+        ring.release(seq);
+    }
+
+    @Test
+    void testWrap() {
+        UdpRing ring = new UdpRing(2, 16);
+        for (long i = 0; i < 10; ++i) {
+            ByteBuffer slot = ring.claim();
+            slot.putLong(i);
+            slot.flip();
+            ring.publish();
+            long seq = ring.poll();
+            assertEquals(i, seq);
+            assertEquals(i, ring.get(seq).getLong());
+            ring.release(seq);
+        }
+    }
+
+    @Test
+    void testCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new UdpRing(3, 16));
+    }
+
+    /** Drain waits until every published packet is released. */
+    @Test
+    void testDrain() throws InterruptedException {
+        UdpRing ring = new UdpRing(4, 16);
+        // nothing published, nothing to wait for.
+        ring.drain();
+        ByteBuffer packet = ByteBuffer.allocate(8);
+        packet.putLong(1234);
+        packet.flip();
+        ring.offer(packet);
+        ring.offer(packet);
+        long first = ring.poll();
+        long second = ring.poll();
+        ring.release(first);
+        Thread producer = new Thread(ring::drain);
+        producer.start();
+        producer.join(100);
+        // still waiting for the second one
+        assertTrue(producer.isAlive());
+        ring.release(second);
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+    }
+
+    /** Every packet should be taken by exactly one worker. */
+    @Test
+    void testWorkers() throws InterruptedException {
+        final int PACKETS = 100000;
+        final int WORKERS = 4;
+        UdpRing ring = new UdpRing(16, 16);
+        AtomicIntegerArray seen = new AtomicIntegerArray(PACKETS);
+        LongAdder count = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < WORKERS; ++i) {
+            Thread t = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long seq = ring.poll();
+                    if (seq < 0) {
+                        LockSupport.parkNanos(20000);
+                        continue;
+                    }
+                    seen.incrementAndGet(ring.get(seq).getInt());
+                    ring.release(seq);
+                    count.increment();
+                }
+            });
+            t.start();
+            workers.add(t);
+        }
+        ByteBuffer packet = ByteBuffer.allocate(4);
+        for (int i = 0; i < PACKETS; ++i) {
+            packet.clear();
+            packet.putInt(i);
+            packet.flip();
+            ring.offer(packet);
+        }
+        long deadline = System.nanoTime() + 10000000000L;
+        while (count.sum() < PACKETS && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        for (Thread t : workers) {
+            t.interrupt();
+            t.join();
+        }
+        assertEquals(PACKETS, count.sum());
+        for (int i = 0; i < PACKETS; ++i) {
+            assertEquals(1, seen.get(i));
+        }
+    }
+}
@@ -6,10 +6,14 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
 class UdpPrimitiveProtocol2Test {
 
     //////////////////////////////
@@ -249,6 +253,28 @@ class UdpPrimitiveProtocol2Test {
         assertEquals("hello", v);
     }
 
+    @Test
+    void testRaw() throws ProtocolException {
+        // a packed Pose2d is three doubles
+        ByteBuffer packed = ByteBuffer.allocate(Pose2d.struct.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+        Pose2d.struct.pack(packed, new Pose2d(1, 2, new Rotation2d(3)));
+        ByteBuffer bb = ByteBuffer.allocate(30);
+        int len = UdpPrimitiveProtocol.encodeRaw(bb, 16, packed.array());
+        assertEquals(28, len);
+        assertEquals((byte) 7, bb.get(2)); // type
+        assertEquals((byte) 24, bb.get(3)); // length
+
+        bb.flip();
+        assertEquals(16, UdpPrimitiveProtocol.decodeKey(bb));
+        assertEquals(UdpType.RAW, UdpPrimitiveProtocol.decodeType(bb));
+        byte[] v = UdpPrimitiveProtocol.decodeRaw(bb);
+        assertEquals(28, bb.position());
+        Pose2d pose = Pose2d.struct.unpack(ByteBuffer.wrap(v).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(1, pose.getX());
+        assertEquals(2, pose.getY());
+        assertEquals(3, pose.getRotation().getRadians(), 1e-9);
+    }
+
     ////////////////////////////////////////////
     //
     // multi-type buffer